@@ -0,0 +1,104 @@
+package com.demo.api_deals.benchmark;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.demo.api_deals.catalog.DealsCatalog;
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+import com.demo.api_deals.model.TimeEvent;
+import com.demo.api_deals.resource.DealsDeltaIngestor;
+import com.demo.api_deals.resource.DealsSnapshotHolder;
+import com.demo.api_deals.service.DealsMetrics;
+import com.demo.api_deals.service.DealsServiceImpl;
+import com.demo.contract_api_deals.models.ActiveDealsResponse;
+import com.demo.contract_api_deals.models.PeakDealsResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Benchmarks the DealsServiceImpl hot paths against synthetic catalogs of increasing size.
+ * Run with the "benchmark" Maven profile (see README); the GC profiler is enabled by default to report allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DealsServiceBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    public int dealCount;
+
+    @Param({ "UNIFORM", "EVENING_PEAK", "RESTAURANT_HOURS" })
+    public SyntheticDeals.TimeDistribution distribution;
+
+    // Keep the catalog's deals in off-heap records rather than Deal objects
+    @Param({ "false", "true" })
+    public boolean offHeap;
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    private RestaurauntDealsResponseDto data;
+    private DealsServiceImpl dealsService;
+    private List<TimeEvent> timeEvents;
+    private final LocalTime timeOfDay = LocalTime.of(18, 0);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        data = SyntheticDeals.generate(dealCount, distribution, 42L);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DealsProperties dealsProperties = new DealsProperties();
+        dealsProperties.getOffHeap().setEnabled(offHeap);
+        DealsCatalogRegistry catalogRegistry = new DealsCatalogRegistry(responseMapper, dealsProperties, meterRegistry);
+        DealsSnapshotHolder snapshotHolder = new DealsSnapshotHolder();
+        dealsService = new DealsServiceImpl(responseMapper, catalogRegistry, () -> Mono.just(data),
+                new DealsDeltaIngestor(snapshotHolder, catalogRegistry, meterRegistry),
+                new DealsMetrics(meterRegistry, responseMapper, snapshotHolder));
+
+        timeEvents = SyntheticDeals.toTimeEvents(data, responseMapper::parseRestaurantDtoTime);
+
+        // Compile the catalog up front so the query benchmarks measure steady state, not the first request
+        dealsService.getActiveDeals(timeOfDay).block();
+    }
+
+    @Benchmark
+    public ActiveDealsResponse getActiveDeals() {
+        return dealsService.getActiveDeals(timeOfDay).block();
+    }
+
+    @Benchmark
+    public PeakDealsResponse getPeakDeals() {
+        return dealsService.getPeakDeals().block();
+    }
+
+    @Benchmark
+    public PeakDealsResponse findPeakDealsWindow() {
+        return dealsService.findPeakDealsWindow(timeEvents);
+    }
+
+    // The cost paid once per snapshot, when the data changes
+    @Benchmark
+    public DealsCatalog compileCatalog() {
+        return DealsCatalog.compile(data, responseMapper);
+    }
+}
@@ -0,0 +1,65 @@
+package com.demo.api_deals.benchmark;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+/**
+ * Benchmarks the per-deal ResponseDtoToResponseMapper operations used when compiling and serving deals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseMapperBenchmark {
+
+    private static final String[] TIMES = { "3:00pm", "12:00am", "11:45pm", "9:30am", "12:15pm" };
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    private RestaurantResponseDto restaurant;
+    private DealResponseDto deal;
+    private int next;
+
+    @Setup
+    public void setup() {
+        RestaurauntDealsResponseDto data = SyntheticDeals.generate(1, SyntheticDeals.TimeDistribution.EVENING_PEAK, 42L);
+        restaurant = data.getRestaurants()[0];
+        deal = restaurant.getDeals()[0];
+    }
+
+    @Benchmark
+    public LocalTime parseRestaurantDtoTime() {
+        next = (next + 1) % TIMES.length;
+        return responseMapper.parseRestaurantDtoTime(TIMES[next]);
+    }
+
+    @Benchmark
+    public String formatRestaurantDtoTimeForUpstream() {
+        next = (next + 1) % TIMES.length;
+        return responseMapper.formatRestaurantDtoTimeForUpstream(TIMES[next]);
+    }
+
+    @Benchmark
+    public Deal mapActiveDealResponse() {
+        return responseMapper.mapActiveDealResponse(restaurant, deal);
+    }
+}
@@ -0,0 +1,125 @@
+package com.demo.api_deals.benchmark;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+import com.demo.api_deals.model.TimeEvent;
+
+/**
+ * Generates synthetic deals catalogs for the benchmarks, in the same shape and time format as the upstream data.
+ * Generation is seeded so every run of a benchmark sees the same catalog.
+ */
+public final class SyntheticDeals {
+
+    private static final int DEALS_PER_RESTAURANT = 4;
+    private static final String[] SUBURBS = { "Melbourne", "Richmond", "Saint Kilda", "Pyrmont", "Lower East", "Carlton", "Fitzroy" };
+    private static final String[] CUISINES = { "Indian", "Asian", "Korean", "Thai", "Pizza", "Seafood", "Vegetarian", "Breakfast" };
+
+    /**
+     * How deal and restaurant hours are spread over the day.
+     */
+    public enum TimeDistribution {
+        // Hours start anywhere in the day, on a 15 minute grid
+        UNIFORM,
+        // Most deals cluster around dinner time, like the real data
+        EVENING_PEAK,
+        // Deals have no hours of their own, so fall back to the restaurant hours
+        RESTAURANT_HOURS
+    }
+
+    private SyntheticDeals() {
+    }
+
+    public static RestaurauntDealsResponseDto generate(int dealCount, TimeDistribution distribution, long seed) {
+        Random random = new Random(seed);
+        int restaurantCount = Math.max(1, (dealCount + DEALS_PER_RESTAURANT - 1) / DEALS_PER_RESTAURANT);
+        RestaurantResponseDto[] restaurants = new RestaurantResponseDto[restaurantCount];
+
+        int remainingDeals = dealCount;
+        for (int r = 0; r < restaurantCount; r++) {
+            int open = 6 * 60 + random.nextInt(8) * 60;
+            int close = Math.min(open + (6 + random.nextInt(8)) * 60, 23 * 60 + 45);
+
+            int restaurantDealCount = Math.min(DEALS_PER_RESTAURANT, remainingDeals);
+            remainingDeals -= restaurantDealCount;
+
+            DealResponseDto[] deals = new DealResponseDto[restaurantDealCount];
+            for (int d = 0; d < restaurantDealCount; d++) {
+                int[] hours = dealHours(distribution, random, open, close);
+                deals[d] = DealResponseDto.builder()
+                        .objectId(String.format("DEAL-%08d-%02d", r, d))
+                        .discount(String.valueOf(10 + random.nextInt(9) * 5))
+                        .dineIn(String.valueOf(random.nextBoolean()))
+                        .lightning(String.valueOf(random.nextInt(5) == 0))
+                        .start(hours != null ? formatUpstreamTime(hours[0]) : null)
+                        .end(hours != null ? formatUpstreamTime(hours[1]) : null)
+                        .qtyLeft(String.valueOf(random.nextInt(10)))
+                        .build();
+            }
+
+            restaurants[r] = RestaurantResponseDto.builder()
+                    .objectId(String.format("RESTAURANT-%08d", r))
+                    .name("Restaurant " + r)
+                    .address1(r + " Synthetic Street")
+                    .suburb(SUBURBS[random.nextInt(SUBURBS.length)])
+                    .cuisines(new String[] { CUISINES[random.nextInt(CUISINES.length)], CUISINES[random.nextInt(CUISINES.length)] })
+                    .imageLink("https://example.com/images/" + r + ".jpg")
+                    .open(formatUpstreamTime(open))
+                    .close(formatUpstreamTime(close))
+                    .deals(deals)
+                    .build();
+        }
+
+        return RestaurauntDealsResponseDto.builder().restaurants(restaurants).build();
+    }
+
+    /**
+     * Builds the TimeEvent list findPeakDealsWindow expects, using deal hours and falling back to restaurant hours.
+     */
+    public static List<TimeEvent> toTimeEvents(RestaurauntDealsResponseDto data, Function<String, LocalTime> parser) {
+        List<TimeEvent> events = new ArrayList<>();
+        for (RestaurantResponseDto restaurant : data.getRestaurants()) {
+            for (DealResponseDto deal : restaurant.getDeals()) {
+                String start = deal.getStart() != null ? deal.getStart() : restaurant.getOpen();
+                String end = deal.getEnd() != null ? deal.getEnd() : restaurant.getClose();
+                events.add(new TimeEvent(parser.apply(start), TimeEvent.EventType.START));
+                events.add(new TimeEvent(parser.apply(end), TimeEvent.EventType.END));
+            }
+        }
+        return events;
+    }
+
+    private static int[] dealHours(TimeDistribution distribution, Random random, int open, int close) {
+        switch (distribution) {
+            case UNIFORM: {
+                int start = random.nextInt(23 * 4) * 15;
+                int end = Math.min(start + (1 + random.nextInt(16)) * 15, 23 * 60 + 45);
+                return new int[] { start, end };
+            }
+            case EVENING_PEAK: {
+                // Normally distributed around 6pm, with a standard deviation of 90 minutes
+                int start = (int) Math.round(18 * 60 + random.nextGaussian() * 90) / 15 * 15;
+                start = Math.max(0, Math.min(start, 22 * 60));
+                int end = Math.min(start + (4 + random.nextInt(12)) * 15, 23 * 60 + 45);
+                return new int[] { start, end };
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the minute of the day formatted in the upstream "h:mma" format, e.g. "3:00pm"
+     */
+    public static String formatUpstreamTime(int minuteOfDay) {
+        int hour = minuteOfDay / 60;
+        int hour12 = hour % 12 == 0 ? 12 : hour % 12;
+        return String.format("%d:%02d%s", hour12, minuteOfDay % 60, hour < 12 ? "am" : "pm");
+    }
+}
@@ -0,0 +1,132 @@
+package com.demo.api_deals.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import com.demo.api_deals.configuration.DealsProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded LRU cache of encoded JSON response bodies, keyed by the version (and inventory revision) they were built from.
+ * Entries are written to the response as-is with the headers they were first served with, so a hit skips mapping and
+ * Jackson serialisation entirely.
+ *
+ * Every key carries the version of the data its endpoint depends on (the snapshot, or the peak version for the peak window),
+ * and the current version is tracked per endpoint. The first lookup or store for a newer version drops that endpoint's
+ * entries at once rather than waiting for them to age out, leaving the other endpoints' entries in place.
+ */
+@Component
+public class ResponseBytesCache {
+
+    /**
+     * @param version - version of the data the response was built from, e.g. the snapshot version
+     * @param inventoryRevision - revision of the live inventory the response was built from
+     * @param endpoint - the endpoint the response is for, e.g. "active"
+     * @param minuteOfDay - the normalised timeOfDay the response is for, or -1 if the endpoint doesn't take one
+     */
+    public record Key(long version, long inventoryRevision, String endpoint, int minuteOfDay) {
+    }
+
+    /**
+     * @param body - the encoded response body. The array is shared and must not be modified.
+     * @param headers - the content type, validator and caching headers the response was served with
+     * @param storedAtMillis - when the response was stored, so a hit can report its Age against the stored Cache-Control
+     */
+    public record Entry(byte[] body, HttpHeaders headers, long storedAtMillis) {
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Map<String, Long> currentVersions = new HashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter invalidations;
+
+    public ResponseBytesCache(DealsProperties dealsProperties, MeterRegistry meterRegistry) {
+        this.maxEntries = dealsProperties.getResponseCache().getMaxEntries();
+        // Access ordered, so the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = Counter.builder("deals.response-cache.requests").tag("result", "hit")
+                .description("Response cache lookups").register(meterRegistry);
+        this.misses = Counter.builder("deals.response-cache.requests").tag("result", "miss")
+                .description("Response cache lookups").register(meterRegistry);
+        this.evictions = Counter.builder("deals.response-cache.evictions")
+                .description("Entries evicted to keep the response cache within its size limit").register(meterRegistry);
+        this.invalidations = Counter.builder("deals.response-cache.invalidations")
+                .description("Times an endpoint's entries were cleared because a newer version of its data was published").register(meterRegistry);
+        Gauge.builder("deals.response-cache.size", this, ResponseBytesCache::size)
+                .description("Entries in the response cache").register(meterRegistry);
+    }
+
+    /**
+     * @return the cached response for the key, or null on a miss
+     */
+    public synchronized Entry get(Key key) {
+        advanceVersion(key);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Stores a response, evicting the least recently used entry if the cache is full.
+     * Responses for an older version than the endpoint's current one are ignored.
+     */
+    public synchronized void put(Key key, Entry entry) {
+        if (advanceVersion(key) == key.version()) {
+            entries.put(key, entry);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Moves the key's endpoint on to the key's version if it is newer, dropping the endpoint's entries for older versions.
+     * @return the endpoint's current version
+     */
+    private long advanceVersion(Key key) {
+        Long currentVersion = currentVersions.get(key.endpoint());
+        if (currentVersion != null && key.version() <= currentVersion) {
+            return currentVersion;
+        }
+
+        boolean removed = false;
+        for (Iterator<Key> iterator = entries.keySet().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().endpoint().equals(key.endpoint())) {
+                iterator.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            invalidations.increment();
+        }
+        currentVersions.put(key.endpoint(), key.version());
+        return key.version();
+    }
+}
@@ -0,0 +1,174 @@
+package com.demo.api_deals.cache;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.demo.api_deals.catalog.DealsCatalog;
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.resource.DealsSnapshotHolder;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves /v1/active and /v1/peak from the ResponseBytesCache, and fills the cache from successful responses.
+ * A hit writes the cached bytes and headers straight to the response without reaching the controller, answering a
+ * matching If-None-Match with a 304 as the controller would, and reports the entry's Age so the stored Cache-Control
+ * max-age still expires when it would have for the original response.
+ * Only enabled with deals.response-cache.enabled, and only for DealsResource implementations that publish through DealsSnapshotHolder.
+ */
+@Component
+@ConditionalOnProperty(prefix = "deals.response-cache", name = "enabled", havingValue = "true")
+public class ResponseBytesCacheFilter implements WebFilter {
+
+    private static final String ACTIVE_PATH = "/v1/active";
+    private static final String PEAK_PATH = "/v1/peak";
+
+    // Headers kept with a cached body. Validators and caching headers are also sent with a 304
+    private static final List<String> VALIDATOR_HEADERS = List.of(HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL);
+
+    private final ResponseBytesCache responseCache;
+    private final DealsSnapshotHolder snapshotHolder;
+    private final DealsCatalogRegistry catalogRegistry;
+
+    public ResponseBytesCacheFilter(ResponseBytesCache responseCache, DealsSnapshotHolder snapshotHolder, DealsCatalogRegistry catalogRegistry) {
+        this.responseCache = responseCache;
+        this.snapshotHolder = snapshotHolder;
+        this.catalogRegistry = catalogRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ResponseBytesCache.Key key = keyFor(exchange);
+        if (key == null) {
+            return chain.filter(exchange);
+        }
+
+        ResponseBytesCache.Entry cached = responseCache.get(key);
+        if (cached != null) {
+            return writeCached(exchange, cached);
+        }
+
+        return chain.filter(exchange.mutate().response(new CachingResponse(exchange.getResponse(), key)).build());
+    }
+
+    /**
+     * Writes a cached response, or a 304 with its validators if the request's If-None-Match matches its ETag.
+     */
+    private Mono<Void> writeCached(ServerWebExchange exchange, ResponseBytesCache.Entry cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        for (String name : VALIDATOR_HEADERS) {
+            List<String> values = cached.headers().getOrEmpty(name);
+            if (!values.isEmpty()) {
+                response.getHeaders().put(name, values);
+            }
+        }
+        long ageSeconds = Math.max(0, (System.currentTimeMillis() - cached.storedAtMillis()) / 1000);
+        response.getHeaders().set(HttpHeaders.AGE, String.valueOf(ageSeconds));
+
+        String eTag = cached.headers().getETag();
+        if (eTag != null && exchange.checkNotModified(eTag)) {
+            return response.setComplete();
+        }
+
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentType(cached.headers().getContentType());
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    /**
+     * @return the cache key for the request, or null if the request can't be served from the cache
+     */
+    private ResponseBytesCache.Key keyFor(ServerWebExchange exchange) {
+        if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+            return null;
+        }
+        DealsSnapshot snapshot = snapshotHolder.getCurrent();
+        if (snapshot == null) {
+            return null;
+        }
+        long inventoryRevision = catalogRegistry.getInventoryRevision(snapshot.getData());
+
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (PEAK_PATH.equals(path)) {
+            // The peak window doesn't depend on the live quantities, and only changes when the deal times do
+            long peakVersion = catalogRegistry.getPeakVersion(snapshot.getData());
+            return peakVersion >= 0 ? new ResponseBytesCache.Key(peakVersion, 0, "peak", -1) : null;
+        }
+        if (ACTIVE_PATH.equals(path)) {
+            // Invalid or missing times are left to the controller to reject
+            String timeOfDay = exchange.getRequest().getQueryParams().getFirst("timeOfDay");
+            if (timeOfDay == null) {
+                return null;
+            }
+            try {
+                LocalTime parsed = LocalTime.parse(timeOfDay, ResponseDtoToResponseMapper.UPSTREAM_TIME_FORMATTER);
+                return new ResponseBytesCache.Key(snapshot.getVersion(), inventoryRevision, "active", DealsCatalog.minuteOfDay(parsed));
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies a response body and its headers into the cache as it is written, if the response explicitly set a 2xx status.
+     * A response that leaves its status unset is not cached, as it may still be changed to an error after the body is written.
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ResponseBytesCache.Key key;
+
+        CachingResponse(ServerHttpResponse delegate, ResponseBytesCache.Key key) {
+            super(delegate);
+            this.key = key;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            if (status == null || !status.is2xxSuccessful()) {
+                return super.writeWith(body);
+            }
+            return super.writeWith(DataBufferUtils.join(Flux.from(body))
+                    .map(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+                        responseCache.put(key, new ResponseBytesCache.Entry(bytes, cachedHeaders(), System.currentTimeMillis()));
+                        return bufferFactory().wrap(bytes);
+                    }));
+        }
+
+        private HttpHeaders cachedHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(getHeaders().getContentType());
+            for (String name : VALIDATOR_HEADERS) {
+                List<String> values = getHeaders().getOrEmpty(name);
+                if (!values.isEmpty()) {
+                    headers.put(name, List.copyOf(values));
+                }
+            }
+            return headers;
+        }
+    }
+}
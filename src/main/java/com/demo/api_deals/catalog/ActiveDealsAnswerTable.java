@@ -0,0 +1,143 @@
+package com.demo.api_deals.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.demo.contract_api_deals.models.Deal;
+
+/**
+ * The active deals for every minute of the day, materialised when a catalog is compiled.
+ * Serving a request is an array lookup plus a check of the segment's live quantities, with no filtering or mapping.
+ *
+ * Memory is bounded by the catalog's time segments rather than by minutes: every minute in a segment has the
+ * same active deals, so minutes share one unmodifiable list of deals, and the lists share the catalog's Deal instances.
+ * The lists hold the quantities read when the table was built. Claims and quantity deltas don't drop the table: each
+ * segment keeps its rows, and its list is only served while every row still has the quantity it was built with.
+ * A segment with a changed quantity is filtered against the live inventory instead (see DealsCatalog.answerActiveDeals).
+ * With off-heap records the table keeps only the rows, so no Deal is held on the heap, and every request materialises its
+ * deals through one cursor as getActiveDeals does.
+ * Serialised responses are kept by the response cache (deals.response-cache), which also serves them conditionally.
+ */
+public final class ActiveDealsAnswerTable {
+
+    // Object header and references of a Deal copied with a live quantity. Its values are shared with the catalog's Deal
+    private static final long DEAL_COPY_BYTES = 72;
+
+    private final int[] segmentOfMinute;
+    private final int[][] segmentRows;
+    private final List<Deal>[] segmentDeals;
+    private final int[] builtQtyLeft;
+    private final DealInventory inventory;
+    private final long buildTimeNanos;
+    private final long estimatedSizeBytes;
+
+    private ActiveDealsAnswerTable(int[] segmentOfMinute, int[][] segmentRows, List<Deal>[] segmentDeals, int[] builtQtyLeft,
+            DealInventory inventory, long buildTimeNanos, long estimatedSizeBytes) {
+        this.segmentOfMinute = segmentOfMinute;
+        this.segmentRows = segmentRows;
+        this.segmentDeals = segmentDeals;
+        this.builtQtyLeft = builtQtyLeft;
+        this.inventory = inventory;
+        this.buildTimeNanos = buildTimeNanos;
+        this.estimatedSizeBytes = estimatedSizeBytes;
+    }
+
+    /**
+     * Builds the answer table for the given catalog.
+     * @param records - the catalog's deals, indexed by the time index entries
+     * @param columns - the catalog's primitive columns
+     * @param inventory - the catalog's live quantities, read once per deal for the table
+     * @param activeIndex - the catalog's time index over every deal
+     * @param ownsIndex - whether the time index was built just for the table, so its rows count towards the table's size
+     */
+    @SuppressWarnings("unchecked")
+    static ActiveDealsAnswerTable build(DealRecords records, DealColumns columns, DealInventory inventory, TimeSegmentIndex activeIndex, boolean ownsIndex) {
+        long startNanos = System.nanoTime();
+        int segmentCount = activeIndex.segmentCount();
+        int[][] segmentRows = new int[segmentCount][];
+        int[] segmentOfMinute = new int[TimeSegmentIndex.MINUTES_PER_DAY];
+        for (int minute = 0; minute < segmentOfMinute.length; minute++) {
+            segmentOfMinute[minute] = activeIndex.segmentOf(minute);
+        }
+
+        // Array header and reference estimates for the shared structures
+        long estimatedSizeBytes = 16L + 4L * TimeSegmentIndex.MINUTES_PER_DAY + 16L + 4L * segmentCount;
+        for (int segment = 0; segment < segmentCount; segment++) {
+            segmentRows[segment] = activeIndex.segmentEntries(segment);
+            if (ownsIndex) {
+                estimatedSizeBytes += 16L + 4L * segmentRows[segment].length;
+            }
+        }
+
+        // Off-heap records keep the Deals out of the heap, so their table is only rows and is always read live
+        if (records.getOffHeapSizeBytes() > 0) {
+            return new ActiveDealsAnswerTable(segmentOfMinute, segmentRows, null, null, inventory, System.nanoTime() - startNanos, estimatedSizeBytes);
+        }
+
+        // Each quantity is read once, so a claim during the build can't give one deal two quantities across segments
+        int[] builtQtyLeft = new int[columns.dealCount()];
+        for (int row = 0; row < builtQtyLeft.length; row++) {
+            builtQtyLeft[row] = inventory.qtyLeft(row);
+        }
+        estimatedSizeBytes += 16L + 4L * builtQtyLeft.length;
+
+        // Each deal is read once, so segments share one instance. The catalog's own Deals are only referenced,
+        // but a deal whose live quantity differs from the snapshot's is a copy held by the table
+        Deal[] deals = new Deal[builtQtyLeft.length];
+        DealRecords.Reader reader = records.reader();
+        List<Deal>[] segmentDeals = new List[segmentCount];
+        for (int segment = 0; segment < segmentCount; segment++) {
+            int[] active = segmentRows[segment];
+            List<Deal> activeDeals = new ArrayList<>(active.length);
+            for (int index : active) {
+                if (builtQtyLeft[index] > 0) {
+                    if (deals[index] == null) {
+                        deals[index] = reader.liveDeal(index, builtQtyLeft[index]);
+                        if (deals[index] != reader.deal(index)) {
+                            estimatedSizeBytes += DEAL_COPY_BYTES;
+                        }
+                    }
+                    activeDeals.add(deals[index]);
+                }
+            }
+            segmentDeals[segment] = List.copyOf(activeDeals);
+
+            estimatedSizeBytes += 32L + 4L * segmentDeals[segment].size();
+        }
+
+        return new ActiveDealsAnswerTable(segmentOfMinute, segmentRows, segmentDeals, builtQtyLeft, inventory,
+                System.nanoTime() - startNanos, estimatedSizeBytes);
+    }
+
+    /**
+     * @return the ascending rows active in the given minute's segment, whatever their quantity. Shared, must not be modified.
+     */
+    int[] rowsAt(int minuteOfDay) {
+        return segmentRows[segmentOfMinute[minuteOfDay]];
+    }
+
+    /**
+     * @return the segment's shared unmodifiable list of deals for the given minute of the day, or null if the records are
+     * off the heap or a claim or quantity delta has changed the quantity of any of the segment's rows since the table was built
+     */
+    List<Deal> builtDealsAt(int minuteOfDay) {
+        if (segmentDeals == null) {
+            return null;
+        }
+        int segment = segmentOfMinute[minuteOfDay];
+        for (int row : segmentRows[segment]) {
+            if (inventory.qtyLeft(row) != builtQtyLeft[row]) {
+                return null;
+            }
+        }
+        return segmentDeals[segment];
+    }
+
+    public long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    public long getEstimatedSizeBytes() {
+        return estimatedSizeBytes;
+    }
+}
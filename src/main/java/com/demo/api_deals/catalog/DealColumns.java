@@ -0,0 +1,418 @@
+package com.demo.api_deals.catalog;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+/**
+ * Columnar, primitive representation of the restaurants and deals in one snapshot, used by the catalog's hot paths.
+ *
+ * Each deal is a row index into parallel int arrays (active interval, discount, quantity left, restaurant) and bitsets
+ * (dineIn, lightning), rather than an object holding Strings. Suburbs, cuisines and object ids are dictionary encoded,
+ * so every distinct value is held once however many restaurants or deals repeat it. Restaurant coordinates are parsed
+ * once into double columns, NaN when missing or invalid.
+ * Rows are in source order (restaurant order, then deal order), matching the catalog's Deal array.
+ */
+public final class DealColumns {
+
+    // Stored for a discount or quantity that is missing or couldn't be parsed
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    // Deal columns
+    private final int dealCount;
+    private final int[] dealObjectId;
+    private final int[] restaurant;
+    private final int[] activeStart;
+    private final int[] activeEnd;
+    private final int[] peakStart;
+    private final int[] peakEnd;
+    private final int[] discount;
+    private final int[] qtyLeft;
+    private final BitSet dineIn;
+    private final BitSet lightning;
+
+    // Restaurant columns. Cuisines are stored as a flat code array, with restaurant r's cuisines at [cuisineOffsets[r], cuisineOffsets[r + 1])
+    private final int restaurantCount;
+    private final int[] restaurantObjectId;
+    // Restaurant r's deals are the rows [firstDeal[r], firstDeal[r + 1]), as rows are in restaurant order
+    private final int[] firstDeal;
+    private final int[] suburb;
+    private final double[] latitude;
+    private final double[] longitude;
+    private final int[] cuisineOffsets;
+    private final int[] cuisineCodes;
+
+    private final StringDictionary objectIds;
+    private final StringDictionary suburbs;
+    private final StringDictionary cuisines;
+
+    private DealColumns(Builder builder) {
+        this.dealCount = builder.dealCount;
+        this.dealObjectId = Arrays.copyOf(builder.dealObjectId, builder.dealCount);
+        this.restaurant = Arrays.copyOf(builder.restaurant, builder.dealCount);
+        this.activeStart = Arrays.copyOf(builder.activeStart, builder.dealCount);
+        this.activeEnd = Arrays.copyOf(builder.activeEnd, builder.dealCount);
+        this.peakStart = Arrays.copyOf(builder.peakStart, builder.dealCount);
+        this.peakEnd = Arrays.copyOf(builder.peakEnd, builder.dealCount);
+        this.discount = Arrays.copyOf(builder.discount, builder.dealCount);
+        this.qtyLeft = Arrays.copyOf(builder.qtyLeft, builder.dealCount);
+        this.dineIn = (BitSet) builder.dineIn.clone();
+        this.lightning = (BitSet) builder.lightning.clone();
+
+        this.restaurantCount = builder.restaurantCount;
+        this.restaurantObjectId = Arrays.copyOf(builder.restaurantObjectId, builder.restaurantCount);
+        this.firstDeal = Arrays.copyOf(builder.firstDeal, builder.restaurantCount + 1);
+        this.firstDeal[builder.restaurantCount] = builder.dealCount;
+        this.suburb = Arrays.copyOf(builder.suburb, builder.restaurantCount);
+        this.latitude = Arrays.copyOf(builder.latitude, builder.restaurantCount);
+        this.longitude = Arrays.copyOf(builder.longitude, builder.restaurantCount);
+        this.cuisineOffsets = Arrays.copyOf(builder.cuisineOffsets, builder.restaurantCount + 1);
+        this.cuisineCodes = Arrays.copyOf(builder.cuisineCodes, builder.cuisineOffsets[builder.restaurantCount]);
+
+        this.objectIds = builder.objectIds;
+        this.suburbs = builder.suburbs;
+        this.cuisines = builder.cuisines;
+    }
+
+    /**
+     * Collects the columns one restaurant and deal at a time. Builders are not thread safe.
+     */
+    static final class Builder {
+
+        private int dealCount;
+        private int[] dealObjectId = new int[64];
+        private int[] restaurant = new int[64];
+        private int[] activeStart = new int[64];
+        private int[] activeEnd = new int[64];
+        private int[] peakStart = new int[64];
+        private int[] peakEnd = new int[64];
+        private int[] discount = new int[64];
+        private int[] qtyLeft = new int[64];
+        private final BitSet dineIn = new BitSet();
+        private final BitSet lightning = new BitSet();
+
+        private int restaurantCount;
+        private int[] restaurantObjectId = new int[16];
+        private int[] firstDeal = new int[16];
+        private int[] suburb = new int[16];
+        private double[] latitude = new double[16];
+        private double[] longitude = new double[16];
+        private int[] cuisineOffsets = new int[17];
+        private int[] cuisineCodes = new int[32];
+
+        private final StringDictionary objectIds = new StringDictionary();
+        private final StringDictionary suburbs = new StringDictionary();
+        private final StringDictionary cuisines = new StringDictionary();
+
+        /**
+         * Adds a restaurant row. Its deals must be added next, before the following restaurant.
+         */
+        void addRestaurant(RestaurantResponseDto restaurantDto) {
+            double lat = parseCoordinate(restaurantDto.getLatitude(), 90);
+            double lon = parseCoordinate(restaurantDto.getLongitude(), 180);
+            // A location needs both coordinates, so drop a lone latitude or longitude
+            addRestaurant(restaurantDto, Double.isNaN(lon) ? Double.NaN : lat, Double.isNaN(lat) ? Double.NaN : lon);
+        }
+
+        /**
+         * Adds a restaurant row with its coordinates already parsed, e.g. as stored in a snapshot file.
+         * @param lat - the latitude in decimal degrees, or NaN if the restaurant has no location
+         * @param lon - the longitude in decimal degrees, or NaN if the restaurant has no location
+         */
+        void addRestaurant(RestaurantResponseDto restaurantDto, double lat, double lon) {
+            ensureRestaurantCapacity();
+            restaurantObjectId[restaurantCount] = objectIds.encode(restaurantDto.getObjectId());
+            firstDeal[restaurantCount] = dealCount;
+            suburb[restaurantCount] = suburbs.encode(restaurantDto.getSuburb());
+            latitude[restaurantCount] = lat;
+            longitude[restaurantCount] = lon;
+
+            int cuisineEnd = cuisineOffsets[restaurantCount];
+            if (restaurantDto.getCuisines() != null) {
+                if (cuisineEnd + restaurantDto.getCuisines().length > cuisineCodes.length) {
+                    cuisineCodes = Arrays.copyOf(cuisineCodes, Math.max(cuisineEnd + restaurantDto.getCuisines().length, cuisineCodes.length * 2));
+                }
+                for (String cuisine : restaurantDto.getCuisines()) {
+                    if (cuisine != null) {
+                        cuisineCodes[cuisineEnd++] = cuisines.encode(cuisine);
+                    }
+                }
+            }
+            cuisineOffsets[++restaurantCount] = cuisineEnd;
+        }
+
+        /**
+         * Adds a deal row for the most recently added restaurant.
+         * @param dealObjectIdValue - the deal's objectId
+         * @param start - inclusive start of the deal's active interval, in minutes of the day
+         * @param end - exclusive end of the deal's active interval, in minutes of the day
+         * @param peakStartMinute - start of the interval the deal counts towards the peak window for, or -1 if it doesn't count
+         * @param peakEndMinute - end of the interval the deal counts towards the peak window for, or -1 if it doesn't count
+         * @param deal - the mapped API deal, or null if the deal couldn't be mapped (its values are then stored as MISSING)
+         */
+        void addDeal(String dealObjectIdValue, int start, int end, int peakStartMinute, int peakEndMinute, Deal deal) {
+            ensureDealCapacity();
+            dealObjectId[dealCount] = objectIds.encode(dealObjectIdValue);
+            restaurant[dealCount] = restaurantCount - 1;
+            activeStart[dealCount] = start;
+            activeEnd[dealCount] = end;
+            peakStart[dealCount] = peakStartMinute;
+            peakEnd[dealCount] = peakEndMinute;
+            discount[dealCount] = (deal != null && deal.getDiscount() != null) ? deal.getDiscount() : MISSING;
+            qtyLeft[dealCount] = (deal != null && deal.getQtyLeft() != null) ? deal.getQtyLeft() : MISSING;
+            dineIn.set(dealCount, deal != null && Boolean.TRUE.equals(deal.getDineIn()));
+            lightning.set(dealCount, deal != null && Boolean.TRUE.equals(deal.getLightning()));
+            dealCount++;
+        }
+
+        /**
+         * Copies a restaurant row and its deal rows from another snapshot's columns, without re-reading the restaurant.
+         * Used to carry unchanged restaurants over when a snapshot is patched.
+         */
+        void copyRestaurant(DealColumns from, int restaurantRow) {
+            ensureRestaurantCapacity();
+            restaurantObjectId[restaurantCount] = objectIds.encode(from.restaurantObjectId(restaurantRow));
+            firstDeal[restaurantCount] = dealCount;
+            suburb[restaurantCount] = suburbs.encode(from.suburbs.decode(from.suburbCode(restaurantRow)));
+            latitude[restaurantCount] = from.latitude(restaurantRow);
+            longitude[restaurantCount] = from.longitude(restaurantRow);
+
+            int cuisineEnd = cuisineOffsets[restaurantCount];
+            int cuisineCount = from.cuisineCount(restaurantRow);
+            if (cuisineEnd + cuisineCount > cuisineCodes.length) {
+                cuisineCodes = Arrays.copyOf(cuisineCodes, Math.max(cuisineEnd + cuisineCount, cuisineCodes.length * 2));
+            }
+            for (int i = 0; i < cuisineCount; i++) {
+                cuisineCodes[cuisineEnd++] = cuisines.encode(from.cuisines.decode(from.cuisineCode(restaurantRow, i)));
+            }
+            cuisineOffsets[++restaurantCount] = cuisineEnd;
+
+            for (int row = from.firstDealOf(restaurantRow); row < from.endDealOf(restaurantRow); row++) {
+                ensureDealCapacity();
+                dealObjectId[dealCount] = objectIds.encode(from.dealObjectId(row));
+                restaurant[dealCount] = restaurantCount - 1;
+                activeStart[dealCount] = from.activeStart[row];
+                activeEnd[dealCount] = from.activeEnd[row];
+                peakStart[dealCount] = from.peakStart[row];
+                peakEnd[dealCount] = from.peakEnd[row];
+                discount[dealCount] = from.discount[row];
+                qtyLeft[dealCount] = from.qtyLeft[row];
+                dineIn.set(dealCount, from.dineIn.get(row));
+                lightning.set(dealCount, from.lightning.get(row));
+                dealCount++;
+            }
+        }
+
+        DealColumns build() {
+            return new DealColumns(this);
+        }
+
+        private void ensureRestaurantCapacity() {
+            if (restaurantCount == restaurantObjectId.length) {
+                int newCapacity = restaurantObjectId.length * 2;
+                restaurantObjectId = Arrays.copyOf(restaurantObjectId, newCapacity);
+                firstDeal = Arrays.copyOf(firstDeal, newCapacity);
+                suburb = Arrays.copyOf(suburb, newCapacity);
+                latitude = Arrays.copyOf(latitude, newCapacity);
+                longitude = Arrays.copyOf(longitude, newCapacity);
+                cuisineOffsets = Arrays.copyOf(cuisineOffsets, newCapacity + 1);
+            }
+        }
+
+        private void ensureDealCapacity() {
+            if (dealCount == dealObjectId.length) {
+                int newCapacity = dealCount * 2;
+                dealObjectId = Arrays.copyOf(dealObjectId, newCapacity);
+                restaurant = Arrays.copyOf(restaurant, newCapacity);
+                activeStart = Arrays.copyOf(activeStart, newCapacity);
+                activeEnd = Arrays.copyOf(activeEnd, newCapacity);
+                peakStart = Arrays.copyOf(peakStart, newCapacity);
+                peakEnd = Arrays.copyOf(peakEnd, newCapacity);
+                discount = Arrays.copyOf(discount, newCapacity);
+                qtyLeft = Arrays.copyOf(qtyLeft, newCapacity);
+            }
+        }
+
+        /**
+         * @return the coordinate in decimal degrees, or NaN if it is missing, not a number or outside [-limit, limit]
+         */
+        private static double parseCoordinate(String value, double limit) {
+            if (value == null || value.isBlank()) {
+                return Double.NaN;
+            }
+            try {
+                double coordinate = Double.parseDouble(value.trim());
+                return (coordinate >= -limit && coordinate <= limit) ? coordinate : Double.NaN;
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * @return an index over the deals' active intervals, with the row indexes as entries
+     */
+    TimeSegmentIndex buildActiveIndex() {
+        return TimeSegmentIndex.build(activeStart, activeEnd, dealCount);
+    }
+
+    /**
+     * @return true if the deal has a known quantity left greater than zero
+     */
+    public boolean hasQtyLeft(int deal) {
+        return qtyLeft[deal] > 0;
+    }
+
+    public int dealCount() {
+        return dealCount;
+    }
+
+    public int restaurantCount() {
+        return restaurantCount;
+    }
+
+    public String dealObjectId(int deal) {
+        return objectIds.decode(dealObjectId[deal]);
+    }
+
+    /**
+     * @return the restaurant row for the given deal row
+     */
+    public int restaurantOf(int deal) {
+        return restaurant[deal];
+    }
+
+    public int activeStart(int deal) {
+        return activeStart[deal];
+    }
+
+    public int activeEnd(int deal) {
+        return activeEnd[deal];
+    }
+
+    /**
+     * @return the start minute of the deal's peak interval (deal hours, falling back to restaurant hours), or -1 if it doesn't count towards the peak
+     */
+    public int peakStart(int deal) {
+        return peakStart[deal];
+    }
+
+    /**
+     * @return the end minute of the deal's peak interval, or -1 if it doesn't count towards the peak
+     */
+    public int peakEnd(int deal) {
+        return peakEnd[deal];
+    }
+
+    /**
+     * @return the deal's discount, or MISSING
+     */
+    public int discount(int deal) {
+        return discount[deal];
+    }
+
+    /**
+     * @return the deal's quantity left, or MISSING
+     */
+    public int qtyLeft(int deal) {
+        return qtyLeft[deal];
+    }
+
+    public boolean isDineIn(int deal) {
+        return dineIn.get(deal);
+    }
+
+    public boolean isLightning(int deal) {
+        return lightning.get(deal);
+    }
+
+    public String restaurantObjectId(int restaurantRow) {
+        return objectIds.decode(restaurantObjectId[restaurantRow]);
+    }
+
+    /**
+     * @return the first deal row of the given restaurant row
+     */
+    public int firstDealOf(int restaurantRow) {
+        return firstDeal[restaurantRow];
+    }
+
+    /**
+     * @return the deal row after the last deal of the given restaurant row
+     */
+    public int endDealOf(int restaurantRow) {
+        return firstDeal[restaurantRow + 1];
+    }
+
+    /**
+     * @return the number of cuisines listed for the given restaurant row
+     */
+    public int cuisineCount(int restaurantRow) {
+        return cuisineOffsets[restaurantRow + 1] - cuisineOffsets[restaurantRow];
+    }
+
+    /**
+     * @return the code of the given restaurant row's index-th cuisine
+     */
+    public int cuisineCode(int restaurantRow, int index) {
+        return cuisineCodes[cuisineOffsets[restaurantRow] + index];
+    }
+
+    /**
+     * @return the suburb code for the given restaurant row, or StringDictionary.NO_CODE if it has no suburb
+     */
+    public int suburbCode(int restaurantRow) {
+        return suburb[restaurantRow];
+    }
+
+    /**
+     * @return true if the given restaurant row has a valid latitude and longitude
+     */
+    public boolean hasLocation(int restaurantRow) {
+        return !Double.isNaN(latitude[restaurantRow]);
+    }
+
+    /**
+     * @return the restaurant row's latitude in decimal degrees, or NaN if it has no location
+     */
+    public double latitude(int restaurantRow) {
+        return latitude[restaurantRow];
+    }
+
+    /**
+     * @return the restaurant row's longitude in decimal degrees, or NaN if it has no location
+     */
+    public double longitude(int restaurantRow) {
+        return longitude[restaurantRow];
+    }
+
+    /**
+     * @return true if the given restaurant row lists the cuisine with the given code
+     */
+    public boolean hasCuisine(int restaurantRow, int cuisineCode) {
+        for (int i = cuisineOffsets[restaurantRow]; i < cuisineOffsets[restaurantRow + 1]; i++) {
+            if (cuisineCodes[i] == cuisineCode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public StringDictionary getSuburbs() {
+        return suburbs;
+    }
+
+    public StringDictionary getCuisines() {
+        return cuisines;
+    }
+
+    /**
+     * @return a rough estimate of the heap used by the columns and dictionaries' arrays, excluding the strings themselves
+     */
+    public long getEstimatedSizeBytes() {
+        long ints = 8L * dealCount + 8L * restaurantCount + cuisineCodes.length + 1;
+        return 4L * ints + 2L * (dealCount / 8) + 8L * (objectIds.size() + suburbs.size() + cuisines.size());
+    }
+}
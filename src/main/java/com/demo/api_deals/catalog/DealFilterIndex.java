@@ -0,0 +1,139 @@
+package com.demo.api_deals.catalog;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.demo.api_deals.model.DealFilter;
+
+/**
+ * Secondary indexes for filtered active deal queries, built once per snapshot from the catalog's columns.
+ *
+ * Suburbs and cuisines are inverted indexes to bitmaps of restaurant rows; dineIn and lightning are the columns' bitsets.
+ * A query is driven by whichever is smaller: the deals active at the minute (from the time index), or the deals of the
+ * restaurants matching the suburb/cuisine bitmaps. Every other condition is an O(1) check per candidate, so the cost
+ * follows the size of the smaller candidate set rather than the size of the catalog.
+ */
+final class DealFilterIndex {
+
+    private static final BitSet NO_RESTAURANTS = new BitSet();
+
+    private final DealColumns columns;
+    private final Map<String, BitSet> restaurantsBySuburb;
+    private final Map<String, BitSet> restaurantsByCuisine;
+
+    private DealFilterIndex(DealColumns columns, Map<String, BitSet> restaurantsBySuburb, Map<String, BitSet> restaurantsByCuisine) {
+        this.columns = columns;
+        this.restaurantsBySuburb = restaurantsBySuburb;
+        this.restaurantsByCuisine = restaurantsByCuisine;
+    }
+
+    static DealFilterIndex build(DealColumns columns) {
+        // Bitmaps are built per dictionary code first, then keyed by the normalised value so lookups are case insensitive
+        BitSet[] bySuburbCode = new BitSet[columns.getSuburbs().size()];
+        BitSet[] byCuisineCode = new BitSet[columns.getCuisines().size()];
+        for (int restaurant = 0; restaurant < columns.restaurantCount(); restaurant++) {
+            int suburb = columns.suburbCode(restaurant);
+            if (suburb != StringDictionary.NO_CODE) {
+                bitmap(bySuburbCode, suburb).set(restaurant);
+            }
+            for (int i = 0; i < columns.cuisineCount(restaurant); i++) {
+                bitmap(byCuisineCode, columns.cuisineCode(restaurant, i)).set(restaurant);
+            }
+        }
+        return new DealFilterIndex(columns, byNormalisedValue(columns.getSuburbs(), bySuburbCode), byNormalisedValue(columns.getCuisines(), byCuisineCode));
+    }
+
+    /**
+     * @param active - the deal rows active at the minute, ascending, from the time index
+     * @param minuteOfDay - the minute the active rows are for
+     * @param filter - the filters to apply. Must not be empty.
+     * @return the matching deal rows, ascending
+     */
+    int[] filter(int[] active, int minuteOfDay, DealFilter filter) {
+        BitSet restaurants = matchingRestaurants(filter);
+        int restaurantDeals = restaurants != null ? dealCountOf(restaurants, active.length) : Integer.MAX_VALUE;
+
+        if (restaurantDeals < active.length) {
+            // Drive from the restaurant bitmap, checking the time interval per deal
+            int[] rows = new int[restaurantDeals];
+            int count = 0;
+            for (int restaurant = restaurants.nextSetBit(0); restaurant >= 0; restaurant = restaurants.nextSetBit(restaurant + 1)) {
+                for (int row = columns.firstDealOf(restaurant); row < columns.endDealOf(restaurant); row++) {
+                    if (columns.activeStart(row) <= minuteOfDay && minuteOfDay < columns.activeEnd(row) && matchesDeal(row, filter)) {
+                        rows[count++] = row;
+                    }
+                }
+            }
+            return Arrays.copyOf(rows, count);
+        }
+
+        // Drive from the time index, checking the restaurant bitmap per deal
+        int[] rows = new int[active.length];
+        int count = 0;
+        for (int row : active) {
+            if ((restaurants == null || restaurants.get(columns.restaurantOf(row))) && matchesDeal(row, filter)) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * @return the restaurants matching both the suburb and cuisine filters, or null if neither is set
+     */
+    private BitSet matchingRestaurants(DealFilter filter) {
+        BitSet suburb = filter.getSuburb() != null ? restaurantsBySuburb.getOrDefault(normalise(filter.getSuburb()), NO_RESTAURANTS) : null;
+        BitSet cuisine = filter.getCuisine() != null ? restaurantsByCuisine.getOrDefault(normalise(filter.getCuisine()), NO_RESTAURANTS) : null;
+        if (suburb == null || cuisine == null) {
+            return suburb != null ? suburb : cuisine;
+        }
+        BitSet both = (BitSet) suburb.clone();
+        both.and(cuisine);
+        return both;
+    }
+
+    /**
+     * @return the number of deals of the given restaurants, stopping early once it reaches the limit
+     */
+    private int dealCountOf(BitSet restaurants, int limit) {
+        int count = 0;
+        for (int restaurant = restaurants.nextSetBit(0); restaurant >= 0 && count < limit; restaurant = restaurants.nextSetBit(restaurant + 1)) {
+            count += columns.endDealOf(restaurant) - columns.firstDealOf(restaurant);
+        }
+        return count;
+    }
+
+    private boolean matchesDeal(int row, DealFilter filter) {
+        return (filter.getDineIn() == null || columns.isDineIn(row) == filter.getDineIn())
+                && (filter.getLightning() == null || columns.isLightning(row) == filter.getLightning())
+                && (filter.getMinDiscount() == null || (columns.discount(row) != DealColumns.MISSING && columns.discount(row) >= filter.getMinDiscount()));
+    }
+
+    private static BitSet bitmap(BitSet[] bitmaps, int code) {
+        if (bitmaps[code] == null) {
+            bitmaps[code] = new BitSet();
+        }
+        return bitmaps[code];
+    }
+
+    private static Map<String, BitSet> byNormalisedValue(StringDictionary dictionary, BitSet[] byCode) {
+        Map<String, BitSet> byValue = new HashMap<>();
+        for (int code = 0; code < byCode.length; code++) {
+            if (byCode[code] != null) {
+                byValue.merge(normalise(dictionary.decode(code)), byCode[code], (existing, added) -> {
+                    BitSet merged = (BitSet) existing.clone();
+                    merged.or(added);
+                    return merged;
+                });
+            }
+        }
+        return byValue;
+    }
+
+    private static String normalise(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,232 @@
+package com.demo.api_deals.catalog;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Uniform grid over the restaurants' coordinates, built once per snapshot, for radius and k-nearest deal queries.
+ *
+ * The grid covers the bounding box of the located restaurants, sized for a few restaurants per cell, and stores each
+ * cell's restaurant rows contiguously (cell offsets into one array). A query scans rings of cells outwards from the
+ * query point's cell and stops once the nearest unscanned cell is provably further away than the radius, or than the
+ * k-th nearest match so far. Only the restaurants in the scanned cells have their distance computed.
+ * The grid doesn't wrap across the antimeridian.
+ */
+final class DealGeoIndex {
+
+    // Mean earth radius, as used by the haversine distance
+    static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    // Aim for a few restaurants per cell, capped so the cell offsets stay small however many restaurants there are
+    private static final int RESTAURANTS_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+
+    // Farthest first, so a bounded heap can drop its farthest match. Ties keep the earlier row
+    private static final Comparator<Match> FARTHEST_FIRST = Comparator.comparingDouble(Match::distanceMeters).reversed()
+            .thenComparing(Comparator.comparingInt(Match::row).reversed());
+
+    private static final DealGeoIndex EMPTY = new DealGeoIndex(null, 0, 0, 1, 1, 0, 0, new int[] { 0 }, new int[0], 1);
+
+    /**
+     * A deal row matched by a query, with its restaurant's distance from the query point.
+     */
+    record Match(int row, double distanceMeters) {
+    }
+
+    private final DealColumns columns;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double cellLatitude;
+    private final double cellLongitude;
+    private final int rows;
+    private final int cols;
+    // Cell (row * cols + col) holds the restaurant rows cellRestaurants[cellOffsets[cell], cellOffsets[cell + 1]), ascending
+    private final int[] cellOffsets;
+    private final int[] cellRestaurants;
+    // Smallest cos(latitude) over the grid, used to bound east-west distances from below
+    private final double minCosLatitude;
+
+    private DealGeoIndex(DealColumns columns, double minLatitude, double minLongitude, double cellLatitude, double cellLongitude,
+            int rows, int cols, int[] cellOffsets, int[] cellRestaurants, double minCosLatitude) {
+        this.columns = columns;
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.cellLatitude = cellLatitude;
+        this.cellLongitude = cellLongitude;
+        this.rows = rows;
+        this.cols = cols;
+        this.cellOffsets = cellOffsets;
+        this.cellRestaurants = cellRestaurants;
+        this.minCosLatitude = minCosLatitude;
+    }
+
+    static DealGeoIndex build(DealColumns columns) {
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        int located = 0;
+        for (int restaurant = 0; restaurant < columns.restaurantCount(); restaurant++) {
+            if (columns.hasLocation(restaurant)) {
+                minLat = Math.min(minLat, columns.latitude(restaurant));
+                maxLat = Math.max(maxLat, columns.latitude(restaurant));
+                minLon = Math.min(minLon, columns.longitude(restaurant));
+                maxLon = Math.max(maxLon, columns.longitude(restaurant));
+                located++;
+            }
+        }
+        if (located == 0) {
+            return EMPTY;
+        }
+
+        // Size the cells to be roughly square on the ground, with a small minimum span so co-located restaurants still get a grid
+        double spanLat = Math.max(maxLat - minLat, 1e-6);
+        double spanLon = Math.max(maxLon - minLon, 1e-6);
+        double aspect = (spanLon * Math.cos(Math.toRadians((minLat + maxLat) / 2))) / spanLat;
+        double targetCells = Math.max(1.0, (double) located / RESTAURANTS_PER_CELL);
+        int rows = clamp((int) Math.round(Math.sqrt(targetCells / Math.max(aspect, 1e-9))), 1, MAX_CELLS_PER_SIDE);
+        int cols = clamp((int) Math.round(Math.sqrt(targetCells * aspect)), 1, MAX_CELLS_PER_SIDE);
+        double cellLat = spanLat / rows;
+        double cellLon = spanLon / cols;
+        double minCos = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+
+        // Counting sort of the restaurants into their cells, keeping row order within a cell
+        int[] cellOffsets = new int[rows * cols + 1];
+        int[] cellOf = new int[columns.restaurantCount()];
+        for (int restaurant = 0; restaurant < columns.restaurantCount(); restaurant++) {
+            if (columns.hasLocation(restaurant)) {
+                int row = clamp((int) ((columns.latitude(restaurant) - minLat) / cellLat), 0, rows - 1);
+                int col = clamp((int) ((columns.longitude(restaurant) - minLon) / cellLon), 0, cols - 1);
+                cellOf[restaurant] = row * cols + col;
+                cellOffsets[cellOf[restaurant] + 1]++;
+            }
+        }
+        for (int cell = 0; cell < rows * cols; cell++) {
+            cellOffsets[cell + 1] += cellOffsets[cell];
+        }
+        int[] next = new int[rows * cols];
+        int[] cellRestaurants = new int[located];
+        for (int restaurant = 0; restaurant < columns.restaurantCount(); restaurant++) {
+            if (columns.hasLocation(restaurant)) {
+                int cell = cellOf[restaurant];
+                cellRestaurants[cellOffsets[cell] + next[cell]++] = restaurant;
+            }
+        }
+
+        return new DealGeoIndex(columns, minLat, minLon, cellLat, cellLon, rows, cols, cellOffsets, cellRestaurants, minCos);
+    }
+
+    /**
+     * Finds the deals nearest the given point, up to the radius and limit.
+     * @param latitude - the query latitude in decimal degrees
+     * @param longitude - the query longitude in decimal degrees
+     * @param radiusMeters - the maximum distance of a match. Use Double.POSITIVE_INFINITY for no radius.
+     * @param limit - the maximum number of matches. Use Integer.MAX_VALUE for no limit.
+     * @param dealFilter - tests whether a deal row should be returned (e.g. active now with quantity left)
+     * @return the matching deal rows, nearest first, with deals at the same distance in row order
+     */
+    List<Match> nearest(double latitude, double longitude, double radiusMeters, int limit, IntPredicate dealFilter) {
+        if (rows == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        int centreRow = clamp((int) Math.floor((latitude - minLatitude) / cellLatitude), 0, rows - 1);
+        int centreCol = clamp((int) Math.floor((longitude - minLongitude) / cellLongitude), 0, cols - 1);
+        double cosBound = Math.min(minCosLatitude, Math.cos(Math.toRadians(latitude)));
+
+        PriorityQueue<Match> best = new PriorityQueue<>(FARTHEST_FIRST);
+        for (int ring = 0; ; ring++) {
+            int lowRow = centreRow - ring;
+            int highRow = centreRow + ring;
+            int lowCol = centreCol - ring;
+            int highCol = centreCol + ring;
+
+            for (int row = Math.max(lowRow, 0); row <= Math.min(highRow, rows - 1); row++) {
+                boolean edgeRow = row == lowRow || row == highRow;
+                for (int col = Math.max(lowCol, 0); col <= Math.min(highCol, cols - 1); col++) {
+                    if (!edgeRow && col != lowCol && col != highCol) {
+                        // Only the ring's perimeter is new, jump to its far side
+                        col = highCol - 1;
+                        continue;
+                    }
+                    scanCell(row * cols + col, latitude, longitude, radiusMeters, limit, dealFilter, best);
+                }
+            }
+
+            if (lowRow <= 0 && highRow >= rows - 1 && lowCol <= 0 && highCol >= cols - 1) {
+                break;
+            }
+            double unscanned = distanceBeyond(lowRow, highRow, lowCol, highCol, latitude, longitude, cosBound);
+            if (unscanned > radiusMeters || (best.size() == limit && unscanned > best.peek().distanceMeters())) {
+                break;
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(FARTHEST_FIRST.reversed());
+        return matches;
+    }
+
+    private void scanCell(int cell, double latitude, double longitude, double radiusMeters, int limit, IntPredicate dealFilter, PriorityQueue<Match> best) {
+        for (int i = cellOffsets[cell]; i < cellOffsets[cell + 1]; i++) {
+            int restaurant = cellRestaurants[i];
+            double distance = distanceMeters(latitude, longitude, columns.latitude(restaurant), columns.longitude(restaurant));
+            if (distance > radiusMeters || (best.size() == limit && distance > best.peek().distanceMeters())) {
+                continue;
+            }
+            for (int row = columns.firstDealOf(restaurant); row < columns.endDealOf(restaurant); row++) {
+                if (dealFilter.test(row)) {
+                    best.add(new Match(row, distance));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a lower bound on the distance from the point to any cell outside the given block of cells
+     */
+    private double distanceBeyond(int lowRow, int highRow, int lowCol, int highCol, double latitude, double longitude, double cosBound) {
+        double bound = Double.POSITIVE_INFINITY;
+        // Great circle distance is at least the latitude difference...
+        if (lowRow > 0) {
+            bound = Math.min(bound, EARTH_RADIUS_METERS * Math.toRadians(Math.max(0, latitude - (minLatitude + lowRow * cellLatitude))));
+        }
+        if (highRow < rows - 1) {
+            bound = Math.min(bound, EARTH_RADIUS_METERS * Math.toRadians(Math.max(0, (minLatitude + (highRow + 1) * cellLatitude) - latitude)));
+        }
+        // ...and, from the haversine formula, at least 2R.asin(cos(lat).sin(dLon / 2)) using the smallest cos(lat) either point can have
+        if (lowCol > 0) {
+            bound = Math.min(bound, longitudeBound(longitude - (minLongitude + lowCol * cellLongitude), cosBound));
+        }
+        if (highCol < cols - 1) {
+            bound = Math.min(bound, longitudeBound((minLongitude + (highCol + 1) * cellLongitude) - longitude, cosBound));
+        }
+        return bound;
+    }
+
+    private static double longitudeBound(double deltaLongitude, double cosBound) {
+        double halfDelta = Math.toRadians(Math.min(Math.max(0, deltaLongitude), 180)) / 2;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.max(0, cosBound) * Math.sin(halfDelta)));
+    }
+
+    /**
+     * @return the haversine (great circle) distance in metres between the two points
+     */
+    static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLat = Math.toRadians(latitude2 - latitude1);
+        double deltaLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * Math.sin(deltaLon / 2) * Math.sin(deltaLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,396 @@
+package com.demo.api_deals.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live quantity left for every deal in one snapshot, keyed by dealObjectId and seeded from the snapshot's qtyLeft column.
+ *
+ * Each deal has its own counter in an AtomicIntegerArray, and a claim is a compare-and-set loop on that counter only.
+ * There is no lock, so claims on different deals never contend, and concurrent claims on the same deal retry rather than queue.
+ * Deals that share an objectId share a counter.
+ *
+ * When a snapshot is patched, handOver() moves the live quantities into the patched snapshot's inventory: each counter here is
+ * sealed as its value is transferred, and claims or reads that find a sealed counter are forwarded to the successor. A claim
+ * racing a patch is therefore applied exactly once, to whichever inventory holds the live value at that moment. Until its value
+ * arrives, a counter of the patched inventory reads and claims through the predecessor, so nothing waits for the whole handOver.
+ * A counter is sealed only after the value it hands over has been recorded, so a claim or read that finds the predecessor's
+ * counter sealed completes the transfer itself rather than waiting for handOver to get to it. Nothing ever spins.
+ *
+ * The inventory of a layered catalog (see DealsCatalog.patch) only has counters for the layer's own deals, and looks every other
+ * deal up in its base catalog's inventory, except the ones the layer replaced or removed. Successive layers over the same base
+ * share the base's counters, so only the layer's own counters are handed over between them.
+ */
+public final class DealInventory {
+
+    public enum ClaimStatus {
+        CLAIMED,
+        INSUFFICIENT_QUANTITY,
+        UNKNOWN_DEAL
+    }
+
+    /**
+     * @param status - the outcome of the claim
+     * @param qtyLeft - the quantity left after the claim (or when it was rejected), or 0 for an unknown deal
+     */
+    public record ClaimResult(ClaimStatus status, int qtyLeft) {
+    }
+
+    // Counter value of a counter whose live value has moved to the successor inventory
+    private static final int SEALED = Integer.MIN_VALUE + 1;
+    // Counter value of a counter still waiting for its live value from the predecessor inventory
+    private static final int PENDING = Integer.MIN_VALUE + 2;
+
+    private final Map<String, Integer> counterOfObjectId;
+    private final String[] objectIdOfCounter;
+    // Counter index for each deal row
+    private final int[] counterOfRow;
+    private final AtomicIntegerArray qtyLeft;
+    // The value each counter held when it was sealed, written before the counter is sealed so whoever sees SEALED also sees it
+    private final int[] sealedQtyLeft;
+    // Successful claims, used as a revision number for anything derived from the snapshot's quantities
+    private final LongAdder claims = new LongAdder();
+    // For a layered catalog, the base catalog's inventory, and the base deals the layer replaced or removed
+    private final DealInventory base;
+    private final Set<String> maskedBaseObjectIds;
+    private volatile DealInventory successor;
+    // The inventory the pending counters are waiting on, until its handOver to this one has finished
+    private volatile DealInventory predecessor;
+
+    private DealInventory(Map<String, Integer> counterOfObjectId, String[] objectIdOfCounter, int[] counterOfRow, AtomicIntegerArray qtyLeft,
+            DealInventory base, Set<String> maskedBaseObjectIds) {
+        this.counterOfObjectId = counterOfObjectId;
+        this.objectIdOfCounter = objectIdOfCounter;
+        this.counterOfRow = counterOfRow;
+        this.qtyLeft = qtyLeft;
+        this.sealedQtyLeft = new int[qtyLeft.length()];
+        this.base = base;
+        this.maskedBaseObjectIds = maskedBaseObjectIds;
+    }
+
+    /**
+     * Seeds an inventory from the given columns. Deals with a missing quantity can never be claimed.
+     */
+    static DealInventory fromColumns(DealColumns columns) {
+        return layered(columns, null, Set.of());
+    }
+
+    /**
+     * Seeds an inventory for a layer's own deals from its columns, over the given base inventory.
+     * @param base - the base catalog's inventory, or null if the columns hold every deal
+     * @param maskedBaseObjectIds - base deals that are no longer looked up in the base, because the layer replaced or removed them
+     */
+    static DealInventory layered(DealColumns columns, DealInventory base, Set<String> maskedBaseObjectIds) {
+        Map<String, Integer> counterOfObjectId = new HashMap<>();
+        int[] counterOfRow = new int[columns.dealCount()];
+        int[] initial = new int[columns.dealCount()];
+        String[] objectIds = new String[columns.dealCount()];
+        int counters = 0;
+
+        for (int row = 0; row < columns.dealCount(); row++) {
+            String objectId = columns.dealObjectId(row);
+            Integer counter = objectId != null ? counterOfObjectId.get(objectId) : null;
+            if (counter == null) {
+                counter = counters++;
+                initial[counter] = columns.qtyLeft(row);
+                objectIds[counter] = objectId;
+                if (objectId != null) {
+                    counterOfObjectId.put(objectId, counter);
+                }
+            }
+            counterOfRow[row] = counter;
+        }
+
+        AtomicIntegerArray qtyLeft = new AtomicIntegerArray(counters);
+        for (int counter = 0; counter < counters; counter++) {
+            qtyLeft.set(counter, initial[counter]);
+        }
+        return new DealInventory(counterOfObjectId, Arrays.copyOf(objectIds, counters), counterOfRow, qtyLeft, base, maskedBaseObjectIds);
+    }
+
+    /**
+     * Atomically claims the given quantity of a deal if enough is left. Never blocks or waits for a handOver in progress.
+     * @param dealObjectId - the deal to claim
+     * @param quantity - the quantity to claim. Must be at least 1.
+     * @return the result of the claim, with the live quantity left
+     */
+    public ClaimResult claim(String dealObjectId, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity to claim must be at least 1");
+        }
+        DealInventory owner = ownerOf(dealObjectId);
+        if (owner == null) {
+            return new ClaimResult(ClaimStatus.UNKNOWN_DEAL, 0);
+        }
+        ClaimResult result = owner.claimCounter(owner.counterOfObjectId.get(dealObjectId), dealObjectId, quantity);
+        return result != null ? result : owner.successor.claim(dealObjectId, quantity);
+    }
+
+    /**
+     * @return the result of claiming from the given counter of this inventory, or null if the counter has been sealed
+     */
+    private ClaimResult claimCounter(int counter, String dealObjectId, int quantity) {
+        while (true) {
+            int current = qtyLeft.get(counter);
+            if (current == SEALED) {
+                return null;
+            }
+            if (current == PENDING) {
+                // The live value is still in the predecessor, and the handOver brings the claim across with it
+                DealInventory from = predecessor;
+                ClaimResult result = from != null ? from.tryClaim(dealObjectId, quantity) : null;
+                if (result != null) {
+                    if (result.status() == ClaimStatus.CLAIMED) {
+                        claims.increment();
+                    }
+                    return result;
+                }
+                // The predecessor has just sealed this deal, so take its value across and claim here
+                completeTransfer(counter, from);
+                continue;
+            }
+            if (current < quantity) {
+                return new ClaimResult(ClaimStatus.INSUFFICIENT_QUANTITY, Math.max(current, 0));
+            }
+            if (qtyLeft.compareAndSet(counter, current, current - quantity)) {
+                claims.increment();
+                return new ClaimResult(ClaimStatus.CLAIMED, current - quantity);
+            }
+        }
+    }
+
+    /**
+     * @return the result of claiming from this inventory without following a sealed counter, or null if it is sealed
+     */
+    private ClaimResult tryClaim(String dealObjectId, int quantity) {
+        DealInventory owner = ownerOf(dealObjectId);
+        return owner != null
+                ? owner.claimCounter(owner.counterOfObjectId.get(dealObjectId), dealObjectId, quantity)
+                : new ClaimResult(ClaimStatus.UNKNOWN_DEAL, 0);
+    }
+
+    /**
+     * @return the live quantity left for the given deal row, or DealColumns.MISSING if it was never known
+     */
+    public int qtyLeft(int row) {
+        int counter = counterOfRow[row];
+        int current = liveValue(counter);
+        if (current == SEALED) {
+            return successor.qtyLeftOf(objectIdOfCounter[counter]);
+        }
+        return current;
+    }
+
+    /**
+     * Sets a deal's quantity left to the value reported upstream, replacing whatever claims have taken it to.
+     * @param dealObjectId - the deal to update
+     * @param quantity - the new quantity left. Must be at least 0.
+     * @return false if the deal is not in this snapshot
+     */
+    public boolean setQtyLeft(String dealObjectId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity left must be at least 0");
+        }
+        DealInventory owner = ownerOf(dealObjectId);
+        if (owner == null) {
+            return false;
+        }
+        return owner.setCounter(owner.counterOfObjectId.get(dealObjectId), dealObjectId, quantity)
+                || owner.successor.setQtyLeft(dealObjectId, quantity);
+    }
+
+    /**
+     * @return false if the counter has been sealed, otherwise true once the quantity is set
+     */
+    private boolean setCounter(int counter, String dealObjectId, int quantity) {
+        while (true) {
+            int current = qtyLeft.get(counter);
+            if (current == SEALED) {
+                return false;
+            }
+            if (current == PENDING) {
+                DealInventory from = predecessor;
+                DealInventory owner = from != null ? from.ownerOf(dealObjectId) : null;
+                if (owner != null && owner.setCounter(owner.counterOfObjectId.get(dealObjectId), dealObjectId, quantity)) {
+                    claims.increment();
+                    return true;
+                }
+                completeTransfer(counter, from);
+                continue;
+            }
+            if (qtyLeft.compareAndSet(counter, current, quantity)) {
+                claims.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves the live quantities of this inventory's deals into the inventory of a patched snapshot.
+     * The successor's counters for the transferred deals must have been created with pendingTransfer(). Deals not in the
+     * successor, or whose quantity was replaced by the patch, are sealed without transferring, so late claims against this
+     * inventory see the successor's value (or an unknown deal). Counters already sealed by a layer over this inventory are skipped.
+     * @param next - the successor inventory
+     * @param replaced - objectIds of the deals whose quantity the patch set from upstream, rather than carrying over
+     */
+    void handOver(DealInventory next, Set<String> replaced) {
+        this.successor = next;
+        for (int counter = 0; counter < objectIdOfCounter.length; counter++) {
+            int value = sealCounter(counter);
+            String objectId = objectIdOfCounter[counter];
+            if (value != SEALED && objectId != null && !replaced.contains(objectId)) {
+                next.completeTransfer(objectId, value);
+            }
+        }
+    }
+
+    /**
+     * Seals a counter, recording the value it held first.
+     * @return the value the counter held, or SEALED if it was already sealed
+     */
+    private int sealCounter(int counter) {
+        while (true) {
+            int current = qtyLeft.get(counter);
+            if (current == SEALED) {
+                return SEALED;
+            }
+            if (current == PENDING) {
+                // Its own live value hasn't arrived yet, so take it across before passing it on
+                completeTransfer(counter, predecessor);
+                continue;
+            }
+            // The CAS publishes the recorded value to whoever reads the counter as sealed
+            sealedQtyLeft[counter] = current;
+            if (qtyLeft.compareAndSet(counter, current, SEALED)) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Seals the counters of the given deals only, forwarding claims and reads of them to the given inventory. Used on a base
+     * inventory for the deals a layer over it replaced or removed, while its other counters stay live.
+     */
+    void seal(Set<String> objectIds, DealInventory next) {
+        this.successor = next;
+        for (String objectId : objectIds) {
+            Integer counter = counterOfObjectId.get(objectId);
+            if (counter != null) {
+                sealCounter(counter);
+            }
+        }
+    }
+
+    /**
+     * Marks the counters of the given deals as waiting for a handOver from the given inventory.
+     * Claims and reads of a pending counter go to the predecessor until its live value arrives, which handOver does straight after publishing.
+     */
+    void pendingTransfer(Set<String> objectIds, DealInventory predecessor) {
+        this.predecessor = predecessor;
+        for (String objectId : objectIds) {
+            Integer counter = counterOfObjectId.get(objectId);
+            if (counter != null) {
+                qtyLeft.set(counter, PENDING);
+            }
+        }
+    }
+
+    /**
+     * Drops the reference to the predecessor once every handOver into this inventory has finished, so old snapshots can be collected.
+     * A counter no handOver had a live value for is then unknown rather than pending forever.
+     */
+    void transferCompleted() {
+        for (int counter = 0; counter < qtyLeft.length(); counter++) {
+            qtyLeft.compareAndSet(counter, PENDING, DealColumns.MISSING);
+        }
+        this.predecessor = null;
+    }
+
+    private void completeTransfer(String objectId, int value) {
+        Integer counter = counterOfObjectId.get(objectId);
+        if (counter != null) {
+            qtyLeft.compareAndSet(counter, PENDING, value);
+        }
+    }
+
+    /**
+     * Completes the transfer of a pending counter whose deal the given predecessor has already sealed, with the value the
+     * predecessor recorded when sealing it, rather than waiting for the handOver to get to it. Whichever of this and the
+     * handOver comes first sets the value, and both set the same one.
+     * @param from - the predecessor, or null if every handOver into this inventory has finished
+     */
+    private void completeTransfer(int counter, DealInventory from) {
+        String objectId = objectIdOfCounter[counter];
+        DealInventory owner = from != null ? from.ownerOf(objectId) : null;
+        int value = owner != null ? owner.sealedQtyLeft[owner.counterOfObjectId.get(objectId)] : DealColumns.MISSING;
+        qtyLeft.compareAndSet(counter, PENDING, value);
+    }
+
+    /**
+     * @return the live quantity left for the given deal, or DealColumns.MISSING if it is unknown
+     */
+    public int qtyLeftOf(String dealObjectId) {
+        DealInventory owner = ownerOf(dealObjectId);
+        if (owner == null) {
+            return DealColumns.MISSING;
+        }
+        int current = owner.liveValue(owner.counterOfObjectId.get(dealObjectId));
+        return current == SEALED ? owner.successor.qtyLeftOf(dealObjectId) : current;
+    }
+
+    /**
+     * @return the counter's value, or SEALED. A pending counter is read from the predecessor until the predecessor seals the
+     * deal, after which the counter takes the sealed value across itself. Never waits.
+     */
+    private int liveValue(int counter) {
+        while (true) {
+            int current = qtyLeft.get(counter);
+            if (current != PENDING) {
+                return current;
+            }
+            DealInventory from = predecessor;
+            DealInventory owner = from != null ? from.ownerOf(objectIdOfCounter[counter]) : null;
+            if (owner != null) {
+                int value = owner.liveValue(owner.counterOfObjectId.get(objectIdOfCounter[counter]));
+                if (value != SEALED) {
+                    return value;
+                }
+            }
+            completeTransfer(counter, from);
+        }
+    }
+
+    /**
+     * @return this inventory if it has a counter for the given deal, its base if the deal is looked up there, or null if it is unknown
+     */
+    private DealInventory ownerOf(String dealObjectId) {
+        if (dealObjectId == null) {
+            return null;
+        }
+        if (counterOfObjectId.containsKey(dealObjectId)) {
+            return this;
+        }
+        if (base != null && !maskedBaseObjectIds.contains(dealObjectId)) {
+            return base.ownerOf(dealObjectId);
+        }
+        return null;
+    }
+
+    /**
+     * @return the objectIds of the deals this inventory has its own counters for
+     */
+    Set<String> objectIds() {
+        return counterOfObjectId.keySet();
+    }
+
+    /**
+     * @return the number of successful claims and quantity updates against this inventory (and its base). Never decreases.
+     */
+    public long revision() {
+        return claims.sum() + (base != null ? base.revision() : 0);
+    }
+}
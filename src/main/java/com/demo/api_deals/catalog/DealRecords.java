@@ -0,0 +1,52 @@
+package com.demo.api_deals.catalog;
+
+import com.demo.contract_api_deals.models.Deal;
+
+/**
+ * Storage for the mapped Deal of each row in a catalog, in source order.
+ * Each snapshot's catalog picks its own storage when it is built: HeapDealRecords keeps the Deal objects, and
+ * OffHeapDealRecords keeps fixed-width records outside the heap and materialises a Deal only when one is returned.
+ */
+interface DealRecords {
+
+    /**
+     * @return a reader for one query's rows. Take one per query, and don't share it between threads.
+     */
+    Reader reader();
+
+    /**
+     * @return the number of bytes held outside the heap, or 0 if the records are all on the heap
+     */
+    long getOffHeapSizeBytes();
+
+    /**
+     * Reads the mapped deals of any number of rows, for one query at a time. Readers are not thread safe.
+     */
+    interface Reader {
+
+        /**
+         * @return the mapped deal at the given row, with its quantity as in the snapshot, or null if the deal couldn't be mapped
+         */
+        Deal deal(int row);
+
+        /**
+         * @param qtyLeft - the deal's live quantity left
+         * @return the mapped deal at the given row with the given quantity left. The row must hold a mapped deal.
+         */
+        Deal liveDeal(int row, int qtyLeft);
+    }
+
+    /**
+     * Collects the records one deal at a time, in row order. Builders are not thread safe.
+     */
+    interface Builder {
+
+        /**
+         * Adds the next row.
+         * @param deal - the mapped deal, or null if the deal couldn't be mapped
+         */
+        void add(Deal deal);
+
+        DealRecords build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.demo.api_deals.catalog;
+
+import java.util.Arrays;
+
+import com.demo.contract_api_deals.models.Deal;
+
+/**
+ * One shard of a catalog: the deals of the restaurants whose objectId hashes to it, with their own time index
+ * and per-minute peak counts. Shards are independent, so a query can run on every shard at once and merge the results.
+ * Rows are stored as the catalog's global row indexes, in ascending (source) order, and the shard's time index returns
+ * them directly, so each shard's results only need merging with the other shards', never re-sorting.
+ */
+final class DealShard {
+
+    private final int[] rows;
+    private final TimeSegmentIndex activeIndex;
+    private final int[] peakStartsAt;
+    private final int[] peakEndsAt;
+
+    private DealShard(int[] rows, TimeSegmentIndex activeIndex, int[] peakStartsAt, int[] peakEndsAt) {
+        this.rows = rows;
+        this.activeIndex = activeIndex;
+        this.peakStartsAt = peakStartsAt;
+        this.peakEndsAt = peakEndsAt;
+    }
+
+    /**
+     * Splits the given columns into shards by restaurant objectId hash. Every deal of a restaurant lands in the same shard.
+     * @param columns - the catalog's columns
+     * @param shardCount - the number of shards (at least 1)
+     */
+    static DealShard[] split(DealColumns columns, int shardCount) {
+        if (shardCount <= 1) {
+            int[] rows = new int[columns.dealCount()];
+            Arrays.setAll(rows, row -> row);
+            return new DealShard[] { build(columns, rows, columns.buildActiveIndex()) };
+        }
+
+        int[] shardOfRestaurant = new int[columns.restaurantCount()];
+        for (int restaurant = 0; restaurant < shardOfRestaurant.length; restaurant++) {
+            String objectId = columns.restaurantObjectId(restaurant);
+            shardOfRestaurant[restaurant] = objectId != null ? Math.floorMod(objectId.hashCode(), shardCount) : 0;
+        }
+
+        // Count then fill, so each shard's rows are allocated at their exact size and stay in source order
+        int[] sizes = new int[shardCount];
+        for (int row = 0; row < columns.dealCount(); row++) {
+            sizes[shardOfRestaurant[columns.restaurantOf(row)]]++;
+        }
+        int[][] shardRows = new int[shardCount][];
+        for (int shard = 0; shard < shardCount; shard++) {
+            shardRows[shard] = new int[sizes[shard]];
+            sizes[shard] = 0;
+        }
+        for (int row = 0; row < columns.dealCount(); row++) {
+            int shard = shardOfRestaurant[columns.restaurantOf(row)];
+            shardRows[shard][sizes[shard]++] = row;
+        }
+
+        DealShard[] shards = new DealShard[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            int[] rows = shardRows[shard];
+            int[] starts = new int[rows.length];
+            int[] ends = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                starts[i] = columns.activeStart(rows[i]);
+                ends[i] = columns.activeEnd(rows[i]);
+            }
+            shards[shard] = build(columns, rows, TimeSegmentIndex.build(starts, ends, rows.length, rows));
+        }
+        return shards;
+    }
+
+    private static DealShard build(DealColumns columns, int[] rows, TimeSegmentIndex activeIndex) {
+        int[] peakStartsAt = new int[TimeSegmentIndex.MINUTES_PER_DAY];
+        int[] peakEndsAt = new int[TimeSegmentIndex.MINUTES_PER_DAY];
+        for (int row : rows) {
+            if (columns.peakStart(row) >= 0 && columns.peakEnd(row) >= 0) {
+                peakStartsAt[columns.peakStart(row)]++;
+                peakEndsAt[columns.peakEnd(row)]++;
+            }
+        }
+        return new DealShard(rows, activeIndex, peakStartsAt, peakEndsAt);
+    }
+
+    /**
+     * The live deals a shard found active at a minute: the first count entries of rows and deals, in ascending row order.
+     */
+    record ActiveDeals(int[] rows, Deal[] deals, int count) {
+    }
+
+    /**
+     * Looks up this shard's deals active at the given minute and materialises those with quantity left.
+     * Each quantity is read once, so a deal is returned with the quantity it was checked against.
+     * @param excludedRows - ascending rows to skip, e.g. the rows a layer over the catalog removed
+     */
+    ActiveDeals activeDeals(int minuteOfDay, DealInventory inventory, DealRecords records, int[] excludedRows) {
+        int[] active = activeIndex.activeAt(minuteOfDay);
+        DealRecords.Reader reader = records.reader();
+        int[] rows = new int[active.length];
+        Deal[] deals = new Deal[active.length];
+        int count = 0;
+        int excluded = 0;
+        for (int row : active) {
+            while (excluded < excludedRows.length && excludedRows[excluded] < row) {
+                excluded++;
+            }
+            if (excluded < excludedRows.length && excludedRows[excluded] == row) {
+                continue;
+            }
+            int qtyLeft = inventory.qtyLeft(row);
+            if (qtyLeft > 0) {
+                rows[count] = row;
+                deals[count++] = reader.liveDeal(row, qtyLeft);
+            }
+        }
+        return new ActiveDeals(rows, deals, count);
+    }
+
+    /**
+     * Adds this shard's per-minute peak start and end counts to the given totals.
+     */
+    void addPeakCounts(int[] startsAt, int[] endsAt) {
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute++) {
+            startsAt[minute] += peakStartsAt[minute];
+            endsAt[minute] += peakEndsAt[minute];
+        }
+    }
+
+    /**
+     * @return the shard's time index, which returns global rows in ascending order
+     */
+    TimeSegmentIndex getActiveIndex() {
+        return activeIndex;
+    }
+
+    int size() {
+        return rows.length;
+    }
+}
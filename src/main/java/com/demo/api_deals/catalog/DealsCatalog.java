@@ -0,0 +1,1393 @@
+package com.demo.api_deals.catalog;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealFilter;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+import com.demo.contract_api_deals.models.PeakDealsResponse;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * A compiled, read-only view of one deals snapshot that is optimised for answering queries.
+ *
+ * Compiling resolves every deal once: its effective active interval in minutes of the day (the intersection of
+ * the restaurant's opening hours and the deal's own hours), its quantity, and the Deal object returned by the API.
+ * Active deal queries are then an index lookup plus a copy, rather than a parse-and-filter pass over every deal,
+ * and the peak window only needs computing once per snapshot.
+ *
+ * A catalog can also be patched into a new one (copy-on-write) with some restaurants replaced, added or removed. A small patch
+ * is a layer over the last compiled catalog that only holds the changed restaurants, and queries merge the layer's rows with
+ * the base's; once the changes grow too large, the patch compacts them into a new compiled catalog instead. Either way the peak
+ * index is updated incrementally from this catalog's, and live quantities move across to the patched catalog's inventory.
+ *
+ * The resolved Deals are kept on the heap by default, or off the heap in fixed-width records (Builder.offHeap), in which
+ * case each returned Deal is materialised from its record when the query runs. An off-heap catalog doesn't hold the source
+ * document's restaurant and deal DTOs either, once its snapshot is published: it reads them from its source, which it
+ * then only refers to weakly, so the catalog's size is in its records and primitive columns, not in objects the collector traces.
+ */
+public final class DealsCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealsCatalog.class);
+
+    // Source of peak versions, unique within this process only. A patch that doesn't change any peak interval keeps its base catalog's version
+    private static final AtomicLong PEAK_VERSIONS = new AtomicLong();
+
+    private static final int[] NO_ROWS = new int[0];
+    private static final RestaurantResponseDto[] NO_RESTAURANTS = new RestaurantResponseDto[0];
+
+    // The snapshot data this catalog was compiled from, used to detect when the catalog is stale. An off-heap catalog
+    // lets go of it once it is published (see releaseSource), after which the published snapshot holds it
+    private volatile RestaurauntDealsResponseDto source;
+    // An off-heap catalog's source, for as long as something else holds it, or null for a heap catalog
+    private final WeakReference<RestaurauntDealsResponseDto> weakSource;
+    // The restaurants of this catalog's own rows, in row order. The same as the source's restaurants unless the catalog is
+    // layered, and null for an off-heap catalog, which reads them from its source
+    private final RestaurantResponseDto[] restaurants;
+
+    // How this catalog is layered over a compiled catalog (see patch), or null if it was compiled
+    private final Layer layer;
+    // Queries number the base's rows first and the layer's own rows after them, so own row r is query row baseRowCount + r
+    private final int baseRowCount;
+    private final int size;
+
+    // Per-deal API objects (on or off the heap) and primitive columns, in source order (restaurant order, then deal order)
+    private final DealRecords records;
+    private final DealColumns columns;
+
+    // Live quantities, seeded from the columns. Active deal queries read these rather than the snapshot's qtyLeft
+    private final DealInventory inventory;
+    private final ResponseDtoToResponseMapper responseMapper;
+
+    private final DealFilterIndex filterIndex;
+    private final DealGeoIndex geoIndex;
+
+    // Deals split by restaurant objectId hash, each with its own time index. Large active queries fan out across the shards on the scheduler
+    private final DealShard[] shards;
+    private final int parallelThreshold;
+    private final Scheduler scheduler;
+
+    // Peak window for this snapshot, kept up to date incrementally and memoised as a response
+    private final PeakWindowIndex peakIndex;
+    private final PeakDealsResponse peakDeals;
+    private final long peakVersion;
+
+    // Peak analysis, computed on first use and cached for the life of the snapshot
+    private volatile int[] peakHistogram;
+    private final Map<Long, List<PeakAnalysis.PeakWindow>> topPeakWindows = new ConcurrentHashMap<>();
+
+    // Optional precomputed active deals for every minute of the day, set by the registry before the catalog is published
+    private ActiveDealsAnswerTable answerTable;
+
+    // Own restaurant rows by objectId, built on first use by patches
+    private volatile RestaurantRows restaurantRows;
+
+    /**
+     * How a layered catalog sits over its base. The layer's own rows hold only the restaurants changed since the base was
+     * compiled, in source order, and queries merge them with the base's rows, skipping the base rows they replace.
+     * @param base - the compiled catalog the layer is over, which is never itself layered
+     * @param replaced - the new version of each base restaurant changed since the base was compiled by objectId, or null if removed
+     * @param added - the restaurants that aren't in the base by objectId, in the order they were added, after every base restaurant
+     * @param removedBaseRows - the ascending base rows of the replaced restaurants
+     * @param restaurantPositions - for each of the layer's own restaurants, the base restaurant row it replaces, or the base's restaurant count if it was added
+     * @param basePositions - for each of the layer's own rows, the base row it comes before: the first row of the restaurant it replaces, or the base's row count
+     * @param maskedBaseObjectIds - deals no longer looked up in the base's inventory, because their restaurant was replaced or the layer has its own
+     */
+    private record Layer(DealsCatalog base, Map<String, RestaurantResponseDto> replaced, LinkedHashMap<String, RestaurantResponseDto> added,
+            int[] removedBaseRows, int[] restaurantPositions, int[] basePositions, Set<String> maskedBaseObjectIds) {
+    }
+
+    /**
+     * Restaurant rows by objectId, keeping the first of any duplicates, and the objectIds that are duplicated.
+     */
+    private record RestaurantRows(Map<String, Integer> firstRow, Set<String> duplicated) {
+    }
+
+    /**
+     * @param patchedPeakIndex - the peak index, already updated from a base catalog's, or null to compute it from the deals
+     * @param samePeakAs - a catalog with exactly the same peak intervals, whose peak results are reused, or null
+     * @param layer - how the catalog is layered over its base, or null if the columns hold every deal
+     * @param offHeap - whether the records are off the heap, in which case the catalog is never layered and only holds
+     * its source until it is published
+     */
+    private DealsCatalog(RestaurauntDealsResponseDto source, RestaurantResponseDto[] restaurants, DealRecords records, DealColumns columns,
+            int shardCount, int parallelThreshold, Scheduler scheduler, ResponseDtoToResponseMapper responseMapper,
+            PeakWindowIndex patchedPeakIndex, DealsCatalog samePeakAs, Layer layer, boolean offHeap) {
+        this.source = source;
+        this.weakSource = offHeap ? new WeakReference<>(source) : null;
+        this.restaurants = offHeap ? null : restaurants;
+        this.records = records;
+        this.columns = columns;
+        this.layer = layer;
+        this.baseRowCount = layer != null ? layer.base().columns.dealCount() : 0;
+        this.size = layer != null ? baseRowCount - layer.removedBaseRows().length + columns.dealCount() : columns.dealCount();
+        this.inventory = layer != null
+                ? DealInventory.layered(columns, layer.base().inventory, layer.maskedBaseObjectIds())
+                : DealInventory.fromColumns(columns);
+        this.responseMapper = responseMapper;
+        this.shards = DealShard.split(columns, shardCount);
+        this.parallelThreshold = parallelThreshold;
+        this.scheduler = scheduler;
+        this.filterIndex = DealFilterIndex.build(columns);
+        this.geoIndex = DealGeoIndex.build(columns);
+
+        if (samePeakAs != null) {
+            // Nothing the peak depends on has changed, so keep the peak results (and anything cached against their version)
+            this.peakIndex = samePeakAs.peakIndex;
+            this.peakVersion = samePeakAs.peakVersion;
+            this.peakDeals = samePeakAs.peakDeals;
+            this.peakHistogram = samePeakAs.peakHistogram;
+            this.topPeakWindows.putAll(samePeakAs.topPeakWindows);
+            return;
+        }
+        if (patchedPeakIndex != null) {
+            this.peakIndex = patchedPeakIndex;
+        } else {
+            // The peak window is computed from the sum of every shard's per-minute counts
+            int[] peakStartsAt = new int[TimeSegmentIndex.MINUTES_PER_DAY];
+            int[] peakEndsAt = new int[TimeSegmentIndex.MINUTES_PER_DAY];
+            for (DealShard shard : shards) {
+                shard.addPeakCounts(peakStartsAt, peakEndsAt);
+            }
+            this.peakIndex = PeakWindowIndex.fromCounts(peakStartsAt, peakEndsAt);
+        }
+        this.peakVersion = PEAK_VERSIONS.incrementAndGet();
+        this.peakDeals = responseMapper.mapPeakDealsResponse(
+                toLocalTime(peakIndex.peakStartMinute()),
+                toLocalTime(peakIndex.peakEndMinute()));
+    }
+
+    /**
+     * Compiles the given deals data into a catalog.
+     * Deals that can't be mapped (e.g. a non-numeric discount) or that have no quantity left are never returned as active,
+     * but still count towards the peak window.
+     * @param data - the deals snapshot to compile. Can be null or have no restaurants, in which case the catalog is empty.
+     * @param responseMapper - the mapper used to build the API Deal objects and parse the upstream times
+     */
+    public static DealsCatalog compile(RestaurauntDealsResponseDto data, ResponseDtoToResponseMapper responseMapper) {
+        Builder builder = new Builder(responseMapper);
+        if (data != null && data.getRestaurants() != null) {
+            for (RestaurantResponseDto restaurant : data.getRestaurants()) {
+                builder.add(restaurant);
+            }
+        }
+        return builder.build(data);
+    }
+
+    /**
+     * Compiles a catalog incrementally, one restaurant at a time, so it can be built while the deals data is still being read.
+     * Builders are not thread safe.
+     */
+    public static final class Builder {
+
+        private final ResponseDtoToResponseMapper responseMapper;
+
+        private final List<RestaurantResponseDto> restaurants = new ArrayList<>();
+        private DealRecords.Builder records;
+        private final DealColumns.Builder columns = new DealColumns.Builder();
+
+        private int shardCount = 1;
+        private int parallelThreshold = Integer.MAX_VALUE;
+        private Scheduler scheduler = Schedulers.immediate();
+        private double compactionRatio = 0;
+        private boolean offHeap;
+        // Reader over the records of the catalog restaurants were last copied from, so a patch copies them all through one
+        private DealsCatalog copiedFrom;
+        private DealRecords.Reader copiedDeals;
+
+        // When patching, the peak intervals of added restaurants' deals are also added to the patched peak index
+        private PeakWindowIndex peakPatch;
+        private final List<Long> peakPatchAdded = new ArrayList<>();
+
+        public Builder(ResponseDtoToResponseMapper responseMapper) {
+            this.responseMapper = responseMapper;
+            this.records = new HeapDealRecords.Builder(responseMapper);
+        }
+
+        /**
+         * Stores the catalog's deals off the heap, in fixed-width records that are only materialised as Deals when returned.
+         * The catalog then reads its restaurants from its source document rather than holding them, and patches of it always
+         * compact, since a layer would need its base's restaurants after the base's document has been replaced.
+         * By default the mapped Deal objects are kept on the heap. Must be set before anything is added.
+         */
+        public Builder offHeap(boolean offHeap) {
+            if (!restaurants.isEmpty()) {
+                throw new IllegalStateException("Deal storage must be chosen before restaurants are added");
+            }
+            this.offHeap = offHeap;
+            this.records = offHeap ? new OffHeapDealRecords.Builder() : new HeapDealRecords.Builder(responseMapper);
+            return this;
+        }
+
+        /**
+         * Splits the catalog into shards by restaurant objectId hash, so large active queries can run on every shard in parallel.
+         * By default the catalog has a single shard and every query runs on the calling thread.
+         * @param shardCount - the number of shards (at least 1)
+         * @param parallelThreshold - the minimum number of deals active at a minute before a query fans out across the shards
+         * @param scheduler - the bounded scheduler the shard queries run on
+         */
+        public Builder shards(int shardCount, int parallelThreshold, Scheduler scheduler) {
+            this.shardCount = Math.max(1, shardCount);
+            this.parallelThreshold = parallelThreshold;
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Lets a patch be layered over the last compiled catalog rather than rebuilding it, until the rows of the restaurants changed
+         * since then exceed the given share of that catalog's rows. By default every patch compacts into a new compiled catalog,
+         * as do patches built off the heap.
+         * @param compactionRatio - the share of the compiled catalog's rows (e.g. 0.1) a layer can replace before a patch compacts it
+         */
+        public Builder layering(double compactionRatio) {
+            this.compactionRatio = compactionRatio;
+            return this;
+        }
+
+        /**
+         * Resolves the restaurant's deals and adds them to the catalog being built.
+         * @param restaurant - the restaurant to add. Restaurants without deals are kept but add nothing to the indexes.
+         */
+        public Builder add(RestaurantResponseDto restaurant) {
+            restaurants.add(restaurant);
+            columns.addRestaurant(restaurant);
+            if (restaurant.getDeals() == null) {
+                return this;
+            }
+
+            int restaurantOpen = parseMinute(responseMapper, restaurant.getOpen());
+            int restaurantClose = parseMinute(responseMapper, restaurant.getClose());
+
+            for (DealResponseDto dealDto : restaurant.getDeals()) {
+                int dealStart = parseMinute(responseMapper, dealDto.getStart());
+                int dealEnd = parseMinute(responseMapper, dealDto.getEnd());
+
+                // 1. Active interval: the restaurant must be open and the deal valid
+                int activeStart = activeStartMinute(restaurantOpen, restaurantClose, dealStart, dealEnd);
+                int activeEnd = activeEndMinute(restaurantOpen, restaurantClose, dealStart, dealEnd);
+
+                Deal deal = null;
+                try {
+                    deal = responseMapper.mapActiveDealResponse(restaurant, dealDto);
+                } catch (NumberFormatException e) {
+                    logger.warn("Excluding deal with invalid numeric values: dealObjectId={}, error={}", dealDto.getObjectId(), e.getMessage());
+                }
+
+                // Deals that can't be returned are never active, so give them an empty interval.
+                // Quantity is checked at query time against the live inventory
+                if (deal == null) {
+                    activeEnd = activeStart;
+                }
+                // 2. Peak interval: use deal times if provided, otherwise fall back to restaurant hours
+                int peakStart = dealStart >= 0 ? dealStart : restaurantOpen;
+                int peakEnd = dealEnd >= 0 ? dealEnd : restaurantClose;
+                if (peakStart < 0 || peakEnd < 0) {
+                    peakStart = -1;
+                    peakEnd = -1;
+                }
+
+                columns.addDeal(dealDto.getObjectId(), activeStart, activeEnd, peakStart, peakEnd, deal);
+                records.add(deal);
+                if (peakPatch != null && peakStart >= 0) {
+                    peakPatch.add(peakStart, peakEnd);
+                    peakPatchAdded.add(peakInterval(peakStart, peakEnd));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds a restaurant whose deals were resolved when a catalog was persisted, without parsing any of its values again.
+         * @param restaurant - the restaurant, as in the source document
+         * @param latitude - the parsed latitude, or NaN if the restaurant has no location
+         * @param longitude - the parsed longitude, or NaN if the restaurant has no location
+         * @param resolvedDeals - the mapped Deal for each of the restaurant's deals, or null where a deal couldn't be mapped
+         * @param intervals - the active start, active end, peak start and peak end of each deal in turn
+         */
+        Builder addResolved(RestaurantResponseDto restaurant, double latitude, double longitude, Deal[] resolvedDeals, int[] intervals) {
+            restaurants.add(restaurant);
+            columns.addRestaurant(restaurant, latitude, longitude);
+            for (int i = 0; i < resolvedDeals.length; i++) {
+                columns.addDeal(restaurant.getDeals()[i].getObjectId(),
+                        intervals[4 * i], intervals[4 * i + 1], intervals[4 * i + 2], intervals[4 * i + 3], resolvedDeals[i]);
+                records.add(resolvedDeals[i]);
+            }
+            return this;
+        }
+
+        /**
+         * Carries a restaurant and its resolved deals over from another catalog as they are, without re-reading them.
+         */
+        Builder copy(DealsCatalog from, int restaurantRow) {
+            restaurants.add(from.restaurants()[restaurantRow]);
+            // Heap records carry the shared Deal over; off-heap records are copied from a Deal materialised for the purpose
+            if (from != copiedFrom) {
+                copiedFrom = from;
+                copiedDeals = from.records.reader();
+            }
+            for (int row = from.columns.firstDealOf(restaurantRow); row < from.columns.endDealOf(restaurantRow); row++) {
+                records.add(copiedDeals.deal(row));
+            }
+            columns.copyRestaurant(from.columns, restaurantRow);
+            return this;
+        }
+
+        ResponseDtoToResponseMapper getResponseMapper() {
+            return responseMapper;
+        }
+
+        /**
+         * Builds the catalog from the restaurants added so far, with a new snapshot document of those restaurants as its source.
+         */
+        public DealsCatalog build() {
+            return build(RestaurauntDealsResponseDto.builder()
+                    .restaurants(restaurants.toArray(new RestaurantResponseDto[0]))
+                    .build());
+        }
+
+        DealsCatalog build(RestaurauntDealsResponseDto source) {
+            return build(source, null, null, null);
+        }
+
+        private DealsCatalog build(RestaurauntDealsResponseDto source, PeakWindowIndex patchedPeakIndex, DealsCatalog samePeakAs, Layer layer) {
+            return new DealsCatalog(source,
+                    restaurants.toArray(new RestaurantResponseDto[0]),
+                    records.build(),
+                    columns.build(),
+                    shardCount, parallelThreshold, scheduler, responseMapper,
+                    patchedPeakIndex, samePeakAs, layer, offHeap);
+        }
+    }
+
+    /**
+     * Helper method to find the first minute a deal is active: the restaurant must be open and the deal valid.
+     * If either set of hours is unknown (-1), it is assumed not to restrict the deal.
+     * @return the first active minute of the day. The deal is active while activeStartMinute <= minute < activeEndMinute.
+     */
+    public static int activeStartMinute(int restaurantOpen, int restaurantClose, int dealStart, int dealEnd) {
+        boolean restaurantHoursKnown = restaurantOpen >= 0 && restaurantClose >= 0;
+        boolean dealHoursKnown = dealStart >= 0 && dealEnd >= 0;
+        return Math.max(restaurantHoursKnown ? restaurantOpen : 0, dealHoursKnown ? dealStart : 0);
+    }
+
+    /**
+     * Helper method to find the end (exclusive) of a deal's active interval, with the same rules as activeStartMinute.
+     */
+    public static int activeEndMinute(int restaurantOpen, int restaurantClose, int dealStart, int dealEnd) {
+        boolean restaurantHoursKnown = restaurantOpen >= 0 && restaurantClose >= 0;
+        boolean dealHoursKnown = dealStart >= 0 && dealEnd >= 0;
+        return Math.min(restaurantHoursKnown ? restaurantClose : TimeSegmentIndex.MINUTES_PER_DAY,
+                dealHoursKnown ? dealEnd : TimeSegmentIndex.MINUTES_PER_DAY);
+    }
+
+    /**
+     * @return the minute of the day for the given upstream time, or -1 if it is missing or invalid
+     */
+    private static int parseMinute(ResponseDtoToResponseMapper responseMapper, String time) {
+        return responseMapper.parseRestaurantDtoMinuteOfDay(time);
+    }
+
+    private static LocalTime toLocalTime(int minuteOfDay) {
+        return minuteOfDay >= 0 ? LocalTime.of(minuteOfDay / 60, minuteOfDay % 60) : null;
+    }
+
+    /**
+     * @return the minute of the day (0-1439) for the given time, ignoring seconds
+     */
+    public static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * @param minuteOfDay - the minute of the day to check (0-1439)
+     * @return the number of deals the time index has as active at the given minute, before checking their quantity left
+     */
+    public int countActiveCandidates(int minuteOfDay) {
+        int count = layer != null ? layer.base().countActiveCandidates(minuteOfDay) : 0;
+        for (DealShard shard : shards) {
+            count += shard.getActiveIndex().activeAt(minuteOfDay).length;
+        }
+        return count;
+    }
+
+    /**
+     * @return the ascending own rows the time indexes have as active at the given minute. With one shard, the returned array is shared and must not be modified.
+     */
+    private int[] ownCandidates(int minuteOfDay) {
+        if (shards.length == 1) {
+            return shards[0].getActiveIndex().activeAt(minuteOfDay);
+        }
+        int[][] shardRows = new int[shards.length][];
+        for (int shard = 0; shard < shards.length; shard++) {
+            shardRows[shard] = shards[shard].getActiveIndex().activeAt(minuteOfDay);
+        }
+        return SortedRuns.merge(shardRows);
+    }
+
+    /**
+     * @return the query rows the time indexes have as active at the given minute, in source order. The returned array may be shared and must not be modified.
+     */
+    private int[] activeCandidates(int minuteOfDay) {
+        int[] ownRows = ownCandidates(minuteOfDay);
+        return layer != null ? overlay(layer.base().ownCandidates(minuteOfDay), ownRows) : ownRows;
+    }
+
+    /**
+     * Merges the ascending rows of a layered catalog's base and its own ascending rows into query rows in source order,
+     * dropping the base rows the layer replaced.
+     */
+    private int[] overlay(int[] baseRows, int[] ownRows) {
+        int[] removedRows = layer.removedBaseRows();
+        int[] basePositions = layer.basePositions();
+        int[] merged = new int[baseRows.length + ownRows.length];
+        int count = 0;
+        int own = 0;
+        int removed = 0;
+        for (int baseRow : baseRows) {
+            while (own < ownRows.length && basePositions[ownRows[own]] <= baseRow) {
+                merged[count++] = baseRowCount + ownRows[own++];
+            }
+            while (removed < removedRows.length && removedRows[removed] < baseRow) {
+                removed++;
+            }
+            if (removed == removedRows.length || removedRows[removed] != baseRow) {
+                merged[count++] = baseRow;
+            }
+        }
+        while (own < ownRows.length) {
+            merged[count++] = baseRowCount + ownRows[own++];
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
+    /**
+     * @param minuteOfDay - the minute of the day to check (0-1439)
+     * @return a new list of the deals active at the given minute with quantity left, in source order
+     */
+    public List<Deal> getActiveDeals(int minuteOfDay) {
+        return liveDeals(activeCandidates(minuteOfDay));
+    }
+
+    /**
+     * Answers getActiveDeals from the answer table: the table's shared list for the minute's segment while none of its
+     * quantities has changed, otherwise the segment's rows filtered against the live inventory.
+     * A layered catalog answers from its base's table, with the layer's own rows overlaid.
+     * @param answerTable - the table returned by getAnswerTable
+     * @param minuteOfDay - the minute of the day to check (0-1439)
+     * @return the deals active at the given minute with quantity left, in source order. The list may be shared and must not be modified.
+     */
+    public List<Deal> answerActiveDeals(ActiveDealsAnswerTable answerTable, int minuteOfDay) {
+        int[] baseRows = answerTable.rowsAt(minuteOfDay);
+        if (layer == null) {
+            List<Deal> builtDeals = answerTable.builtDealsAt(minuteOfDay);
+            return builtDeals != null ? builtDeals : liveDeals(baseRows);
+        }
+        int[] ownRows = ownCandidates(minuteOfDay);
+        if (ownRows.length == 0 && !SortedRuns.intersects(layer.removedBaseRows(), baseRows)) {
+            List<Deal> builtDeals = answerTable.builtDealsAt(minuteOfDay);
+            if (builtDeals != null) {
+                return builtDeals;
+            }
+        }
+        return liveDeals(overlay(baseRows, ownRows));
+    }
+
+    /**
+     * @return a new list of the deals at the given query rows with quantity left, each quantity read once
+     */
+    private List<Deal> liveDeals(int[] active) {
+        QueryReader reader = new QueryReader();
+        List<Deal> activeDeals = new ArrayList<>(active.length);
+        for (int index : active) {
+            int qtyLeft = qtyLeftOf(index);
+            if (qtyLeft > 0) {
+                activeDeals.add(reader.liveDeal(index, qtyLeft));
+            }
+        }
+        return activeDeals;
+    }
+
+    /**
+     * @param minuteOfDay - the minute of the day to check (0-1439)
+     * @param filter - the filters the deals must also match. Null or empty returns every active deal.
+     * @return a new list of the deals active at the given minute with quantity left that match the filter, in source order
+     */
+    public List<Deal> getActiveDeals(int minuteOfDay, DealFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return getActiveDeals(minuteOfDay);
+        }
+
+        int[] rows = filterIndex.filter(ownCandidates(minuteOfDay), minuteOfDay, filter);
+        if (layer != null) {
+            DealsCatalog base = layer.base();
+            rows = overlay(base.filterIndex.filter(base.ownCandidates(minuteOfDay), minuteOfDay, filter), rows);
+        }
+        QueryReader reader = new QueryReader();
+        List<Deal> activeDeals = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            int qtyLeft = qtyLeftOf(row);
+            if (qtyLeft > 0) {
+                activeDeals.add(reader.liveDeal(row, qtyLeft));
+            }
+        }
+        return activeDeals;
+    }
+
+    /**
+     * An active deal with the distance of its restaurant from the query point.
+     */
+    public record DealDistance(Deal deal, double distanceMeters) {
+    }
+
+    /**
+     * Finds the active deals nearest the given point, using the grid index over the restaurants' coordinates.
+     * Restaurants without valid coordinates are never returned.
+     * @param minuteOfDay - the minute of the day to check (0-1439)
+     * @param latitude - the query latitude in decimal degrees
+     * @param longitude - the query longitude in decimal degrees
+     * @param radiusMeters - the maximum distance of a deal's restaurant. Use Double.POSITIVE_INFINITY for no radius.
+     * @param limit - the maximum number of deals to return. Use Integer.MAX_VALUE for no limit.
+     * @return the deals active at the given minute with quantity left, nearest first, with deals at the same distance in source order
+     */
+    public List<DealDistance> getNearbyDeals(int minuteOfDay, double latitude, double longitude, double radiusMeters, int limit) {
+        List<DealGeoIndex.Match> matches = geoIndex.nearest(latitude, longitude, radiusMeters, limit,
+                row -> columns.activeStart(row) <= minuteOfDay && minuteOfDay < columns.activeEnd(row) && inventory.qtyLeft(row) > 0);
+        if (layer != null) {
+            DealsCatalog base = layer.base();
+            List<DealGeoIndex.Match> baseMatches = base.geoIndex.nearest(latitude, longitude, radiusMeters, limit,
+                    row -> base.columns.activeStart(row) <= minuteOfDay && minuteOfDay < base.columns.activeEnd(row)
+                            && Arrays.binarySearch(layer.removedBaseRows(), row) < 0 && base.inventory.qtyLeft(row) > 0);
+            matches = mergeNearest(baseMatches, matches, limit);
+        }
+
+        QueryReader reader = new QueryReader();
+        List<DealDistance> nearbyDeals = new ArrayList<>(matches.size());
+        for (DealGeoIndex.Match match : matches) {
+            // Quantity may have been claimed since the filter checked it, so don't return a sold out deal
+            int qtyLeft = qtyLeftOf(match.row());
+            if (qtyLeft > 0) {
+                nearbyDeals.add(new DealDistance(reader.liveDeal(match.row(), qtyLeft), match.distanceMeters()));
+            }
+        }
+        return nearbyDeals;
+    }
+
+    /**
+     * Merges the nearest matches of a layered catalog's base and its own, both nearest first, into the nearest of either with
+     * matches at the same distance in source order.
+     * @return at most limit matches, with query rows
+     */
+    private List<DealGeoIndex.Match> mergeNearest(List<DealGeoIndex.Match> baseMatches, List<DealGeoIndex.Match> ownMatches, int limit) {
+        List<DealGeoIndex.Match> merged = new ArrayList<>(Math.min(limit, baseMatches.size() + ownMatches.size()));
+        int base = 0;
+        int own = 0;
+        while (merged.size() < limit && (base < baseMatches.size() || own < ownMatches.size())) {
+            DealGeoIndex.Match ownMatch = own < ownMatches.size() ? ownMatches.get(own) : null;
+            DealGeoIndex.Match baseMatch = base < baseMatches.size() ? baseMatches.get(base) : null;
+            boolean ownFirst = ownMatch != null && (baseMatch == null
+                    || ownMatch.distanceMeters() < baseMatch.distanceMeters()
+                    || (ownMatch.distanceMeters() == baseMatch.distanceMeters() && layer.basePositions()[ownMatch.row()] <= baseMatch.row()));
+            if (ownFirst) {
+                merged.add(new DealGeoIndex.Match(baseRowCount + ownMatch.row(), ownMatch.distanceMeters()));
+                own++;
+            } else {
+                merged.add(baseMatch);
+                base++;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Finds the deals active at the given minute, fanning the query out across the shards when enough deals are active to make it worthwhile.
+     * Each shard looks up and materialises its own active deals in parallel, and their ascending results are merged back into source order.
+     * A layered catalog fans out across its base's shards, and merges its own few deals in after.
+     * @param minuteOfDay - the minute of the day to check (0-1439)
+     * @return a Mono of a new list of the deals active at the given minute with quantity left, in source order
+     */
+    public Mono<List<Deal>> findActiveDeals(int minuteOfDay) {
+        DealsCatalog compiled = layer != null ? layer.base() : this;
+        if (compiled.shards.length == 1 || countActiveCandidates(minuteOfDay) < parallelThreshold) {
+            return Mono.fromSupplier(() -> getActiveDeals(minuteOfDay));
+        }
+
+        int[] excludedRows = layer != null ? layer.removedBaseRows() : NO_ROWS;
+        return Flux.range(0, compiled.shards.length)
+                .parallel(compiled.shards.length)
+                .runOn(scheduler)
+                .map(shard -> compiled.shards[shard].activeDeals(minuteOfDay, compiled.inventory, compiled.records, excludedRows))
+                .sequential()
+                .collectList()
+                .map(shardDeals -> mergeActiveDeals(shardDeals, minuteOfDay));
+    }
+
+    /**
+     * Merges the deals found by each shard back into source order by their rows, with a layered catalog's own deals in between.
+     */
+    private List<Deal> mergeActiveDeals(List<DealShard.ActiveDeals> shardDeals, int minuteOfDay) {
+        int[][] runs = new int[shardDeals.size()][];
+        int[] lengths = new int[runs.length];
+        int total = 0;
+        for (int run = 0; run < runs.length; run++) {
+            runs[run] = shardDeals.get(run).rows();
+            lengths[run] = shardDeals.get(run).count();
+            total += lengths[run];
+        }
+
+        List<Deal> activeDeals = new ArrayList<>(total);
+        if (layer == null) {
+            SortedRuns.merge(runs, lengths, (run, index) -> activeDeals.add(shardDeals.get(run).deals()[index]));
+            return activeDeals;
+        }
+        int[] ownRows = ownCandidates(minuteOfDay);
+        DealRecords.Reader ownDeals = records.reader();
+        int[] nextOwn = new int[1];
+        SortedRuns.merge(runs, lengths, (run, index) -> {
+            nextOwn[0] = addOwnDealsBefore(runs[run][index], ownRows, nextOwn[0], ownDeals, activeDeals);
+            activeDeals.add(shardDeals.get(run).deals()[index]);
+        });
+        addOwnDealsBefore(baseRowCount, ownRows, nextOwn[0], ownDeals, activeDeals);
+        return activeDeals;
+    }
+
+    /**
+     * Adds the live deals of a layer's own rows, from ownRows[next] on, that come before the given base row.
+     * @return the index in ownRows of the first row not added
+     */
+    private int addOwnDealsBefore(int baseRow, int[] ownRows, int next, DealRecords.Reader ownDeals, List<Deal> deals) {
+        while (next < ownRows.length && layer.basePositions()[ownRows[next]] <= baseRow) {
+            int qtyLeft = inventory.qtyLeft(ownRows[next]);
+            if (qtyLeft > 0) {
+                deals.add(ownDeals.liveDeal(ownRows[next], qtyLeft));
+            }
+            next++;
+        }
+        return next;
+    }
+
+    /**
+     * The deals active at each of a set of minutes, with every deal held once and each minute referring to it by position.
+     * @param deals - every deal active in at least one of the minutes, in source order
+     * @param dealIndexes - for each requested minute (in request order), the ascending indexes into deals of its active deals
+     */
+    public record ActiveDealsBatch(List<Deal> deals, int[][] dealIndexes) {
+    }
+
+    /**
+     * Finds the deals active at each of the given minutes in one pass.
+     * The minutes are visited in ascending order while a cursor moves forward through each shard's time segments, and each
+     * segment is filtered at most once however many of the minutes fall inside it. A minute's rows are only re-merged across
+     * the shards (and with a layered catalog's base) when one of them has moved to a new segment.
+     * @param minutesOfDay - the minutes of the day to check (0-1439), in any order and possibly repeated
+     * @return the deduplicated active deals and, for each minute, references into them
+     */
+    public ActiveDealsBatch getActiveDealsBatch(int[] minutesOfDay) {
+        // Each slot is packed after its minute so a primitive sort orders the slots by minute, with no boxing
+        long[] packed = new long[minutesOfDay.length];
+        for (int slot = 0; slot < packed.length; slot++) {
+            packed[slot] = (long) minutesOfDay[slot] << 32 | slot;
+        }
+        Arrays.sort(packed);
+        int[] order = new int[packed.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (int) packed[i];
+        }
+
+        // 1. Sweep the segments, then merge each minute's rows with the base's rows for a layered catalog.
+        // The quantity each row was kept for is the one its deal is returned with, so no minute refers to a sold out deal
+        int[] sweptQtyLeft = new int[baseRowCount + columns.dealCount()];
+        int[][] slotRows = sweepActiveRows(minutesOfDay, order, sweptQtyLeft, baseRowCount);
+        if (layer != null) {
+            int[][] baseSlotRows = layer.base().sweepActiveRows(minutesOfDay, order, sweptQtyLeft, 0);
+            int[] lastBaseRows = null;
+            int[] lastOwnRows = null;
+            int[] mergedRows = null;
+            for (int slot : order) {
+                if (baseSlotRows[slot] != lastBaseRows || slotRows[slot] != lastOwnRows) {
+                    lastBaseRows = baseSlotRows[slot];
+                    lastOwnRows = slotRows[slot];
+                    mergedRows = overlay(lastBaseRows, lastOwnRows);
+                }
+                slotRows[slot] = mergedRows;
+            }
+        }
+
+        // 2. Number the used rows in source order, then rewrite each slot's rows as references
+        BitSet usedRows = new BitSet(baseRowCount + columns.dealCount());
+        int[] previousRows = null;
+        for (int slot : order) {
+            if (slotRows[slot] != previousRows) {
+                previousRows = slotRows[slot];
+                for (int row : previousRows) {
+                    usedRows.set(row);
+                }
+            }
+        }
+        int[] sourceOrder = usedRows.stream().toArray();
+        if (layer != null) {
+            // Own rows are numbered after the base's, so put them back between the base rows they come before
+            int split = Arrays.binarySearch(sourceOrder, baseRowCount);
+            split = split >= 0 ? split : -split - 1;
+            int[] ownRows = new int[sourceOrder.length - split];
+            for (int i = 0; i < ownRows.length; i++) {
+                ownRows[i] = sourceOrder[split + i] - baseRowCount;
+            }
+            sourceOrder = overlay(Arrays.copyOf(sourceOrder, split), ownRows);
+        }
+
+        int[] positionOfRow = new int[baseRowCount + columns.dealCount()];
+        QueryReader reader = new QueryReader();
+        List<Deal> batchDeals = new ArrayList<>(sourceOrder.length);
+        for (int row : sourceOrder) {
+            positionOfRow[row] = batchDeals.size();
+            batchDeals.add(reader.liveDeal(row, sweptQtyLeft[row]));
+        }
+
+        int[][] dealIndexes = new int[minutesOfDay.length][];
+        for (int slot = 0; slot < slotRows.length; slot++) {
+            int[] rows = slotRows[slot];
+            int[] indexes = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                indexes[i] = positionOfRow[rows[i]];
+            }
+            dealIndexes[slot] = indexes;
+        }
+        return new ActiveDealsBatch(batchDeals, dealIndexes);
+    }
+
+    /**
+     * Sweeps each shard's segments for the given minutes in ascending order, filtering each visited segment's rows by live quantity once.
+     * @param order - the indexes of minutesOfDay in ascending minute order
+     * @param sweptQtyLeft - receives, at rowOffset + row, the quantity each returned row was last kept for
+     * @param rowOffset - the query row of this catalog's first own row
+     * @return for each minute, its ascending own rows with quantity left. Minutes in the same segments share the same array.
+     */
+    private int[][] sweepActiveRows(int[] minutesOfDay, int[] order, int[] sweptQtyLeft, int rowOffset) {
+        int[][] slotRows = new int[minutesOfDay.length][];
+        int[] segments = new int[shards.length];
+        int[] filteredSegments = new int[shards.length];
+        Arrays.fill(filteredSegments, -1);
+        int[][] filteredRows = new int[shards.length][];
+        int[] mergedRows = null;
+        for (int slot : order) {
+            int minute = minutesOfDay[slot];
+            boolean changed = false;
+            for (int shard = 0; shard < shards.length; shard++) {
+                TimeSegmentIndex index = shards[shard].getActiveIndex();
+                int segment = segments[shard];
+                while (segment + 1 < index.segmentCount() && index.segmentStart(segment + 1) <= minute) {
+                    segment++;
+                }
+                segments[shard] = segment;
+                if (segment != filteredSegments[shard]) {
+                    int[] active = index.segmentEntries(segment);
+                    int[] rows = new int[active.length];
+                    int count = 0;
+                    for (int row : active) {
+                        // A later segment's read of 0 only drops the row from that segment, the kept quantity stays
+                        int qtyLeft = inventory.qtyLeft(row);
+                        if (qtyLeft > 0) {
+                            rows[count++] = row;
+                            sweptQtyLeft[rowOffset + row] = qtyLeft;
+                        }
+                    }
+                    filteredRows[shard] = Arrays.copyOf(rows, count);
+                    filteredSegments[shard] = segment;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                mergedRows = SortedRuns.merge(filteredRows);
+            }
+            slotRows[slot] = mergedRows;
+        }
+        return slotRows;
+    }
+
+    /**
+     * @param minuteOfDay - the minute of the day to check (0-1439)
+     * @return a Flux of the deals active at the given minute, in source order. Deals are only read as they are requested.
+     */
+    public Flux<Deal> streamActiveDeals(int minuteOfDay) {
+        int[] active = activeCandidates(minuteOfDay);
+        // Each subscription reads its deals through its own reader
+        return Flux.defer(() -> {
+            QueryReader reader = new QueryReader();
+            // Each quantity is read once, so a claim between a check and a read can't return a sold out deal
+            return Flux.range(0, active.length)
+                    .<Deal>handle((i, sink) -> {
+                        int qtyLeft = qtyLeftOf(active[i]);
+                        if (qtyLeft > 0) {
+                            sink.next(reader.liveDeal(active[i], qtyLeft));
+                        }
+                    });
+        });
+    }
+
+    /**
+     * @return the live quantity left at the given query row, from the base's inventory for a base row of a layered catalog
+     */
+    private int qtyLeftOf(int row) {
+        return row >= baseRowCount ? inventory.qtyLeft(row - baseRowCount) : layer.base().inventory.qtyLeft(row);
+    }
+
+    /**
+     * Reads the deals at one query's rows, through one reader over this catalog's records and, for a layered catalog, one over its base's.
+     */
+    private final class QueryReader {
+
+        private final DealRecords.Reader ownDeals = records.reader();
+        private final DealRecords.Reader baseDeals = layer != null ? layer.base().records.reader() : null;
+
+        /**
+         * @return the deal at the given query row with its live quantity. On the heap, the shared Deal is returned unless a claim has changed its quantity.
+         */
+        Deal liveDeal(int row, int qtyLeft) {
+            return row >= baseRowCount ? ownDeals.liveDeal(row - baseRowCount, qtyLeft) : baseDeals.liveDeal(row, qtyLeft);
+        }
+    }
+
+    /**
+     * A catalog patched from this one, and the deals whose quantity the patch set rather than carried over.
+     */
+    public record Patched(DealsCatalog catalog, Set<String> replacedDealObjectIds) {
+    }
+
+    /**
+     * Builds a new catalog from this one with the given restaurants replaced, added or removed. This catalog is unchanged.
+     * Unchanged restaurants keep their position, changed restaurants keep the position of the restaurant they replace, and
+     * new restaurants are added at the end.
+     * While the restaurants changed since the last compiled catalog have fewer rows than the builder's compaction ratio of its
+     * rows, the patched catalog is a layer over it with only those restaurants resolved and indexed, so a patch costs about as
+     * much as the changes. Otherwise the changes are compacted into a new compiled catalog, with unchanged restaurants copied as
+     * resolved rows. The patched catalog's inventory waits for this catalog's live quantities, so call handOverInventory once it
+     * has been published.
+     * @param changes - the new version of each changed restaurant by objectId, or null for a removed restaurant
+     * @param builder - an empty builder, configured with the shards and layering to build the patched catalog with
+     * @return the patched catalog, with a new snapshot document of its restaurants as its source
+     */
+    public Patched patch(Map<String, RestaurantResponseDto> changes, Builder builder) {
+        DealsCatalog base = layer != null ? layer.base() : this;
+        RestaurantRows baseRows = base.restaurantRows();
+
+        // 1. Fold the changes into those already layered over the base. A base restaurant removed and then added again is new,
+        // so it moves to the end like any other added restaurant
+        Map<String, RestaurantResponseDto> replaced = layer != null ? new HashMap<>(layer.replaced()) : new HashMap<>();
+        LinkedHashMap<String, RestaurantResponseDto> added = layer != null ? new LinkedHashMap<>(layer.added()) : new LinkedHashMap<>();
+        boolean compact = false;
+        for (Map.Entry<String, RestaurantResponseDto> change : changes.entrySet()) {
+            String objectId = change.getKey();
+            RestaurantResponseDto restaurant = change.getValue();
+            if (added.containsKey(objectId)) {
+                if (restaurant != null) {
+                    added.put(objectId, restaurant);
+                } else {
+                    added.remove(objectId);
+                }
+            } else if (baseRows.firstRow().containsKey(objectId) && !(replaced.containsKey(objectId) && replaced.get(objectId) == null)) {
+                replaced.put(objectId, restaurant);
+            } else if (restaurant != null) {
+                added.put(objectId, restaurant);
+            }
+            // A layer replaces one base restaurant per objectId, so duplicates in the base need every copy rebuilt
+            compact |= baseRows.duplicated().contains(objectId);
+        }
+
+        // 2. Compact once the layer's rows (those it removes from the base, and its own) are too large a share of the base
+        long layeredRows = 0;
+        for (Map.Entry<String, RestaurantResponseDto> entry : replaced.entrySet()) {
+            int restaurantRow = baseRows.firstRow().get(entry.getKey());
+            layeredRows += base.columns.endDealOf(restaurantRow) - base.columns.firstDealOf(restaurantRow) + dealCountOf(entry.getValue());
+        }
+        for (RestaurantResponseDto restaurant : added.values()) {
+            layeredRows += dealCountOf(restaurant);
+        }
+        if (compact || builder.offHeap || layeredRows > builder.compactionRatio * base.columns.dealCount()) {
+            return rebuild(changes, builder);
+        }
+        Patched layered = layerOver(base, baseRows, changes, replaced, added, builder);
+        return layered != null ? layered : rebuild(changes, builder);
+    }
+
+    /**
+     * Patches this catalog into a layer over the given compiled catalog, holding only the restaurants changed since it was compiled.
+     * Restaurants changed in this patch are resolved, and those changed by earlier patches are carried over from this layer's rows.
+     * @return the patched catalog, or null if it can't be layered because a deal this layer took over from the base would go back to it
+     */
+    private Patched layerOver(DealsCatalog base, RestaurantRows baseRows, Map<String, RestaurantResponseDto> changes,
+            Map<String, RestaurantResponseDto> replaced, LinkedHashMap<String, RestaurantResponseDto> added, Builder builder) {
+        // 1. The layer's restaurants: replacements in base order, then added restaurants
+        List<String> replacing = new ArrayList<>();
+        int removedRowCount = 0;
+        for (Map.Entry<String, RestaurantResponseDto> entry : replaced.entrySet()) {
+            int restaurantRow = baseRows.firstRow().get(entry.getKey());
+            removedRowCount += base.columns.endDealOf(restaurantRow) - base.columns.firstDealOf(restaurantRow);
+            if (entry.getValue() != null) {
+                replacing.add(entry.getKey());
+            }
+        }
+        replacing.sort(Comparator.comparingInt(objectId -> baseRows.firstRow().get(objectId)));
+        List<RestaurantResponseDto> layerRestaurants = new ArrayList<>(replacing.size() + added.size());
+        int[] restaurantPositions = new int[replacing.size() + added.size()];
+        for (String objectId : replacing) {
+            restaurantPositions[layerRestaurants.size()] = baseRows.firstRow().get(objectId);
+            layerRestaurants.add(replaced.get(objectId));
+        }
+        for (RestaurantResponseDto restaurant : added.values()) {
+            restaurantPositions[layerRestaurants.size()] = base.restaurants().length;
+            layerRestaurants.add(restaurant);
+        }
+
+        // 2. The base rows the layer removes, and the base deals it takes over: those in removed rows, and any it has its own of
+        int[] removedBaseRows = new int[removedRowCount];
+        Set<String> maskedBaseObjectIds = new HashSet<>();
+        int removedCount = 0;
+        for (String objectId : replaced.keySet()) {
+            int restaurantRow = baseRows.firstRow().get(objectId);
+            for (int row = base.columns.firstDealOf(restaurantRow); row < base.columns.endDealOf(restaurantRow); row++) {
+                removedBaseRows[removedCount++] = row;
+                if (base.columns.dealObjectId(row) != null) {
+                    maskedBaseObjectIds.add(base.columns.dealObjectId(row));
+                }
+            }
+        }
+        Arrays.sort(removedBaseRows);
+        int[] basePositions = new int[layerRestaurants.stream().mapToInt(DealsCatalog::dealCountOf).sum()];
+        int ownRow = 0;
+        for (int i = 0; i < layerRestaurants.size(); i++) {
+            int basePosition = restaurantPositions[i] < base.restaurants().length
+                    ? base.columns.firstDealOf(restaurantPositions[i]) : base.columns.dealCount();
+            if (layerRestaurants.get(i).getDeals() != null) {
+                for (DealResponseDto deal : layerRestaurants.get(i).getDeals()) {
+                    basePositions[ownRow++] = basePosition;
+                    if (base.inventory.objectIds().contains(deal.getObjectId())) {
+                        maskedBaseObjectIds.add(deal.getObjectId());
+                    }
+                }
+            }
+        }
+        // Base counters are sealed once they are masked, so a layer can never hand a deal back to the base
+        if (layer != null && !maskedBaseObjectIds.containsAll(layer.maskedBaseObjectIds())) {
+            return null;
+        }
+
+        // 3. Resolve the restaurants changed in this patch, and move the peak intervals of their previous versions out of the peak index
+        builder.peakPatch = peakIndex.copy();
+        List<Long> peakRemoved = new ArrayList<>();
+        Map<String, Integer> previousRows = layer != null ? restaurantRows().firstRow() : new HashMap<>();
+        for (String objectId : changes.keySet()) {
+            Integer previousRow = previousRows.get(objectId);
+            if (previousRow != null) {
+                removePeakIntervals(previousRow, builder.peakPatch, peakRemoved);
+            } else if (baseRows.firstRow().containsKey(objectId) && (layer == null || !layer.replaced().containsKey(objectId))) {
+                base.removePeakIntervals(baseRows.firstRow().get(objectId), builder.peakPatch, peakRemoved);
+            }
+        }
+        for (RestaurantResponseDto restaurant : layerRestaurants) {
+            Integer previousRow = previousRows.get(restaurant.getObjectId());
+            if (previousRow != null && !changes.containsKey(restaurant.getObjectId())) {
+                builder.copy(this, previousRow);
+            } else {
+                builder.add(restaurant);
+            }
+        }
+
+        // 4. The new source document is the base's restaurants with the changes applied: a copy of the array, not of the restaurants
+        RestaurantResponseDto[] baseRestaurants = base.restaurants();
+        RestaurantResponseDto[] sourceRestaurants = Arrays.copyOf(baseRestaurants, baseRestaurants.length + added.size());
+        boolean anyRemoved = false;
+        for (Map.Entry<String, RestaurantResponseDto> entry : replaced.entrySet()) {
+            sourceRestaurants[baseRows.firstRow().get(entry.getKey())] = entry.getValue();
+            anyRemoved |= entry.getValue() == null;
+        }
+        int sourceCount = baseRestaurants.length;
+        if (anyRemoved) {
+            sourceCount = 0;
+            for (int i = 0; i < baseRestaurants.length; i++) {
+                if (sourceRestaurants[i] != null) {
+                    sourceRestaurants[sourceCount++] = sourceRestaurants[i];
+                }
+            }
+        }
+        for (RestaurantResponseDto restaurant : added.values()) {
+            sourceRestaurants[sourceCount++] = restaurant;
+        }
+
+        Layer patchedLayer = new Layer(base, replaced, added, removedBaseRows, restaurantPositions, basePositions, maskedBaseObjectIds);
+        DealsCatalog patched = builder.build(
+                RestaurauntDealsResponseDto.builder().restaurants(Arrays.copyOf(sourceRestaurants, sourceCount)).build(),
+                builder.peakPatch,
+                samePeak(peakRemoved, builder) ? this : null,
+                patchedLayer);
+
+        // Deals the base still holds stay live there, so only this layer's own deals are handed over
+        Set<String> replacedDealObjectIds = replacedDealObjectIds(changes);
+        if (layer != null) {
+            Set<String> carriedOver = new HashSet<>(inventory.objectIds());
+            carriedOver.removeAll(replacedDealObjectIds);
+            patched.inventory.pendingTransfer(carriedOver, inventory);
+        }
+        return new Patched(patched, replacedDealObjectIds);
+    }
+
+    /**
+     * Patches this catalog into a new compiled catalog, copying every unchanged restaurant over as resolved rows.
+     */
+    private Patched rebuild(Map<String, RestaurantResponseDto> changes, Builder builder) {
+        builder.peakPatch = peakIndex.copy();
+        List<Long> peakRemoved = new ArrayList<>();
+        Set<String> emitted = new HashSet<>();
+
+        forEachRestaurant((catalog, restaurantRow) -> {
+            String objectId = catalog.restaurants()[restaurantRow].getObjectId();
+            if (!changes.containsKey(objectId)) {
+                builder.copy(catalog, restaurantRow);
+                return;
+            }
+            catalog.removePeakIntervals(restaurantRow, builder.peakPatch, peakRemoved);
+            RestaurantResponseDto replacement = changes.get(objectId);
+            if (replacement != null && emitted.add(objectId)) {
+                builder.add(replacement);
+            }
+        });
+        for (Map.Entry<String, RestaurantResponseDto> change : changes.entrySet()) {
+            if (change.getValue() != null && emitted.add(change.getKey())) {
+                builder.add(change.getValue());
+            }
+        }
+
+        DealsCatalog patched = builder.build(
+                RestaurauntDealsResponseDto.builder().restaurants(builder.restaurants.toArray(new RestaurantResponseDto[0])).build(),
+                builder.peakPatch,
+                samePeak(peakRemoved, builder) ? this : null,
+                null);
+
+        Set<String> replacedDealObjectIds = replacedDealObjectIds(changes);
+        Set<String> carriedOver = new HashSet<>(inventory.objectIds());
+        if (layer != null) {
+            for (String objectId : layer.base().inventory.objectIds()) {
+                if (!layer.maskedBaseObjectIds().contains(objectId)) {
+                    carriedOver.add(objectId);
+                }
+            }
+        }
+        carriedOver.removeAll(replacedDealObjectIds);
+        patched.inventory.pendingTransfer(carriedOver, inventory);
+        return new Patched(patched, replacedDealObjectIds);
+    }
+
+    /**
+     * Called with each restaurant in source order, as a restaurant row of the catalog holding it.
+     */
+    @FunctionalInterface
+    private interface RestaurantVisitor {
+        void visit(DealsCatalog catalog, int restaurantRow);
+    }
+
+    /**
+     * Visits this catalog's restaurants in source order: for a layered catalog, the base's unchanged restaurants and the layer's own.
+     */
+    private void forEachRestaurant(RestaurantVisitor visitor) {
+        int ownCount = restaurants().length;
+        if (layer == null) {
+            for (int restaurantRow = 0; restaurantRow < ownCount; restaurantRow++) {
+                visitor.visit(this, restaurantRow);
+            }
+            return;
+        }
+        DealsCatalog base = layer.base();
+        RestaurantResponseDto[] baseRestaurants = base.restaurants();
+        int own = 0;
+        for (int restaurantRow = 0; restaurantRow < baseRestaurants.length; restaurantRow++) {
+            while (own < ownCount && layer.restaurantPositions()[own] <= restaurantRow) {
+                visitor.visit(this, own++);
+            }
+            if (!layer.replaced().containsKey(baseRestaurants[restaurantRow].getObjectId())) {
+                visitor.visit(base, restaurantRow);
+            }
+        }
+        while (own < ownCount) {
+            visitor.visit(this, own++);
+        }
+    }
+
+    /**
+     * Removes the peak intervals of the given restaurant's deals from the peak index, recording each one removed.
+     */
+    private void removePeakIntervals(int restaurantRow, PeakWindowIndex peakIndex, List<Long> peakRemoved) {
+        for (int row = columns.firstDealOf(restaurantRow); row < columns.endDealOf(restaurantRow); row++) {
+            if (columns.peakStart(row) >= 0) {
+                peakIndex.remove(columns.peakStart(row), columns.peakEnd(row));
+                peakRemoved.add(peakInterval(columns.peakStart(row), columns.peakEnd(row)));
+            }
+        }
+    }
+
+    /**
+     * @return whether the peak intervals removed by a patch are the same as those it added, in which case the peak results carry over
+     */
+    private static boolean samePeak(List<Long> peakRemoved, Builder builder) {
+        peakRemoved.sort(null);
+        builder.peakPatchAdded.sort(null);
+        return peakRemoved.equals(builder.peakPatchAdded);
+    }
+
+    /**
+     * @return the objectIds of the deals of the changed restaurants, whose quantities come from the changes
+     */
+    private static Set<String> replacedDealObjectIds(Map<String, RestaurantResponseDto> changes) {
+        Set<String> replacedDealObjectIds = new HashSet<>();
+        for (RestaurantResponseDto replacement : changes.values()) {
+            if (replacement != null && replacement.getDeals() != null) {
+                for (DealResponseDto deal : replacement.getDeals()) {
+                    replacedDealObjectIds.add(deal.getObjectId());
+                }
+            }
+        }
+        return replacedDealObjectIds;
+    }
+
+    private static int dealCountOf(RestaurantResponseDto restaurant) {
+        return restaurant != null && restaurant.getDeals() != null ? restaurant.getDeals().length : 0;
+    }
+
+    /**
+     * Moves this catalog's live quantities into a catalog patched from it. Claims made against this catalog from now on
+     * are forwarded to the patched catalog's inventory. A layer's base keeps the live quantities of the deals the layer
+     * didn't take over, so only the others are sealed there.
+     */
+    public void handOverInventory(Patched patched) {
+        DealsCatalog next = patched.catalog();
+        if (next.layer == null) {
+            inventory.handOver(next.inventory, patched.replacedDealObjectIds());
+            if (layer != null) {
+                layer.base().inventory.handOver(next.inventory, patched.replacedDealObjectIds());
+            }
+        } else {
+            if (layer != null) {
+                inventory.handOver(next.inventory, patched.replacedDealObjectIds());
+            }
+            next.layer.base().inventory.seal(next.layer.maskedBaseObjectIds(), next.inventory);
+        }
+        next.inventory.transferCompleted();
+    }
+
+    /**
+     * @return the restaurant with the given objectId in this snapshot, or null if there isn't one
+     */
+    public RestaurantResponseDto findRestaurant(String objectId) {
+        if (layer != null) {
+            if (layer.added().containsKey(objectId)) {
+                return layer.added().get(objectId);
+            }
+            return layer.replaced().containsKey(objectId) ? layer.replaced().get(objectId) : layer.base().findRestaurant(objectId);
+        }
+        Integer restaurantRow = restaurantRows().firstRow().get(objectId);
+        return restaurantRow != null ? restaurants()[restaurantRow] : null;
+    }
+
+    private RestaurantRows restaurantRows() {
+        RestaurantRows rows = restaurantRows;
+        if (rows == null) {
+            RestaurantResponseDto[] own = restaurants();
+            Map<String, Integer> firstRow = new HashMap<>();
+            Set<String> duplicated = new HashSet<>();
+            for (int restaurantRow = 0; restaurantRow < own.length; restaurantRow++) {
+                if (firstRow.putIfAbsent(own[restaurantRow].getObjectId(), restaurantRow) != null) {
+                    duplicated.add(own[restaurantRow].getObjectId());
+                }
+            }
+            rows = new RestaurantRows(firstRow, duplicated);
+            restaurantRows = rows;
+        }
+        return rows;
+    }
+
+    private static long peakInterval(int peakStart, int peakEnd) {
+        return ((long) peakStart << 32) | peakEnd;
+    }
+
+    /**
+     * @return the peak deals window for this snapshot, computed once when the catalog was compiled
+     */
+    public PeakDealsResponse getPeakDeals() {
+        return peakDeals;
+    }
+
+    /**
+     * @return the number of deals active at each minute of the day, as seen by the peak sweep. The array is shared and must not be modified.
+     */
+    public int[] getPeakHistogram() {
+        int[] histogram = peakHistogram;
+        if (histogram == null) {
+            histogram = peakIndex.activeCounts();
+            peakHistogram = histogram;
+        }
+        return histogram;
+    }
+
+    /**
+     * @param windowMinutes - the length of each window (1-1440)
+     * @param top - the number of windows to return, not counting ties (at least 1)
+     * @return the busiest non-overlapping windows of the given length, best first, computed once per snapshot for each length and top
+     */
+    public List<PeakAnalysis.PeakWindow> getTopPeakWindows(int windowMinutes, int top) {
+        return topPeakWindows.computeIfAbsent(((long) windowMinutes << 32) | top,
+                key -> List.copyOf(PeakAnalysis.topWindows(getPeakHistogram(), windowMinutes, top)));
+    }
+
+    /**
+     * @return identifies the peak results (window, histogram and top windows) of this catalog. Catalogs patched without
+     * changing any peak interval share their base catalog's version, so anything derived from the peak can be kept.
+     */
+    public long getPeakVersion() {
+        return peakVersion;
+    }
+
+    /**
+     * @return the incremental peak index for this snapshot. Take a copy() before applying any updates to it.
+     */
+    public PeakWindowIndex getPeakIndex() {
+        return peakIndex;
+    }
+
+    /**
+     * Materialises the active deals for every minute of the day from this catalog.
+     * A sharded catalog has no index over every deal, so one is built just for the table.
+     * @throws IllegalStateException if the catalog is layered, which answers from its base's table instead
+     */
+    public ActiveDealsAnswerTable buildAnswerTable() {
+        if (layer != null) {
+            throw new IllegalStateException("A layered catalog answers from its base's answer table");
+        }
+        if (shards.length == 1) {
+            return ActiveDealsAnswerTable.build(records, columns, inventory, shards[0].getActiveIndex(), false);
+        }
+        return ActiveDealsAnswerTable.build(records, columns, inventory, columns.buildActiveIndex(), true);
+    }
+
+    void setAnswerTable(ActiveDealsAnswerTable answerTable) {
+        this.answerTable = answerTable;
+    }
+
+    /**
+     * @return the precomputed answer table to pass to answerActiveDeals (the base's for a layered catalog), or null if the answer table mode is disabled
+     */
+    public ActiveDealsAnswerTable getAnswerTable() {
+        return layer != null ? layer.base().answerTable : answerTable;
+    }
+
+    /**
+     * @return the estimated size of the precomputed answer table this catalog answers from
+     */
+    long getAnswerTableSizeBytes() {
+        ActiveDealsAnswerTable table = getAnswerTable();
+        return table != null ? table.getEstimatedSizeBytes() : 0;
+    }
+
+    /**
+     * @return the live inventory for this snapshot's deals
+     */
+    public DealInventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * @return the primitive columns for this snapshot's deals, with rows in the same order as the Deal objects. For a layered
+     * catalog, only the layer's own deals.
+     */
+    public DealColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return a reader over the mapped Deals of this catalog's own rows, with their quantities as in the snapshot, for one pass
+     */
+    DealRecords.Reader reader() {
+        return records.reader();
+    }
+
+    /**
+     * @return the number of bytes this catalog's deals hold outside the heap, or 0 if they are on the heap
+     */
+    public long getOffHeapSizeBytes() {
+        return records.getOffHeapSizeBytes() + (layer != null ? layer.base().getOffHeapSizeBytes() : 0);
+    }
+
+    /**
+     * @return the snapshot data this catalog was compiled from. Null for an off-heap catalog whose published snapshot has since
+     * been replaced and collected, which no request can still be resolving against.
+     */
+    public RestaurauntDealsResponseDto getSource() {
+        RestaurauntDealsResponseDto held = source;
+        return held != null || weakSource == null ? held : weakSource.get();
+    }
+
+    /**
+     * Lets an off-heap catalog go of its source once something else holds it, e.g. the snapshot it was published as. From then
+     * on the catalog only refers to it weakly, so it never keeps the source's restaurant and deal DTOs reachable by itself.
+     * A heap catalog keeps its source.
+     */
+    void releaseSource() {
+        if (weakSource != null) {
+            source = null;
+        }
+    }
+
+    /**
+     * @return the restaurants of this catalog's own rows. An off-heap catalog reads them from its source, which has to be
+     * held by whoever is using the catalog, as it is by a request or patch resolved from the snapshot.
+     * @throws IllegalStateException if the off-heap catalog's source has already been collected
+     */
+    private RestaurantResponseDto[] restaurants() {
+        if (restaurants != null) {
+            return restaurants;
+        }
+        RestaurauntDealsResponseDto held = getSource();
+        if (held == null || held.getRestaurants() == null) {
+            if (columns.restaurantCount() == 0) {
+                return NO_RESTAURANTS;
+            }
+            throw new IllegalStateException("The source of this off-heap catalog is no longer held");
+        }
+        return held.getRestaurants();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether this catalog is a layer over a compiled catalog, whose own rows only hold the restaurants changed since
+     */
+    public boolean isLayered() {
+        return layer != null;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+}
@@ -0,0 +1,318 @@
+package com.demo.api_deals.catalog;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Keeps the compiled DealsCatalog for the current deals snapshot.
+ * The catalog is compiled once per snapshot; requests against the same snapshot reuse it.
+ */
+@Component
+public class DealsCatalogRegistry implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealsCatalogRegistry.class);
+
+    private final ResponseDtoToResponseMapper responseMapper;
+    private final DealsProperties dealsProperties;
+    private final Timer answerTableBuildTimer;
+    private final Timer patchTimer;
+    private final MeterRegistry meterRegistry;
+    // Where compiled catalogs are persisted, or null if snapshot files are disabled
+    private final Path snapshotFilePath;
+
+    // Bounded scheduler the catalog shards are queried on, one thread per shard
+    private final Scheduler shardScheduler;
+
+    private final AtomicReference<DealsCatalog> current = new AtomicReference<>();
+    // The catalog the last install replaced, kept until the next install so in-flight requests don't recompile it
+    private volatile DealsCatalog superseded;
+    // The catalog whose source is being published, if any
+    private volatile DealsCatalog publishing;
+    // Whether a catalog has been installed through publish, after which unknown data is from a replaced snapshot
+    private volatile boolean publishedInstalled;
+    private final Object publishLock = new Object();
+
+    public DealsCatalogRegistry(ResponseDtoToResponseMapper responseMapper, DealsProperties dealsProperties, MeterRegistry meterRegistry) {
+        this.responseMapper = responseMapper;
+        this.dealsProperties = dealsProperties;
+        this.meterRegistry = meterRegistry;
+        String snapshotFile = dealsProperties.getSnapshotFile().getPath();
+        this.snapshotFilePath = snapshotFile != null && !snapshotFile.isBlank() ? Path.of(snapshotFile) : null;
+        int shardCount = dealsProperties.getShards().resolveCount();
+        this.shardScheduler = shardCount > 1 ? Schedulers.newParallel("deals-shard", shardCount, true) : Schedulers.immediate();
+
+        this.answerTableBuildTimer = Timer.builder("deals.answer-table.build")
+                .description("Time taken to precompute the active deals answer table for a snapshot")
+                .register(meterRegistry);
+        this.patchTimer = Timer.builder("deals.catalog.patch")
+                .description("Time taken to build a patched catalog from the current one for a batch of deltas")
+                .register(meterRegistry);
+        Gauge.builder("deals.answer-table.size", current, this::answerTableSize)
+                .description("Estimated memory footprint of the current active deals answer table")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("deals.catalog.off-heap.size", current, this::offHeapSize)
+                .description("Memory held outside the heap by the current catalog's deal records")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the catalog for the given snapshot data, compiling it if the data has changed since the last call.
+     * Once catalogs are published through this registry, data that doesn't match the current, publishing or superseded
+     * catalog belongs to a snapshot replaced since the request read it, and is answered from the current catalog
+     * rather than compiled again.
+     * @param data - the snapshot data returned by the DealsResource
+     * @return the compiled catalog for the data
+     */
+    public DealsCatalog resolve(RestaurauntDealsResponseDto data) {
+        DealsCatalog catalog = current.get();
+        if (catalog != null && catalog.getSource() == data) {
+            return catalog;
+        }
+        // The snapshot may already be visible to requests while its catalog is being installed
+        DealsCatalog pending = publishing;
+        if (pending != null && pending.getSource() == data) {
+            return pending;
+        }
+        // Requests still holding the snapshot a patch replaced keep using its catalog, whose claims forward to the patched one
+        DealsCatalog previous = superseded;
+        if (previous != null && previous.getSource() == data) {
+            return previous;
+        }
+
+        // Only one thread compiles a new snapshot, the others wait and reuse its result
+        synchronized (this) {
+            catalog = current.get();
+            if (catalog != null && (catalog.getSource() == data || publishedInstalled)) {
+                return catalog;
+            }
+            catalog = compileSource(data);
+            current.set(catalog);
+            // The caller's snapshot holds the data from here on
+            catalog.releaseSource();
+            return catalog;
+        }
+    }
+
+    /**
+     * Compiles a catalog incrementally from a stream of restaurants, as they are read, without installing it.
+     * The returned catalog's source is a new snapshot document of the streamed restaurants, which should then be published
+     * through publish so that requests resolve to this catalog without compiling it again.
+     * @param restaurants - the restaurants of the new snapshot, in order
+     * @return a Mono of the compiled catalog
+     */
+    public Mono<DealsCatalog> compile(Flux<RestaurantResponseDto> restaurants) {
+        return restaurants
+                .reduceWith(this::newBuilder, DealsCatalog.Builder::add)
+                .map(builder -> withAnswerTable(builder.build()));
+    }
+
+    /**
+     * Publishes the catalog's source as a new snapshot and, once that succeeds, installs the catalog as the current one.
+     * Publishes are serialised, so catalogs are installed in the order their snapshots were published. While the snapshot
+     * is being published, requests that already see it resolve to the catalog being installed.
+     * @param catalog - the catalog to install
+     * @param publisher - publishes the given source data, e.g. DealsSnapshotHolder::publish. Returns null if it didn't publish it.
+     * @return the publisher's result. The catalog is only installed if it isn't null.
+     */
+    public <T> T publish(DealsCatalog catalog, Function<RestaurauntDealsResponseDto, T> publisher) {
+        synchronized (publishLock) {
+            publishing = catalog;
+            try {
+                T published = publisher.apply(catalog.getSource());
+                if (published != null) {
+                    install(catalog);
+                }
+                return published;
+            } finally {
+                publishing = null;
+            }
+        }
+    }
+
+    /**
+     * Loads the catalog persisted in the snapshot file, if there is one for the given source, without installing it.
+     * The file is only a cache: if it is missing, was written for other data, or is corrupt, the caller should compile from the source instead.
+     * @param sourceStamp - identifies the source data, e.g. its last modified time and size, as passed to saveSnapshotFile
+     * @return the loaded catalog, which should then be published through publish, or null if there is no usable file
+     */
+    public DealsCatalog loadSnapshotFile(String sourceStamp) {
+        if (snapshotFilePath == null) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        DealsCatalog catalog;
+        try {
+            catalog = withAnswerTable(DealsSnapshotFile.read(snapshotFilePath, sourceStamp, newBuilder()));
+        } catch (NoSuchFileException e) {
+            countSnapshotFileLoad("missing");
+            return null;
+        } catch (DealsSnapshotFile.StaleSnapshotFileException e) {
+            logger.info("Ignoring stale deals snapshot file: path={}, reason={}", snapshotFilePath, e.getMessage());
+            countSnapshotFileLoad("stale");
+            return null;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable deals snapshot file: path={}, error={}", snapshotFilePath, e.toString());
+            countSnapshotFileLoad("corrupt");
+            return null;
+        }
+        countSnapshotFileLoad("loaded");
+        logger.info("Loaded deals snapshot file: path={}, deals={}, took={}ms", snapshotFilePath, catalog.size(), (System.nanoTime() - startNanos) / 1_000_000);
+        return catalog;
+    }
+
+    /**
+     * Persists the given catalog to the snapshot file in the background, so the next start can load it without compiling it.
+     * Does nothing if snapshot files are disabled. A failed write is logged and otherwise ignored, since the file is only a cache.
+     * @param catalog - the catalog to persist, as compiled from the source
+     * @param sourceStamp - identifies the source data the catalog was compiled from
+     */
+    public void saveSnapshotFile(DealsCatalog catalog, String sourceStamp) {
+        if (snapshotFilePath == null) {
+            return;
+        }
+        // An off-heap catalog only refers to its source weakly once published, so keep it reachable until it is written
+        RestaurauntDealsResponseDto source = catalog.getSource();
+        Mono.fromCallable(() -> {
+                    Path parent = snapshotFilePath.toAbsolutePath().getParent();
+                    if (parent != null) {
+                        Files.createDirectories(parent);
+                    }
+                    DealsSnapshotFile.write(catalog, sourceStamp, snapshotFilePath);
+                    Reference.reachabilityFence(source);
+                    return snapshotFilePath;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(
+                        path -> logger.debug("Saved deals snapshot file: path={}", path),
+                        e -> logger.warn("Failed to save deals snapshot file: path={}, error={}", snapshotFilePath, e.toString()));
+    }
+
+    /**
+     * Builds a catalog patched from the given one with some restaurants replaced, added or removed, without installing it.
+     * A layered catalog answers from its base's answer table, so only a patch that compacted into a new catalog builds one.
+     * @param base - the catalog to patch, which is left unchanged
+     * @param changes - the new version of each changed restaurant by objectId, or null for a removed restaurant
+     * @return the patched catalog
+     */
+    public DealsCatalog.Patched patch(DealsCatalog base, Map<String, RestaurantResponseDto> changes) {
+        long startNanos = System.nanoTime();
+        DealsCatalog.Patched patched = base.patch(changes, newBuilder());
+        patchTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (!patched.catalog().isLayered()) {
+            withAnswerTable(patched.catalog());
+        }
+        return patched;
+    }
+
+    /**
+     * Installs the given catalog as the current one, so requests for its source data resolve to it without compiling it.
+     */
+    private void install(DealsCatalog catalog) {
+        // The published snapshot holds the catalog's source from here on
+        catalog.releaseSource();
+        superseded = current.getAndSet(catalog);
+        publishedInstalled = true;
+    }
+
+    /**
+     * @param data - the snapshot data to check
+     * @return the peak version of the catalog compiled from the given data, or -1 if it hasn't been compiled yet
+     */
+    public long getPeakVersion(RestaurauntDealsResponseDto data) {
+        DealsCatalog catalog = current.get();
+        return (catalog != null && catalog.getSource() == data) ? catalog.getPeakVersion() : -1;
+    }
+
+    /**
+     * @param data - the snapshot data to check
+     * @return the live inventory revision of the catalog compiled from the given data, or 0 if it hasn't been compiled yet
+     */
+    public long getInventoryRevision(RestaurauntDealsResponseDto data) {
+        DealsCatalog catalog = current.get();
+        return (catalog != null && catalog.getSource() == data) ? catalog.getInventory().revision() : 0;
+    }
+
+    /**
+     * @return the current catalog, or null if none has been installed or compiled yet
+     */
+    public DealsCatalog getCurrent() {
+        return current.get();
+    }
+
+    private DealsCatalog compileSource(RestaurauntDealsResponseDto data) {
+        DealsCatalog.Builder builder = newBuilder();
+        if (data != null && data.getRestaurants() != null) {
+            for (RestaurantResponseDto restaurant : data.getRestaurants()) {
+                builder.add(restaurant);
+            }
+        }
+        return withAnswerTable(builder.build(data));
+    }
+
+    private DealsCatalog.Builder newBuilder() {
+        return new DealsCatalog.Builder(responseMapper)
+                .offHeap(dealsProperties.getOffHeap().isEnabled())
+                .shards(dealsProperties.getShards().resolveCount(), dealsProperties.getShards().getParallelThreshold(), shardScheduler)
+                .layering(dealsProperties.getDeltas().getCompactionRatio());
+    }
+
+    private void countSnapshotFileLoad(String result) {
+        Counter.builder("deals.snapshot-file.loads")
+                .tag("result", result)
+                .description("Attempts to load the compiled catalog from the snapshot file, by outcome")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private DealsCatalog withAnswerTable(DealsCatalog catalog) {
+        if (dealsProperties.getAnswerTable().isEnabled()) {
+            ActiveDealsAnswerTable answerTable = catalog.buildAnswerTable();
+            answerTableBuildTimer.record(answerTable.getBuildTimeNanos(), TimeUnit.NANOSECONDS);
+            catalog.setAnswerTable(answerTable);
+        }
+        return catalog;
+    }
+
+    @Override
+    public void destroy() {
+        shardScheduler.dispose();
+    }
+
+    private double offHeapSize(AtomicReference<DealsCatalog> catalogReference) {
+        DealsCatalog catalog = catalogReference.get();
+        return catalog != null ? catalog.getOffHeapSizeBytes() : 0;
+    }
+
+    private double answerTableSize(AtomicReference<DealsCatalog> catalogReference) {
+        DealsCatalog catalog = catalogReference.get();
+        return catalog != null ? catalog.getAnswerTableSizeBytes() : 0;
+    }
+}
@@ -0,0 +1,357 @@
+package com.demo.api_deals.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+/**
+ * Compact binary form of a compiled catalog, so a new instance can load a snapshot without parsing the JSON document.
+ *
+ * The file holds every distinct string once, then the restaurants and deals as fixed-width codes into that table, with
+ * each deal's mapped values (discount, quantity, flags) and its active and peak intervals as already resolved by the
+ * catalog. Loading maps the file, checks it, and rebuilds the catalog through the builder without any time, number or
+ * JSON parsing; the indexes are then rebuilt from the minute columns in linear passes. Indexes aren't stored, so the
+ * format doesn't depend on the index layout or the shard count. The Deals are rebuilt by the mapper from the stored values,
+ * and a file written under another version of the mapping is stale, so a change to the mapping is never masked by the file.
+ *
+ * Layout (big endian):
+ * <pre>
+ *   header:  int magic, int format version, int deal mapping version, int payload length, int CRC32 of the payload
+ *   payload: string sourceStamp
+ *            int stringCount, then each string as int byteLength (-1 for null) and UTF-8 bytes
+ *            int restaurantCount, then per restaurant:
+ *              int objectId, name, address1, suburb, latitude, longitude, imageLink, open, close, formattedOpen, formattedClose (string codes)
+ *              double parsedLatitude, parsedLongitude (NaN without a location)
+ *              int cuisineCount (-1 for none), int cuisine codes
+ *              int dealCount (-1 for none), then per deal:
+ *                int objectId, discount, dineIn, lightning, start, end, qtyLeft (string codes, as in the source document)
+ *                int activeStart, activeEnd, peakStart, peakEnd
+ *                byte mapped (0 if the deal couldn't be mapped), int discount, int qtyLeft (MISSING for none), byte dineIn, byte lightning
+ * </pre>
+ * Strings are referred to by their index in the table, with -1 for null. Booleans are stored as 0 for null, 1 for false, 2 for true.
+ */
+final class DealsSnapshotFile {
+
+    private static final int MAGIC = 0x444C5343; // "DLSC"
+    // Bump whenever the layout changes, so files written by an older version are ignored rather than misread
+    static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 20;
+
+    private DealsSnapshotFile() {
+    }
+
+    /**
+     * Writes the catalog to the given path, replacing any existing file atomically so a reader never sees it half written.
+     * @param sourceStamp - identifies the data the catalog was compiled from, so a stale file can be told apart on load
+     * @throws IllegalArgumentException if the catalog is layered, since its columns only hold the changes since its base
+     */
+    static void write(DealsCatalog catalog, String sourceStamp, Path path) throws IOException {
+        if (catalog.isLayered()) {
+            throw new IllegalArgumentException("Only a compiled catalog can be written to a snapshot file");
+        }
+        byte[] payload = encode(catalog, sourceStamp);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(ResponseDtoToResponseMapper.DEAL_MAPPING_VERSION)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[] { header, body });
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps the file at the given path and rebuilds its catalog.
+     * @param expectedSourceStamp - the stamp the file must have been written with
+     * @param builder - an empty builder, configured with the shards to build the catalog with
+     * @return the catalog, with a new snapshot document of its restaurants as its source
+     * @throws StaleSnapshotFileException if the file was written for other data, or by another format or deal mapping version
+     * @throws IOException if the file can't be read, or is corrupt (bad magic, length or checksum)
+     */
+    static DealsCatalog read(Path path, String expectedSourceStamp, DealsCatalog.Builder builder) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file has an invalid size: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a deals snapshot file");
+            }
+            int formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new StaleSnapshotFileException("Snapshot file format " + formatVersion + " is not " + FORMAT_VERSION);
+            }
+            int mappingVersion = buffer.getInt();
+            if (mappingVersion != ResponseDtoToResponseMapper.DEAL_MAPPING_VERSION) {
+                throw new StaleSnapshotFileException("Snapshot file deal mapping " + mappingVersion + " is not " + ResponseDtoToResponseMapper.DEAL_MAPPING_VERSION);
+            }
+            int payloadLength = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (payloadLength != size - HEADER_BYTES) {
+                throw new IOException("Snapshot file is truncated: expected " + payloadLength + " payload bytes, found " + (size - HEADER_BYTES));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_BYTES, payloadLength));
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("Snapshot file checksum mismatch");
+            }
+
+            try {
+                return decode(buffer, expectedSourceStamp, builder);
+            } catch (RuntimeException e) {
+                // A checksummed file that still can't be decoded was written by a broken writer; treat it as corrupt
+                throw new IOException("Snapshot file could not be decoded", e);
+            }
+        }
+    }
+
+    private static byte[] encode(DealsCatalog catalog, String sourceStamp) throws IOException {
+        RestaurantResponseDto[] restaurants = catalog.getSource() != null && catalog.getSource().getRestaurants() != null
+                ? catalog.getSource().getRestaurants() : new RestaurantResponseDto[0];
+        DealColumns columns = catalog.getColumns();
+        DealRecords.Reader deals = catalog.reader();
+
+        // First pass: collect the string table
+        StringDictionary strings = new StringDictionary();
+        for (int restaurantRow = 0; restaurantRow < restaurants.length; restaurantRow++) {
+            RestaurantResponseDto restaurant = restaurants[restaurantRow];
+            Deal firstMapped = firstMappedDeal(deals, columns, restaurantRow);
+            encodeAll(strings, restaurant.getObjectId(), restaurant.getName(), restaurant.getAddress1(), restaurant.getSuburb(),
+                    restaurant.getLatitude(), restaurant.getLongitude(), restaurant.getImageLink(), restaurant.getOpen(), restaurant.getClose(),
+                    firstMapped != null ? firstMapped.getRestaurantOpen() : null, firstMapped != null ? firstMapped.getRestaurantClose() : null);
+            if (restaurant.getCuisines() != null) {
+                encodeAll(strings, restaurant.getCuisines());
+            }
+            if (restaurant.getDeals() != null) {
+                for (DealResponseDto deal : restaurant.getDeals()) {
+                    encodeAll(strings, deal.getObjectId(), deal.getDiscount(), deal.getDineIn(), deal.getLightning(),
+                            deal.getStart(), deal.getEnd(), deal.getQtyLeft());
+                }
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024 + 64 * columns.dealCount());
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, sourceStamp);
+        out.writeInt(strings.size());
+        for (int code = 0; code < strings.size(); code++) {
+            writeString(out, strings.decode(code));
+        }
+
+        // Second pass: the rows, as codes into the table. Deal rows are in restaurant order, matching the source document
+        out.writeInt(restaurants.length);
+        int row = 0;
+        for (int restaurantRow = 0; restaurantRow < restaurants.length; restaurantRow++) {
+            RestaurantResponseDto restaurant = restaurants[restaurantRow];
+            Deal firstMapped = firstMappedDeal(deals, columns, restaurantRow);
+            writeCodes(out, strings, restaurant.getObjectId(), restaurant.getName(), restaurant.getAddress1(), restaurant.getSuburb(),
+                    restaurant.getLatitude(), restaurant.getLongitude(), restaurant.getImageLink(), restaurant.getOpen(), restaurant.getClose(),
+                    firstMapped != null ? firstMapped.getRestaurantOpen() : null, firstMapped != null ? firstMapped.getRestaurantClose() : null);
+            out.writeDouble(columns.latitude(restaurantRow));
+            out.writeDouble(columns.longitude(restaurantRow));
+
+            if (restaurant.getCuisines() == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(restaurant.getCuisines().length);
+                writeCodes(out, strings, restaurant.getCuisines());
+            }
+
+            if (restaurant.getDeals() == null) {
+                out.writeInt(-1);
+                continue;
+            }
+            out.writeInt(restaurant.getDeals().length);
+            for (DealResponseDto dealDto : restaurant.getDeals()) {
+                writeCodes(out, strings, dealDto.getObjectId(), dealDto.getDiscount(), dealDto.getDineIn(), dealDto.getLightning(),
+                        dealDto.getStart(), dealDto.getEnd(), dealDto.getQtyLeft());
+                out.writeInt(columns.activeStart(row));
+                out.writeInt(columns.activeEnd(row));
+                out.writeInt(columns.peakStart(row));
+                out.writeInt(columns.peakEnd(row));
+
+                Deal deal = deals.deal(row);
+                out.writeByte(deal != null ? 1 : 0);
+                out.writeInt(deal != null && deal.getDiscount() != null ? deal.getDiscount() : DealColumns.MISSING);
+                out.writeInt(deal != null && deal.getQtyLeft() != null ? deal.getQtyLeft() : DealColumns.MISSING);
+                out.writeByte(deal != null ? encodeBoolean(deal.getDineIn()) : 0);
+                out.writeByte(deal != null ? encodeBoolean(deal.getLightning()) : 0);
+                row++;
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static DealsCatalog decode(ByteBuffer buffer, String expectedSourceStamp, DealsCatalog.Builder builder) throws IOException {
+        String sourceStamp = readString(buffer);
+        if (!expectedSourceStamp.equals(sourceStamp)) {
+            throw new StaleSnapshotFileException("Snapshot file was written for " + sourceStamp + ", not " + expectedSourceStamp);
+        }
+
+        String[] strings = new String[buffer.getInt()];
+        for (int code = 0; code < strings.length; code++) {
+            strings[code] = readString(buffer);
+        }
+
+        ResponseDtoToResponseMapper responseMapper = builder.getResponseMapper();
+        int restaurantCount = buffer.getInt();
+        for (int restaurantRow = 0; restaurantRow < restaurantCount; restaurantRow++) {
+            RestaurantResponseDto restaurant = RestaurantResponseDto.builder()
+                    .objectId(string(strings, buffer.getInt()))
+                    .name(string(strings, buffer.getInt()))
+                    .address1(string(strings, buffer.getInt()))
+                    .suburb(string(strings, buffer.getInt()))
+                    .latitude(string(strings, buffer.getInt()))
+                    .longitude(string(strings, buffer.getInt()))
+                    .imageLink(string(strings, buffer.getInt()))
+                    .open(string(strings, buffer.getInt()))
+                    .close(string(strings, buffer.getInt()))
+                    .build();
+            String formattedOpen = string(strings, buffer.getInt());
+            String formattedClose = string(strings, buffer.getInt());
+            double latitude = buffer.getDouble();
+            double longitude = buffer.getDouble();
+
+            int cuisineCount = buffer.getInt();
+            if (cuisineCount >= 0) {
+                String[] cuisines = new String[cuisineCount];
+                for (int i = 0; i < cuisineCount; i++) {
+                    cuisines[i] = string(strings, buffer.getInt());
+                }
+                restaurant.setCuisines(cuisines);
+            }
+
+            int dealCount = buffer.getInt();
+            DealResponseDto[] dealDtos = new DealResponseDto[Math.max(dealCount, 0)];
+            Deal[] deals = new Deal[dealDtos.length];
+            int[] intervals = new int[4 * dealDtos.length];
+            for (int i = 0; i < dealDtos.length; i++) {
+                dealDtos[i] = DealResponseDto.builder()
+                        .objectId(string(strings, buffer.getInt()))
+                        .discount(string(strings, buffer.getInt()))
+                        .dineIn(string(strings, buffer.getInt()))
+                        .lightning(string(strings, buffer.getInt()))
+                        .start(string(strings, buffer.getInt()))
+                        .end(string(strings, buffer.getInt()))
+                        .qtyLeft(string(strings, buffer.getInt()))
+                        .build();
+                for (int j = 0; j < 4; j++) {
+                    intervals[4 * i + j] = buffer.getInt();
+                }
+
+                boolean mapped = buffer.get() != 0;
+                int discount = buffer.getInt();
+                int qtyLeft = buffer.getInt();
+                Boolean dineIn = decodeBoolean(buffer.get());
+                Boolean lightning = decodeBoolean(buffer.get());
+                if (mapped) {
+                    deals[i] = responseMapper.mapResolvedDeal(restaurant, formattedOpen, formattedClose, dealDtos[i].getObjectId(),
+                            discount != DealColumns.MISSING ? discount : null, dineIn, lightning, qtyLeft != DealColumns.MISSING ? qtyLeft : null);
+                }
+            }
+            restaurant.setDeals(dealCount >= 0 ? dealDtos : null);
+            builder.addResolved(restaurant, latitude, longitude, deals, intervals);
+        }
+
+        if (buffer.hasRemaining()) {
+            throw new IOException("Snapshot file has " + buffer.remaining() + " unexpected trailing bytes");
+        }
+        return builder.build();
+    }
+
+    private static Deal firstMappedDeal(DealRecords.Reader deals, DealColumns columns, int restaurantRow) {
+        for (int row = columns.firstDealOf(restaurantRow); row < columns.endDealOf(restaurantRow); row++) {
+            Deal deal = deals.deal(row);
+            if (deal != null) {
+                return deal;
+            }
+        }
+        return null;
+    }
+
+    private static void encodeAll(StringDictionary strings, String... values) {
+        for (String value : values) {
+            strings.encode(value);
+        }
+    }
+
+    private static void writeCodes(DataOutputStream out, StringDictionary strings, String... values) throws IOException {
+        for (String value : values) {
+            out.writeInt(strings.codeOf(value));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IOException("Snapshot file string runs past the end of the file");
+        }
+        String value = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static String string(String[] strings, int code) {
+        return code == StringDictionary.NO_CODE ? null : strings[code];
+    }
+
+    private static byte encodeBoolean(Boolean value) {
+        return (byte) (value == null ? 0 : value ? 2 : 1);
+    }
+
+    private static Boolean decodeBoolean(byte value) {
+        return value == 0 ? null : value == 2;
+    }
+
+    /**
+     * The file is intact but can't be used for this data: it was written for another source or by another format version.
+     */
+    static final class StaleSnapshotFileException extends IOException {
+
+        StaleSnapshotFileException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.demo.api_deals.catalog;
+
+import java.util.Arrays;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.contract_api_deals.models.Deal;
+
+/**
+ * DealRecords holding the mapped Deal objects on the heap. Unchanged deals are returned as the shared instance, so
+ * serving them allocates nothing. The records hold no per-query state, so they are their own reader.
+ */
+final class HeapDealRecords implements DealRecords, DealRecords.Reader {
+
+    private final Deal[] deals;
+    private final ResponseDtoToResponseMapper responseMapper;
+
+    private HeapDealRecords(Deal[] deals, ResponseDtoToResponseMapper responseMapper) {
+        this.deals = deals;
+        this.responseMapper = responseMapper;
+    }
+
+    @Override
+    public Reader reader() {
+        return this;
+    }
+
+    @Override
+    public Deal deal(int row) {
+        return deals[row];
+    }
+
+    /**
+     * @return the shared Deal, unless a claim has changed its quantity
+     */
+    @Override
+    public Deal liveDeal(int row, int qtyLeft) {
+        Deal deal = deals[row];
+        return deal.getQtyLeft() != null && deal.getQtyLeft() == qtyLeft ? deal : responseMapper.mapDealWithQtyLeft(deal, qtyLeft);
+    }
+
+    @Override
+    public long getOffHeapSizeBytes() {
+        return 0;
+    }
+
+    static final class Builder implements DealRecords.Builder {
+
+        private final ResponseDtoToResponseMapper responseMapper;
+        private Deal[] deals = new Deal[64];
+        private int count;
+
+        Builder(ResponseDtoToResponseMapper responseMapper) {
+            this.responseMapper = responseMapper;
+        }
+
+        @Override
+        public void add(Deal deal) {
+            if (count == deals.length) {
+                deals = Arrays.copyOf(deals, count * 2);
+            }
+            deals[count++] = deal;
+        }
+
+        @Override
+        public DealRecords build() {
+            return new HeapDealRecords(Arrays.copyOf(deals, count), responseMapper);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.demo.api_deals.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.demo.contract_api_deals.models.Deal;
+
+/**
+ * DealRecords held outside the heap, in direct ByteBuffers, so the garbage collector never traces or copies them however
+ * large the catalog is (deals.off-heap.enabled).
+ *
+ * Each row is a fixed-width record, and the Strings it refers to are stored once each as UTF-8 in a separate string area:
+ * <pre>
+ *   record (RECORD_BYTES): int restaurantObjectId, restaurantName, restaurantAddress1, restaurantSuburb,
+ *                          restaurantOpen, restaurantClose, dealObjectId (offsets into the string area, NO_STRING for null)
+ *                          int discount, int qtyLeft (DealColumns.MISSING for null), byte flags
+ *   string area:           int byteLength, then the UTF-8 bytes, at each offset
+ * </pre>
+ * Each query reads its rows through one Cursor, a flyweight moved from record to record, and a Deal is only materialised
+ * when one is returned, so responses allocate their Deals (short lived) instead of the catalog holding them all.
+ * The buffers are only read with absolute gets once built, so any number of threads can read them at once.
+ * Each is allocated once, at its final size, and its memory is released when the catalog is no longer referenced and
+ * the buffer is collected.
+ */
+final class OffHeapDealRecords implements DealRecords {
+
+    static final int RECORD_BYTES = 40;
+    static final int NO_STRING = -1;
+
+    private static final int RESTAURANT_OBJECT_ID = 0;
+    private static final int RESTAURANT_NAME = 4;
+    private static final int RESTAURANT_ADDRESS1 = 8;
+    private static final int RESTAURANT_SUBURB = 12;
+    private static final int RESTAURANT_OPEN = 16;
+    private static final int RESTAURANT_CLOSE = 20;
+    private static final int DEAL_OBJECT_ID = 24;
+    private static final int DISCOUNT = 28;
+    private static final int QTY_LEFT = 32;
+    private static final int FLAGS = 36;
+
+    // Flags. A Boolean is stored as a "has value" bit and a value bit, so null, false and true are all kept
+    private static final int MAPPED = 1;
+    private static final int HAS_DINE_IN = 1 << 1;
+    private static final int DINE_IN = 1 << 2;
+    private static final int HAS_LIGHTNING = 1 << 3;
+    private static final int LIGHTNING = 1 << 4;
+
+    private final ByteBuffer records;
+    private final ByteBuffer strings;
+
+    private OffHeapDealRecords(ByteBuffer records, ByteBuffer strings) {
+        this.records = records;
+        this.strings = strings;
+    }
+
+    /**
+     * @return a new cursor over these records, for one query
+     */
+    @Override
+    public Cursor reader() {
+        return new Cursor();
+    }
+
+    @Override
+    public long getOffHeapSizeBytes() {
+        return (long) records.capacity() + strings.capacity();
+    }
+
+    /**
+     * Flyweight view of one record. Moving it to another row changes nothing but its offset, so a query reads every row it
+     * returns through the same cursor.
+     */
+    final class Cursor implements DealRecords.Reader {
+
+        private int offset;
+
+        @Override
+        public Deal deal(int row) {
+            moveTo(row);
+            return isMapped() ? toDeal(qtyLeft() != DealColumns.MISSING ? qtyLeft() : null) : null;
+        }
+
+        @Override
+        public Deal liveDeal(int row, int qtyLeft) {
+            return moveTo(row).toDeal(qtyLeft);
+        }
+
+        Cursor moveTo(int row) {
+            offset = row * RECORD_BYTES;
+            return this;
+        }
+
+        /**
+         * @return true if the deal could be mapped. The other values of an unmapped deal are not stored.
+         */
+        boolean isMapped() {
+            return (flags() & MAPPED) != 0;
+        }
+
+        /**
+         * @return the deal's discount, or DealColumns.MISSING
+         */
+        int discount() {
+            return records.getInt(offset + DISCOUNT);
+        }
+
+        /**
+         * @return the deal's quantity left in the snapshot, or DealColumns.MISSING
+         */
+        int qtyLeft() {
+            return records.getInt(offset + QTY_LEFT);
+        }
+
+        Boolean dineIn() {
+            int flags = flags();
+            return (flags & HAS_DINE_IN) != 0 ? (flags & DINE_IN) != 0 : null;
+        }
+
+        Boolean lightning() {
+            int flags = flags();
+            return (flags & HAS_LIGHTNING) != 0 ? (flags & LIGHTNING) != 0 : null;
+        }
+
+        String dealObjectId() {
+            return string(DEAL_OBJECT_ID);
+        }
+
+        String restaurantObjectId() {
+            return string(RESTAURANT_OBJECT_ID);
+        }
+
+        /**
+         * @param qtyLeft - the quantity left to set on the Deal
+         * @return a new Deal with the record's values
+         */
+        Deal toDeal(Integer qtyLeft) {
+            int discount = discount();
+            return Deal.builder()
+                    .restaurantObjectId(string(RESTAURANT_OBJECT_ID))
+                    .restaurantName(string(RESTAURANT_NAME))
+                    .restaurantAddress1(string(RESTAURANT_ADDRESS1))
+                    .restaurantSuburb(string(RESTAURANT_SUBURB))
+                    .restaurantOpen(string(RESTAURANT_OPEN))
+                    .restaurantClose(string(RESTAURANT_CLOSE))
+                    .dealObjectId(string(DEAL_OBJECT_ID))
+                    .discount(discount != DealColumns.MISSING ? discount : null)
+                    .dineIn(dineIn())
+                    .lightning(lightning())
+                    .qtyLeft(qtyLeft)
+                    .build();
+        }
+
+        private int flags() {
+            return records.get(offset + FLAGS);
+        }
+
+        private String string(int field) {
+            int stringOffset = records.getInt(offset + field);
+            if (stringOffset == NO_STRING) {
+                return null;
+            }
+            byte[] utf8 = new byte[strings.getInt(stringOffset)];
+            strings.get(stringOffset + Integer.BYTES, utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Writes the records and strings into heap buffers that grow as needed, then copies each into a direct buffer of exactly
+     * its size when built, so no direct memory is ever left behind by growth for the collector to release.
+     */
+    static final class Builder implements DealRecords.Builder {
+
+        private ByteBuffer records = ByteBuffer.allocate(64 * RECORD_BYTES);
+        private ByteBuffer strings = ByteBuffer.allocate(4096);
+        // Offset of each string already written, so every distinct value is stored once. Dropped once built
+        private final Map<String, Integer> stringOffsets = new HashMap<>();
+
+        @Override
+        public void add(Deal deal) {
+            records = ensureRemaining(records, RECORD_BYTES);
+            int offset = records.position();
+            if (deal == null) {
+                // Nothing else is read from an unmapped record, so leave it zeroed
+                records.position(offset + RECORD_BYTES);
+                return;
+            }
+            records.putInt(putString(deal.getRestaurantObjectId()))
+                    .putInt(putString(deal.getRestaurantName()))
+                    .putInt(putString(deal.getRestaurantAddress1()))
+                    .putInt(putString(deal.getRestaurantSuburb()))
+                    .putInt(putString(deal.getRestaurantOpen()))
+                    .putInt(putString(deal.getRestaurantClose()))
+                    .putInt(putString(deal.getDealObjectId()))
+                    .putInt(deal.getDiscount() != null ? deal.getDiscount() : DealColumns.MISSING)
+                    .putInt(deal.getQtyLeft() != null ? deal.getQtyLeft() : DealColumns.MISSING)
+                    .put((byte) flags(deal));
+            records.position(offset + RECORD_BYTES);
+        }
+
+        @Override
+        public DealRecords build() {
+            return new OffHeapDealRecords(toDirect(records), toDirect(strings));
+        }
+
+        private int putString(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer existing = stringOffsets.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            strings = ensureRemaining(strings, Integer.BYTES + utf8.length);
+            int offset = strings.position();
+            strings.putInt(utf8.length).put(utf8);
+            stringOffsets.put(value, offset);
+            return offset;
+        }
+
+        private static int flags(Deal deal) {
+            int flags = MAPPED;
+            if (deal.getDineIn() != null) {
+                flags |= HAS_DINE_IN | (deal.getDineIn() ? DINE_IN : 0);
+            }
+            if (deal.getLightning() != null) {
+                flags |= HAS_LIGHTNING | (deal.getLightning() ? LIGHTNING : 0);
+            }
+            return flags;
+        }
+
+        /**
+         * @return the buffer, or a copy of it with at least double the capacity if it has fewer than the given bytes remaining
+         */
+        private static ByteBuffer ensureRemaining(ByteBuffer buffer, int bytes) {
+            if (buffer.remaining() >= bytes) {
+                return buffer;
+            }
+            long capacity = Math.max((long) buffer.capacity() * 2, (long) buffer.position() + bytes);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Off-heap deal records can't exceed 2GB per buffer");
+            }
+            ByteBuffer grown = ByteBuffer.allocate((int) capacity);
+            grown.put(buffer.flip());
+            return grown;
+        }
+
+        /**
+         * @return a read only direct copy of the written part of the buffer, with no spare capacity
+         */
+        private static ByteBuffer toDirect(ByteBuffer buffer) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(buffer.position());
+            direct.put(buffer.flip()).flip();
+            return direct.asReadOnlyBuffer();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.demo.api_deals.catalog;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Ranks fixed-length windows of the day by how busy they are, from the per-minute active deal counts of the peak sweep.
+ *
+ * A window's score is its total deal-minutes (the sum of the active counts over the window), read from a prefix-sum array
+ * in O(1), and the most deals active at once inside it comes from a sliding-window maximum. Both are O(1440) for every window.
+ * Windows are then picked greedily by score without overlapping, and any further windows tying with the last one picked are kept.
+ * The candidates come off a binary heap of window starts, built in O(1440), so only the windows actually considered are ordered.
+ */
+public final class PeakAnalysis {
+
+    /**
+     * @param startMinute - first minute of the window
+     * @param endMinute - minute after the last minute of the window (up to 1440)
+     * @param dealMinutes - the window's score: the sum of the active deal counts over its minutes
+     * @param maxActiveDeals - the most deals active at any one minute in the window
+     * @param rank - 1 for the best score; tied windows share a rank
+     */
+    public record PeakWindow(int startMinute, int endMinute, long dealMinutes, int maxActiveDeals, int rank) {
+    }
+
+    private PeakAnalysis() {
+    }
+
+    /**
+     * @param activeCounts - the number of deals active at each minute of the day
+     * @param windowMinutes - the length of each window (1-1440)
+     * @param top - the number of windows to return, not counting ties with the last one (at least 1)
+     * @return the highest scoring non-overlapping windows, best first. Windows with no deals are never returned.
+     */
+    public static List<PeakWindow> topWindows(int[] activeCounts, int windowMinutes, int top) {
+        int minutes = activeCounts.length;
+        if (windowMinutes < 1 || windowMinutes > minutes || top < 1) {
+            throw new IllegalArgumentException("windowMinutes must be between 1 and " + minutes + " and top at least 1");
+        }
+
+        // 1. Prefix sums, so each window's deal-minutes is one subtraction
+        long[] prefix = new long[minutes + 1];
+        for (int minute = 0; minute < minutes; minute++) {
+            prefix[minute + 1] = prefix[minute] + activeCounts[minute];
+        }
+
+        // 2. Sliding-window maximum using a monotonic deque of minutes with decreasing counts
+        int windows = minutes - windowMinutes + 1;
+        int[] windowMax = new int[windows];
+        int[] deque = new int[minutes];
+        int head = 0;
+        int tail = 0;
+        for (int minute = 0; minute < minutes; minute++) {
+            while (tail > head && activeCounts[deque[tail - 1]] <= activeCounts[minute]) {
+                tail--;
+            }
+            deque[tail++] = minute;
+            if (deque[head] <= minute - windowMinutes) {
+                head++;
+            }
+            if (minute >= windowMinutes - 1) {
+                windowMax[minute - windowMinutes + 1] = activeCounts[deque[head]];
+            }
+        }
+
+        // 3. Heap the window starts by score (earliest first on equal scores) and pick greedily without overlaps
+        int[] heap = new int[windows];
+        for (int start = 0; start < windows; start++) {
+            heap[start] = start;
+        }
+        for (int position = windows / 2 - 1; position >= 0; position--) {
+            siftDown(heap, windows, position, prefix, windowMinutes);
+        }
+
+        List<PeakWindow> picked = new ArrayList<>();
+        BitSet covered = new BitSet(minutes);
+        long lastPickedScore = -1;
+        int rank = 0;
+        for (int size = windows; size > 0; ) {
+            int start = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size, 0, prefix, windowMinutes);
+
+            long score = prefix[start + windowMinutes] - prefix[start];
+            if (score == 0 || (picked.size() >= top && score < lastPickedScore)) {
+                break;
+            }
+            int firstCovered = covered.nextSetBit(start);
+            if (firstCovered >= 0 && firstCovered < start + windowMinutes) {
+                continue;
+            }
+            if (score != lastPickedScore) {
+                rank = picked.size() + 1;
+                lastPickedScore = score;
+            }
+            covered.set(start, start + windowMinutes);
+            picked.add(new PeakWindow(start, start + windowMinutes, score, windowMax[start], rank));
+        }
+        return picked;
+    }
+
+    /**
+     * Moves the window start at the given heap position down until no child ranks before it.
+     */
+    private static void siftDown(int[] heap, int size, int position, long[] prefix, int windowMinutes) {
+        int start = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && ranksBefore(heap[child + 1], heap[child], prefix, windowMinutes)) {
+                child++;
+            }
+            if (!ranksBefore(heap[child], start, prefix, windowMinutes)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = start;
+    }
+
+    /**
+     * @return whether window a has a higher score than window b, or the same score and starts earlier
+     */
+    private static boolean ranksBefore(int a, int b, long[] prefix, int windowMinutes) {
+        long scoreA = prefix[a + windowMinutes] - prefix[a];
+        long scoreB = prefix[b + windowMinutes] - prefix[b];
+        return scoreA != scoreB ? scoreA > scoreB : a < b;
+    }
+}
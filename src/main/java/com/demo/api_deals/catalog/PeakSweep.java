@@ -0,0 +1,126 @@
+package com.demo.api_deals.catalog;
+
+/**
+ * Allocation-free sweep line for finding the peak deals window over primitive-encoded time events.
+ *
+ * Each event is a single int: (minute of day << 1) | type, where type is 0 for START and 1 for END.
+ * Sorting the ints therefore orders events by time, with START events before END events at the same minute,
+ * which is exactly the ordering the sweep needs. Events are sorted with a counting sort over the 2880 possible values,
+ * so the only allocation is one fixed-size bucket array per call regardless of the number of events.
+ */
+public final class PeakSweep {
+
+    public static final int START = 0;
+    public static final int END = 1;
+
+    // Returned when there are no events to sweep
+    public static final long NO_PEAK = -1L;
+
+    private static final int BUCKETS = TimeSegmentIndex.MINUTES_PER_DAY << 1;
+
+    private PeakSweep() {
+    }
+
+    /**
+     * @param minuteOfDay - the minute of the day the event occurs (0-1439)
+     * @param type - START or END
+     * @return the event encoded as a single int
+     */
+    public static int encode(int minuteOfDay, int type) {
+        return (minuteOfDay << 1) | type;
+    }
+
+    /**
+     * Sorts the first count events in place and sweeps them to find the peak window.
+     * The peak starts at the first time the most deals are active, and ends at the first END event after that.
+     * @param events - encoded events (see encode). The first count entries are sorted in place.
+     * @param count - the number of events to use from the array
+     * @return the peak start and end minutes packed into a long (see peakStart/peakEnd), or NO_PEAK if there are no events
+     */
+    public static long findPeak(int[] events, int count) {
+        if (count == 0) {
+            return NO_PEAK;
+        }
+
+        /*
+        Visual Explanation of Sweep Line Algorithm for findPeakDealsWindow:
+
+        Imagine the following example set of deals with their active times (times are in 24-hour format for clarity):
+        Masala Kitchen Deal 1: 3pm ██████ 9pm (50% off)
+        Masala Kitchen Deal 2: 3pm ██████ 9pm (40% off, no specific times → uses restaurant hours)
+        ABC Chicken Deal 1:   12pm ███████████ 11pm
+        ABC Chicken Deal 2:   12pm ███████████ 11pm
+        Vrindavan Deal 1:      3pm ██████ 9pm
+        Kekou Deal 1:          2pm ███████ 9pm
+        Kekou Deal 2:          5pm ████ 9pm
+        Gyoza Deal 1:          4pm █████ 10pm (no start → uses restaurant)
+        Gyoza Deal 2:          4pm █████ 10pm (no end → uses restaurant)
+        OzzyThai Deal 1:       8am ███████ 3pm
+        OzzyThai Deal 2:       8am ███████ 3pm
+
+        Timeline:
+        8am   9am  10am  11am  12pm  1pm  2pm  3pm  4pm  5pm  6pm  7pm  8pm  9pm  10pm  11pm
+        2     2    2     2     4     4    5    7    9    10   10   10   10   8    6     4
+                                                    ↑─────PEAK = 10 deals─────↑
+        
+        */
+
+        sort(events, count);
+
+        int maxActiveDeals = 0;
+        int currentActiveDeals = 0;
+        int peakWindowStart = events[0] >>> 1;
+        int peakWindowEnd = -1;
+
+        for (int i = 0; i < count; i++) {
+            int event = events[i];
+            if ((event & 1) == START) {
+                currentActiveDeals++;
+                // Check if this is the new peak, and if so reset the end until we find the end of this peak window
+                if (currentActiveDeals > maxActiveDeals) {
+                    maxActiveDeals = currentActiveDeals;
+                    peakWindowStart = event >>> 1;
+                    peakWindowEnd = -1;
+                }
+            } else {
+                // If we're currently at peak and this is the first END, this is when peak ends
+                if (currentActiveDeals == maxActiveDeals && peakWindowEnd == -1) {
+                    peakWindowEnd = event >>> 1;
+                }
+                currentActiveDeals--;
+            }
+        }
+
+        // Handle edge case: peak continues until the last deal ends
+        if (peakWindowEnd == -1) {
+            peakWindowEnd = events[count - 1] >>> 1;
+        }
+
+        return ((long) peakWindowStart << 32) | peakWindowEnd;
+    }
+
+    public static int peakStart(long peak) {
+        return (int) (peak >>> 32);
+    }
+
+    public static int peakEnd(long peak) {
+        return (int) peak;
+    }
+
+    /**
+     * Counting sort of the first count events in place.
+     */
+    static void sort(int[] events, int count) {
+        int[] buckets = new int[BUCKETS];
+        for (int i = 0; i < count; i++) {
+            buckets[events[i]]++;
+        }
+
+        int position = 0;
+        for (int value = 0; value < BUCKETS; value++) {
+            for (int n = buckets[value]; n > 0; n--) {
+                events[position++] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.demo.api_deals.catalog;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Incrementally maintained peak window over deal intervals, giving the same answer as the sweep line in
+ * DealsServiceImpl.findPeakDealsWindow without re-sorting every deal when one changes.
+ *
+ * The sweep processes START events before END events at the same minute, so the number of active deals it sees
+ * after the starts at minute m is: (starts at or before m) - (ends before m). This is kept per minute in a segment tree
+ * with range-add and leftmost-max, so adding, removing or changing a deal is O(log 1440) and the peak is read from the root.
+ *   - The peak starts at the first minute reaching the maximum
+ *   - The peak ends at the first END event at or after the peak start (or the last event, if there is none)
+ *
+ * Instances are mutable and thread safe. Use copy() to take an independent copy for copy-on-write updates.
+ */
+public final class PeakWindowIndex {
+
+    private static final int MINUTES = TimeSegmentIndex.MINUTES_PER_DAY;
+
+    // Segment tree over minutes: max[node] = add[node] + max(children), so range adds never need pushing down
+    private final int[] max;
+    private final int[] add;
+
+    private final int[] startsAt;
+    private final int[] endsAt;
+    private final BitSet startMinutes;
+    private final BitSet endMinutes;
+
+    private PeakWindowIndex(int[] max, int[] add, int[] startsAt, int[] endsAt, BitSet startMinutes, BitSet endMinutes) {
+        this.max = max;
+        this.add = add;
+        this.startsAt = startsAt;
+        this.endsAt = endsAt;
+        this.startMinutes = startMinutes;
+        this.endMinutes = endMinutes;
+    }
+
+    /**
+     * Builds the index from per-minute event counts in O(1440).
+     * @param startsAt - number of START events at each minute of the day
+     * @param endsAt   - number of END events at each minute of the day
+     */
+    public static PeakWindowIndex fromCounts(int[] startsAt, int[] endsAt) {
+        int[] activeAfterStarts = new int[MINUTES];
+        int running = 0;
+        for (int minute = 0; minute < MINUTES; minute++) {
+            running += startsAt[minute];
+            activeAfterStarts[minute] = running;
+            running -= endsAt[minute];
+        }
+
+        BitSet startMinutes = new BitSet(MINUTES);
+        BitSet endMinutes = new BitSet(MINUTES);
+        for (int minute = 0; minute < MINUTES; minute++) {
+            startMinutes.set(minute, startsAt[minute] > 0);
+            endMinutes.set(minute, endsAt[minute] > 0);
+        }
+
+        PeakWindowIndex index = new PeakWindowIndex(new int[4 * MINUTES], new int[4 * MINUTES],
+                Arrays.copyOf(startsAt, MINUTES), Arrays.copyOf(endsAt, MINUTES), startMinutes, endMinutes);
+        index.build(1, 0, MINUTES - 1, activeAfterStarts);
+        return index;
+    }
+
+    /**
+     * @return a new array with the number of deals the sweep sees as active at each minute of the day (after that minute's starts)
+     */
+    public synchronized int[] activeCounts() {
+        int[] activeAfterStarts = new int[MINUTES];
+        int running = 0;
+        for (int minute = 0; minute < MINUTES; minute++) {
+            running += startsAt[minute];
+            activeAfterStarts[minute] = running;
+            running -= endsAt[minute];
+        }
+        return activeAfterStarts;
+    }
+
+    /**
+     * @return an independent copy of this index
+     */
+    public synchronized PeakWindowIndex copy() {
+        return new PeakWindowIndex(max.clone(), add.clone(), startsAt.clone(), endsAt.clone(),
+                (BitSet) startMinutes.clone(), (BitSet) endMinutes.clone());
+    }
+
+    /**
+     * Adds a deal active from startMinute to endMinute (minutes of the day, 0-1439).
+     */
+    public synchronized void add(int startMinute, int endMinute) {
+        update(startMinute, endMinute, 1);
+    }
+
+    /**
+     * Removes a deal previously added with the same start and end minutes.
+     */
+    public synchronized void remove(int startMinute, int endMinute) {
+        update(startMinute, endMinute, -1);
+    }
+
+    /**
+     * Moves a deal from its old start/end minutes to new ones.
+     */
+    public synchronized void change(int oldStartMinute, int oldEndMinute, int newStartMinute, int newEndMinute) {
+        update(oldStartMinute, oldEndMinute, -1);
+        update(newStartMinute, newEndMinute, 1);
+    }
+
+    /**
+     * @return the minute of the day the peak window starts, or -1 if there are no deals
+     */
+    public synchronized int peakStartMinute() {
+        if (startMinutes.isEmpty() && endMinutes.isEmpty()) {
+            return -1;
+        }
+        if (max[1] <= 0) {
+            // Only reachable with inverted intervals (e.g. hours crossing midnight), where the sweep never
+            // finds a new maximum and keeps its initial value: the first event
+            return firstEventMinute();
+        }
+        return leftmostMax();
+    }
+
+    /**
+     * @return the minute of the day the peak window ends, or -1 if there are no deals
+     */
+    public synchronized int peakEndMinute() {
+        int peakStart = peakStartMinute();
+        if (peakStart < 0) {
+            return -1;
+        }
+        if (max[1] <= 0) {
+            // As above, the sweep takes the first END event reached while its running count is zero
+            int running = 0;
+            for (int minute = 0; minute < MINUTES; minute++) {
+                running += startsAt[minute];
+                if (endsAt[minute] > 0 && running == 0) {
+                    return minute;
+                }
+                running -= endsAt[minute];
+            }
+            return lastEventMinute();
+        }
+        int peakEnd = endMinutes.nextSetBit(peakStart);
+        return peakEnd >= 0 ? peakEnd : lastEventMinute();
+    }
+
+    private void update(int startMinute, int endMinute, int delta) {
+        startsAt[startMinute] += delta;
+        endsAt[endMinute] += delta;
+        startMinutes.set(startMinute, startsAt[startMinute] > 0);
+        endMinutes.set(endMinute, endsAt[endMinute] > 0);
+
+        // A START at s counts from minute s onwards, an END at e stops counting from minute e + 1
+        rangeAdd(1, 0, MINUTES - 1, startMinute, MINUTES - 1, delta);
+        if (endMinute + 1 < MINUTES) {
+            rangeAdd(1, 0, MINUTES - 1, endMinute + 1, MINUTES - 1, -delta);
+        }
+    }
+
+    private int firstEventMinute() {
+        int firstStart = startMinutes.nextSetBit(0);
+        int firstEnd = endMinutes.nextSetBit(0);
+        if (firstStart < 0) return firstEnd;
+        if (firstEnd < 0) return firstStart;
+        return Math.min(firstStart, firstEnd);
+    }
+
+    private int lastEventMinute() {
+        return Math.max(startMinutes.previousSetBit(MINUTES - 1), endMinutes.previousSetBit(MINUTES - 1));
+    }
+
+    private void build(int node, int low, int high, int[] values) {
+        if (low == high) {
+            max[node] = values[low];
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        build(2 * node, low, mid, values);
+        build(2 * node + 1, mid + 1, high, values);
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]);
+    }
+
+    private void rangeAdd(int node, int low, int high, int from, int to, int delta) {
+        if (to < low || high < from) {
+            return;
+        }
+        if (from <= low && high <= to) {
+            max[node] += delta;
+            add[node] += delta;
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        rangeAdd(2 * node, low, mid, from, to, delta);
+        rangeAdd(2 * node + 1, mid + 1, high, from, to, delta);
+        max[node] = add[node] + Math.max(max[2 * node], max[2 * node + 1]);
+    }
+
+    private int leftmostMax() {
+        int node = 1;
+        int low = 0;
+        int high = MINUTES - 1;
+        while (low < high) {
+            // The children's values exclude this node's pending add
+            int target = max[node] - add[node];
+            int mid = (low + high) >>> 1;
+            if (max[2 * node] == target) {
+                node = 2 * node;
+                high = mid;
+            } else {
+                node = 2 * node + 1;
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
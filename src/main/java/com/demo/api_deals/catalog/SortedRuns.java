@@ -0,0 +1,110 @@
+package com.demo.api_deals.catalog;
+
+/**
+ * K-way merge of ascending runs of distinct rows, e.g. the rows each shard returns for a query, back into one ascending order.
+ * A binary heap holds the head of each run, so merging n rows from k runs is O(n log k) with no re-sort.
+ */
+final class SortedRuns {
+
+    private SortedRuns() {
+    }
+
+    /**
+     * Called for each row in ascending order, with the run it came from and its index in that run.
+     */
+    @FunctionalInterface
+    interface Visitor {
+        void visit(int run, int index);
+    }
+
+    /**
+     * @param runs - ascending runs. A run is returned as it is if it is the only one, so it must then not be modified.
+     * @return the rows of every run in one ascending array
+     */
+    static int[] merge(int[][] runs) {
+        if (runs.length == 1) {
+            return runs[0];
+        }
+        int[] lengths = new int[runs.length];
+        int total = 0;
+        for (int run = 0; run < runs.length; run++) {
+            lengths[run] = runs[run].length;
+            total += lengths[run];
+        }
+        int[] merged = new int[total];
+        int[] count = new int[1];
+        merge(runs, lengths, (run, index) -> merged[count[0]++] = runs[run][index]);
+        return merged;
+    }
+
+    /**
+     * @return whether the two ascending runs have a row in common, in O(first + second)
+     */
+    static boolean intersects(int[] first, int[] second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] == second[j]) {
+                return true;
+            }
+            if (first[i] < second[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visits the first lengths[run] rows of every run in ascending order.
+     */
+    static void merge(int[][] runs, int[] lengths, Visitor visitor) {
+        int[] heap = new int[runs.length];
+        int[] next = new int[runs.length];
+        int size = 0;
+        for (int run = 0; run < runs.length; run++) {
+            if (lengths[run] > 0) {
+                heap[size++] = run;
+            }
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(heap, size, i, runs, next);
+        }
+
+        while (size > 0) {
+            int run = heap[0];
+            visitor.visit(run, next[run]);
+            if (++next[run] == lengths[run]) {
+                heap[0] = heap[--size];
+            }
+            if (size > 0) {
+                siftDown(heap, size, 0, runs, next);
+            }
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, int position, int[][] runs, int[] next) {
+        int run = heap[position];
+        int head = runs[run][next[run]];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && headOf(runs, next, heap[child + 1]) < headOf(runs, next, heap[child])) {
+                child++;
+            }
+            if (headOf(runs, next, heap[child]) >= head) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = run;
+    }
+
+    private static int headOf(int[][] runs, int[] next, int run) {
+        return runs[run][next[run]];
+    }
+}
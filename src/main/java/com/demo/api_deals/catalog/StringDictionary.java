@@ -0,0 +1,60 @@
+package com.demo.api_deals.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for repeated strings (suburbs, cuisines, object ids).
+ * Each distinct value is stored once and referred to by a dense int code, assigned in first-seen order.
+ * Encoding is not thread safe; once a catalog is published its dictionaries are only read.
+ */
+public final class StringDictionary {
+
+    public static final int NO_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    /**
+     * @return the code for the given value, adding it to the dictionary if it hasn't been seen before, or NO_CODE for null
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NO_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * @return the code for the given value, or NO_CODE if it is null or not in the dictionary. Never adds the value.
+     */
+    public int codeOf(String value) {
+        if (value == null) {
+            return NO_CODE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : NO_CODE;
+    }
+
+    /**
+     * @return the value for the given code, or null for NO_CODE
+     */
+    public String decode(int code) {
+        return code == NO_CODE ? null : values[code];
+    }
+
+    public int size() {
+        return size;
+    }
+}
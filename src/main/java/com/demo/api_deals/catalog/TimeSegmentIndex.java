@@ -0,0 +1,127 @@
+package com.demo.api_deals.catalog;
+
+import java.util.Arrays;
+
+/**
+ * Index of half-open [start, end) minute-of-day intervals, used to answer "which entries are active at minute m?"
+ * without scanning every entry.
+ *
+ * The day is cut into elementary segments at every distinct interval boundary, so every minute inside a segment
+ * has exactly the same set of active entries. Each segment stores its active entry indexes in ascending order,
+ * which keeps query results in the same order as the source data.
+ * A query is a binary search over the segment boundaries (at most 1441) followed by returning the shared array.
+ */
+public final class TimeSegmentIndex {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final int[] NO_ENTRIES = new int[0];
+
+    // Start minute of each segment, ascending. Segment i covers [segmentStarts[i], segmentStarts[i + 1]) (or to end of day)
+    private final int[] segmentStarts;
+    // Active entry indexes for each segment
+    private final int[][] segmentEntries;
+
+    private TimeSegmentIndex(int[] segmentStarts, int[][] segmentEntries) {
+        this.segmentStarts = segmentStarts;
+        this.segmentEntries = segmentEntries;
+    }
+
+    /**
+     * Builds an index over the given intervals. Entries where start >= end are never active and are not indexed.
+     * @param starts - inclusive start minute for each entry (0-1439)
+     * @param ends   - exclusive end minute for each entry (1-1440)
+     * @param count  - number of entries to index from the arrays
+     */
+    public static TimeSegmentIndex build(int[] starts, int[] ends, int count) {
+        return build(starts, ends, count, null);
+    }
+
+    /**
+     * Builds an index over the given intervals that returns each entry as the given id rather than its position.
+     * @param entryIds - the id of each entry, ascending so segments stay sorted, or null to use the positions
+     */
+    static TimeSegmentIndex build(int[] starts, int[] ends, int count, int[] entryIds) {
+        // 1. Collect the distinct boundaries, which become the segment start minutes
+        boolean[] isBoundary = new boolean[MINUTES_PER_DAY];
+        isBoundary[0] = true;
+        for (int i = 0; i < count; i++) {
+            if (starts[i] < ends[i]) {
+                isBoundary[starts[i]] = true;
+                if (ends[i] < MINUTES_PER_DAY) {
+                    isBoundary[ends[i]] = true;
+                }
+            }
+        }
+
+        int segmentCount = 0;
+        int[] segmentOfMinute = new int[MINUTES_PER_DAY + 1];
+        int[] segmentStarts = new int[MINUTES_PER_DAY];
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            if (isBoundary[minute]) {
+                segmentStarts[segmentCount++] = minute;
+            }
+            segmentOfMinute[minute] = segmentCount - 1;
+        }
+        segmentOfMinute[MINUTES_PER_DAY] = segmentCount;
+        segmentStarts = Arrays.copyOf(segmentStarts, segmentCount);
+
+        // 2. Count the entries per segment so each segment's array can be allocated at its exact size
+        int[] sizes = new int[segmentCount];
+        for (int i = 0; i < count; i++) {
+            if (starts[i] < ends[i]) {
+                for (int segment = segmentOfMinute[starts[i]]; segment < segmentOfMinute[ends[i]]; segment++) {
+                    sizes[segment]++;
+                }
+            }
+        }
+
+        // 3. Fill the segments, iterating entries in order so each segment stays sorted
+        int[][] segmentEntries = new int[segmentCount][];
+        for (int segment = 0; segment < segmentCount; segment++) {
+            segmentEntries[segment] = sizes[segment] == 0 ? NO_ENTRIES : new int[sizes[segment]];
+            sizes[segment] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            if (starts[i] < ends[i]) {
+                int entry = entryIds != null ? entryIds[i] : i;
+                for (int segment = segmentOfMinute[starts[i]]; segment < segmentOfMinute[ends[i]]; segment++) {
+                    segmentEntries[segment][sizes[segment]++] = entry;
+                }
+            }
+        }
+
+        return new TimeSegmentIndex(segmentStarts, segmentEntries);
+    }
+
+    /**
+     * @param minuteOfDay - the minute of the day to look up (0-1439)
+     * @return the ascending indexes of entries active at the given minute. The returned array is shared and must not be modified.
+     */
+    public int[] activeAt(int minuteOfDay) {
+        return segmentEntries[segmentOf(minuteOfDay)];
+    }
+
+    /**
+     * @return the index of the segment containing the given minute
+     */
+    public int segmentOf(int minuteOfDay) {
+        int position = Arrays.binarySearch(segmentStarts, minuteOfDay);
+        return position >= 0 ? position : -position - 2;
+    }
+
+    public int segmentCount() {
+        return segmentStarts.length;
+    }
+
+    /**
+     * @return the ascending indexes of entries active throughout the given segment. The returned array is shared and must not be modified.
+     */
+    public int[] segmentEntries(int segment) {
+        return segmentEntries[segment];
+    }
+
+    public int segmentStart(int segment) {
+        return segmentStarts[segment];
+    }
+}
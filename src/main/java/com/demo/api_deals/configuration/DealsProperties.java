@@ -0,0 +1,105 @@
+package com.demo.api_deals.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Tuning options for how deals data is indexed and served, bound from the "deals" properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "deals")
+public class DealsProperties {
+
+    private AnswerTable answerTable = new AnswerTable();
+    private Shards shards = new Shards();
+    private OffHeap offHeap = new OffHeap();
+    private ResponseCache responseCache = new ResponseCache();
+    private Resource resource = new Resource();
+    private SnapshotFile snapshotFile = new SnapshotFile();
+    private Deltas deltas = new Deltas();
+
+    @Data
+    public static class AnswerTable {
+        // Precompute the /v1/active deals for every minute of the day when a catalog is compiled. Claims and deltas only re-filter the segments they change
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Shards {
+        // Number of shards the catalog is split into by restaurant objectId hash. 0 means one per available processor
+        private int count = 0;
+        // Minimum number of deals active at a minute before a query fans out across the shards, below which one thread is faster
+        private int parallelThreshold = 2048;
+
+        public int resolveCount() {
+            return count > 0 ? count : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    @Data
+    public static class OffHeap {
+        // Keep each snapshot's resolved deals in off-heap records instead of Deal objects, so large catalogs add nothing for the GC to trace.
+        // Off-heap memory counts against -XX:MaxDirectMemorySize
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class ResponseCache {
+        // Serve /v1/active and /v1/peak from cached JSON bytes for the current snapshot
+        private boolean enabled = false;
+        // Maximum number of cached responses before the least recently used are evicted
+        private int maxEntries = 4096;
+    }
+
+    @Data
+    public static class SnapshotFile {
+        // Where the compiled catalog is persisted in binary form, so a restart can load it without parsing the JSON. Unset disables it
+        private String path;
+    }
+
+    @Data
+    public static class Deltas {
+        // A delta patch is layered over the last compiled catalog until the restaurants changed since then hold this share of its deals,
+        // and then compacted into a new compiled catalog. 0 compacts on every patch, as do off-heap catalogs
+        private double compactionRatio = 0.1;
+    }
+
+    @Data
+    public static class Resource {
+        // Where deals data is read from: "mock" for the bundled sample file, "file" for a file on disk that is reloaded when it changes,
+        // "r2dbc" for the database configured by spring.r2dbc, or "http" for the upstream deals API
+        private String type = "mock";
+        // Path of the deals document when type is file
+        private String path;
+        // How long to wait for a burst of file change events to settle before reloading
+        private Duration reloadDebounce = Duration.ofMillis(250);
+        // Rows read per query when type is r2dbc
+        private int pageSize = 500;
+        // How often the database is checked for new data when type is r2dbc. Zero disables refreshing
+        private Duration refreshInterval = Duration.ofMinutes(1);
+        // Create the r2dbc tables if they don't exist, and fill them with the bundled sample data if they are empty (for a local H2 stand-in)
+        private boolean initializeDatabase = false;
+        private Upstream upstream = new Upstream();
+    }
+
+    @Data
+    public static class Upstream {
+        // URL of the upstream deals document when the resource type is http
+        private String url;
+        // Maximum time for one upstream call, from sending the request to reading the whole document
+        private Duration timeout = Duration.ofSeconds(5);
+        // Largest upstream document that is read. A bigger one fails the fetch, and the last good snapshot is kept
+        private DataSize maxBodySize = DataSize.ofMegabytes(64);
+        // How long a fetched snapshot is served before it is refreshed in the background, while still being served
+        private Duration maxAge = Duration.ofSeconds(30);
+        // Consecutive failed calls that open the circuit breaker, after which the upstream isn't called until openDuration has passed
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,42 @@
+package com.demo.api_deals.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ * The database connection for deals.resource.type=r2dbc, from the spring.r2dbc url, username and password.
+ * The build only has Spring's R2DBC client and not Boot's R2DBC auto-configuration, so no connection factory is created
+ * (not even an embedded one) unless this resource type is selected.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "deals.resource", name = "type", havingValue = "r2dbc")
+public class DealsR2dbcConfiguration {
+
+    // Used when no url is set: an in-memory H2 database that lives as long as the application
+    private static final String EMBEDDED_URL = "r2dbc:h2:mem:///api-deals;DB_CLOSE_DELAY=-1";
+
+    @Bean
+    public ConnectionFactory dealsConnectionFactory(@Value("${spring.r2dbc.url:}") String url,
+            @Value("${spring.r2dbc.username:}") String username, @Value("${spring.r2dbc.password:}") String password) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url.isEmpty() ? EMBEDDED_URL : url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        return ConnectionFactories.get(options.build());
+    }
+
+    @Bean
+    public DatabaseClient dealsDatabaseClient(ConnectionFactory dealsConnectionFactory) {
+        return DatabaseClient.create(dealsConnectionFactory);
+    }
+}
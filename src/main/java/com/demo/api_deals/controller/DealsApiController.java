@@ -1,22 +1,45 @@
 package com.demo.api_deals.controller;
 
+import java.time.Duration;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
 
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.model.BatchActiveDealsResponse;
+import com.demo.api_deals.model.DealClaimResponse;
+import com.demo.api_deals.model.DealFilter;
+import com.demo.api_deals.model.DealsDelta;
+import com.demo.api_deals.model.DealsDeltaResponse;
 import com.demo.api_deals.model.DealsError;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.model.NearbyDealsResponse;
+import com.demo.api_deals.model.PeakHistogramResponse;
+import com.demo.api_deals.resource.DealsSnapshotHolder;
 import com.demo.api_deals.service.DealsService;
 import com.demo.contract_api_deals.interfaces.DealsApi;
 import com.demo.contract_api_deals.models.ActiveDealsResponse;
+import com.demo.contract_api_deals.models.Deal;
 import com.demo.contract_api_deals.models.ErrorResponse;
 import com.demo.contract_api_deals.models.PeakDealsResponse;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -25,8 +48,21 @@ public class DealsApiController implements DealsApi {
     @Autowired
     private DealsService dealsService;
 
+    // Used to build the ETag for conditional requests without calling the DealsService
+    @Autowired
+    private DealsSnapshotHolder snapshotHolder;
+
+    @Autowired
+    private DealsCatalogRegistry catalogRegistry;
+
     // Used to validate input timeOfDay format
     private static final DateTimeFormatter UPSTREAM_TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Upper bound for the top query parameter of the peak histogram, which also bounds the per-snapshot cache of ranked windows
+    private static final int MAX_PEAK_WINDOWS = 20;
+
+    // Upper bound for the limit query parameter of the nearby search
+    private static final int MAX_NEARBY_DEALS = 500;
     
 
     // TODO: Implement API Key validation
@@ -36,12 +72,286 @@ public class DealsApiController implements DealsApi {
         // Validate timeOfDay format and return appropriate error response if invalid
         LocalTime parsedTimeOfDay = parseTimeOfDay(timeOfDay);
 
+        // Clients polling an unchanged snapshot get a 304 without the DealsService being called
+        String eTag = buildETag("active", parsedTimeOfDay.format(UPSTREAM_TIME_FORMATTER));
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(secondsUntilNextMinute()));
+        if (eTag != null && exchange.checkNotModified(eTag)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).<ActiveDealsResponse>build());
+        }
+
         return dealsService.getActiveDeals(parsedTimeOfDay)
+                .map(response -> withValidators(ResponseEntity.ok(), eTag).cacheControl(cacheControl).body(response))
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .doOnError(this::handleError);
+    }
+
+    /**
+     * Streams the active deals at the given timeOfDay as newline-delimited JSON (or server-sent events), one deal per element.
+     * Unlike getActiveDeals the deals are written as they are produced, so the first byte and peak memory don't grow with the number of results.
+     */
+    @GetMapping(path = "/v1/active/stream", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    public Flux<Deal> streamActiveDeals(
+            @RequestParam(value = "timeOfDay") String timeOfDay,
+            @RequestHeader(value = "x-tracking-id", required = false) String xTrackingId) {
+
+        // Validate timeOfDay format and return appropriate error response if invalid
+        LocalTime parsedTimeOfDay = parseTimeOfDay(timeOfDay);
+
+        return dealsService.streamActiveDeals(parsedTimeOfDay)
+                .doOnError(this::handleError);
+    }
+
+    /**
+     * Returns the active deals at the given timeOfDay that also match the optional suburb, cuisine, dineIn, lightning and minDiscount filters.
+     * Suburb and cuisine match case-insensitively.
+     */
+    @GetMapping(path = "/v1/active/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ActiveDealsResponse>> searchActiveDeals(
+            @RequestParam(value = "timeOfDay") String timeOfDay,
+            @RequestParam(value = "suburb", required = false) String suburb,
+            @RequestParam(value = "cuisine", required = false) String cuisine,
+            @RequestParam(value = "dineIn", required = false) String dineIn,
+            @RequestParam(value = "lightning", required = false) String lightning,
+            @RequestParam(value = "minDiscount", required = false) String minDiscount,
+            @RequestHeader(value = "x-tracking-id", required = false) String xTrackingId) {
+
+        // Validate timeOfDay format and return appropriate error response if invalid
+        LocalTime parsedTimeOfDay = parseTimeOfDay(timeOfDay);
+
+        DealFilter filter = DealFilter.builder()
+                .suburb(suburb != null && !suburb.isBlank() ? suburb : null)
+                .cuisine(cuisine != null && !cuisine.isBlank() ? cuisine : null)
+                .dineIn(parseBooleanFilter("dineIn", dineIn))
+                .lightning(parseBooleanFilter("lightning", lightning))
+                .minDiscount(parseMinDiscount(minDiscount))
+                .build();
+
+        return dealsService.getActiveDeals(parsedTimeOfDay, filter)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .doOnError(this::handleError);
+    }
+
+    /**
+     * Parses an optional true/false filter parameter.
+     * @return the parsed value, or null if the parameter wasn't provided
+     * @throws DealsError if the value isn't true or false
+     */
+    private Boolean parseBooleanFilter(String name, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+            throw badRequest("Invalid value for queryParameter: " + name + ". Expected true or false");
+        }
+        return Boolean.valueOf(value);
+    }
+
+    /**
+     * Parses the optional minDiscount filter parameter.
+     * @return the parsed value, or null if the parameter wasn't provided
+     * @throws DealsError if the value isn't a whole number
+     */
+    private Integer parseMinDiscount(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw badRequest("Invalid value for queryParameter: minDiscount. Expected a whole number e.g. 20");
+        }
+    }
+
+    /**
+     * Returns the active deals at the given timeOfDay within radiusMeters of the given point, or the limit nearest, ordered by distance.
+     * At least one of radiusMeters and limit is required. With both, returns up to limit deals within the radius.
+     */
+    @GetMapping(path = "/v1/active/nearby", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<NearbyDealsResponse>> getNearbyDeals(
+            @RequestParam(value = "timeOfDay") String timeOfDay,
+            @RequestParam(value = "latitude") String latitude,
+            @RequestParam(value = "longitude") String longitude,
+            @RequestParam(value = "radiusMeters", required = false) String radiusMeters,
+            @RequestParam(value = "limit", required = false) String limit,
+            @RequestHeader(value = "x-tracking-id", required = false) String xTrackingId) {
+
+        // Validate timeOfDay format and return appropriate error response if invalid
+        LocalTime parsedTimeOfDay = parseTimeOfDay(timeOfDay);
+
+        double parsedLatitude = parseCoordinate("latitude", latitude, 90);
+        double parsedLongitude = parseCoordinate("longitude", longitude, 180);
+        Double parsedRadius = null;
+        Integer parsedLimit = null;
+        try {
+            parsedRadius = radiusMeters != null && !radiusMeters.isBlank() ? Double.valueOf(radiusMeters.trim()) : null;
+            parsedLimit = limit != null && !limit.isBlank() ? Integer.valueOf(limit.trim()) : null;
+        } catch (NumberFormatException e) {
+            throw badRequest("Invalid queryParameters. Expected radiusMeters to be a number and limit to be a whole number");
+        }
+        if ((parsedRadius == null && parsedLimit == null)
+                || (parsedRadius != null && !(parsedRadius > 0 && Double.isFinite(parsedRadius)))
+                || (parsedLimit != null && (parsedLimit < 1 || parsedLimit > MAX_NEARBY_DEALS))) {
+            throw badRequest("Invalid queryParameters. Expected radiusMeters greater than 0 and/or limit between 1 and " + MAX_NEARBY_DEALS);
+        }
+
+        return dealsService.getNearbyDeals(parsedTimeOfDay, parsedLatitude, parsedLongitude, parsedRadius, parsedLimit)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .doOnError(this::handleError);
+    }
+
+    /**
+     * Parses a required coordinate parameter in decimal degrees.
+     * @return the parsed coordinate
+     * @throws DealsError if the value isn't a number between -limit and limit
+     */
+    private double parseCoordinate(String name, String value, double limit) {
+        try {
+            double coordinate = Double.parseDouble(value.trim());
+            if (coordinate >= -limit && coordinate <= limit) {
+                return coordinate;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the bad request below
+        }
+        throw badRequest("Invalid value for queryParameter: " + name + ". Expected decimal degrees between -" + (int) limit + " and " + (int) limit);
+    }
+
+    /**
+     * Returns the number of deals active at each minute of the day and the top windows of the given length by total deal-minutes.
+     */
+    @GetMapping(path = "/v1/peak/histogram", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<PeakHistogramResponse>> getPeakHistogram(
+            @RequestParam(value = "windowMinutes", required = false, defaultValue = "60") int windowMinutes,
+            @RequestParam(value = "top", required = false, defaultValue = "3") int top,
+            @RequestHeader(value = "x-tracking-id", required = false) String xTrackingId) {
+
+        if (windowMinutes < 1 || windowMinutes > 24 * 60 || top < 1 || top > MAX_PEAK_WINDOWS) {
+            throw DealsError.builder()
+                .message("Invalid queryParameters. Expected windowMinutes between 1 and 1440, and top between 1 and " + MAX_PEAK_WINDOWS)
+                .errorCode("BAD_REQUEST")
+                .httpStatus(HttpStatus.BAD_REQUEST)
+                .build();
+        }
+
+        return dealsService.getPeakHistogram(windowMinutes, top)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .doOnError(this::handleError);
+    }
+
+    /**
+     * Returns the active deals for many times of day in one call, either as a list of times (timeOfDay=08:00,12:30 or repeated)
+     * or as a range (from, to and stepMinutes, e.g. every 15 minutes from 08:00 to 23:00 inclusive).
+     */
+    @GetMapping(path = "/v1/active/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BatchActiveDealsResponse>> getActiveDealsBatch(
+            @RequestParam(value = "timeOfDay", required = false) List<String> timesOfDay,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "stepMinutes", required = false, defaultValue = "15") int stepMinutes,
+            @RequestHeader(value = "x-tracking-id", required = false) String xTrackingId) {
+
+        List<LocalTime> parsedTimesOfDay = parseBatchTimes(timesOfDay, from, to, stepMinutes);
+
+        return dealsService.getActiveDealsBatch(parsedTimesOfDay)
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.notFound().build())
                 .doOnError(this::handleError);
     }
 
+    /**
+     * Parses the batch query parameters into the list of times to check. Exactly one of timeOfDay or from/to must be provided.
+     * @throws DealsError if the parameters are missing, conflicting or invalid, or would produce more than one slot per minute of the day
+     */
+    private List<LocalTime> parseBatchTimes(List<String> timesOfDay, String from, String to, int stepMinutes) {
+        boolean hasList = timesOfDay != null && !timesOfDay.isEmpty();
+        boolean hasRange = from != null || to != null;
+        if (hasList == hasRange) {
+            throw badRequest("Provide either queryParameter: timeOfDay, or queryParameters: from and to");
+        }
+
+        List<LocalTime> parsedTimesOfDay = new ArrayList<>();
+        if (hasList) {
+            for (String timeOfDay : timesOfDay) {
+                parsedTimesOfDay.add(parseTimeOfDay(timeOfDay.trim()));
+            }
+        } else {
+            if (from == null || to == null) {
+                throw badRequest("Both queryParameters: from and to are required for a range");
+            }
+            if (stepMinutes < 1) {
+                throw badRequest("Invalid value for queryParameter: stepMinutes. Expected a whole number of at least 1");
+            }
+            LocalTime start = parseTimeOfDay(from);
+            LocalTime end = parseTimeOfDay(to);
+            if (end.isBefore(start)) {
+                throw badRequest("Invalid range: from must not be after to");
+            }
+            for (LocalTime time = start; !time.isAfter(end); time = time.plusMinutes(stepMinutes)) {
+                parsedTimesOfDay.add(time);
+                // Stop before plusMinutes wraps past midnight back to (or before) the current time
+                if (!time.plusMinutes(stepMinutes).isAfter(time)) {
+                    break;
+                }
+            }
+        }
+
+        if (parsedTimesOfDay.size() > 24 * 60) {
+            throw badRequest("Too many times requested. Expected at most one per minute of the day");
+        }
+        return parsedTimesOfDay;
+    }
+
+    private DealsError badRequest(String message) {
+        return DealsError.builder()
+            .message(message)
+            .errorCode("BAD_REQUEST")
+            .httpStatus(HttpStatus.BAD_REQUEST)
+            .build();
+    }
+
+    /**
+     * Claims the given quantity of a deal, decrementing its live qtyLeft. Responds 404 if the deal doesn't exist and 409 if not enough is left.
+     */
+    @PostMapping(path = "/v1/deals/{dealObjectId}/claim", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<DealClaimResponse>> claimDeal(
+            @PathVariable("dealObjectId") String dealObjectId,
+            @RequestParam(value = "quantity", defaultValue = "1") int quantity,
+            @RequestHeader(value = "x-tracking-id", required = false) String xTrackingId) {
+
+        if (quantity < 1) {
+            throw DealsError.builder()
+                .message("Invalid value for queryParameter: quantity. Expected a whole number of at least 1")
+                .errorCode("BAD_REQUEST")
+                .httpStatus(HttpStatus.BAD_REQUEST)
+                .build();
+        }
+
+        return dealsService.claimDeal(dealObjectId, quantity)
+                .map(ResponseEntity::ok)
+                .doOnError(this::handleError);
+    }
+
+    /**
+     * Applies a batch of deltas from the upstream to the current snapshot, responding once the changes are visible to requests.
+     * Responds 400 if a delta is invalid, in which case none of the batch is applied.
+     */
+    @PostMapping(path = "/v1/deals/deltas", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<DealsDeltaResponse>> applyDeltas(
+            @RequestBody List<DealsDelta> deltas,
+            @RequestHeader(value = "x-tracking-id", required = false) String xTrackingId) {
+
+        if (deltas.isEmpty()) {
+            throw badRequest("Expected at least one delta");
+        }
+
+        return dealsService.applyDeltas(deltas)
+                .map(ResponseEntity::ok)
+                .doOnError(this::handleError);
+    }
+
     /**
      * Parses the timeOfDay string into a LocalTime object. If the format is invalid, throws a DealsError with details.
      * @param timeOfDay - the input timeOfDay string to parse. Expected format is "HH:mm".
@@ -66,13 +376,74 @@ public class DealsApiController implements DealsApi {
     @Override
     public Mono<ResponseEntity<PeakDealsResponse>> getPeakDeals(String xTrackingId, ServerWebExchange exchange) {
 
+        // The peak window only changes with the deal times, so clients always revalidate and usually get a 304
+        String eTag = buildPeakETag();
+        if (eTag != null && exchange.checkNotModified(eTag)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CacheControl.noCache()).<PeakDealsResponse>build());
+        }
+
         return dealsService.getPeakDeals()
-                .map(ResponseEntity::ok)
+                .map(response -> withValidators(ResponseEntity.ok(), eTag).cacheControl(CacheControl.noCache()).body(response))
                 .defaultIfEmpty(ResponseEntity.notFound().build())
                 .doOnError(this::handleError);
     }
 
 
+    /**
+     * Helper method to build a strong ETag for the current snapshot and the normalised query parameters.
+     * The ETag changes whenever a new snapshot is published or a claim changes the live quantities. Snapshot versions restart
+     * on every boot and aren't shared between instances, so the ETag also carries the publishing process's boot id.
+     * @param endpoint - the endpoint the response is for, e.g. "active"
+     * @param normalisedQuery - the normalised query parameters (e.g. timeOfDay as HH:mm), or null if the endpoint has none
+     * @return the quoted ETag, or null if no snapshot has been published through the DealsSnapshotHolder
+     */
+    private String buildETag(String endpoint, String normalisedQuery) {
+        DealsSnapshot snapshot = snapshotHolder.getCurrent();
+        if (snapshot == null) {
+            return null;
+        }
+        long inventoryRevision = catalogRegistry.getInventoryRevision(snapshot.getData());
+        return "\"" + snapshot.getBootId() + "-" + snapshot.getVersion() + "-" + inventoryRevision + "-" + endpoint
+                + (normalisedQuery != null ? "-" + normalisedQuery.replace(":", "") : "") + "\"";
+    }
+
+    /**
+     * Helper method to build the ETag for the peak window. It is keyed by the catalog's peak version rather than the snapshot,
+     * so deltas that leave every deal time unchanged (and claims) don't invalidate it. Like the snapshot version, the peak
+     * version is only unique within a process, so it is qualified by the boot id.
+     * @return the quoted ETag, or null if no snapshot has been published through the DealsSnapshotHolder
+     */
+    private String buildPeakETag() {
+        DealsSnapshot snapshot = snapshotHolder.getCurrent();
+        if (snapshot == null) {
+            return null;
+        }
+        long peakVersion = catalogRegistry.getPeakVersion(snapshot.getData());
+        return peakVersion >= 0 ? "\"" + snapshot.getBootId() + "-p" + peakVersion + "-peak\"" : buildETag("peak", null);
+    }
+
+    /**
+     * Helper method to add the ETag and, while the snapshot is unchanged since it was loaded, Last-Modified to a response.
+     */
+    private ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, String eTag) {
+        if (eTag == null) {
+            return builder;
+        }
+        DealsSnapshot snapshot = snapshotHolder.getCurrent();
+        if (snapshot != null && catalogRegistry.getInventoryRevision(snapshot.getData()) == 0) {
+            builder.lastModified(snapshot.getLoadedAt());
+        }
+        return builder.eTag(eTag);
+    }
+
+    /**
+     * @return the number of seconds until the next minute boundary (1-60), so cached responses expire when the minute changes
+     */
+    private static long secondsUntilNextMinute() {
+        return 60 - LocalTime.now().getSecond();
+    }
+
+
     private Mono<ResponseEntity<ErrorResponse>> handleError(Throwable throwable) {
         if (throwable instanceof DealsError) {
             DealsError dealsError = (DealsError) throwable;
@@ -14,26 +14,74 @@ import com.demo.contract_api_deals.models.PeakDealsResponse;
 @Service
 public class ResponseDtoToResponseMapper {
 
-    // For the JSON restaurant data (12-hour format: "3:00pm", "12:00pm")
+    // For the JSON restaurant data (12-hour format: "3:00pm", "12:00pm"). Parsing on the hot paths goes through UpstreamTimeParser instead
     public static final DateTimeFormatter DOWNSTREAM_JSON_FORMATTER = DateTimeFormatter.ofPattern("h:mma");
 
     // Used to validate input timeOfDay format
     public static final DateTimeFormatter UPSTREAM_TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
-    
-    
+
+    // Bump whenever mapActiveDealResponse or mapResolvedDeal would build a different Deal from the same data, so deals resolved
+    // by an older version (e.g. in a snapshot file) are resolved again rather than reused
+    public static final int DEAL_MAPPING_VERSION = 1;
+
+    // Hand-rolled parser for the JSON restaurant times, with the distinct values interned
+    private final UpstreamTimeParser timeParser = new UpstreamTimeParser();
+
+
     public Deal mapActiveDealResponse(RestaurantResponseDto restaurantDto, DealResponseDto dealDto) {
+        return mapResolvedDeal(restaurantDto,
+            formatRestaurantDtoTimeForUpstream(restaurantDto.getOpen()),
+            formatRestaurantDtoTimeForUpstream(restaurantDto.getClose()),
+            dealDto.getObjectId(),
+            (dealDto.getDiscount() != null && !dealDto.getDiscount().isEmpty()) ? Integer.valueOf(dealDto.getDiscount()) : null,
+            (dealDto.getDineIn() != null && !dealDto.getDineIn().isEmpty()) ? Boolean.valueOf(dealDto.getDineIn()) : null,
+            (dealDto.getLightning() != null && !dealDto.getLightning().isEmpty()) ? Boolean.valueOf(dealDto.getLightning()) : null,
+            (dealDto.getQtyLeft() != null && !dealDto.getQtyLeft().isEmpty()) ? Integer.valueOf(dealDto.getQtyLeft()) : null);
+    }
+
+    /**
+     * Helper method to build a deal from values that were already parsed by mapActiveDealResponse, e.g. when they were persisted.
+     * @param restaurantDto - the deal's restaurant, as in the source document
+     * @param restaurantOpen - the restaurant's opening time, already formatted for the API response
+     * @param restaurantClose - the restaurant's closing time, already formatted for the API response
+     * @return a new Deal, the same as mapActiveDealResponse returns for the values they were parsed from
+     */
+    public Deal mapResolvedDeal(RestaurantResponseDto restaurantDto, String restaurantOpen, String restaurantClose, String dealObjectId,
+            Integer discount, Boolean dineIn, Boolean lightning, Integer qtyLeft) {
         return Deal.builder()
             .restaurantObjectId(restaurantDto.getObjectId())
             .restaurantName(restaurantDto.getName())
             .restaurantAddress1(restaurantDto.getAddress1())
             .restaurantSuburb(restaurantDto.getSuburb())
-            .restaurantOpen(formatRestaurantDtoTimeForUpstream(restaurantDto.getOpen()))
-            .restaurantClose(formatRestaurantDtoTimeForUpstream(restaurantDto.getClose()))
-            .dealObjectId(dealDto.getObjectId())
-            .discount((dealDto.getDiscount() != null && !dealDto.getDiscount().isEmpty()) ? Integer.valueOf(dealDto.getDiscount()) : null)
-            .dineIn((dealDto.getDineIn() != null && !dealDto.getDineIn().isEmpty()) ? Boolean.valueOf(dealDto.getDineIn()) : null)
-            .lightning((dealDto.getLightning() != null && !dealDto.getLightning().isEmpty()) ? Boolean.valueOf(dealDto.getLightning()) : null)
-            .qtyLeft((dealDto.getQtyLeft() != null && !dealDto.getQtyLeft().isEmpty()) ? Integer.valueOf(dealDto.getQtyLeft()) : null)
+            .restaurantOpen(restaurantOpen)
+            .restaurantClose(restaurantClose)
+            .dealObjectId(dealObjectId)
+            .discount(discount)
+            .dineIn(dineIn)
+            .lightning(lightning)
+            .qtyLeft(qtyLeft)
+            .build();
+    }
+
+    /**
+     * Helper method to copy a mapped deal with a different quantity left, e.g. after part of it has been claimed.
+     * @param deal - the deal to copy. Not modified.
+     * @param qtyLeft - the quantity left to set on the copy
+     * @return a new Deal with the same values as the given deal apart from qtyLeft
+     */
+    public Deal mapDealWithQtyLeft(Deal deal, int qtyLeft) {
+        return Deal.builder()
+            .restaurantObjectId(deal.getRestaurantObjectId())
+            .restaurantName(deal.getRestaurantName())
+            .restaurantAddress1(deal.getRestaurantAddress1())
+            .restaurantSuburb(deal.getRestaurantSuburb())
+            .restaurantOpen(deal.getRestaurantOpen())
+            .restaurantClose(deal.getRestaurantClose())
+            .dealObjectId(deal.getDealObjectId())
+            .discount(deal.getDiscount())
+            .dineIn(deal.getDineIn())
+            .lightning(deal.getLightning())
+            .qtyLeft(qtyLeft)
             .build();
     }
 
@@ -44,22 +92,13 @@ public class ResponseDtoToResponseMapper {
     
     /**
      * Helper method to format restaurant hours into the expected "HH:mm" format for the API response. 
-     * If input time is null, returns null. If input time is in an invalid format, logs the error and returns null (treating it as invalid/unknown time).
+     * If input time is null, returns null. If input time is in an invalid format, counts it as a parse failure and returns null (treating it as invalid/unknown time).
      * @param time - the string object representing the restaurant hours to format (e.g. 11:30am). Can be null, in which case null is returned.
      * @return a string representing the formatted time in "HH:mm" format (e.g. 11:30), or null if input time is null or invalid
      */
     public String formatRestaurantDtoTimeForUpstream(String time) {
-        if (time == null) {
-            return null;
-        }
-        try {
-            return LocalTime.parse(time, DOWNSTREAM_JSON_FORMATTER).format(UPSTREAM_TIME_FORMATTER);
-        } catch (DateTimeParseException e) {
-            // Log the error and treat as invalid time format, excluding the deal from results (since we can't confirm it's active without a valid time)
-            // TODO: improve this logging
-            System.err.println("Failed to format restaurant time: " + time + ". Error: " + e.getMessage());
-            return null;
-        }
+        UpstreamTimeParser.ParsedTime parsed = timeParser.lookup(time);
+        return parsed != null ? parsed.upstreamFormat() : null;
     }
 
     /**
@@ -85,20 +124,28 @@ public class ResponseDtoToResponseMapper {
 
     /**
      * Helper method to parse restaurant hours from the downstream JSON data, which can be in 12-hour format with am/pm (e.g. "3:00pm", "12:00am").
+     * If input time is in an invalid format, counts it as a parse failure and returns null (treating it as invalid/unknown time).
      * @param time - the input time string to parse, expected in 12-hour format with am/pm (e.g. "3:00pm", "12:00am"). Can be null, in which case null is returned.
-     * @return
+     * @return the parsed LocalTime, or null if input time is null or invalid
      */
     public LocalTime parseRestaurantDtoTime(String time) {
-        if (time == null || time.isEmpty()) {
-            return null;
-        }
-        try {
-            return LocalTime.parse(time, DOWNSTREAM_JSON_FORMATTER);
-        } catch (DateTimeParseException e) {
-            // Log the error and treat as invalid time format, excluding the deal from results (since we can't confirm it's active without a valid time)
-            // TODO: improve this logging
-            System.err.println("Failed to parse restaurant time: " + time + ". Error: " + e.getMessage());
-            return null;
-        }
+        UpstreamTimeParser.ParsedTime parsed = timeParser.lookup(time);
+        return parsed != null ? parsed.localTime() : null;
+    }
+
+    /**
+     * Primitive version of parseRestaurantDtoTime, for hot paths that work in minutes of the day.
+     * @param time - the input time string to parse, expected in 12-hour format with am/pm (e.g. "3:00pm", "12:00am"). Can be null.
+     * @return the minute of the day (0-1439), or -1 if input time is null or invalid
+     */
+    public int parseRestaurantDtoMinuteOfDay(String time) {
+        return timeParser.parseMinuteOfDay(time);
+    }
+
+    /**
+     * @return the number of restaurant/deal times that failed to parse since startup
+     */
+    public long getTimeParseFailureCount() {
+        return timeParser.getMalformedCount();
     }
 }
@@ -0,0 +1,130 @@
+package com.demo.api_deals.mapper;
+
+import java.time.LocalTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fast parser for the upstream 12-hour "h:mma" time format (e.g. "3:00pm", "12:00am"), used instead of DateTimeFormatter
+ * on the hot paths.
+ *
+ * Parsing reads the characters directly into a minute of the day without allocating, and malformed values are counted
+ * rather than reported by constructing exceptions. Upstream data only uses a small set of distinct time strings, so each
+ * one is also interned with its LocalTime and "HH:mm" form, making repeated lookups a single hash map read.
+ */
+public class UpstreamTimeParser {
+
+    public static final int INVALID = -1;
+
+    // Upper bound on interned strings, so unexpected input can't grow the table without limit
+    private static final int MAX_INTERNED = 4096;
+
+    private static final ParsedTime MALFORMED = new ParsedTime(INVALID, null, null);
+
+    private final ConcurrentHashMap<String, ParsedTime> interned = new ConcurrentHashMap<>();
+    private final LongAdder malformedCount = new LongAdder();
+
+    /**
+     * The resolved forms of one upstream time string.
+     * @param minuteOfDay - the minute of the day (0-1439), or INVALID if the string is malformed
+     * @param localTime - the time as a LocalTime, or null if malformed
+     * @param upstreamFormat - the time in "HH:mm" format, or null if malformed
+     */
+    public record ParsedTime(int minuteOfDay, LocalTime localTime, String upstreamFormat) {
+        public boolean isValid() {
+            return minuteOfDay != INVALID;
+        }
+    }
+
+    /**
+     * Looks up the resolved forms of the given time, parsing and interning it on first use.
+     * Malformed values are counted every time they are looked up.
+     * @param time - the upstream time string, e.g. "3:00pm". Can be null.
+     * @return the resolved time, or null if time is null or empty
+     */
+    public ParsedTime lookup(String time) {
+        if (time == null || time.isEmpty()) {
+            return null;
+        }
+
+        ParsedTime parsed = interned.get(time);
+        if (parsed == null) {
+            parsed = resolve(time);
+            if (interned.size() < MAX_INTERNED) {
+                interned.putIfAbsent(time, parsed);
+            }
+        }
+
+        if (!parsed.isValid()) {
+            malformedCount.increment();
+        }
+        return parsed;
+    }
+
+    /**
+     * @param time - the upstream time string, e.g. "3:00pm". Can be null.
+     * @return the minute of the day (0-1439), or INVALID if time is null, empty or malformed
+     */
+    public int parseMinuteOfDay(String time) {
+        ParsedTime parsed = lookup(time);
+        return parsed != null ? parsed.minuteOfDay() : INVALID;
+    }
+
+    /**
+     * @return the number of malformed values looked up since this parser was created
+     */
+    public long getMalformedCount() {
+        return malformedCount.sum();
+    }
+
+    private static ParsedTime resolve(String time) {
+        int minuteOfDay = parse(time);
+        if (minuteOfDay == INVALID) {
+            return MALFORMED;
+        }
+        LocalTime localTime = LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+        return new ParsedTime(minuteOfDay, localTime, String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60));
+    }
+
+    /**
+     * Parses "h:mma" into a minute of the day without allocating.
+     * The hour is 1 or 2 digits (1-12), the minutes exactly 2 digits (00-59), and am/pm is case insensitive.
+     * @return the minute of the day (0-1439), or INVALID if the value is malformed
+     */
+    static int parse(CharSequence time) {
+        int length = time.length();
+        // Shortest is "h:mmam" (6 characters), longest is "hh:mmam" (7 characters)
+        if (length != 6 && length != 7) {
+            return INVALID;
+        }
+
+        int hourDigits = length - 5;
+        int hour = 0;
+        for (int i = 0; i < hourDigits; i++) {
+            int digit = time.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            hour = hour * 10 + digit;
+        }
+        if (hour < 1 || hour > 12 || time.charAt(hourDigits) != ':') {
+            return INVALID;
+        }
+
+        int tens = time.charAt(hourDigits + 1) - '0';
+        int units = time.charAt(hourDigits + 2) - '0';
+        if (tens < 0 || tens > 5 || units < 0 || units > 9) {
+            return INVALID;
+        }
+
+        char meridiem = Character.toLowerCase(time.charAt(hourDigits + 3));
+        char suffix = Character.toLowerCase(time.charAt(hourDigits + 4));
+        if ((meridiem != 'a' && meridiem != 'p') || suffix != 'm') {
+            return INVALID;
+        }
+
+        // 12am is midnight and 12pm is midday
+        int hourOfDay = (hour % 12) + (meridiem == 'p' ? 12 : 0);
+        return hourOfDay * 60 + tens * 10 + units;
+    }
+}
@@ -0,0 +1,31 @@
+package com.demo.api_deals.model;
+
+import java.util.List;
+
+import com.demo.contract_api_deals.models.Deal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchActiveDealsResponse {
+    // Every deal active in at least one slot, once each, in source order
+    private List<Deal> deals;
+    // One entry per requested timeOfDay, in request order
+    private List<ActiveDealsSlot> slots;
+
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ActiveDealsSlot {
+        private String timeOfDay;
+        // Indexes into deals of the deals active at this timeOfDay
+        private List<Integer> dealIndexes;
+    }
+}
@@ -0,0 +1,16 @@
+package com.demo.api_deals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DealClaimResponse {
+    private String dealObjectId;
+    private Integer quantityClaimed;
+    private Integer qtyLeft;
+}
@@ -0,0 +1,22 @@
+package com.demo.api_deals.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Optional filters for active deal queries. Null fields don't filter.
+ * Suburb and cuisine match case-insensitively; minDiscount excludes deals without a discount.
+ */
+@Builder
+@Value
+public class DealFilter {
+    String suburb;
+    String cuisine;
+    Boolean dineIn;
+    Boolean lightning;
+    Integer minDiscount;
+
+    public boolean isEmpty() {
+        return suburb == null && cuisine == null && dineIn == null && lightning == null && minDiscount == null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.demo.api_deals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single change to the deals data, as sent by the upstream to the delta ingestion endpoint.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DealsDelta {
+
+    public enum Type {
+        // Adds or replaces a whole restaurant, including its deals
+        UPSERT_RESTAURANT,
+        DELETE_RESTAURANT,
+        // Adds or replaces one deal of an existing restaurant
+        UPSERT_DEAL,
+        DELETE_DEAL,
+        // Sets a deal's live quantity left, without changing the snapshot
+        SET_QUANTITY
+    }
+
+    private Type type;
+    // Required for DELETE_RESTAURANT, UPSERT_DEAL and DELETE_DEAL
+    private String restaurantObjectId;
+    // Required for DELETE_DEAL and SET_QUANTITY
+    private String dealObjectId;
+    // Required for UPSERT_RESTAURANT
+    private RestaurantResponseDto restaurant;
+    // Required for UPSERT_DEAL
+    private DealResponseDto deal;
+    // Required for SET_QUANTITY
+    private Integer qtyLeft;
+}
@@ -0,0 +1,23 @@
+package com.demo.api_deals.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The result of applying one batch of deltas, as returned by the delta ingestion endpoint.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DealsDeltaResponse {
+    private Integer applied;
+    // Version of the snapshot the deltas are visible in
+    private Long snapshotVersion;
+    // Deals in SET_QUANTITY deltas that weren't in the snapshot, so were ignored
+    private List<String> unknownDealObjectIds;
+}
@@ -0,0 +1,22 @@
+package com.demo.api_deals.model;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * An immutable, versioned view of the deals data as it was loaded from the underlying source.
+ * A new snapshot (with a new version) is published whenever the source changes, so consumers can key
+ * any derived state (indexes, caches) on the version rather than re-reading the data per request.
+ * The wrapped data must be treated as read-only once published.
+ */
+@Builder
+@Value
+public class DealsSnapshot {
+    // Random id of the process that published the snapshot. Versions restart on every boot, so they only identify a snapshot together with it
+    String bootId;
+    long version;
+    Instant loadedAt;
+    RestaurauntDealsResponseDto data;
+}
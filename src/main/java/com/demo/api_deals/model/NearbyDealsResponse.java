@@ -0,0 +1,29 @@
+package com.demo.api_deals.model;
+
+import java.util.List;
+
+import com.demo.contract_api_deals.models.Deal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyDealsResponse {
+    // Nearest first
+    private List<NearbyDeal> deals;
+
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class NearbyDeal {
+        private Deal deal;
+        // Great circle distance from the requested point to the deal's restaurant, rounded to the nearest metre
+        private Long distanceMeters;
+    }
+}
@@ -0,0 +1,33 @@
+package com.demo.api_deals.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeakHistogramResponse {
+    private Integer windowMinutes;
+    // Number of deals active at each minute of the day, starting at 00:00 (1440 entries)
+    private List<Integer> activeDealsPerMinute;
+    // Best windows first. Tied windows share a rank, so there can be more windows than requested
+    private List<PeakWindow> windows;
+
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PeakWindow {
+        private Integer rank;
+        private String start;
+        // Exclusive end of the window, "24:00" for a window ending at midnight
+        private String end;
+        private Long dealMinutes;
+        private Integer maxActiveDeals;
+    }
+}
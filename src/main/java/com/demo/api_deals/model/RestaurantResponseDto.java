@@ -5,7 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-@Builder
+@Builder(toBuilder = true)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -14,6 +14,9 @@ public class RestaurantResponseDto {
     private String name;
     private String address1;
     private String suburb;
+    // Decimal degrees (WGS84). Optional: restaurants without valid coordinates aren't returned by nearby queries
+    private String latitude;
+    private String longitude;
     private String[] cuisines;
     private String imageLink;
     private String open;
@@ -0,0 +1,334 @@
+package com.demo.api_deals.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+import com.demo.api_deals.catalog.DealsCatalog;
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.DealsDelta;
+import com.demo.api_deals.model.DealsDeltaResponse;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Applies deltas from the upstream to the current snapshot, rather than replacing the whole document.
+ *
+ * Deltas are queued and applied by a single writer at a time, in arrival order. Each time the writer runs it takes every
+ * batch queued so far and applies them together, so a burst of deltas costs one patch rather than one per delta:
+ *   - Quantity changes are set on the live inventory in place, with no new snapshot. Only responses that depend on
+ *     quantities (keyed by the inventory revision) go stale.
+ *   - Restaurant and deal changes become one copy-on-write patch of the current catalog (see DealsCatalog.patch), which is
+ *     published as a new snapshot and then installed. Only the changed restaurants are resolved and validated, and the peak
+ *     results are kept when no peak interval changed.
+ * Only for DealsResource implementations that publish through DealsSnapshotHolder. A full reload replaces any deltas applied before it.
+ */
+@Component
+public class DealsDeltaIngestor {
+
+    // A full reload published while a patch was being built means the patch is rebuilt on top of it, a few times at most
+    private static final int MAX_PUBLISH_ATTEMPTS = 3;
+
+    private final DealsSnapshotHolder snapshotHolder;
+    private final DealsCatalogRegistry catalogRegistry;
+
+    private final Queue<PendingDeltas> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writerLock = new ReentrantLock();
+
+    private final Counter structuralDeltas;
+    private final Counter quantityDeltas;
+    private final Counter patches;
+
+    public DealsDeltaIngestor(DealsSnapshotHolder snapshotHolder, DealsCatalogRegistry catalogRegistry, MeterRegistry meterRegistry) {
+        this.snapshotHolder = snapshotHolder;
+        this.catalogRegistry = catalogRegistry;
+
+        this.structuralDeltas = Counter.builder("deals.deltas.applied").tag("kind", "structural")
+                .description("Deltas applied to the deals data").register(meterRegistry);
+        this.quantityDeltas = Counter.builder("deals.deltas.applied").tag("kind", "quantity")
+                .description("Deltas applied to the deals data").register(meterRegistry);
+        this.patches = Counter.builder("deals.deltas.patches")
+                .description("Patched snapshots published for batches of restaurant and deal deltas").register(meterRegistry);
+    }
+
+    /**
+     * Queues the deltas and applies them, together with any other deltas queued in the meantime.
+     * @param deltas - the deltas to apply, in order
+     * @return a Mono of the result once the deltas are visible, or an IllegalArgumentException if a delta is invalid
+     * (in which case none of the deltas are applied)
+     */
+    public Mono<DealsDeltaResponse> apply(List<DealsDelta> deltas) {
+        try {
+            validate(deltas);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+
+        PendingDeltas pendingDeltas = new PendingDeltas(deltas, new CompletableFuture<>());
+        pending.add(pendingDeltas);
+        // Patching blocks while the catalog is rebuilt, so the writer runs off the event loop
+        return Mono.fromRunnable(this::drain)
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(Mono.fromFuture(pendingDeltas.result()));
+    }
+
+    /**
+     * Applies queued batches until the queue is empty. If another thread is already the writer it will pick up anything queued
+     * before it checks the queue again, so this returns straight away.
+     */
+    private void drain() {
+        while (!pending.isEmpty() && writerLock.tryLock()) {
+            try {
+                List<PendingDeltas> batches = new ArrayList<>();
+                PendingDeltas next;
+                while ((next = pending.poll()) != null) {
+                    batches.add(next);
+                }
+                applyBatches(batches);
+            } finally {
+                writerLock.unlock();
+            }
+        }
+    }
+
+    private void applyBatches(List<PendingDeltas> batches) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                DealsSnapshot snapshot = snapshotHolder.getCurrent();
+                if (snapshot == null) {
+                    throw new IllegalStateException("No deals snapshot has been loaded");
+                }
+                DealsCatalog base = catalogRegistry.resolve(snapshot.getData());
+                // Held until the patch is published, as an off-heap catalog only refers to its source weakly
+                RestaurauntDealsResponseDto baseSource = base.getSource();
+
+                Changes changes = new Changes(base);
+                List<PendingDeltas> accepted = new ArrayList<>();
+                for (PendingDeltas batch : batches) {
+                    // Each batch applies in full or not at all, so a bad batch doesn't hold back the others
+                    Changes batchChanges = changes.copy();
+                    try {
+                        batchChanges.apply(batch);
+                        changes = batchChanges;
+                        accepted.add(batch);
+                    } catch (IllegalArgumentException e) {
+                        batch.result().completeExceptionally(e);
+                    }
+                }
+
+                DealsCatalog target = base;
+                long snapshotVersion = snapshot.getVersion();
+                if (!changes.restaurants.isEmpty()) {
+                    DealsCatalog.Patched patched = catalogRegistry.patch(base, changes.restaurants);
+                    List<RestaurantResponseDto> changed = changes.restaurants.values().stream().filter(Objects::nonNull).toList();
+                    DealsSnapshot published = catalogRegistry.publish(patched.catalog(),
+                            data -> snapshotHolder.publishIfCurrent(baseSource, data, changed));
+                    if (published == null) {
+                        if (attempt < MAX_PUBLISH_ATTEMPTS) {
+                            // Rejected batches have already been completed, so only retry the accepted ones
+                            batches = accepted;
+                            continue;
+                        }
+                        throw new IllegalStateException("The deals snapshot kept changing while deltas were being applied");
+                    }
+                    base.handOverInventory(patched);
+                    target = patched.catalog();
+                    snapshotVersion = published.getVersion();
+                    patches.increment();
+                }
+
+                // Quantities are set once the patch is live, so they apply to the deals as they are after the patch
+                Map<PendingDeltas, List<String>> unknownDeals = new LinkedHashMap<>();
+                for (QuantityChange change : changes.quantities.values()) {
+                    if (!target.getInventory().setQtyLeft(change.dealObjectId(), change.qtyLeft())) {
+                        unknownDeals.computeIfAbsent(change.batch(), batch -> new ArrayList<>()).add(change.dealObjectId());
+                    }
+                }
+
+                for (PendingDeltas batch : accepted) {
+                    for (DealsDelta delta : batch.deltas()) {
+                        (delta.getType() == DealsDelta.Type.SET_QUANTITY ? quantityDeltas : structuralDeltas).increment();
+                    }
+                    batch.result().complete(DealsDeltaResponse.builder()
+                            .applied(batch.deltas().size())
+                            .snapshotVersion(snapshotVersion)
+                            .unknownDealObjectIds(unknownDeals.getOrDefault(batch, List.of()))
+                            .build());
+                }
+                return;
+            }
+        } catch (RuntimeException e) {
+            for (PendingDeltas batch : batches) {
+                batch.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Checks every delta has what its type needs, before anything is queued.
+     * @throws IllegalArgumentException if a delta is invalid
+     */
+    private static void validate(List<DealsDelta> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            throw new IllegalArgumentException("Expected at least one delta");
+        }
+        for (int i = 0; i < deltas.size(); i++) {
+            DealsDelta delta = deltas.get(i);
+            if (delta == null || delta.getType() == null) {
+                throw new IllegalArgumentException("Delta " + i + ": type is required");
+            }
+            switch (delta.getType()) {
+                case UPSERT_RESTAURANT -> {
+                    RestaurantResponseDto restaurant = delta.getRestaurant();
+                    require(restaurant != null && restaurant.getObjectId() != null, i, "restaurant with an objectId is required");
+                    if (restaurant.getDeals() != null) {
+                        for (DealResponseDto deal : restaurant.getDeals()) {
+                            require(deal != null && deal.getObjectId() != null, i, "every deal must have an objectId");
+                        }
+                    }
+                }
+                case DELETE_RESTAURANT -> require(delta.getRestaurantObjectId() != null, i, "restaurantObjectId is required");
+                case UPSERT_DEAL -> {
+                    require(delta.getRestaurantObjectId() != null, i, "restaurantObjectId is required");
+                    require(delta.getDeal() != null && delta.getDeal().getObjectId() != null, i, "deal with an objectId is required");
+                }
+                case DELETE_DEAL -> {
+                    require(delta.getRestaurantObjectId() != null, i, "restaurantObjectId is required");
+                    require(delta.getDealObjectId() != null, i, "dealObjectId is required");
+                }
+                case SET_QUANTITY -> {
+                    require(delta.getDealObjectId() != null, i, "dealObjectId is required");
+                    require(delta.getQtyLeft() != null && delta.getQtyLeft() >= 0, i, "qtyLeft of at least 0 is required");
+                }
+            }
+        }
+    }
+
+    private static void require(boolean condition, int index, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException("Delta " + index + ": " + message);
+        }
+    }
+
+    private record PendingDeltas(List<DealsDelta> deltas, CompletableFuture<DealsDeltaResponse> result) {
+    }
+
+    private record QuantityChange(PendingDeltas batch, String dealObjectId, int qtyLeft) {
+    }
+
+    /**
+     * The changes of the batches applied so far: the new version of each changed restaurant (null if removed), and the
+     * latest quantity for each deal. Restaurants are copied before they are changed, so the base snapshot is never modified.
+     */
+    private static final class Changes {
+
+        private final DealsCatalog base;
+        private final LinkedHashMap<String, RestaurantResponseDto> restaurants;
+        private final LinkedHashMap<String, QuantityChange> quantities;
+
+        Changes(DealsCatalog base) {
+            this(base, new LinkedHashMap<>(), new LinkedHashMap<>());
+        }
+
+        private Changes(DealsCatalog base, LinkedHashMap<String, RestaurantResponseDto> restaurants, LinkedHashMap<String, QuantityChange> quantities) {
+            this.base = base;
+            this.restaurants = restaurants;
+            this.quantities = quantities;
+        }
+
+        Changes copy() {
+            return new Changes(base, new LinkedHashMap<>(restaurants), new LinkedHashMap<>(quantities));
+        }
+
+        /**
+         * @throws IllegalArgumentException if a deal delta is for a restaurant that doesn't exist
+         */
+        void apply(PendingDeltas batch) {
+            for (DealsDelta delta : batch.deltas()) {
+                switch (delta.getType()) {
+                    case UPSERT_RESTAURANT -> {
+                        RestaurantResponseDto restaurant = delta.getRestaurant();
+                        restaurants.put(restaurant.getObjectId(), restaurant);
+                        if (restaurant.getDeals() != null) {
+                            // An earlier quantity change is replaced by the quantity the restaurant now has
+                            for (DealResponseDto deal : restaurant.getDeals()) {
+                                quantities.remove(deal.getObjectId());
+                            }
+                        }
+                    }
+                    case DELETE_RESTAURANT -> restaurants.put(delta.getRestaurantObjectId(), null);
+                    case UPSERT_DEAL -> {
+                        RestaurantResponseDto restaurant = existingRestaurant(delta.getRestaurantObjectId());
+                        restaurants.put(restaurant.getObjectId(), restaurant.toBuilder()
+                                .deals(withDeal(restaurant.getDeals(), delta.getDeal()))
+                                .build());
+                        quantities.remove(delta.getDeal().getObjectId());
+                    }
+                    case DELETE_DEAL -> {
+                        RestaurantResponseDto restaurant = existingRestaurant(delta.getRestaurantObjectId());
+                        restaurants.put(restaurant.getObjectId(), restaurant.toBuilder()
+                                .deals(withoutDeal(restaurant.getDeals(), delta.getDealObjectId()))
+                                .build());
+                    }
+                    case SET_QUANTITY -> {
+                        // Re-inserted so the latest change for a deal is applied in arrival order
+                        quantities.remove(delta.getDealObjectId());
+                        quantities.put(delta.getDealObjectId(), new QuantityChange(batch, delta.getDealObjectId(), delta.getQtyLeft()));
+                    }
+                }
+            }
+        }
+
+        private RestaurantResponseDto existingRestaurant(String objectId) {
+            RestaurantResponseDto restaurant = restaurants.containsKey(objectId) ? restaurants.get(objectId) : base.findRestaurant(objectId);
+            if (restaurant == null) {
+                throw new IllegalArgumentException("Restaurant not found: " + objectId);
+            }
+            return restaurant;
+        }
+
+        /**
+         * @return a new array of the deals with the given deal replacing the deal with the same objectId, or added at the end
+         */
+        private static DealResponseDto[] withDeal(DealResponseDto[] deals, DealResponseDto deal) {
+            DealResponseDto[] updated = deals != null ? deals.clone() : new DealResponseDto[0];
+            for (int i = 0; i < updated.length; i++) {
+                if (deal.getObjectId().equals(updated[i].getObjectId())) {
+                    updated[i] = deal;
+                    return updated;
+                }
+            }
+            updated = Arrays.copyOf(updated, updated.length + 1);
+            updated[updated.length - 1] = deal;
+            return updated;
+        }
+
+        /**
+         * @return a new array of the deals without any with the given objectId
+         */
+        private static DealResponseDto[] withoutDeal(DealResponseDto[] deals, String dealObjectId) {
+            if (deals == null) {
+                return new DealResponseDto[0];
+            }
+            return Arrays.stream(deals)
+                    .filter(deal -> !dealObjectId.equals(deal.getObjectId()))
+                    .toArray(DealResponseDto[]::new);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.demo.api_deals.resource;
+
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+
+import com.demo.api_deals.model.RestaurantResponseDto;
+
+import reactor.core.publisher.Flux;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Reads the upstream deals document ({"restaurants": [...]}) with Jackson's streaming parser, binding one restaurant at a time.
+ * Only the restaurant currently being read is held as a tree, so the document never has to be buffered or bound in one go.
+ */
+public class DealsJsonStreamReader {
+
+    private static final String RESTAURANTS_FIELD = "restaurants";
+
+    private final ObjectMapper objectMapper;
+
+    public DealsJsonStreamReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Emits the restaurants in the document as they are read. The stream is opened on subscription and closed on completion,
+     * error or cancellation. Reading is blocking, so subscribe on a scheduler that allows it for non-classpath sources.
+     * @param source - opens the document to read
+     * @return a Flux of the restaurants in document order
+     */
+    public Flux<RestaurantResponseDto> readRestaurants(Callable<InputStream> source) {
+        return Flux.<RestaurantResponseDto, JsonParser>generate(
+                () -> openRestaurantsArray(source.call()),
+                (parser, sink) -> {
+                    RestaurantResponseDto restaurant = nextRestaurant(parser);
+                    if (restaurant != null) {
+                        sink.next(restaurant);
+                    } else {
+                        sink.complete();
+                    }
+                    return parser;
+                },
+                this::closeQuietly);
+    }
+
+    /**
+     * Positions a new parser at the start of the "restaurants" array, skipping any other top-level fields.
+     * @throws IllegalArgumentException if the document is not an object
+     */
+    private JsonParser openRestaurantsArray(InputStream inputStream) {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("Deals document not found");
+        }
+        JsonParser parser = objectMapper.createParser(inputStream);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            closeQuietly(parser);
+            throw new IllegalArgumentException("Deals document must be a JSON object");
+        }
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_OBJECT) {
+            if (token == JsonToken.START_ARRAY && RESTAURANTS_FIELD.equals(parser.currentName())) {
+                return parser;
+            }
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            }
+        }
+
+        // No restaurants array: treat as an empty document
+        return parser;
+    }
+
+    /**
+     * @return the next restaurant in the array, or null at the end of the array (or document)
+     */
+    private RestaurantResponseDto nextRestaurant(JsonParser parser) {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.START_OBJECT) {
+                return objectMapper.readValue(parser, RestaurantResponseDto.class);
+            }
+            if (token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT) {
+                return null;
+            }
+            // Skip nulls or anything else that isn't a restaurant object
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    private void closeQuietly(JsonParser parser) {
+        try {
+            parser.close();
+        } catch (Exception e) {
+            // Nothing useful to do if closing fails, the document has already been read
+        }
+    }
+}
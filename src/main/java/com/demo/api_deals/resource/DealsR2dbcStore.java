@@ -0,0 +1,265 @@
+package com.demo.api_deals.resource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads and writes the deals data in a relational store over R2DBC. The SQL sticks to what both H2 and Postgres accept.
+ *
+ * Restaurants and deals keep their document order in restaurant_order and deal_order, which are used as keyset cursors
+ * so every read is a bounded page that seeks on an index rather than an OFFSET scan. Time-of-day filtering is left to the
+ * catalog compiled from the rows, which also applies live quantities.
+ * Writers bump deals_revision whenever they change the data, so readers can tell when there is nothing new to load.
+ */
+final class DealsR2dbcStore {
+
+    private static final String[] SCHEMA = {
+        """
+        CREATE TABLE IF NOT EXISTS restaurant (
+            restaurant_order INT PRIMARY KEY,
+            object_id VARCHAR(64) NOT NULL,
+            name VARCHAR(255),
+            address1 VARCHAR(255),
+            suburb VARCHAR(255),
+            latitude VARCHAR(32),
+            longitude VARCHAR(32),
+            cuisines VARCHAR(1024),
+            image_link VARCHAR(1024),
+            open_time VARCHAR(16),
+            close_time VARCHAR(16)
+        )""",
+        """
+        CREATE TABLE IF NOT EXISTS deal (
+            deal_order BIGINT PRIMARY KEY,
+            restaurant_order INT NOT NULL,
+            object_id VARCHAR(64) NOT NULL,
+            discount VARCHAR(16),
+            dine_in VARCHAR(8),
+            lightning VARCHAR(8),
+            start_time VARCHAR(16),
+            end_time VARCHAR(16),
+            qty_left VARCHAR(16)
+        )""",
+        "CREATE INDEX IF NOT EXISTS deal_restaurant_idx ON deal (restaurant_order, deal_order)",
+        "CREATE TABLE IF NOT EXISTS deals_revision (id INT PRIMARY KEY, revision BIGINT NOT NULL)"
+    };
+
+    private static final String RESTAURANT_COLUMNS = "r.restaurant_order, r.object_id AS r_object_id, r.name, r.address1, r.suburb, "
+            + "r.latitude, r.longitude, r.cuisines, r.image_link, r.open_time, r.close_time";
+    private static final String DEAL_COLUMNS = "d.deal_order, d.restaurant_order AS d_restaurant_order, d.object_id AS d_object_id, "
+            + "d.discount, d.dine_in, d.lightning, d.start_time, d.end_time, d.qty_left";
+
+    private static final String RESTAURANT_PAGE = "SELECT " + RESTAURANT_COLUMNS + " FROM restaurant r"
+            + " WHERE r.restaurant_order > :after ORDER BY r.restaurant_order LIMIT :limit";
+    private static final String DEALS_OF_RESTAURANTS = "SELECT " + DEAL_COLUMNS + " FROM deal d"
+            + " WHERE d.restaurant_order BETWEEN :first AND :last ORDER BY d.deal_order";
+
+    // Cuisines are stored as one column, as they are only ever read back with their restaurant
+    private static final String CUISINE_SEPARATOR = "|";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final int pageSize;
+
+    DealsR2dbcStore(DatabaseClient databaseClient, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(databaseClient.getConnectionFactory()));
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Creates the tables and indexes if they don't exist yet.
+     */
+    Mono<Void> createSchema() {
+        return Flux.fromArray(SCHEMA)
+                .concatMap(statement -> databaseClient.sql(statement).then())
+                .then();
+    }
+
+    /**
+     * @return the revision of the data, which changes whenever a writer changes it, or 0 if nothing has been written
+     */
+    Mono<Long> readRevision() {
+        return databaseClient.sql("SELECT revision FROM deals_revision WHERE id = 1")
+                .map(row -> row.get("revision", Long.class))
+                .one()
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * @return true if there are no restaurants in the store
+     */
+    Mono<Boolean> isEmpty() {
+        return databaseClient.sql("SELECT restaurant_order FROM restaurant LIMIT 1")
+                .map(row -> row.get("restaurant_order", Integer.class))
+                .one()
+                .hasElement()
+                .map(found -> !found);
+    }
+
+    /**
+     * Replaces everything in the store with the given restaurants, in order, and bumps the revision, in one transaction.
+     * Readers never see a partly written store, and if writing fails (or the restaurants error) the previous data is kept.
+     * Intended for loading a local stand-in database: the rows are written one at a time.
+     */
+    Mono<Void> replaceAll(Flux<RestaurantResponseDto> restaurants) {
+        AtomicInteger restaurantOrder = new AtomicInteger();
+        AtomicLong dealOrder = new AtomicLong();
+        return databaseClient.sql("DELETE FROM deal").then()
+                .then(databaseClient.sql("DELETE FROM restaurant").then())
+                .thenMany(restaurants.concatMap(restaurant -> insert(restaurant, restaurantOrder.getAndIncrement(), dealOrder)))
+                .then(bumpRevision())
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Streams every restaurant with its deals, in document order, one page of restaurants (and then their deals) at a time.
+     */
+    Flux<RestaurantResponseDto> readRestaurants() {
+        return readRestaurantPage(-1)
+                .expand(page -> page.full() ? readRestaurantPage(page.lastOrder()) : Mono.empty())
+                .concatMapIterable(RestaurantPage::restaurants);
+    }
+
+    private Mono<RestaurantPage> readRestaurantPage(int afterOrder) {
+        return databaseClient.sql(RESTAURANT_PAGE)
+                .bind("after", afterOrder)
+                .bind("limit", pageSize)
+                .map(row -> new OrderedRestaurant(row.get("restaurant_order", Integer.class), toRestaurant(row)))
+                .all()
+                .collectList()
+                .flatMap(restaurants -> restaurants.isEmpty()
+                        ? Mono.just(new RestaurantPage(List.of(), afterOrder, false))
+                        : withDeals(restaurants));
+    }
+
+    /**
+     * Reads the deals of a page of restaurants in one query, over the page's range of restaurant_order.
+     */
+    private Mono<RestaurantPage> withDeals(List<OrderedRestaurant> restaurants) {
+        int first = restaurants.get(0).order();
+        int last = restaurants.get(restaurants.size() - 1).order();
+        return databaseClient.sql(DEALS_OF_RESTAURANTS)
+                .bind("first", first)
+                .bind("last", last)
+                .map(row -> Map.entry(row.get("d_restaurant_order", Integer.class), toDeal(row)))
+                .all()
+                .collectMultimap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(dealsByRestaurant -> {
+                    List<RestaurantResponseDto> page = new ArrayList<>(restaurants.size());
+                    for (OrderedRestaurant restaurant : restaurants) {
+                        Collection<DealResponseDto> deals = dealsByRestaurant.getOrDefault(restaurant.order(), List.of());
+                        restaurant.restaurant().setDeals(deals.toArray(new DealResponseDto[0]));
+                        page.add(restaurant.restaurant());
+                    }
+                    return new RestaurantPage(page, last, restaurants.size() == pageSize);
+                });
+    }
+
+    private Mono<Void> insert(RestaurantResponseDto restaurant, int restaurantOrder, AtomicLong dealOrder) {
+        DatabaseClient.GenericExecuteSpec insertRestaurant = databaseClient.sql("""
+                INSERT INTO restaurant (restaurant_order, object_id, name, address1, suburb, latitude, longitude, cuisines, image_link, open_time, close_time)
+                VALUES (:restaurantOrder, :objectId, :name, :address1, :suburb, :latitude, :longitude, :cuisines, :imageLink, :openTime, :closeTime)""")
+                .bind("restaurantOrder", restaurantOrder);
+        insertRestaurant = bindString(insertRestaurant, "objectId", restaurant.getObjectId());
+        insertRestaurant = bindString(insertRestaurant, "name", restaurant.getName());
+        insertRestaurant = bindString(insertRestaurant, "address1", restaurant.getAddress1());
+        insertRestaurant = bindString(insertRestaurant, "suburb", restaurant.getSuburb());
+        insertRestaurant = bindString(insertRestaurant, "latitude", restaurant.getLatitude());
+        insertRestaurant = bindString(insertRestaurant, "longitude", restaurant.getLongitude());
+        insertRestaurant = bindString(insertRestaurant, "cuisines",
+                restaurant.getCuisines() != null ? String.join(CUISINE_SEPARATOR, restaurant.getCuisines()) : null);
+        insertRestaurant = bindString(insertRestaurant, "imageLink", restaurant.getImageLink());
+        insertRestaurant = bindString(insertRestaurant, "openTime", restaurant.getOpen());
+        insertRestaurant = bindString(insertRestaurant, "closeTime", restaurant.getClose());
+
+        Flux<DealResponseDto> deals = restaurant.getDeals() != null ? Flux.fromArray(restaurant.getDeals()) : Flux.empty();
+
+        return insertRestaurant.then()
+                .thenMany(deals.concatMap(deal -> insertDeal(deal, restaurantOrder, dealOrder.getAndIncrement())))
+                .then();
+    }
+
+    private Mono<Void> insertDeal(DealResponseDto deal, int restaurantOrder, long dealOrder) {
+        DatabaseClient.GenericExecuteSpec insertDeal = databaseClient.sql("""
+                INSERT INTO deal (deal_order, restaurant_order, object_id, discount, dine_in, lightning, start_time, end_time, qty_left)
+                VALUES (:dealOrder, :restaurantOrder, :objectId, :discount, :dineIn, :lightning, :startTime, :endTime, :qtyLeft)""")
+                .bind("dealOrder", dealOrder)
+                .bind("restaurantOrder", restaurantOrder);
+        insertDeal = bindString(insertDeal, "objectId", deal.getObjectId());
+        insertDeal = bindString(insertDeal, "discount", deal.getDiscount());
+        insertDeal = bindString(insertDeal, "dineIn", deal.getDineIn());
+        insertDeal = bindString(insertDeal, "lightning", deal.getLightning());
+        insertDeal = bindString(insertDeal, "startTime", deal.getStart());
+        insertDeal = bindString(insertDeal, "endTime", deal.getEnd());
+        insertDeal = bindString(insertDeal, "qtyLeft", deal.getQtyLeft());
+        return insertDeal.then();
+    }
+
+    private Mono<Void> bumpRevision() {
+        return databaseClient.sql("UPDATE deals_revision SET revision = revision + 1 WHERE id = 1")
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updated -> updated > 0 ? Mono.<Void>empty()
+                        : databaseClient.sql("INSERT INTO deals_revision (id, revision) VALUES (1, 1)").then());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindString(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, String.class);
+    }
+
+    private static RestaurantResponseDto toRestaurant(Readable row) {
+        String cuisines = row.get("cuisines", String.class);
+        return RestaurantResponseDto.builder()
+                .objectId(row.get("r_object_id", String.class))
+                .name(row.get("name", String.class))
+                .address1(row.get("address1", String.class))
+                .suburb(row.get("suburb", String.class))
+                .latitude(row.get("latitude", String.class))
+                .longitude(row.get("longitude", String.class))
+                .cuisines(cuisines != null ? cuisines.split("\\|", -1) : null)
+                .imageLink(row.get("image_link", String.class))
+                .open(row.get("open_time", String.class))
+                .close(row.get("close_time", String.class))
+                .build();
+    }
+
+    private static DealResponseDto toDeal(Readable row) {
+        return DealResponseDto.builder()
+                .objectId(row.get("d_object_id", String.class))
+                .discount(row.get("discount", String.class))
+                .dineIn(row.get("dine_in", String.class))
+                .lightning(row.get("lightning", String.class))
+                .start(row.get("start_time", String.class))
+                .end(row.get("end_time", String.class))
+                .qtyLeft(row.get("qty_left", String.class))
+                .build();
+    }
+
+    private record OrderedRestaurant(int order, RestaurantResponseDto restaurant) {
+    }
+
+    /**
+     * A page of restaurants with their deals, and the cursor to read the next page from.
+     */
+    private record RestaurantPage(List<RestaurantResponseDto> restaurants, int lastOrder, boolean full) {
+    }
+}
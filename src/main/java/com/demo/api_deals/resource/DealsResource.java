@@ -1,9 +1,23 @@
 package com.demo.api_deals.resource;
 
+import java.util.Arrays;
+
+import com.demo.api_deals.model.RestaurantResponseDto;
 import com.demo.api_deals.model.RestaurauntDealsResponseDto;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface DealsResource {
     Mono<RestaurauntDealsResponseDto> getAllDeals();
+
+    /**
+     * Streams the restaurants in the current deals data, in order.
+     * Implementations that read from a streaming source should override this to emit restaurants as they are read.
+     */
+    default Flux<RestaurantResponseDto> getRestaurants() {
+        return getAllDeals()
+                .filter(dealsData -> dealsData.getRestaurants() != null)
+                .flatMapIterable(dealsData -> Arrays.asList(dealsData.getRestaurants()));
+    }
 }
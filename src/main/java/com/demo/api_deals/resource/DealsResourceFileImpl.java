@@ -0,0 +1,229 @@
+package com.demo.api_deals.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.demo.api_deals.catalog.DealsCatalog;
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * DealsResource backed by a deals document on disk (deals.resource.type=file), reloaded whenever the file changes.
+ *
+ * A WatchService on the file's directory triggers reloads on a dedicated watcher thread, so reading the file and compiling
+ * the catalog never happens on a request thread. The new snapshot is published with a single atomic swap once it is fully
+ * built, so in-flight requests keep the snapshot they started with, and a file that fails to read or validate leaves the
+ * current snapshot in place. Reload duration and failures are recorded as metrics.
+ *
+ * Replace the file atomically (write a temporary file and rename it over the original) so a reload never sees it half written.
+ */
+@Component
+@ConditionalOnProperty(prefix = "deals.resource", name = "type", havingValue = "file")
+public class DealsResourceFileImpl implements DealsResource, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealsResourceFileImpl.class);
+
+    private final DealsJsonStreamReader streamReader = new DealsJsonStreamReader(new ObjectMapper());
+    private final DealsSnapshotHolder snapshotHolder;
+    private final DealsCatalogRegistry catalogRegistry;
+
+    private final Path path;
+    private final Duration debounce;
+
+    private final Timer reloadSuccessTimer;
+    private final Timer reloadFailureTimer;
+    private final Counter reloadFailures;
+    private final AtomicLong lastReloadEpochSeconds = new AtomicLong();
+
+    // Identifies the file contents last loaded, so duplicate change events for the same write don't reload it again
+    private FileVersion loadedVersion;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    public DealsResourceFileImpl(DealsSnapshotHolder snapshotHolder, DealsCatalogRegistry catalogRegistry,
+            DealsProperties dealsProperties, MeterRegistry meterRegistry) {
+        this.snapshotHolder = snapshotHolder;
+        this.catalogRegistry = catalogRegistry;
+        DealsProperties.Resource resource = dealsProperties.getResource();
+        if (resource.getPath() == null || resource.getPath().isBlank()) {
+            throw new IllegalStateException("deals.resource.path must be set when deals.resource.type is file");
+        }
+        this.path = Path.of(resource.getPath()).toAbsolutePath().normalize();
+        this.debounce = resource.getReloadDebounce();
+
+        this.reloadSuccessTimer = Timer.builder("deals.resource.reload").tag("result", "success")
+                .description("Time taken to read the deals file, compile its catalog and publish the snapshot").register(meterRegistry);
+        this.reloadFailureTimer = Timer.builder("deals.resource.reload").tag("result", "failure")
+                .description("Time taken to read the deals file, compile its catalog and publish the snapshot").register(meterRegistry);
+        this.reloadFailures = Counter.builder("deals.resource.reload.failures")
+                .description("Reloads of the deals file that failed, leaving the previous snapshot in place").register(meterRegistry);
+        Gauge.builder("deals.resource.last-reload", lastReloadEpochSeconds, AtomicLong::get)
+                .description("Time of the last successful reload of the deals file, in seconds since the epoch")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        // Fail fast if the file can't be loaded at startup, as there is no previous snapshot to fall back to
+        reload();
+    }
+
+    @Override
+    public Mono<RestaurauntDealsResponseDto> getAllDeals() {
+        return snapshotHolder.getDeals();
+    }
+
+    /**
+     * Re-reads the file and swaps it in as the current snapshot, unless it hasn't changed since the last reload.
+     * Blocks until the file has been read, so must not be called from an event loop thread.
+     * @return the newly published snapshot, or the current snapshot if the file hasn't changed
+     * @throws IllegalStateException if the file can't be read, parsed or validated (the current snapshot is left in place)
+     */
+    public synchronized DealsSnapshot reload() {
+        long startNanos = System.nanoTime();
+        try {
+            FileVersion version = FileVersion.of(path);
+            if (version.equals(loadedVersion) && snapshotHolder.getCurrent() != null) {
+                return snapshotHolder.getCurrent();
+            }
+
+            // On the first load the catalog persisted by a previous run can be used, if it was compiled from this version of the file
+            DealsCatalog loaded = loadedVersion == null ? catalogRegistry.loadSnapshotFile(version.stamp(path)) : null;
+            DealsCatalog catalog = loaded != null ? loaded : catalogRegistry.compile(streamReader.readRestaurants(this::openFile)).block();
+            DealsSnapshot snapshot = catalogRegistry.publish(catalog, snapshotHolder::publish);
+            if (loaded == null) {
+                catalogRegistry.saveSnapshotFile(catalog, version.stamp(path));
+            }
+            loadedVersion = version;
+
+            reloadSuccessTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            lastReloadEpochSeconds.set(snapshot.getLoadedAt().getEpochSecond());
+            logger.info("Loaded deals file: path={}, version={}, deals={}", path, snapshot.getVersion(), catalog.size());
+            return snapshot;
+        } catch (Exception e) {
+            reloadFailureTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            reloadFailures.increment();
+            throw new IllegalStateException("Failed to load deals file: " + path, e);
+        }
+    }
+
+    /**
+     * Opens the file through a FileChannel. Reads go straight from the channel into the streaming parser's buffer,
+     * so the document is never held in memory as a whole.
+     */
+    private InputStream openFile() throws IOException {
+        return Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        Path directory = Objects.requireNonNull(path.getParent(), "deals.resource.path must be a file");
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watcherThread = new Thread(this::watch, "deals-file-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Watcher thread loop: waits for a change to the file, lets the burst of events from a single write settle for the
+     * debounce period, then reloads it.
+     */
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!consumeEvents(watchService.take())) {
+                    continue;
+                }
+
+                // Drain the rest of the burst, e.g. the create and modify events of an atomic replace
+                WatchKey key;
+                while ((key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    consumeEvents(key);
+                }
+
+                try {
+                    reload();
+                } catch (IllegalStateException e) {
+                    logger.warn("Keeping the current deals snapshot: {}", e.getMessage(), e.getCause());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Consumes the key's events and resets it.
+     * @return true if any of the events were for the deals file
+     */
+    private boolean consumeEvents(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || path.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * The file's identity, size and modification time, which together change whenever the file is rewritten or replaced.
+     */
+    private record FileVersion(Object fileKey, long size, long lastModifiedNanos) {
+
+        static FileVersion of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileVersion(attributes.fileKey(), attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        }
+
+        /**
+         * @return the stamp a snapshot file compiled from this version of the file is saved with
+         */
+        String stamp(Path path) {
+            return path + ";" + fileKey + ";" + size + ";" + lastModifiedNanos;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.demo.api_deals.resource;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.model.DealsError;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * DealsResource backed by the upstream deals API over HTTP (deals.resource.type=http), fetched with a non-blocking WebClient.
+ *
+ * - Single flight: concurrent requests that need a fetch share one upstream call rather than making their own.
+ * - Stale while revalidate: once a snapshot is older than maxAge it is still served straight away, while a refresh runs in the background.
+ * - Each upstream call, including reading the whole document, is cut off after the configured timeout.
+ * - A circuit breaker stops calling a failing upstream, so requests are served from the last good snapshot without waiting on it.
+ *
+ * Requests only wait on the upstream when there is no snapshot at all, and fail with a 503 if it can't be fetched.
+ */
+@Component
+@ConditionalOnProperty(prefix = "deals.resource", name = "type", havingValue = "http")
+public class DealsResourceHttpImpl implements DealsResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealsResourceHttpImpl.class);
+
+    private final DealsJsonStreamReader streamReader = new DealsJsonStreamReader(new ObjectMapper());
+    private final DealsSnapshotHolder snapshotHolder;
+    private final DealsCatalogRegistry catalogRegistry;
+    private final WebClient webClient;
+
+    private final URI uri;
+    private final int maxBodyBytes;
+    private final Duration timeout;
+    private final long maxAgeNanos;
+    private final UpstreamCircuitBreaker circuitBreaker;
+
+    // The upstream call in flight, shared by everyone who needs it, or null if there isn't one
+    private final AtomicReference<Mono<DealsSnapshot>> inFlight = new AtomicReference<>();
+    // When the current snapshot was fetched, for System.nanoTime()
+    private volatile long fetchedAtNanos;
+
+    private final Timer fetchSuccessTimer;
+    private final Timer fetchFailureTimer;
+    private final Counter coalescedFetches;
+    private final Counter rejectedFetches;
+
+    /**
+     * @param webClientBuilder - the application's WebClient.Builder, so the upstream client gets its codecs, metrics and
+     * customizers. A plain builder is used if the context has none.
+     */
+    public DealsResourceHttpImpl(DealsSnapshotHolder snapshotHolder, DealsCatalogRegistry catalogRegistry,
+            ObjectProvider<WebClient.Builder> webClientBuilder, DealsProperties dealsProperties, MeterRegistry meterRegistry) {
+        this.snapshotHolder = snapshotHolder;
+        this.catalogRegistry = catalogRegistry;
+        this.webClient = webClientBuilder.getIfAvailable(WebClient::builder).build();
+        DealsProperties.Upstream upstream = dealsProperties.getResource().getUpstream();
+        if (upstream.getUrl() == null || upstream.getUrl().isBlank()) {
+            throw new IllegalStateException("deals.resource.upstream.url must be set when deals.resource.type is http");
+        }
+        this.uri = URI.create(upstream.getUrl());
+        this.timeout = upstream.getTimeout();
+        this.maxBodyBytes = Math.toIntExact(upstream.getMaxBodySize().toBytes());
+        this.maxAgeNanos = upstream.getMaxAge().toNanos();
+        this.circuitBreaker = new UpstreamCircuitBreaker(upstream.getFailureThreshold(), upstream.getOpenDuration(), System::nanoTime);
+
+        this.fetchSuccessTimer = Timer.builder("deals.upstream.fetch").tag("result", "success")
+                .description("Time taken to fetch the deals document from the upstream, compile its catalog and publish the snapshot").register(meterRegistry);
+        this.fetchFailureTimer = Timer.builder("deals.upstream.fetch").tag("result", "failure")
+                .description("Time taken to fetch the deals document from the upstream, compile its catalog and publish the snapshot").register(meterRegistry);
+        this.coalescedFetches = Counter.builder("deals.upstream.coalesced")
+                .description("Fetches that joined an upstream call already in flight instead of making their own").register(meterRegistry);
+        this.rejectedFetches = Counter.builder("deals.upstream.rejected")
+                .description("Fetches not made because the upstream circuit breaker was open").register(meterRegistry);
+        Gauge.builder("deals.upstream.circuit-breaker.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("State of the upstream circuit breaker: 0 closed, 1 open, 2 half open")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<RestaurauntDealsResponseDto> getAllDeals() {
+        return Mono.defer(() -> {
+            if (snapshotHolder.getCurrent() == null) {
+                // Nothing to serve yet, so wait for the (shared) first fetch
+                return refresh().map(DealsSnapshot::getData);
+            }
+            if (System.nanoTime() - fetchedAtNanos > maxAgeNanos) {
+                // Serve what we have and revalidate in the background. Failures are already counted by the circuit breaker
+                refresh().subscribe(snapshot -> { }, e -> logger.debug("Background refresh of the deals failed: {}", e.getMessage()));
+            }
+            return snapshotHolder.getDeals();
+        });
+    }
+
+    /**
+     * Fetches the upstream document and publishes it as the current snapshot, joining the fetch already in flight if there is one.
+     * The fetch runs to completion even if every caller cancels, so its result is never wasted.
+     * @return a Mono of the published snapshot, or a 503 DealsError if the upstream can't be fetched or the circuit breaker is open
+     */
+    Mono<DealsSnapshot> refresh() {
+        while (true) {
+            Mono<DealsSnapshot> existing = inFlight.get();
+            if (existing != null) {
+                coalescedFetches.increment();
+                return existing;
+            }
+
+            Sinks.One<DealsSnapshot> result = Sinks.one();
+            Mono<DealsSnapshot> shared = result.asMono();
+            if (inFlight.compareAndSet(null, shared)) {
+                // Clear the slot before completing, so anyone reacting to the result starts a new fetch rather than joining this one
+                fetch().subscribe(
+                        snapshot -> {
+                            inFlight.set(null);
+                            result.tryEmitValue(snapshot);
+                        },
+                        error -> {
+                            inFlight.set(null);
+                            result.tryEmitError(error);
+                        });
+                return shared;
+            }
+        }
+    }
+
+    private Mono<DealsSnapshot> fetch() {
+        if (!circuitBreaker.tryAcquire()) {
+            rejectedFetches.increment();
+            return Mono.error(unavailable("The deals upstream circuit breaker is open", null));
+        }
+
+        long startNanos = System.nanoTime();
+        // The whole document is buffered before parsing, so a body over the limit fails the fetch rather than exhausting memory
+        Mono<DataBuffer> body = DataBufferUtils.join(webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class), maxBodyBytes);
+
+        return body
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("The upstream returned an empty body")))
+                .timeout(timeout)
+                // Parsing and compiling are CPU bound, so move off the event loop. The parser reads the joined buffer and releases it
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(buffer -> catalogRegistry.compile(streamReader.readRestaurants(() -> buffer.asInputStream(true))))
+                .map(catalog -> catalogRegistry.publish(catalog, snapshotHolder::publish))
+                .doOnNext(snapshot -> {
+                    fetchedAtNanos = System.nanoTime();
+                    circuitBreaker.onSuccess();
+                    fetchSuccessTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                })
+                .onErrorMap(e -> {
+                    circuitBreaker.onFailure();
+                    fetchFailureTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    logger.warn("Failed to fetch deals from the upstream: uri={}, error={}", uri, e.toString());
+                    return unavailable("Failed to fetch deals from the upstream", e);
+                });
+    }
+
+    private static DealsError unavailable(String message, Throwable cause) {
+        return DealsError.builder()
+                .message(message)
+                .errorCode("SERVICE_UNAVAILABLE")
+                .httpStatus(HttpStatus.SERVICE_UNAVAILABLE)
+                .throwable(cause)
+                .build();
+    }
+}
@@ -1,36 +1,84 @@
 package com.demo.api_deals.resource;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import com.demo.api_deals.catalog.DealsCatalog;
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.model.DealsSnapshot;
 import com.demo.api_deals.model.RestaurauntDealsResponseDto;
 
-import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 import tools.jackson.databind.ObjectMapper;
 
 @Component
-@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "deals.resource", name = "type", havingValue = "mock", matchIfMissing = true)
 public class DealsResourceMockImpl implements DealsResource {
 
+    private static final String SAMPLE_DATA_PATH = "demo/sample-data.json";
+
+    private final DealsJsonStreamReader streamReader = new DealsJsonStreamReader(new ObjectMapper());
+    private final DealsSnapshotHolder snapshotHolder;
+    private final DealsCatalogRegistry catalogRegistry;
+
+    public DealsResourceMockImpl(DealsSnapshotHolder snapshotHolder, DealsCatalogRegistry catalogRegistry) {
+        this.snapshotHolder = snapshotHolder;
+        this.catalogRegistry = catalogRegistry;
+        reload();
+    }
 
     @Override
     public Mono<RestaurauntDealsResponseDto> getAllDeals() {
         // TODO: replace with call to API (eventually, database)
 
-        RestaurauntDealsResponseDto dealsData = readStaticFile(); // Replace with actual data retrieval logic
-        return Mono.just(dealsData);
+        // The static file is parsed once and served from the current snapshot
+        return snapshotHolder.getDeals();
     }
 
-    private RestaurauntDealsResponseDto readStaticFile() {
+    /**
+     * Re-reads the static file and swaps it in as the current snapshot.
+     * If deals.snapshot-file.path is set and holds the catalog compiled from this version of the file, it is loaded from there instead.
+     * The file is streamed into the catalog one restaurant at a time, and the catalog is installed as its snapshot is published
+     * so requests never have to compile it. Blocks until the file has been read, so must not be called from an event loop thread.
+     * @return the newly published snapshot
+     */
+    public DealsSnapshot reload() {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            ClassLoader classLoader = RestaurauntDealsResponseDto.class.getClassLoader();
-            InputStream inputStream = classLoader.getResourceAsStream("demo/sample-data.json");
-            return (RestaurauntDealsResponseDto) objectMapper.readValue(inputStream, RestaurauntDealsResponseDto.class);
+            String sourceStamp = staticFileStamp();
+            DealsCatalog loaded = catalogRegistry.loadSnapshotFile(sourceStamp);
+            DealsCatalog catalog = loaded != null ? loaded : catalogRegistry.compile(streamReader.readRestaurants(this::openStaticFile)).block();
+            DealsSnapshot snapshot = catalogRegistry.publish(catalog, snapshotHolder::publish);
+            if (loaded == null) {
+                catalogRegistry.saveSnapshotFile(catalog, sourceStamp);
+            }
+            return snapshot;
         } catch (Exception e) {
             throw new RuntimeException("Failed to read static file", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Helper method to identify the version of the static file, from its location, size and modification time.
+     */
+    private String staticFileStamp() throws IOException {
+        URL url = RestaurauntDealsResponseDto.class.getClassLoader().getResource(SAMPLE_DATA_PATH);
+        if (url == null) {
+            throw new IOException("Static file not found: " + SAMPLE_DATA_PATH);
+        }
+        URLConnection connection = url.openConnection();
+        connection.setUseCaches(false);
+        try (InputStream ignored = connection.getInputStream()) {
+            return url + ";" + connection.getContentLengthLong() + ";" + connection.getLastModified();
+        }
+    }
+
+    private InputStream openStaticFile() {
+        ClassLoader classLoader = RestaurauntDealsResponseDto.class.getClassLoader();
+        return classLoader.getResourceAsStream(SAMPLE_DATA_PATH);
+    }
+}
@@ -0,0 +1,164 @@
+package com.demo.api_deals.resource;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * DealsResource backed by a relational database over R2DBC (deals.resource.type=r2dbc), e.g. Postgres, or an embedded H2 as a local stand-in.
+ *
+ * The database is read in keyset-paged queries and streamed straight into the catalog as a Flux of restaurants, so the
+ * snapshot is never held as rows and a document at the same time. Refreshes run on a timer, skip reading anything when the
+ * store's revision hasn't changed, and never block: the driver is non-blocking and the catalog is compiled on the bounded
+ * elastic scheduler, off the event loop. Requests are served from the published snapshot, as for the other resources.
+ */
+@Component
+@ConditionalOnProperty(prefix = "deals.resource", name = "type", havingValue = "r2dbc")
+public class DealsResourceR2dbcImpl implements DealsResource, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealsResourceR2dbcImpl.class);
+
+    private static final String SAMPLE_DATA_PATH = "demo/sample-data.json";
+
+    private final DealsSnapshotHolder snapshotHolder;
+    private final DealsCatalogRegistry catalogRegistry;
+    private final DealsR2dbcStore store;
+    private final Duration refreshInterval;
+
+    private final Timer reloadSuccessTimer;
+    private final Timer reloadFailureTimer;
+    private final Counter reloadFailures;
+    private final AtomicLong lastReloadEpochSeconds = new AtomicLong();
+
+    // Revision of the store last loaded, so a refresh with nothing new doesn't read or compile anything
+    private volatile long loadedRevision = -1;
+
+    private Disposable refreshes;
+
+    public DealsResourceR2dbcImpl(DealsSnapshotHolder snapshotHolder, DealsCatalogRegistry catalogRegistry, DatabaseClient databaseClient,
+            DealsProperties dealsProperties, MeterRegistry meterRegistry) {
+        this.snapshotHolder = snapshotHolder;
+        this.catalogRegistry = catalogRegistry;
+        DealsProperties.Resource resource = dealsProperties.getResource();
+        this.store = new DealsR2dbcStore(databaseClient, resource.getPageSize());
+        this.refreshInterval = resource.getRefreshInterval();
+
+        this.reloadSuccessTimer = Timer.builder("deals.resource.reload").tag("result", "success")
+                .description("Time taken to read the deals database, compile its catalog and publish the snapshot").register(meterRegistry);
+        this.reloadFailureTimer = Timer.builder("deals.resource.reload").tag("result", "failure")
+                .description("Time taken to read the deals database, compile its catalog and publish the snapshot").register(meterRegistry);
+        this.reloadFailures = Counter.builder("deals.resource.reload.failures")
+                .description("Reloads of the deals database that failed, leaving the previous snapshot in place").register(meterRegistry);
+        Gauge.builder("deals.resource.last-reload", lastReloadEpochSeconds, AtomicLong::get)
+                .description("Time of the last successful reload of the deals database, in seconds since the epoch")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        // Fail fast if the database can't be loaded at startup, as there is no previous snapshot to fall back to
+        Mono<Void> initialize = resource.isInitializeDatabase() ? initializeDatabase() : Mono.empty();
+        initialize.then(reload()).block();
+    }
+
+    @Override
+    public Mono<RestaurauntDealsResponseDto> getAllDeals() {
+        return snapshotHolder.getDeals();
+    }
+
+    /**
+     * Reads the database and swaps it in as the current snapshot, unless its revision hasn't changed since the last reload.
+     * Reloads must not overlap, which the refresh timer guarantees.
+     * @return a Mono of the newly published snapshot, or of the current snapshot if the database hasn't changed.
+     * Errors with an IllegalStateException if the database can't be read or validated (the current snapshot is left in place).
+     */
+    public Mono<DealsSnapshot> reload() {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return store.readRevision()
+                    .flatMap(revision -> {
+                        DealsSnapshot current = snapshotHolder.getCurrent();
+                        if (revision == loadedRevision && current != null) {
+                            return Mono.just(current);
+                        }
+                        // Compiling is CPU bound, so hand the rows off the driver's threads as they arrive
+                        return catalogRegistry.compile(store.readRestaurants().publishOn(Schedulers.boundedElastic()))
+                                .map(catalog -> {
+                                    DealsSnapshot snapshot = catalogRegistry.publish(catalog, snapshotHolder::publish);
+                                    loadedRevision = revision;
+                                    reloadSuccessTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                                    lastReloadEpochSeconds.set(snapshot.getLoadedAt().getEpochSecond());
+                                    logger.info("Loaded deals database: revision={}, version={}, deals={}", revision, snapshot.getVersion(), catalog.size());
+                                    return snapshot;
+                                });
+                    })
+                    .onErrorMap(e -> {
+                        reloadFailureTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                        reloadFailures.increment();
+                        return new IllegalStateException("Failed to load deals database", e);
+                    });
+        });
+    }
+
+    /**
+     * Creates the schema if it doesn't exist, and fills an empty database with the bundled sample data, for a local stand-in.
+     */
+    private Mono<Void> initializeDatabase() {
+        DealsJsonStreamReader streamReader = new DealsJsonStreamReader(new ObjectMapper());
+        return store.createSchema()
+                .then(store.isEmpty())
+                .flatMap(empty -> empty
+                        ? store.replaceAll(streamReader.readRestaurants(this::openSampleData).subscribeOn(Schedulers.boundedElastic()))
+                        : Mono.empty());
+    }
+
+    private InputStream openSampleData() {
+        ClassLoader classLoader = RestaurauntDealsResponseDto.class.getClassLoader();
+        return classLoader.getResourceAsStream(SAMPLE_DATA_PATH);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (refreshInterval == null || refreshInterval.isZero() || refreshInterval.isNegative()) {
+            return;
+        }
+        // A tick that arrives while a reload is still running is dropped rather than queued
+        refreshes = Flux.interval(refreshInterval, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> reload()
+                        .onErrorResume(e -> {
+                            logger.warn("Keeping the current deals snapshot: {}", e.getMessage(), e.getCause());
+                            return Mono.empty();
+                        }), 0)
+                .subscribe();
+    }
+
+    @Override
+    public void destroy() {
+        if (refreshes != null) {
+            refreshes.dispose();
+        }
+    }
+}
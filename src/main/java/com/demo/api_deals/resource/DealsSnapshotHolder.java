@@ -0,0 +1,143 @@
+package com.demo.api_deals.resource;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.stereotype.Component;
+
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Holds the current deals snapshot for the DealsResource implementations.
+ * Data is validated once when it is published and then handed out to every request through the same cached Mono.
+ * Publishing a new snapshot is a single atomic swap, so readers are never blocked and in-flight requests keep the snapshot they started with.
+ */
+@Component
+public class DealsSnapshotHolder {
+
+    private final String bootId = Long.toUnsignedString(new SecureRandom().nextLong(), 36);
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final AtomicReference<Published> current = new AtomicReference<>();
+
+    /**
+     * Validates the given deals data and atomically publishes it as the current snapshot.
+     * @param data - the deals data to publish. Must not be null.
+     * @return the newly published snapshot
+     * @throws IllegalArgumentException if the data fails validation (the current snapshot is left in place)
+     */
+    public DealsSnapshot publish(RestaurauntDealsResponseDto data) {
+        validate(data);
+
+        DealsSnapshot snapshot = newSnapshot(data);
+        current.set(new Published(snapshot, Mono.just(data)));
+        return snapshot;
+    }
+
+    /**
+     * Validates the given deals data and publishes it as the current snapshot, but only if the current snapshot's data is still
+     * the expected data. Used to publish a patch of the current data without overwriting a snapshot published in the meantime.
+     * @param expected - the data the new data was derived from
+     * @param data - the deals data to publish. Must not be null.
+     * @return the newly published snapshot, or null if the current snapshot is no longer the expected data
+     * @throws IllegalArgumentException if the data fails validation (the current snapshot is left in place)
+     */
+    public DealsSnapshot publishIfCurrent(RestaurauntDealsResponseDto expected, RestaurauntDealsResponseDto data) {
+        validate(data);
+        return publishValidatedIfCurrent(expected, data);
+    }
+
+    /**
+     * Publishes a patch of the current data as publishIfCurrent does, but only validates the restaurants the patch changed,
+     * since every other restaurant was validated when the expected data was published.
+     * @param changed - the restaurants of the new data that aren't in the expected data
+     * @throws IllegalArgumentException if a changed restaurant fails validation (the current snapshot is left in place)
+     */
+    public DealsSnapshot publishIfCurrent(RestaurauntDealsResponseDto expected, RestaurauntDealsResponseDto data, Collection<RestaurantResponseDto> changed) {
+        if (data == null || data.getRestaurants() == null) {
+            throw new IllegalArgumentException("Deals data must have restaurants");
+        }
+        for (RestaurantResponseDto restaurant : changed) {
+            validate(restaurant);
+        }
+        return publishValidatedIfCurrent(expected, data);
+    }
+
+    private DealsSnapshot publishValidatedIfCurrent(RestaurauntDealsResponseDto expected, RestaurauntDealsResponseDto data) {
+        Published previous = current.get();
+        if (previous == null || previous.snapshot().getData() != expected) {
+            return null;
+        }
+        DealsSnapshot snapshot = newSnapshot(data);
+        return current.compareAndSet(previous, new Published(snapshot, Mono.just(data))) ? snapshot : null;
+    }
+
+    /**
+     * @return the current snapshot, or null if nothing has been published yet
+     */
+    public DealsSnapshot getCurrent() {
+        Published published = current.get();
+        return published != null ? published.snapshot() : null;
+    }
+
+    /**
+     * @return the shared Mono for the current snapshot's data, or an error if nothing has been published yet
+     */
+    public Mono<RestaurauntDealsResponseDto> getDeals() {
+        Published published = current.get();
+        if (published == null) {
+            return Mono.error(new IllegalStateException("No deals snapshot has been loaded"));
+        }
+        return published.deals();
+    }
+
+    private DealsSnapshot newSnapshot(RestaurauntDealsResponseDto data) {
+        return DealsSnapshot.builder()
+                .bootId(bootId)
+                .version(versionSequence.incrementAndGet())
+                .loadedAt(Instant.now())
+                .data(data)
+                .build();
+    }
+
+    /**
+     * Checks the structure of the data before it is published, normalising missing arrays to empty ones
+     * so consumers don't need to null check them on every request.
+     */
+    private void validate(RestaurauntDealsResponseDto data) {
+        if (data == null) {
+            throw new IllegalArgumentException("Deals data must not be null");
+        }
+        if (data.getRestaurants() == null) {
+            data.setRestaurants(new RestaurantResponseDto[0]);
+        }
+
+        for (RestaurantResponseDto restaurant : data.getRestaurants()) {
+            validate(restaurant);
+        }
+    }
+
+    private void validate(RestaurantResponseDto restaurant) {
+        if (restaurant == null || restaurant.getObjectId() == null) {
+            throw new IllegalArgumentException("Every restaurant must have an objectId");
+        }
+        if (restaurant.getDeals() == null) {
+            restaurant.setDeals(new DealResponseDto[0]);
+        }
+        for (DealResponseDto deal : restaurant.getDeals()) {
+            if (deal == null || deal.getObjectId() == null) {
+                throw new IllegalArgumentException("Every deal must have an objectId (restaurant: " + restaurant.getObjectId() + ")");
+            }
+        }
+    }
+
+    private record Published(DealsSnapshot snapshot, Mono<RestaurauntDealsResponseDto> deals) {
+    }
+}
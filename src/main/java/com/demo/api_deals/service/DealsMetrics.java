@@ -0,0 +1,143 @@
+package com.demo.api_deals.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.resource.DealsSnapshotHolder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hot-path metrics for the DealsService, exported through the actuator metrics and prometheus endpoints.
+ *
+ * - deals.service.requests{operation, result}: latency of each query, with a percentile histogram
+ * - deals.resource.get-all-deals{result}: latency of reading the current snapshot from the DealsResource, with a percentile histogram
+ * - deals.active.scanned / deals.active.returned: deals the time index offered as candidates, and those returned after the quantity and filter checks
+ * - deals.answer-table.hits: active deals queries answered from the precomputed answer table, which are also counted in deals.active.scanned / returned
+ * - deals.mapper.time-parse.failures: restaurant and deal times that failed to parse
+ * - deals.snapshot.age: time since the current snapshot was published
+ *
+ * Response cache hits are counted by the ResponseBytesCache itself (deals.response-cache.requests).
+ */
+@Component
+public class DealsMetrics {
+
+    /**
+     * The timed DealsService operations, with their operation tag.
+     */
+    public enum Operation {
+        ACTIVE("active"),
+        ACTIVE_FILTERED("active-filtered"),
+        PEAK("peak");
+
+        private final String tag;
+
+        Operation(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Map<Operation, Timer> successTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> errorTimers = new EnumMap<>(Operation.class);
+    private final Timer getAllDealsSuccessTimer;
+    private final Timer getAllDealsErrorTimer;
+    private final Counter scannedDeals;
+    private final Counter returnedDeals;
+    private final Counter answerTableHits;
+
+    public DealsMetrics(MeterRegistry meterRegistry, ResponseDtoToResponseMapper responseMapper, DealsSnapshotHolder snapshotHolder) {
+        for (Operation operation : Operation.values()) {
+            successTimers.put(operation, latencyTimer("deals.service.requests", "Time taken to answer a deals query")
+                    .tag("operation", operation.tag).tag("result", "success").register(meterRegistry));
+            errorTimers.put(operation, latencyTimer("deals.service.requests", "Time taken to answer a deals query")
+                    .tag("operation", operation.tag).tag("result", "error").register(meterRegistry));
+        }
+        this.getAllDealsSuccessTimer = latencyTimer("deals.resource.get-all-deals", "Time taken to get the current snapshot from the DealsResource")
+                .tag("result", "success").register(meterRegistry);
+        this.getAllDealsErrorTimer = latencyTimer("deals.resource.get-all-deals", "Time taken to get the current snapshot from the DealsResource")
+                .tag("result", "error").register(meterRegistry);
+
+        this.scannedDeals = Counter.builder("deals.active.scanned")
+                .description("Deals the time index returned as candidates for active deals queries, before the quantity and filter checks")
+                .register(meterRegistry);
+        this.returnedDeals = Counter.builder("deals.active.returned")
+                .description("Deals returned by active deals queries")
+                .register(meterRegistry);
+        this.answerTableHits = Counter.builder("deals.answer-table.hits")
+                .description("Active deals queries answered from the precomputed answer table")
+                .register(meterRegistry);
+
+        FunctionCounter.builder("deals.mapper.time-parse.failures", responseMapper, ResponseDtoToResponseMapper::getTimeParseFailureCount)
+                .description("Restaurant and deal times that failed to parse and were treated as unknown")
+                .register(meterRegistry);
+        Gauge.builder("deals.snapshot.age", snapshotHolder, DealsMetrics::snapshotAgeSeconds)
+                .description("Time since the current deals snapshot was published")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the latency of the given query, from subscription until it completes or fails.
+     * @param operation - the operation to record the query as
+     * @param query - the query. Nothing is recorded if it is cancelled.
+     */
+    public <T> Mono<T> time(Operation operation, Mono<T> query) {
+        return timed(successTimers.get(operation), errorTimers.get(operation), query);
+    }
+
+    /**
+     * Records the latency of getting the current snapshot from a DealsResource.
+     */
+    public <T> Mono<T> timeGetAllDeals(Mono<T> getAllDeals) {
+        return timed(getAllDealsSuccessTimer, getAllDealsErrorTimer, getAllDeals);
+    }
+
+    /**
+     * Counts the deals an active deals query scanned and returned.
+     * @param scanned - the candidates the time index returned
+     * @param returned - the deals in the response
+     */
+    public void recordActiveDeals(int scanned, int returned) {
+        scannedDeals.increment(scanned);
+        returnedDeals.increment(returned);
+    }
+
+    public void recordAnswerTableHit() {
+        answerTableHits.increment();
+    }
+
+    private static <T> Mono<T> timed(Timer success, Timer error, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return mono
+                    .doOnSuccess(value -> success.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS))
+                    .doOnError(e -> error.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private static Timer.Builder latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram();
+    }
+
+    private static double snapshotAgeSeconds(DealsSnapshotHolder snapshotHolder) {
+        DealsSnapshot snapshot = snapshotHolder.getCurrent();
+        if (snapshot == null) {
+            return Double.NaN;
+        }
+        return Duration.between(snapshot.getLoadedAt(), Instant.now()).toMillis() / 1000.0;
+    }
+}
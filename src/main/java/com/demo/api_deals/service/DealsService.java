@@ -1,14 +1,38 @@
 package com.demo.api_deals.service;
 
 import java.time.LocalTime;
+import java.util.List;
 
+import com.demo.api_deals.model.BatchActiveDealsResponse;
+import com.demo.api_deals.model.DealClaimResponse;
+import com.demo.api_deals.model.DealFilter;
+import com.demo.api_deals.model.DealsDelta;
+import com.demo.api_deals.model.DealsDeltaResponse;
+import com.demo.api_deals.model.NearbyDealsResponse;
+import com.demo.api_deals.model.PeakHistogramResponse;
 import com.demo.contract_api_deals.models.ActiveDealsResponse;
+import com.demo.contract_api_deals.models.Deal;
 import com.demo.contract_api_deals.models.PeakDealsResponse;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface DealsService {
     Mono<ActiveDealsResponse> getActiveDeals(LocalTime timeOfDay);
 
+    Mono<ActiveDealsResponse> getActiveDeals(LocalTime timeOfDay, DealFilter filter);
+
+    Mono<NearbyDealsResponse> getNearbyDeals(LocalTime timeOfDay, double latitude, double longitude, Double radiusMeters, Integer limit);
+
     Mono<PeakDealsResponse> getPeakDeals();
+
+    Mono<PeakHistogramResponse> getPeakHistogram(int windowMinutes, int top);
+
+    Flux<Deal> streamActiveDeals(LocalTime timeOfDay);
+
+    Mono<BatchActiveDealsResponse> getActiveDealsBatch(List<LocalTime> timesOfDay);
+
+    Mono<DealClaimResponse> claimDeal(String dealObjectId, int quantity);
+
+    Mono<DealsDeltaResponse> applyDeltas(List<DealsDelta> deltas);
 }
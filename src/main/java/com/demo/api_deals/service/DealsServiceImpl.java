@@ -4,21 +4,34 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import com.demo.api_deals.catalog.ActiveDealsAnswerTable;
+import com.demo.api_deals.catalog.DealInventory;
+import com.demo.api_deals.catalog.DealsCatalog;
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.catalog.PeakAnalysis;
+import com.demo.api_deals.catalog.PeakSweep;
 import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
-import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.BatchActiveDealsResponse;
+import com.demo.api_deals.model.DealClaimResponse;
+import com.demo.api_deals.model.DealFilter;
+import com.demo.api_deals.model.DealsDelta;
+import com.demo.api_deals.model.DealsDeltaResponse;
 import com.demo.api_deals.model.DealsError;
-import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.NearbyDealsResponse;
+import com.demo.api_deals.model.PeakHistogramResponse;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
 import com.demo.api_deals.model.TimeEvent;
+import com.demo.api_deals.resource.DealsDeltaIngestor;
 import com.demo.api_deals.resource.DealsResource;
 import com.demo.contract_api_deals.models.ActiveDealsResponse;
 import com.demo.contract_api_deals.models.Deal;
 import com.demo.contract_api_deals.models.PeakDealsResponse;
 
 import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Service
@@ -26,128 +39,284 @@ import reactor.core.publisher.Mono;
 public class DealsServiceImpl implements DealsService {
 
     private final ResponseDtoToResponseMapper responseMapper;
-
-    @Autowired
-    private DealsResource dealsResource;
+    private final DealsCatalogRegistry catalogRegistry;
+    private final DealsResource dealsResource;
+    private final DealsDeltaIngestor deltaIngestor;
+    private final DealsMetrics dealsMetrics;
 
     /**
      * This method retrieves all deals from the DealsResource, filters them based on the provided timeOfDay, and returns a list of active deals in an ActiveDealsResponse object.
+     * The deals are filtered through the compiled catalog for the current snapshot, so each request is an index lookup rather than a scan over every deal.
+     * The remaining checks (e.g. quantity left) run over the catalog's primitive columns rather than the upstream Strings.
      * @param timeOfDay - The time to check the deals against, as a LocalTime object
      * @return A Mono containing an ActiveDealsResponse object with the list of active deals at the given timeOfDay (or empty if nothing returned)
      */
     @Override
     public Mono<ActiveDealsResponse> getActiveDeals(LocalTime timeOfDay) {
 
-        return dealsResource.getAllDeals()
-                .map(dealsData -> {
-                    List<Deal> activeDealsList = new ArrayList<>(); // Initialize mutable list
+        return dealsMetrics.time(DealsMetrics.Operation.ACTIVE, getAllDeals()
+                .map(catalogRegistry::resolve)
+                // A deal is active if the restaurant is open, the deal is valid at the given timeOfDay (or has null for start/end times in which case it's assumed active), and there are deals left
+                .flatMap(catalog -> {
+                    int minuteOfDay = DealsCatalog.minuteOfDay(timeOfDay);
+
+                    // If the answer table mode is enabled the deals have already been materialised, and only the segment's quantities are checked.
+                    // The table is read once, so the check and the use can't see two different tables
+                    ActiveDealsAnswerTable answerTable = catalog.getAnswerTable();
+                    if (answerTable != null) {
+                        List<Deal> deals = catalog.answerActiveDeals(answerTable, minuteOfDay);
+                        dealsMetrics.recordAnswerTableHit();
+                        dealsMetrics.recordActiveDeals(catalog.countActiveCandidates(minuteOfDay), deals.size());
+                        return Mono.just(ActiveDealsResponse.builder().deals(deals).build());
+                    }
+                    // Large queries fan out across the catalog's shards and are merged back into source order
+                    return catalog.findActiveDeals(minuteOfDay)
+                            .doOnNext(deals -> dealsMetrics.recordActiveDeals(catalog.countActiveCandidates(minuteOfDay), deals.size()))
+                            .map(deals -> ActiveDealsResponse.builder().deals(deals).build());
+                })
+                .doOnError(this::handleError));
+    }
 
-                    // 0. For each restaurant,
-                    for (RestaurantResponseDto restaurant : dealsData.getRestaurants()) {
 
-                        // Parse times into LocalTime for easier comparison
-                        LocalTime restaurantStart = responseMapper.parseRestaurantDtoTime(restaurant.getOpen());
-                        LocalTime restaurantEnd = responseMapper.parseRestaurantDtoTime(restaurant.getClose());
+    /**
+     * Filtered version of getActiveDeals: returns the active deals that also match the given suburb, cuisine, dineIn, lightning and minimum discount filters.
+     * The filters are answered from the catalog's secondary indexes (restaurant bitmaps per suburb and cuisine, and bitsets for dineIn and lightning),
+     * intersected with the time index, so the cost follows the number of candidates rather than the number of deals.
+     * @param timeOfDay - The time to check the deals against, as a LocalTime object
+     * @param filter - The filters to apply. If null or empty, this is the same as getActiveDeals(timeOfDay)
+     * @return A Mono containing an ActiveDealsResponse object with the matching active deals, in the same order as getActiveDeals
+     */
+    @Override
+    public Mono<ActiveDealsResponse> getActiveDeals(LocalTime timeOfDay, DealFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return getActiveDeals(timeOfDay);
+        }
 
-                        // 1. Check if the restaurant is open at the given timeOfDay
-                        if (isDealValidAtTime(restaurantStart, restaurantEnd, timeOfDay, true)) {
+        return dealsMetrics.time(DealsMetrics.Operation.ACTIVE_FILTERED, getAllDeals()
+                .map(catalogRegistry::resolve)
+                .map(catalog -> {
+                    int minuteOfDay = DealsCatalog.minuteOfDay(timeOfDay);
+                    List<Deal> deals = catalog.getActiveDeals(minuteOfDay, filter);
+                    dealsMetrics.recordActiveDeals(catalog.countActiveCandidates(minuteOfDay), deals.size());
+                    return ActiveDealsResponse.builder().deals(deals).build();
+                })
+                .doOnError(this::handleError));
+    }
 
-                            // 2. If open, check if each deal is active at the given timeOfDay (or has null for start/end times in which case it's assumed active)
-                                for (DealResponseDto deal : restaurant.getDeals()) {
-                                    LocalTime dealStart = responseMapper.parseRestaurantDtoTime(deal.getStart());
-                                    LocalTime dealEnd = responseMapper.parseRestaurantDtoTime(deal.getEnd());
 
-                                    // Check if deal is active, and whether there are any deals left
-                                    if (isDealValidAtTime(dealStart, dealEnd, timeOfDay, true) 
-                                        && (deal.getQtyLeft() != null && Integer.valueOf(deal.getQtyLeft()) > 0)) { 
+    /**
+     * Location version of getActiveDeals: returns the active deals within a radius of the given point, or the nearest ones, ordered by distance.
+     * Candidates come from the catalog's grid index over the restaurants' coordinates, so only restaurants in the cells around the point are
+     * measured, and each candidate's deals are then checked for validity at the timeOfDay exactly as getActiveDeals does.
+     * @param timeOfDay - The time to check the deals against, as a LocalTime object
+     * @param latitude - The latitude of the point to search from, in decimal degrees
+     * @param longitude - The longitude of the point to search from, in decimal degrees
+     * @param radiusMeters - The maximum distance of a deal's restaurant from the point. If null, the distance isn't limited
+     * @param limit - The maximum number of deals to return (the k nearest). If null, every deal within the radius is returned
+     * @return A Mono containing a NearbyDealsResponse object with the matching active deals and their distances, nearest first
+     */
+    @Override
+    public Mono<NearbyDealsResponse> getNearbyDeals(LocalTime timeOfDay, double latitude, double longitude, Double radiusMeters, Integer limit) {
+
+        return getAllDeals()
+                .map(catalogRegistry::resolve)
+                .map(catalog -> NearbyDealsResponse.builder()
+                        .deals(catalog.getNearbyDeals(DealsCatalog.minuteOfDay(timeOfDay), latitude, longitude,
+                                        radiusMeters != null ? radiusMeters : Double.POSITIVE_INFINITY,
+                                        limit != null ? limit : Integer.MAX_VALUE)
+                                .stream()
+                                .map(nearbyDeal -> NearbyDealsResponse.NearbyDeal.builder()
+                                        .deal(nearbyDeal.deal())
+                                        .distanceMeters(Math.round(nearbyDeal.distanceMeters()))
+                                        .build())
+                                .toList())
+                        .build())
+                .doOnError(this::handleError);
+    }
 
-                                        // 3. If the deal is active, create a Deal object combining restaurant and deal information
-                                        Deal activeDeal = responseMapper.mapActiveDealResponse(restaurant, deal);
+    /**
+     * Streaming version of getActiveDeals: emits each active deal as it is read from the catalog rather than collecting them into a single response,
+     * so nothing is buffered ahead of what the subscriber has requested.
+     * @param timeOfDay - The time to check the deals against, as a LocalTime object
+     * @return A Flux of the deals active at the given timeOfDay, in the same order as getActiveDeals
+     */
+    @Override
+    public Flux<Deal> streamActiveDeals(LocalTime timeOfDay) {
 
-                                        // 4. Add the active deal to the list of active deals to return in the response
-                                        activeDealsList.add(activeDeal);
-                                    }
-                                    // Else: don't include the deal since it's not active at the given timeOfDay
-                                }
+        return getAllDeals()
+                .map(catalogRegistry::resolve)
+                .flatMapMany(catalog -> catalog.streamActiveDeals(DealsCatalog.minuteOfDay(timeOfDay)))
+                .doOnError(this::handleError);
+    }
+
+    /**
+     * Batch version of getActiveDeals: finds the active deals for every given timeOfDay in a single sweep over the catalog's time segments.
+     * Each deal is returned once, and each slot refers to its deals by their index in the response's deals list, so the payload doesn't repeat deals across slots.
+     * @param timesOfDay - The times to check the deals against, in the order the slots should be returned
+     * @return A Mono containing a BatchActiveDealsResponse with the deduplicated deals and one slot per timeOfDay
+     */
+    @Override
+    public Mono<BatchActiveDealsResponse> getActiveDealsBatch(List<LocalTime> timesOfDay) {
+
+        return getAllDeals()
+                .map(catalogRegistry::resolve)
+                .map(catalog -> {
+                    int[] minutesOfDay = new int[timesOfDay.size()];
+                    for (int i = 0; i < minutesOfDay.length; i++) {
+                        minutesOfDay[i] = DealsCatalog.minuteOfDay(timesOfDay.get(i));
+                    }
+                    DealsCatalog.ActiveDealsBatch batch = catalog.getActiveDealsBatch(minutesOfDay);
+
+                    List<BatchActiveDealsResponse.ActiveDealsSlot> slots = new ArrayList<>(minutesOfDay.length);
+                    for (int i = 0; i < minutesOfDay.length; i++) {
+                        List<Integer> dealIndexes = new ArrayList<>(batch.dealIndexes()[i].length);
+                        for (int dealIndex : batch.dealIndexes()[i]) {
+                            dealIndexes.add(dealIndex);
                         }
-                        // Else: don't include the restaurant's deals since it's closed at the given timeOfDay
+                        slots.add(BatchActiveDealsResponse.ActiveDealsSlot.builder()
+                                .timeOfDay(responseMapper.formatLocalTimeForUpstream(timesOfDay.get(i)))
+                                .dealIndexes(dealIndexes)
+                                .build());
                     }
-                    return activeDealsList;
+                    return BatchActiveDealsResponse.builder()
+                            .deals(batch.deals())
+                            .slots(slots)
+                            .build();
                 })
-                .map(activeDealsResponse -> ActiveDealsResponse.builder().deals(activeDealsResponse).build())
                 .doOnError(this::handleError);
     }
 
     /**
-     * Helper method to determine if a deal is valid at the given timeOfDay based on its start and end times. 
-     * If start or end time is null, assume the deal is always valid (open).
-     * @param startTime - The start time of the deal/restaurant hours as a LocalTime object (can be null)
-     * @param endTime   - The end time of the deal/restaurant hours as a LocalTime object (can be null)
-     * @param timeOfDay - The time to check the deal/restaurant hours against, as a LocalTime object
-     * @param assumeValidIfNull - A boolean flag indicating whether to assume the deal is valid if either startTime or endTime is null (true means assume valid, false means assume invalid)
-     * @return
+     * Claims the given quantity of a deal against the live inventory for the current snapshot.
+     * Claims are lock-free compare-and-set decrements, so concurrent claims on the same deal never oversell it and claims on different deals never contend.
+     * Active deal queries read the same inventory, so a deal drops out of them as soon as it is sold out.
+     * @param dealObjectId - the deal to claim
+     * @param quantity - the quantity to claim (at least 1)
+     * @return A Mono containing the claim result, or a DealsError if the deal doesn't exist (404) or doesn't have enough left (409)
      */
-    private boolean isDealValidAtTime(LocalTime startTime, LocalTime endTime, LocalTime timeOfDay, boolean assumeValidIfNull) {
-        if (startTime == null || endTime == null) {
-            return assumeValidIfNull;
-        }
-
-        return (timeOfDay.equals(startTime) || timeOfDay.isAfter(startTime))
-         && timeOfDay.isBefore(endTime);
+    @Override
+    public Mono<DealClaimResponse> claimDeal(String dealObjectId, int quantity) {
+
+        return getAllDeals()
+                .map(catalogRegistry::resolve)
+                .map(catalog -> {
+                    DealInventory.ClaimResult result = catalog.getInventory().claim(dealObjectId, quantity);
+                    switch (result.status()) {
+                        case UNKNOWN_DEAL:
+                            throw DealsError.builder()
+                                .message("Deal not found: " + dealObjectId)
+                                .errorCode("NOT_FOUND")
+                                .httpStatus(HttpStatus.NOT_FOUND)
+                                .build();
+                        case INSUFFICIENT_QUANTITY:
+                            throw DealsError.builder()
+                                .message("Not enough left to claim " + quantity + " of deal " + dealObjectId + " (qtyLeft: " + result.qtyLeft() + ")")
+                                .errorCode("CONFLICT")
+                                .httpStatus(HttpStatus.CONFLICT)
+                                .build();
+                        default:
+                            return DealClaimResponse.builder()
+                                .dealObjectId(dealObjectId)
+                                .quantityClaimed(quantity)
+                                .qtyLeft(result.qtyLeft())
+                                .build();
+                    }
+                })
+                .doOnError(this::handleError);
     }
 
+    /**
+     * Applies a batch of deltas from the upstream (restaurant and deal upserts and deletes, and quantity changes) to the current snapshot.
+     * Quantity changes are set on the live inventory in place; restaurant and deal changes are applied as one copy-on-write patch of the
+     * catalog, together with any other batches received in the meantime, rather than rebuilding it from the full document.
+     * @param deltas - The deltas to apply, in order
+     * @return A Mono containing a DealsDeltaResponse once the deltas are visible to requests, or a 400 DealsError if a delta is invalid
+     */
+    @Override
+    public Mono<DealsDeltaResponse> applyDeltas(List<DealsDelta> deltas) {
+
+        return deltaIngestor.apply(deltas)
+                .onErrorMap(IllegalArgumentException.class, e -> DealsError.builder()
+                    .message(e.getMessage())
+                    .errorCode("BAD_REQUEST")
+                    .httpStatus(HttpStatus.BAD_REQUEST)
+                    .build())
+                .doOnError(this::handleError);
+    }
 
     /**
      * Retrieves the peak period during which the most deals are available.
+     * The peak window only changes when the deals data changes, so it is computed once per snapshot by the compiled catalog
+     * (using the same rules as findPeakDealsWindow) and memoised.
      * Assumes that the peak period is defined as a continuous 60-minute window where the highest number of deals are active.
      * 
      */
     @Override
     public Mono<PeakDealsResponse> getPeakDeals() {
 
-        return dealsResource.getAllDeals()
-                .map(dealsData -> {
-                    if (dealsData == null || dealsData.getRestaurants() == null) {
-                        return responseMapper.mapPeakDealsResponse(null, null);
-                    }
-
-                    // Create events for all deal start and end times
-                    List<TimeEvent> events = new ArrayList<>();
-
-                    // 1. Iterate through the deals data to create a list of the start/end time of every deal.
-                    // Assume if an individual deal doesn't have a start/end that the restaurant's open/close should be used.
-                    for (RestaurantResponseDto restaurant : dealsData.getRestaurants()) {
-                        LocalTime restaurantStart = responseMapper.parseRestaurantDtoTime(restaurant.getOpen());
-                        LocalTime restaurantEnd = responseMapper.parseRestaurantDtoTime(restaurant.getClose());
-
-                        if (restaurant.getDeals() == null) {
-                            continue; // No deals for this restaurant, skip to the next one
-                        }
-
-                        for (DealResponseDto deal : restaurant.getDeals()) {
-                            LocalTime dealStart = responseMapper.parseRestaurantDtoTime(deal.getStart());
-                            LocalTime dealEnd = responseMapper.parseRestaurantDtoTime(deal.getEnd());
-
-                            // Use deal times if provided, otherwise fall back to restaurant hours
-                            LocalTime activeStart = (dealStart != null) ? dealStart : restaurantStart;
-                            LocalTime activeEnd = (dealEnd != null) ? dealEnd : restaurantEnd;
-
-                            // Store the active start and end times for this deal in a list for processing in the peak window algoirthm
-                            events.add(new TimeEvent(activeStart, TimeEvent.EventType.START));
-                            events.add(new TimeEvent(activeEnd, TimeEvent.EventType.END));
-                        }
-                    };
+        return dealsMetrics.time(DealsMetrics.Operation.PEAK, getAllDeals()
+                .map(catalogRegistry::resolve)
+                .map(DealsCatalog::getPeakDeals)
+                .doOnError(this::handleError));
+    }
 
-                    // 2. Determine the peak deal window
-                    PeakDealsResponse peakDeals = findPeakDealsWindow(events);
+    /**
+     * Retrieves the per-minute active deal counts and the busiest windows of the given length.
+     * Uses the same counts as getPeakDeals (deal times, falling back to restaurant hours). Windows are ranked by their total deal-minutes,
+     * don't overlap, and windows tying with the last one returned are included. Both the histogram and the windows are cached per snapshot.
+     * @param windowMinutes - the length of each window, in minutes (1-1440)
+     * @param top - the number of windows to return, not counting ties
+     * @return A Mono containing the histogram and the ranked windows
+     */
+    @Override
+    public Mono<PeakHistogramResponse> getPeakHistogram(int windowMinutes, int top) {
+
+        return getAllDeals()
+                .map(catalogRegistry::resolve)
+                .map(catalog -> {
+                    int[] histogram = catalog.getPeakHistogram();
+                    List<Integer> activeDealsPerMinute = new ArrayList<>(histogram.length);
+                    for (int count : histogram) {
+                        activeDealsPerMinute.add(count);
+                    }
 
-                    return peakDeals;
+                    List<PeakHistogramResponse.PeakWindow> windows = new ArrayList<>();
+                    for (PeakAnalysis.PeakWindow window : catalog.getTopPeakWindows(windowMinutes, top)) {
+                        windows.add(PeakHistogramResponse.PeakWindow.builder()
+                                .rank(window.rank())
+                                .start(formatMinuteOfDay(window.startMinute()))
+                                .end(formatMinuteOfDay(window.endMinute()))
+                                .dealMinutes(window.dealMinutes())
+                                .maxActiveDeals(window.maxActiveDeals())
+                                .build());
+                    }
+                    return PeakHistogramResponse.builder()
+                            .windowMinutes(windowMinutes)
+                            .activeDealsPerMinute(activeDealsPerMinute)
+                            .windows(windows)
+                            .build();
                 })
                 .doOnError(this::handleError);
     }
 
+    /**
+     * Helper method to get the current snapshot from the DealsResource, recording how long it takes.
+     */
+    private Mono<RestaurauntDealsResponseDto> getAllDeals() {
+        return dealsMetrics.timeGetAllDeals(Mono.defer(dealsResource::getAllDeals));
+    }
+
+    /**
+     * Helper method to format a minute of the day as "HH:mm", with 1440 (the end of the day) as "24:00".
+     */
+    private static String formatMinuteOfDay(int minuteOfDay) {
+        return String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+    }
+
     /**
      * Helper method to find the peak deals window using a sweep line algorithm.
+     * The events are encoded as primitive ints and delegated to the allocation-free sweep in PeakSweep.
+     * Times are handled at minute resolution, and events without a time are ignored.
      * @param dealTimes - a list of TimeEvent objects representing the active start and end times for each deal
      * @return  A PeakDealsResponse object containing the start and end time of the peak window with the most active deals
      */
@@ -156,73 +325,34 @@ public class DealsServiceImpl implements DealsService {
             return responseMapper.mapPeakDealsResponse(null, null);
         }
 
-            /*
-            Visual Explanation of Sweep Line Algorithm for findPeakDealsWindow:
-
-            Imagine the following example set of deals with their active times (times are in 24-hour format for clarity):
-            Masala Kitchen Deal 1: 3pm ██████ 9pm (50% off)
-            Masala Kitchen Deal 2: 3pm ██████ 9pm (40% off, no specific times → uses restaurant hours)
-            ABC Chicken Deal 1:   12pm ███████████ 11pm
-            ABC Chicken Deal 2:   12pm ███████████ 11pm
-            Vrindavan Deal 1:      3pm ██████ 9pm
-            Kekou Deal 1:          2pm ███████ 9pm
-            Kekou Deal 2:          5pm ████ 9pm
-            Gyoza Deal 1:          4pm █████ 10pm (no start → uses restaurant)
-            Gyoza Deal 2:          4pm █████ 10pm (no end → uses restaurant)
-            OzzyThai Deal 1:       8am ███████ 3pm
-            OzzyThai Deal 2:       8am ███████ 3pm
-
-            Timeline:
-            8am   9am  10am  11am  12pm  1pm  2pm  3pm  4pm  5pm  6pm  7pm  8pm  9pm  10pm  11pm
-            2     2    2     2     4     4    5    7    9    10   10   10   10   8    6     4
-                                                        ↑─────PEAK = 10 deals─────↑
-            
-            */
-
-
-        // Sort events by time, 
-        // If equal, sort START events before END events
-        events.sort((e1, e2) -> {
-            int timeComparison = e1.getTime().compareTo(e2.getTime());
-            if (timeComparison != 0) return timeComparison;
-            return e1.getEventType() == TimeEvent.EventType.START ? -1 : 1; // START events come before END events if times are equal
-        });
-
-
-        // Initialise sweep line variables to track the number of active deals and the peak window
-        int maxActiveDeals = 0;
-        int currentActiveDeals = 0;
-        LocalTime peakWindowStart = events.get(0).getTime(); // Initialize to the time of the first event
-        LocalTime peakWindowEnd = null; // Initialize to the time of the first event
-
-
-        // Sweep through the events, counting active deals and updating the peak window when we find a new maximum
+        int[] encodedEvents = new int[events.size()];
+        int count = 0;
         for (TimeEvent event : events) {
-            if (event.getEventType() == TimeEvent.EventType.START) {
-                currentActiveDeals++;
-                // Check if this is the new peak
-                if (currentActiveDeals > maxActiveDeals) {
-                    maxActiveDeals = currentActiveDeals;
-                    peakWindowStart = event.getTime();
-                    peakWindowEnd = null; // Reset end time until we find the end of this peak window
-                }
-            } else {
-                // END event
-                // If we're currently at peak and this is the first END, this is when peak ends
-                if (currentActiveDeals == maxActiveDeals && peakWindowEnd == null) {
-                    peakWindowEnd = event.getTime();
-                }
-                currentActiveDeals--;
+            if (event.getTime() != null) {
+                encodedEvents[count++] = PeakSweep.encode(DealsCatalog.minuteOfDay(event.getTime()),
+                        event.getEventType() == TimeEvent.EventType.START ? PeakSweep.START : PeakSweep.END);
             }
         }
 
-        // Handle edge case: peak continues until the last deal ends
-        if (peakWindowEnd == null) {
-            peakWindowEnd = events.get(events.size() - 1).getTime();
+        return findPeakDealsWindow(encodedEvents, count);
+    }
+
+    /**
+     * Primitive version of findPeakDealsWindow, with each event encoded as a single int (see PeakSweep.encode).
+     * The events are sorted with a counting sort and swept without any per-event allocation.
+     * @param encodedEvents - the encoded events. The first count entries are sorted in place.
+     * @param count - the number of events to use from the array
+     * @return  A PeakDealsResponse object containing the start and end time of the peak window with the most active deals
+     */
+    public PeakDealsResponse findPeakDealsWindow(int[] encodedEvents, int count) {
+        long peak = PeakSweep.findPeak(encodedEvents, count);
+        if (peak == PeakSweep.NO_PEAK) {
+            return responseMapper.mapPeakDealsResponse(null, null);
         }
-    
 
-        return responseMapper.mapPeakDealsResponse(peakWindowStart, peakWindowEnd);
+        return responseMapper.mapPeakDealsResponse(
+                LocalTime.of(PeakSweep.peakStart(peak) / 60, PeakSweep.peakStart(peak) % 60),
+                LocalTime.of(PeakSweep.peakEnd(peak) / 60, PeakSweep.peakEnd(peak) % 60));
     }
 
 
@@ -0,0 +1,138 @@
+package com.demo.api_deals.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.resource.DealsSnapshotHolder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+public class ResponseBytesCacheFilterTest {
+
+    private static final String ETAG = "\"1-0-active-1500\"";
+    private static final String BODY = "{\"deals\":[]}";
+
+    private final ResponseBytesCache responseCache = new ResponseBytesCache(new DealsProperties(), new SimpleMeterRegistry());
+    private final ResponseBytesCacheFilter filter = newFilter(responseCache);
+
+    @Test
+    void testFilter_onMissWithOkResponse_expectBodyAndHeadersCached() {
+        // Arrange
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/active").queryParam("timeOfDay", "15:00"));
+
+        // Act
+        filter.filter(exchange, writeResponse(HttpStatus.OK)).block();
+
+        // Assert
+        ResponseBytesCache.Entry cached = responseCache.get(activeKey());
+        assertNotNull(cached);
+        assertEquals(BODY, new String(cached.body(), StandardCharsets.UTF_8));
+        assertEquals(ETAG, cached.headers().getETag());
+        assertEquals("max-age=30", cached.headers().getCacheControl());
+        assertEquals(MediaType.APPLICATION_JSON, cached.headers().getContentType());
+    }
+
+    @Test
+    void testFilter_onResponseWithoutExplicitStatus_expectNotCached() {
+        // Arrange
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/active").queryParam("timeOfDay", "15:00"));
+
+        // Act
+        filter.filter(exchange, writeResponse(null)).block();
+
+        // Assert
+        assertNull(responseCache.get(activeKey()), "Expected a response without an explicit 2xx status not to be cached");
+    }
+
+    @Test
+    void testFilter_onHit_expectCachedHeadersAndAge() {
+        // Arrange
+        responseCache.put(activeKey(), cachedEntry(System.currentTimeMillis() - 5_000));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/active").queryParam("timeOfDay", "15:00"));
+
+        // Act
+        filter.filter(exchange, unreachableChain()).block();
+
+        // Assert
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals(BODY, exchange.getResponse().getBodyAsString().block());
+        assertEquals(ETAG, exchange.getResponse().getHeaders().getETag());
+        assertEquals(MediaType.APPLICATION_JSON, exchange.getResponse().getHeaders().getContentType());
+        assertEquals("max-age=30", exchange.getResponse().getHeaders().getCacheControl());
+        assertEquals("5", exchange.getResponse().getHeaders().getFirst(HttpHeaders.AGE));
+    }
+
+    @Test
+    void testFilter_onHitWithMatchingIfNoneMatch_expectNotModified() {
+        // Arrange
+        responseCache.put(activeKey(), cachedEntry(System.currentTimeMillis()));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/active")
+                .queryParam("timeOfDay", "15:00")
+                .ifNoneMatch(ETAG));
+
+        // Act
+        filter.filter(exchange, unreachableChain()).block();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, exchange.getResponse().getStatusCode());
+        assertEquals(ETAG, exchange.getResponse().getHeaders().getETag());
+        assertEquals("max-age=30", exchange.getResponse().getHeaders().getCacheControl());
+        assertEquals("", exchange.getResponse().getBodyAsString().defaultIfEmpty("").block());
+    }
+
+    private static ResponseBytesCache.Key activeKey() {
+        return new ResponseBytesCache.Key(1, 0, "active", 15 * 60);
+    }
+
+    private static ResponseBytesCache.Entry cachedEntry(long storedAtMillis) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setETag(ETAG);
+        headers.setCacheControl("max-age=30");
+        return new ResponseBytesCache.Entry(BODY.getBytes(StandardCharsets.UTF_8), headers, storedAtMillis);
+    }
+
+    /**
+     * @return a chain that writes the JSON body with the given status, as the controller would
+     */
+    private static WebFilterChain writeResponse(HttpStatus status) {
+        return exchange -> {
+            ServerHttpResponse response = exchange.getResponse();
+            if (status != null) {
+                response.setStatusCode(status);
+            }
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setETag(ETAG);
+            response.getHeaders().setCacheControl("max-age=30");
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+
+    private static WebFilterChain unreachableChain() {
+        return exchange -> Mono.error(new IllegalStateException("Expected the response to be served from the cache"));
+    }
+
+    private static ResponseBytesCacheFilter newFilter(ResponseBytesCache responseCache) {
+        DealsSnapshotHolder snapshotHolder = Mockito.mock(DealsSnapshotHolder.class);
+        Mockito.when(snapshotHolder.getCurrent()).thenReturn(DealsSnapshot.builder().version(1).loadedAt(Instant.now()).build());
+        return new ResponseBytesCacheFilter(responseCache, snapshotHolder, Mockito.mock(DealsCatalogRegistry.class));
+    }
+}
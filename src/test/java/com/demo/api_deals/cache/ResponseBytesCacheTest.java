@@ -0,0 +1,84 @@
+package com.demo.api_deals.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import com.demo.api_deals.configuration.DealsProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ResponseBytesCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testGet_onFullCache_expectLeastRecentlyUsedEvicted() {
+        // Arrange
+        ResponseBytesCache cache = cacheWithMaxEntries(2);
+        ResponseBytesCache.Key first = new ResponseBytesCache.Key(1, 0, "active", 600);
+        ResponseBytesCache.Key second = new ResponseBytesCache.Key(1, 0, "active", 601);
+        ResponseBytesCache.Key third = new ResponseBytesCache.Key(1, 0, "peak", -1);
+        cache.put(first, json("first"));
+        cache.put(second, json("second"));
+
+        // Act
+        cache.get(first);
+        cache.put(third, json("third"));
+
+        // Assert
+        assertArrayEquals(json("first").body(), cache.get(first).body(), "Expected the recently used entry to be kept");
+        assertNull(cache.get(second), "Expected the least recently used entry to be evicted");
+        assertEquals(1.0, meterRegistry.get("deals.response-cache.evictions").counter().count());
+        assertEquals(2.0, meterRegistry.get("deals.response-cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("deals.response-cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testGet_onNewSnapshotVersion_expectCacheInvalidated() {
+        // Arrange
+        ResponseBytesCache cache = cacheWithMaxEntries(10);
+        cache.put(new ResponseBytesCache.Key(1, 0, "active", 600), json("old"));
+
+        // Act
+        ResponseBytesCache.Entry result = cache.get(new ResponseBytesCache.Key(2, 0, "active", 600));
+        cache.put(new ResponseBytesCache.Key(1, 0, "active", 600), json("late"));
+
+        // Assert
+        assertNull(result);
+        assertEquals(0, cache.size(), "Expected old entries to be dropped and late stores for the old snapshot ignored");
+        assertEquals(1.0, meterRegistry.get("deals.response-cache.invalidations").counter().count());
+    }
+
+    @Test
+    void testGet_onNewVersionForOneEndpoint_expectOtherEndpointsKept() {
+        // Arrange
+        ResponseBytesCache cache = cacheWithMaxEntries(10);
+        cache.put(new ResponseBytesCache.Key(1, 0, "active", 600), json("active"));
+        cache.put(new ResponseBytesCache.Key(7, 0, "peak", -1), json("peak"));
+
+        // Act
+        ResponseBytesCache.Entry active = cache.get(new ResponseBytesCache.Key(2, 0, "active", 600));
+        ResponseBytesCache.Entry peak = cache.get(new ResponseBytesCache.Key(7, 0, "peak", -1));
+
+        // Assert
+        assertNull(active);
+        assertArrayEquals(json("peak").body(), peak.body(), "Expected the peak entry to survive a new snapshot version for the active endpoint");
+        assertEquals(1, cache.size());
+    }
+
+    private ResponseBytesCache cacheWithMaxEntries(int maxEntries) {
+        DealsProperties dealsProperties = new DealsProperties();
+        dealsProperties.getResponseCache().setMaxEntries(maxEntries);
+        return new ResponseBytesCache(dealsProperties, meterRegistry);
+    }
+
+    private static ResponseBytesCache.Entry json(String value) {
+        return new ResponseBytesCache.Entry(("\"" + value + "\"").getBytes(StandardCharsets.UTF_8), new HttpHeaders(), 0);
+    }
+}
@@ -0,0 +1,162 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+public class ActiveDealsAnswerTableTest {
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    @Test
+    void testAnswerActiveDeals_onEveryMinute_expectSameDealsAsCatalog() {
+        // Arrange
+        DealsCatalog catalog = randomCatalog(new Random(17), 80);
+
+        // Act
+        ActiveDealsAnswerTable answerTable = catalog.buildAnswerTable();
+
+        // Assert
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute++) {
+            assertEquals(catalog.getActiveDeals(minute), catalog.answerActiveDeals(answerTable, minute), "Expected the catalog's active deals at minute " + minute);
+        }
+        assertTrue(answerTable.getEstimatedSizeBytes() > 0);
+    }
+
+    @Test
+    void testAnswerActiveDeals_onSameSegment_expectSharedUnmodifiableDeals() {
+        // Arrange
+        DealsCatalog catalog = new DealsCatalog.Builder(responseMapper)
+                .add(restaurant("R1", deal("D1", "9:00am", "5:00pm", "5"), deal("D2", "11:00am", "2:00pm", "0")))
+                .build();
+        ActiveDealsAnswerTable answerTable = catalog.buildAnswerTable();
+
+        // Act
+        List<Deal> first = catalog.answerActiveDeals(answerTable, 10 * 60);
+        List<Deal> second = catalog.answerActiveDeals(answerTable, 10 * 60 + 30);
+
+        // Assert
+        assertSame(first, second, "Expected minutes in one segment to share the list of deals");
+        assertThrows(UnsupportedOperationException.class, () -> first.clear());
+        assertEquals(1, catalog.answerActiveDeals(answerTable, 12 * 60).size(), "Expected deals without quantity left to be excluded");
+        assertTrue(catalog.answerActiveDeals(answerTable, 8 * 60).isEmpty());
+    }
+
+    @Test
+    void testAnswerActiveDeals_onOffHeapRecords_expectDealsMaterialisedPerRequest() {
+        // Arrange
+        DealsCatalog heapCatalog = randomCatalog(new DealsCatalog.Builder(responseMapper), new Random(23), 80);
+        DealsCatalog offHeapCatalog = randomCatalog(new DealsCatalog.Builder(responseMapper).offHeap(true), new Random(23), 80);
+
+        // Act
+        ActiveDealsAnswerTable heapTable = heapCatalog.buildAnswerTable();
+        ActiveDealsAnswerTable offHeapTable = offHeapCatalog.buildAnswerTable();
+
+        // Assert
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute++) {
+            assertEquals(offHeapCatalog.getActiveDeals(minute), offHeapCatalog.answerActiveDeals(offHeapTable, minute), "Expected the catalog's active deals at minute " + minute);
+        }
+        assertNotSame(offHeapCatalog.answerActiveDeals(offHeapTable, 12 * 60), offHeapCatalog.answerActiveDeals(offHeapTable, 12 * 60),
+                "Expected no Deals to be kept on the heap for off-heap records");
+        assertTrue(offHeapTable.getEstimatedSizeBytes() < heapTable.getEstimatedSizeBytes());
+    }
+
+    @Test
+    void testAnswerActiveDeals_onClaim_expectOnlyClaimedSegmentFilteredLive() {
+        // Arrange
+        DealsCatalog catalog = new DealsCatalog.Builder(responseMapper)
+                .add(restaurant("R1", deal("D1", "9:00am", "11:00am", "5"), deal("D2", "1:00pm", "3:00pm", "2")))
+                .build();
+        catalog.setAnswerTable(catalog.buildAnswerTable());
+        ActiveDealsAnswerTable answerTable = catalog.getAnswerTable();
+        List<Deal> untouchedBefore = catalog.answerActiveDeals(answerTable, 14 * 60);
+
+        // Act
+        catalog.getInventory().claim("D1", 1);
+        catalog.getInventory().claim("D2", 2);
+        catalog.getInventory().setQtyLeft("D2", 3);
+
+        // Assert
+        assertSame(answerTable, catalog.getAnswerTable(), "Expected claims and quantity updates not to drop the table");
+        assertEquals(4, catalog.answerActiveDeals(answerTable, 10 * 60).get(0).getQtyLeft(), "Expected the claimed segment to have the live quantity");
+        assertEquals(catalog.getActiveDeals(14 * 60), catalog.answerActiveDeals(answerTable, 14 * 60));
+        assertEquals(3, catalog.answerActiveDeals(answerTable, 14 * 60).get(0).getQtyLeft());
+
+        catalog.getInventory().claim("D1", 4);
+        assertTrue(catalog.answerActiveDeals(answerTable, 10 * 60).isEmpty(), "Expected a sold out deal to be excluded");
+        assertNotSame(untouchedBefore, catalog.answerActiveDeals(answerTable, 14 * 60));
+    }
+
+    @Test
+    void testAnswerActiveDeals_onLayeredCatalog_expectBaseTableOverlaidWithLayer() {
+        // Arrange
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper).layering(1);
+        for (int i = 0; i < 10; i++) {
+            builder.add(restaurant("R" + i, deal("D" + i, "9:00am", i % 2 == 0 ? "11:00am" : "4:00pm", "5")));
+        }
+        DealsCatalog base = builder.build();
+        base.setAnswerTable(base.buildAnswerTable());
+
+        // Act
+        DealsCatalog.Patched patched = base.patch(Map.of(
+                "R1", restaurant("R1", deal("D1", "1:00pm", "4:00pm", "7")),
+                "R10", restaurant("R10", deal("D10", "9:00am", "5:00pm", "1"))),
+                new DealsCatalog.Builder(responseMapper).layering(1));
+        base.handOverInventory(patched);
+        DealsCatalog layered = patched.catalog();
+        layered.getInventory().claim("D3", 1);
+
+        // Assert
+        assertTrue(layered.isLayered());
+        assertSame(base.getAnswerTable(), layered.getAnswerTable(), "Expected a layered catalog to answer from its base's table");
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute++) {
+            assertEquals(layered.getActiveDeals(minute), layered.answerActiveDeals(layered.getAnswerTable(), minute), "Expected the layered catalog's active deals at minute " + minute);
+        }
+    }
+
+    private DealsCatalog randomCatalog(Random random, int restaurantCount) {
+        return randomCatalog(new DealsCatalog.Builder(responseMapper), random, restaurantCount);
+    }
+
+    private DealsCatalog randomCatalog(DealsCatalog.Builder builder, Random random, int restaurantCount) {
+        for (int i = 0; i < restaurantCount; i++) {
+            DealResponseDto[] deals = new DealResponseDto[random.nextInt(3) + 1];
+            for (int j = 0; j < deals.length; j++) {
+                int start = random.nextInt(20);
+                deals[j] = deal("D" + i + "-" + j,
+                        random.nextBoolean() ? toUpstreamTime(start) : null,
+                        random.nextBoolean() ? toUpstreamTime(start + 1 + random.nextInt(4)) : null,
+                        String.valueOf(random.nextInt(4)));
+            }
+            builder.add(restaurant("R" + i, deals));
+        }
+        return builder.build();
+    }
+
+    private static RestaurantResponseDto restaurant(String objectId, DealResponseDto... deals) {
+        return RestaurantResponseDto.builder().objectId(objectId).open("9:00am").close("5:00pm").deals(deals).build();
+    }
+
+    private static DealResponseDto deal(String objectId, String start, String end, String qtyLeft) {
+        return DealResponseDto.builder().objectId(objectId).start(start).end(end).qtyLeft(qtyLeft).build();
+    }
+
+    private static String toUpstreamTime(int hour) {
+        int hourOfDay = hour % 24;
+        int twelveHour = hourOfDay % 12 == 0 ? 12 : hourOfDay % 12;
+        return twelveHour + ":00" + (hourOfDay < 12 ? "am" : "pm");
+    }
+}
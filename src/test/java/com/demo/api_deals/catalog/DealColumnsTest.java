@@ -0,0 +1,72 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+public class DealColumnsTest {
+
+    @Test
+    void testBuild_onRestaurantsAndDeals_expectPrimitiveColumns() {
+        // Arrange
+        DealColumns.Builder builder = new DealColumns.Builder();
+        builder.addRestaurant(RestaurantResponseDto.builder().objectId("R1").suburb("Richmond").cuisines(new String[] {"Thai", "Asian"}).build());
+        builder.addDeal("D1", 15 * 60, 21 * 60, 15 * 60, 21 * 60, Deal.builder().discount(30).qtyLeft(4).dineIn(true).lightning(false).build());
+        builder.addDeal("D2", 0, 0, -1, -1, null);
+        builder.addRestaurant(RestaurantResponseDto.builder().objectId("R2").suburb("Richmond").cuisines(new String[] {"Asian"}).build());
+        builder.addDeal("D3", 9 * 60, 11 * 60, 9 * 60, 11 * 60, Deal.builder().qtyLeft(0).lightning(true).build());
+
+        // Act
+        DealColumns columns = builder.build();
+
+        // Assert
+        assertEquals(3, columns.dealCount());
+        assertEquals(2, columns.restaurantCount());
+
+        assertEquals(30, columns.discount(0));
+        assertEquals(4, columns.qtyLeft(0));
+        assertTrue(columns.isDineIn(0));
+        assertFalse(columns.isLightning(0));
+        assertTrue(columns.hasQtyLeft(0));
+
+        assertEquals(DealColumns.MISSING, columns.discount(1), "Expected an unmapped deal to have missing values");
+        assertFalse(columns.hasQtyLeft(1));
+        assertFalse(columns.hasQtyLeft(2), "Expected a sold out deal to have no quantity left");
+        assertTrue(columns.isLightning(2));
+
+        assertEquals(1, columns.restaurantOf(2));
+        assertEquals("R2", columns.restaurantObjectId(columns.restaurantOf(2)));
+        assertEquals("D3", columns.dealObjectId(2));
+        assertEquals(columns.suburbCode(0), columns.suburbCode(1), "Expected suburbs to share a dictionary code");
+        assertEquals(1, columns.getSuburbs().size());
+
+        int asian = columns.getCuisines().codeOf("Asian");
+        int thai = columns.getCuisines().codeOf("Thai");
+        assertTrue(columns.hasCuisine(0, asian));
+        assertTrue(columns.hasCuisine(1, asian));
+        assertFalse(columns.hasCuisine(1, thai));
+    }
+
+    @Test
+    void testEncode_onRepeatedValues_expectSharedCodeAndValue() {
+        // Arrange
+        StringDictionary dictionary = new StringDictionary();
+        String first = new String("Lower East");
+
+        // Act
+        int code = dictionary.encode(first);
+        int repeated = dictionary.encode(new String("Lower East"));
+
+        // Assert
+        assertEquals(code, repeated);
+        assertSame(first, dictionary.decode(repeated), "Expected the first instance to be kept for every repeat");
+        assertEquals(StringDictionary.NO_CODE, dictionary.encode(null));
+        assertEquals(StringDictionary.NO_CODE, dictionary.codeOf("Unknown"));
+    }
+}
@@ -0,0 +1,122 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+
+public class DealGeoIndexTest {
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    @Test
+    void testNearest_onRadiusAndLimitQueries_expectSameResultsAsLinearScan() {
+        // Arrange
+        Random random = new Random(11);
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper);
+        for (int i = 0; i < 400; i++) {
+            boolean located = random.nextInt(10) != 0;
+            builder.add(restaurant(i,
+                    located ? String.valueOf(-37.81 + random.nextGaussian() * 0.05) : null,
+                    located ? String.valueOf(144.96 + random.nextGaussian() * 0.05) : null,
+                    random.nextInt(3) + 1));
+        }
+        DealColumns columns = builder.build().getColumns();
+        DealGeoIndex geoIndex = DealGeoIndex.build(columns);
+        IntPredicate everyOtherDeal = row -> row % 2 == 0;
+
+        for (int query = 0; query < 200; query++) {
+            double latitude = -37.81 + random.nextGaussian() * 0.1;
+            double longitude = 144.96 + random.nextGaussian() * 0.1;
+            double radiusMeters = random.nextBoolean() ? Double.POSITIVE_INFINITY : random.nextDouble() * 5000;
+            int limit = random.nextBoolean() ? Integer.MAX_VALUE : random.nextInt(10) + 1;
+
+            // Act
+            List<DealGeoIndex.Match> actual = geoIndex.nearest(latitude, longitude, radiusMeters, limit, everyOtherDeal);
+
+            // Assert
+            List<DealGeoIndex.Match> expected = new ArrayList<>();
+            for (int row = 0; row < columns.dealCount(); row++) {
+                int restaurant = columns.restaurantOf(row);
+                if (columns.hasLocation(restaurant) && everyOtherDeal.test(row)) {
+                    double distance = DealGeoIndex.distanceMeters(latitude, longitude, columns.latitude(restaurant), columns.longitude(restaurant));
+                    if (distance <= radiusMeters) {
+                        expected.add(new DealGeoIndex.Match(row, distance));
+                    }
+                }
+            }
+            expected.sort(Comparator.comparingDouble(DealGeoIndex.Match::distanceMeters).thenComparingInt(DealGeoIndex.Match::row));
+            assertEquals(expected.subList(0, Math.min(limit, expected.size())), actual,
+                    "Expected the grid to find the same deals as a linear scan for query " + query);
+        }
+    }
+
+    @Test
+    void testGetNearbyDeals_onDealsOutsideTheirHours_expectOnlyActiveDealsNearestFirst() {
+        // Arrange
+        DealsCatalog catalog = new DealsCatalog.Builder(responseMapper)
+                .add(restaurant(0, "-37.8136", "144.9631", 1))
+                .add(restaurant(1, "-37.8190", "145.0000", 1))
+                .add(restaurant(2, null, null, 1))
+                .build();
+
+        // Act
+        List<DealsCatalog.DealDistance> atNoon = catalog.getNearbyDeals(12 * 60, -37.8136, 144.9631, Double.POSITIVE_INFINITY, 10);
+        List<DealsCatalog.DealDistance> atMidnight = catalog.getNearbyDeals(0, -37.8136, 144.9631, Double.POSITIVE_INFINITY, 10);
+
+        // Assert
+        assertEquals(2, atNoon.size(), "Expected the restaurant without coordinates to be excluded");
+        assertEquals("D0-0", atNoon.get(0).deal().getDealObjectId());
+        assertEquals(0.0, atNoon.get(0).distanceMeters(), 1e-6);
+        assertEquals("D1-0", atNoon.get(1).deal().getDealObjectId());
+        assertEquals(3300.0, atNoon.get(1).distanceMeters(), 100.0, "Expected Richmond to be about 3.3km from the CBD");
+        assertTrue(atMidnight.isEmpty(), "Expected no deals outside opening hours");
+    }
+
+    @Test
+    void testGetNearbyDeals_onRadius_expectOnlyDealsWithinRadius() {
+        // Arrange
+        DealsCatalog catalog = new DealsCatalog.Builder(responseMapper)
+                .add(restaurant(0, "-37.8136", "144.9631", 2))
+                .add(restaurant(1, "-37.8190", "145.0000", 1))
+                .build();
+
+        // Act
+        List<DealsCatalog.DealDistance> nearby = catalog.getNearbyDeals(12 * 60, -37.8140, 144.9640, 1000, Integer.MAX_VALUE);
+
+        // Assert
+        assertEquals(List.of("D0-0", "D0-1"), nearby.stream().map(nearbyDeal -> nearbyDeal.deal().getDealObjectId()).toList());
+    }
+
+    private static RestaurantResponseDto restaurant(int index, String latitude, String longitude, int dealCount) {
+        DealResponseDto[] deals = new DealResponseDto[dealCount];
+        for (int i = 0; i < dealCount; i++) {
+            deals[i] = DealResponseDto.builder()
+                    .objectId("D" + index + "-" + i)
+                    .discount("20")
+                    .dineIn("true")
+                    .lightning("false")
+                    .qtyLeft("5")
+                    .build();
+        }
+        return RestaurantResponseDto.builder()
+                .objectId("R" + index)
+                .name("Restaurant " + index)
+                .latitude(latitude)
+                .longitude(longitude)
+                .open("9:00am")
+                .close("9:00pm")
+                .deals(deals)
+                .build();
+    }
+}
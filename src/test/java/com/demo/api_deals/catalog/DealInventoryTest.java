@@ -0,0 +1,136 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+public class DealInventoryTest {
+
+    @Test
+    void testClaim_onConcurrentClaims_expectNoOversell() throws Exception {
+        // Arrange
+        DealInventory inventory = inventoryOf(100, 5);
+        int threads = 8;
+        int claimsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int claimed = 0;
+                for (int i = 0; i < claimsPerThread; i++) {
+                    if (inventory.claim("D0", 1).status() == DealInventory.ClaimStatus.CLAIMED) {
+                        claimed++;
+                    }
+                }
+                return claimed;
+            }));
+        }
+        start.countDown();
+        int totalClaimed = 0;
+        for (Future<Integer> result : results) {
+            totalClaimed += result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(100, totalClaimed, "Expected exactly the available quantity to be claimed");
+        assertEquals(0, inventory.qtyLeft(0));
+        assertEquals(5, inventory.qtyLeft(1), "Expected other deals to be unaffected");
+        assertEquals(100, inventory.revision());
+    }
+
+    @Test
+    void testClaim_onInsufficientOrUnknown_expectRejectedWithoutChange() {
+        // Arrange
+        DealInventory inventory = inventoryOf(2, 0);
+
+        // Act & Assert
+        assertEquals(DealInventory.ClaimStatus.INSUFFICIENT_QUANTITY, inventory.claim("D0", 3).status());
+        assertEquals(DealInventory.ClaimStatus.INSUFFICIENT_QUANTITY, inventory.claim("D1", 1).status());
+        assertEquals(DealInventory.ClaimStatus.UNKNOWN_DEAL, inventory.claim("D9", 1).status());
+        assertEquals(2, inventory.qtyLeft(0));
+        assertEquals(0, inventory.revision());
+    }
+
+    @Test
+    void testSetQtyLeft_onKnownAndUnknownDeals_expectKnownReplaced() {
+        // Arrange
+        DealInventory inventory = inventoryOf(5, 5);
+        inventory.claim("D0", 2);
+
+        // Act
+        boolean known = inventory.setQtyLeft("D0", 8);
+        boolean unknown = inventory.setQtyLeft("D9", 8);
+
+        // Assert
+        assertTrue(known);
+        assertFalse(unknown);
+        assertEquals(8, inventory.qtyLeft(0), "Expected the upstream quantity to replace the claimed one");
+        assertEquals(2, inventory.revision(), "Expected the claim and the update to each bump the revision");
+    }
+
+    @Test
+    void testClaim_onPendingCounterSealedByPredecessorBeforeTransfer_expectCompletedWithoutWaiting() {
+        // Arrange
+        DealInventory previous = inventoryOf(5, 3);
+        previous.claim("D0", 1);
+        DealInventory next = inventoryOf(0, 0);
+        next.pendingTransfer(Set.of("D0", "D1"), previous);
+        // The handOver has sealed D0 but not yet brought its value across
+        previous.seal(Set.of("D0"), next);
+
+        // Act
+        DealInventory.ClaimResult result = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> next.claim("D0", 1));
+
+        // Assert
+        assertEquals(DealInventory.ClaimStatus.CLAIMED, result.status());
+        assertEquals(3, result.qtyLeft(), "Expected the claim to apply to the value the predecessor sealed");
+        assertEquals(3, next.qtyLeft(0));
+        assertEquals(3, next.qtyLeft(1), "Expected a counter the predecessor still holds to be read through it");
+    }
+
+    @Test
+    void testTransferCompleted_onCounterNeverHandedOver_expectUnknownRatherThanPending() {
+        // Arrange
+        DealInventory previous = inventoryOf(5, 3);
+        DealInventory next = inventoryOf(0, 0);
+        next.pendingTransfer(Set.of("D0", "D1"), previous);
+
+        // Act
+        previous.handOver(next, Set.of("D1"));
+        next.transferCompleted();
+
+        // Assert
+        assertEquals(5, next.qtyLeft(0));
+        assertEquals(DealColumns.MISSING, assertTimeoutPreemptively(Duration.ofSeconds(5), () -> next.qtyLeft(1)));
+        assertEquals(DealInventory.ClaimStatus.INSUFFICIENT_QUANTITY, next.claim("D1", 1).status());
+    }
+
+    private static DealInventory inventoryOf(int firstQtyLeft, int secondQtyLeft) {
+        DealColumns.Builder builder = new DealColumns.Builder();
+        builder.addRestaurant(RestaurantResponseDto.builder().objectId("R0").build());
+        builder.addDeal("D0", 0, TimeSegmentIndex.MINUTES_PER_DAY, -1, -1, Deal.builder().qtyLeft(firstQtyLeft).build());
+        builder.addDeal("D1", 0, TimeSegmentIndex.MINUTES_PER_DAY, -1, -1, Deal.builder().qtyLeft(secondQtyLeft).build());
+        return DealInventory.fromColumns(builder.build());
+    }
+}
@@ -0,0 +1,108 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealFilter;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+public class DealsCatalogFilterTest {
+
+    private static final String[] SUBURBS = { "Melbourne", "Richmond", "Carlton" };
+    private static final String[] CUISINES = { "Thai", "Indian", "Pizza", "Asian" };
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    @Test
+    void testGetActiveDeals_onFilters_expectSameResultsAsFilteringEveryActiveDeal() {
+        // Arrange
+        Random random = new Random(7);
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper);
+        Map<String, RestaurantResponseDto> restaurantOfDeal = new HashMap<>();
+        for (int i = 0; i < 150; i++) {
+            RestaurantResponseDto restaurant = randomRestaurant(random, i);
+            builder.add(restaurant);
+            for (DealResponseDto deal : restaurant.getDeals()) {
+                restaurantOfDeal.put(deal.getObjectId(), restaurant);
+            }
+        }
+        DealsCatalog catalog = builder.build();
+
+        for (int query = 0; query < 300; query++) {
+            int minute = random.nextInt(TimeSegmentIndex.MINUTES_PER_DAY);
+            DealFilter filter = DealFilter.builder()
+                    .suburb(random.nextBoolean() ? SUBURBS[random.nextInt(SUBURBS.length)].toUpperCase() : null)
+                    .cuisine(random.nextBoolean() ? CUISINES[random.nextInt(CUISINES.length)] : null)
+                    .dineIn(random.nextInt(3) == 0 ? random.nextBoolean() : null)
+                    .lightning(random.nextInt(3) == 0 ? random.nextBoolean() : null)
+                    .minDiscount(random.nextInt(3) == 0 ? random.nextInt(50) : null)
+                    .build();
+
+            // Act
+            List<Deal> actual = catalog.getActiveDeals(minute, filter);
+
+            // Assert
+            List<Deal> expected = catalog.getActiveDeals(minute).stream()
+                    .filter(deal -> matches(deal, restaurantOfDeal.get(deal.getDealObjectId()), filter))
+                    .collect(Collectors.toList());
+            assertEquals(expected, actual, "Expected indexed filtering to match a full filter at minute " + minute + " for " + filter);
+        }
+    }
+
+    @Test
+    void testGetActiveDeals_onUnknownSuburb_expectNoDeals() {
+        // Arrange
+        DealsCatalog catalog = new DealsCatalog.Builder(responseMapper).add(randomRestaurant(new Random(1), 0)).build();
+
+        // Act & Assert
+        assertTrue(catalog.getActiveDeals(12 * 60, DealFilter.builder().suburb("Nowhere").build()).isEmpty());
+    }
+
+    private static boolean matches(Deal deal, RestaurantResponseDto restaurant, DealFilter filter) {
+        return (filter.getSuburb() == null || filter.getSuburb().equalsIgnoreCase(restaurant.getSuburb()))
+                && (filter.getCuisine() == null || Arrays.stream(restaurant.getCuisines()).anyMatch(filter.getCuisine()::equalsIgnoreCase))
+                && (filter.getDineIn() == null || Boolean.TRUE.equals(deal.getDineIn()) == filter.getDineIn())
+                && (filter.getLightning() == null || Boolean.TRUE.equals(deal.getLightning()) == filter.getLightning())
+                && (filter.getMinDiscount() == null || (deal.getDiscount() != null && deal.getDiscount() >= filter.getMinDiscount()));
+    }
+
+    private static RestaurantResponseDto randomRestaurant(Random random, int index) {
+        DealResponseDto[] deals = new DealResponseDto[random.nextInt(3) + 1];
+        for (int i = 0; i < deals.length; i++) {
+            deals[i] = DealResponseDto.builder()
+                    .objectId("D" + index + "-" + i)
+                    .discount(random.nextInt(4) == 0 ? null : String.valueOf(5 + random.nextInt(50)))
+                    .dineIn(String.valueOf(random.nextBoolean()))
+                    .lightning(String.valueOf(random.nextBoolean()))
+                    .qtyLeft(String.valueOf(1 + random.nextInt(3)))
+                    .build();
+        }
+        int open = 6 + random.nextInt(8);
+        return RestaurantResponseDto.builder()
+                .objectId("R" + index)
+                .suburb(SUBURBS[random.nextInt(SUBURBS.length)])
+                .cuisines(new String[] { CUISINES[random.nextInt(CUISINES.length)], CUISINES[random.nextInt(CUISINES.length)] })
+                .open(toUpstreamTime(open))
+                .close(toUpstreamTime(open + 8))
+                .deals(deals)
+                .build();
+    }
+
+    private static String toUpstreamTime(int hour) {
+        int hourOfDay = hour % 24;
+        int twelveHour = hourOfDay % 12 == 0 ? 12 : hourOfDay % 12;
+        return twelveHour + ":00" + (hourOfDay < 12 ? "am" : "pm");
+    }
+}
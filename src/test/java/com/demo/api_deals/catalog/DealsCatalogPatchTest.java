@@ -0,0 +1,308 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealFilter;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+
+import reactor.core.scheduler.Schedulers;
+
+public class DealsCatalogPatchTest {
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    @Test
+    void testPatch_onRandomChanges_expectSameResultsAsFullCompile() {
+        // Arrange
+        Random random = new Random(11);
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper);
+        for (int i = 0; i < 120; i++) {
+            builder.add(randomRestaurant(random, i));
+        }
+        DealsCatalog base = builder.build();
+
+        Map<String, RestaurantResponseDto> changes = new LinkedHashMap<>();
+        for (int i = 0; i < 30; i++) {
+            int index = random.nextInt(120);
+            changes.put("R" + index, random.nextInt(4) == 0 ? null : randomRestaurant(random, index));
+        }
+        for (int i = 120; i < 130; i++) {
+            changes.put("R" + i, randomRestaurant(random, i));
+        }
+
+        // Act
+        DealsCatalog.Patched patched = base.patch(changes, new DealsCatalog.Builder(responseMapper));
+        base.handOverInventory(patched);
+
+        // Assert
+        DealsCatalog.Builder fullBuilder = new DealsCatalog.Builder(responseMapper);
+        for (RestaurantResponseDto restaurant : patched.catalog().getSource().getRestaurants()) {
+            fullBuilder.add(restaurant);
+        }
+        DealsCatalog compiled = fullBuilder.build();
+
+        assertEquals(compiled.size(), patched.catalog().size());
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute += 7) {
+            assertEquals(compiled.getActiveDeals(minute), patched.catalog().getActiveDeals(minute), "Expected the same active deals at minute " + minute);
+        }
+        assertArrayEquals(compiled.getPeakHistogram(), patched.catalog().getPeakHistogram());
+        assertEquals(compiled.getPeakDeals(), patched.catalog().getPeakDeals());
+    }
+
+    @Test
+    void testPatch_onSuccessiveBatches_expectLayersAndCompactionsToMatchFullCompile() {
+        // Arrange
+        Random random = new Random(17);
+        DealsCatalog.Builder builder = layeredBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.add(randomRestaurant(random, i));
+        }
+        DealsCatalog catalog = builder.build();
+        Map<String, Integer> claimedQtyLeft = new HashMap<>();
+        List<String> removed = new ArrayList<>();
+        boolean layered = false;
+        boolean compacted = false;
+
+        for (int batch = 0; batch < 12; batch++) {
+            // Claims before the patch must carry over to it
+            String claimed = catalog.getSource().getRestaurants()[random.nextInt(catalog.getSource().getRestaurants().length)].getDeals()[0].getObjectId();
+            DealInventory.ClaimResult claim = catalog.getInventory().claim(claimed, 1);
+            if (claim.status() == DealInventory.ClaimStatus.CLAIMED) {
+                claimedQtyLeft.put(claimed, claim.qtyLeft());
+            }
+
+            Map<String, RestaurantResponseDto> changes = new LinkedHashMap<>();
+            for (int i = 0; i < 3; i++) {
+                int index = random.nextInt(110);
+                String objectId = "R" + index;
+                if (random.nextInt(5) == 0 && catalog.findRestaurant(objectId) != null) {
+                    changes.put(objectId, null);
+                    removed.add(objectId);
+                } else {
+                    changes.put(objectId, randomRestaurant(random, index));
+                }
+            }
+            if (!removed.isEmpty() && random.nextBoolean()) {
+                // A removed restaurant added back goes to the end
+                int index = Integer.parseInt(removed.remove(0).substring(1));
+                changes.put("R" + index, randomRestaurant(random, index));
+            }
+
+            // Act
+            DealsCatalog.Patched patched = catalog.patch(changes, layeredBuilder());
+            catalog.handOverInventory(patched);
+            catalog = patched.catalog();
+            layered |= catalog.isLayered();
+            compacted |= !catalog.isLayered();
+            for (String objectId : patched.replacedDealObjectIds()) {
+                claimedQtyLeft.remove(objectId);
+            }
+
+            // Assert
+            for (Map.Entry<String, Integer> entry : claimedQtyLeft.entrySet()) {
+                if (catalog.getInventory().qtyLeftOf(entry.getKey()) != DealColumns.MISSING) {
+                    assertEquals(entry.getValue(), catalog.getInventory().qtyLeftOf(entry.getKey()),
+                            "Expected the claim on " + entry.getKey() + " to carry over on batch " + batch);
+                }
+            }
+            assertSameResults(compileWithLiveQuantities(catalog), catalog, "batch " + batch);
+        }
+        assertTrue(layered, "Expected some patches to be layered over the compiled catalog");
+        assertTrue(compacted, "Expected the layers to be compacted once they grew");
+    }
+
+    @Test
+    void testPatch_onSmallChange_expectOnlyChangedRestaurantsInLayer() {
+        // Arrange
+        Random random = new Random(23);
+        DealsCatalog.Builder builder = layeredBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.add(randomRestaurant(random, i));
+        }
+        DealsCatalog base = builder.build();
+        RestaurantResponseDto replacement = randomRestaurant(random, 40);
+
+        // Act
+        DealsCatalog patched = base.patch(Map.of("R40", replacement), layeredBuilder()).catalog();
+
+        // Assert
+        assertTrue(patched.isLayered());
+        assertEquals(replacement.getDeals().length, patched.getColumns().dealCount(), "Expected the layer to hold only the changed restaurant's deals");
+        assertEquals(base.size() - base.findRestaurant("R40").getDeals().length + replacement.getDeals().length, patched.size());
+        assertEquals(replacement, patched.findRestaurant("R40"));
+        assertEquals(base.findRestaurant("R41"), patched.findRestaurant("R41"));
+        assertEquals(replacement, patched.getSource().getRestaurants()[40], "Expected the replacement to keep the restaurant's position");
+    }
+
+    @Test
+    void testPatch_onChangeWithoutNewTimes_expectPeakVersionKept() {
+        // Arrange
+        Random random = new Random(3);
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper);
+        for (int i = 0; i < 10; i++) {
+            builder.add(randomRestaurant(random, i));
+        }
+        DealsCatalog base = builder.build();
+        RestaurantResponseDto restaurant = base.findRestaurant("R4");
+
+        // Act
+        DealsCatalog renamed = base.patch(Map.of("R4", restaurant.toBuilder().name("Renamed").build()),
+                new DealsCatalog.Builder(responseMapper)).catalog();
+        DealsCatalog rescheduled = base.patch(Map.of("R4", restaurant.toBuilder().open("1:00am").close("2:00am")
+                .deals(new DealResponseDto[] { DealResponseDto.builder().objectId("D4-0").qtyLeft("1").build() }).build()),
+                new DealsCatalog.Builder(responseMapper)).catalog();
+
+        // Assert
+        assertEquals(base.getPeakVersion(), renamed.getPeakVersion(), "Expected the peak version to be kept when no deal times change");
+        assertNotEquals(base.getPeakVersion(), rescheduled.getPeakVersion(), "Expected a new peak version when deal times change");
+    }
+
+    @Test
+    void testHandOverInventory_onClaimsAroundPatch_expectClaimsCarriedOverAndForwarded() {
+        // Arrange
+        Random random = new Random(5);
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper);
+        for (int i = 0; i < 3; i++) {
+            builder.add(randomRestaurant(random, i));
+        }
+        DealsCatalog base = builder.build();
+        int qtyLeftAfterClaim = base.getInventory().claim("D0-0", 1).qtyLeft();
+
+        // Act
+        DealsCatalog.Patched patched = base.patch(Map.of("R2", randomRestaurant(random, 2)), new DealsCatalog.Builder(responseMapper));
+        base.handOverInventory(patched);
+        DealInventory.ClaimResult lateClaim = base.getInventory().claim("D0-0", 1);
+
+        // Assert
+        assertEquals(DealInventory.ClaimStatus.CLAIMED, lateClaim.status(), "Expected a claim against the old catalog to be forwarded");
+        assertEquals(qtyLeftAfterClaim - 1, lateClaim.qtyLeft());
+        assertEquals(qtyLeftAfterClaim - 1, patched.catalog().getInventory().qtyLeftOf("D0-0"),
+                "Expected the patched catalog to see both the earlier and the forwarded claim");
+        assertEquals(qtyLeftAfterClaim - 1, base.getInventory().qtyLeft(0), "Expected reads of the old catalog to be forwarded too");
+    }
+
+    @Test
+    void testHandOverInventory_onLayeredPatches_expectClaimsSharedWithBaseAndForwarded() {
+        // Arrange
+        Random random = new Random(5);
+        DealsCatalog.Builder builder = layeredBuilder();
+        for (int i = 0; i < 20; i++) {
+            builder.add(randomRestaurant(random, i));
+        }
+        DealsCatalog base = builder.build();
+        DealsCatalog.Patched first = base.patch(Map.of("R2", randomRestaurant(random, 2)), layeredBuilder());
+        base.handOverInventory(first);
+        int layerQtyLeft = first.catalog().getInventory().claim("D2-0", 1).qtyLeft();
+
+        // Act
+        DealsCatalog.Patched second = first.catalog().patch(Map.of("R3", randomRestaurant(random, 3)), layeredBuilder());
+        first.catalog().handOverInventory(second);
+        DealInventory.ClaimResult baseClaim = base.getInventory().claim("D0-0", 1);
+        DealInventory.ClaimResult replacedClaim = base.getInventory().claim("D3-0", 1);
+        DealInventory.ClaimResult layerClaim = first.catalog().getInventory().claim("D2-0", 1);
+
+        // Assert
+        assertTrue(second.catalog().isLayered());
+        assertEquals(baseClaim.qtyLeft(), second.catalog().getInventory().qtyLeftOf("D0-0"), "Expected the base's unchanged deals to stay shared");
+        assertEquals(replacedClaim.qtyLeft(), second.catalog().getInventory().qtyLeftOf("D3-0"),
+                "Expected a claim on a deal the layer replaced to be forwarded to the layer");
+        assertEquals(layerQtyLeft - 1, layerClaim.qtyLeft(), "Expected the earlier layer's claims to carry over to the next layer");
+        assertEquals(layerQtyLeft - 1, second.catalog().getInventory().qtyLeftOf("D2-0"));
+    }
+
+    /**
+     * Compares every query of the patched catalog with those of the expected one.
+     */
+    private static void assertSameResults(DealsCatalog expected, DealsCatalog actual, String message) {
+        assertEquals(expected.size(), actual.size(), message);
+        int[] minutes = new int[TimeSegmentIndex.MINUTES_PER_DAY / 7 + 1];
+        for (int i = 0; i < minutes.length; i++) {
+            int minute = i * 7;
+            minutes[i] = minute;
+            assertEquals(expected.getActiveDeals(minute), actual.getActiveDeals(minute), "Expected the same active deals at minute " + minute + ", " + message);
+            assertEquals(expected.getActiveDeals(minute), actual.findActiveDeals(minute).block(), "Expected the same shard results at minute " + minute + ", " + message);
+            assertEquals(expected.streamActiveDeals(minute).collectList().block(), actual.streamActiveDeals(minute).collectList().block(), message);
+            DealFilter filter = DealFilter.builder().minDiscount(30).build();
+            assertEquals(expected.getActiveDeals(minute, filter), actual.getActiveDeals(minute, filter), "Expected the same filtered deals at minute " + minute + ", " + message);
+            assertEquals(expected.getNearbyDeals(minute, -37.8, 144.9, 20_000, 15), actual.getNearbyDeals(minute, -37.8, 144.9, 20_000, 15),
+                    "Expected the same nearby deals at minute " + minute + ", " + message);
+        }
+        DealsCatalog.ActiveDealsBatch expectedBatch = expected.getActiveDealsBatch(minutes);
+        DealsCatalog.ActiveDealsBatch actualBatch = actual.getActiveDealsBatch(minutes);
+        assertEquals(expectedBatch.deals(), actualBatch.deals(), message);
+        assertArrayEquals(expectedBatch.dealIndexes(), actualBatch.dealIndexes(), message);
+        assertArrayEquals(expected.getPeakHistogram(), actual.getPeakHistogram(), message);
+        assertEquals(expected.getPeakDeals(), actual.getPeakDeals(), message);
+    }
+
+    /**
+     * @return a catalog compiled from the given catalog's source, with the given catalog's live quantities
+     */
+    private DealsCatalog compileWithLiveQuantities(DealsCatalog catalog) {
+        DealsCatalog.Builder fullBuilder = new DealsCatalog.Builder(responseMapper);
+        for (RestaurantResponseDto restaurant : catalog.getSource().getRestaurants()) {
+            fullBuilder.add(restaurant);
+        }
+        DealsCatalog compiled = fullBuilder.build();
+        for (RestaurantResponseDto restaurant : catalog.getSource().getRestaurants()) {
+            for (DealResponseDto deal : restaurant.getDeals()) {
+                int qtyLeft = catalog.getInventory().qtyLeftOf(deal.getObjectId());
+                if (qtyLeft >= 0 && qtyLeft != compiled.getInventory().qtyLeftOf(deal.getObjectId())) {
+                    compiled.getInventory().setQtyLeft(deal.getObjectId(), qtyLeft);
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private DealsCatalog.Builder layeredBuilder() {
+        return new DealsCatalog.Builder(responseMapper)
+                .shards(3, 0, Schedulers.immediate())
+                .layering(0.15);
+    }
+
+    private static RestaurantResponseDto randomRestaurant(Random random, int index) {
+        DealResponseDto[] deals = new DealResponseDto[random.nextInt(3) + 1];
+        for (int i = 0; i < deals.length; i++) {
+            int start = random.nextInt(20);
+            deals[i] = DealResponseDto.builder()
+                    .objectId("D" + index + "-" + i)
+                    .discount(String.valueOf(5 + random.nextInt(50)))
+                    .start(random.nextBoolean() ? toUpstreamTime(start) : null)
+                    .end(random.nextBoolean() ? toUpstreamTime(start + 1 + random.nextInt(4)) : null)
+                    .qtyLeft(String.valueOf(2 + random.nextInt(3)))
+                    .build();
+        }
+        int open = 6 + random.nextInt(8);
+        boolean located = random.nextInt(4) != 0;
+        return RestaurantResponseDto.builder()
+                .objectId("R" + index)
+                .name("Restaurant " + index)
+                .latitude(located ? String.valueOf(-37.8 + random.nextInt(20) * 0.01) : null)
+                .longitude(located ? String.valueOf(144.9 + random.nextInt(20) * 0.01) : null)
+                .open(toUpstreamTime(open))
+                .close(toUpstreamTime(open + 8))
+                .deals(deals)
+                .build();
+    }
+
+    private static String toUpstreamTime(int hour) {
+        int hourOfDay = hour % 24;
+        int twelveHour = hourOfDay % 12 == 0 ? 12 : hourOfDay % 12;
+        return twelveHour + ":00" + (hourOfDay < 12 ? "am" : "pm");
+    }
+}
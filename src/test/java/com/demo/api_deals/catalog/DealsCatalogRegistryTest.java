@@ -0,0 +1,100 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+
+public class DealsCatalogRegistryTest {
+
+    private final DealsCatalogRegistry catalogRegistry = newRegistry();
+
+    @AfterEach
+    void tearDown() {
+        catalogRegistry.destroy();
+    }
+
+    @Test
+    void testPublish_onPublishedSource_expectCatalogInstalledAfterPublishing() {
+        // Arrange
+        DealsCatalog catalog = compile("R1");
+        AtomicReference<DealsCatalog> installedWhilePublishing = new AtomicReference<>();
+        AtomicReference<DealsCatalog> resolvedWhilePublishing = new AtomicReference<>();
+
+        // Act
+        catalogRegistry.publish(catalog, data -> {
+            installedWhilePublishing.set(catalogRegistry.getCurrent());
+            resolvedWhilePublishing.set(catalogRegistry.resolve(data));
+            return data;
+        });
+
+        // Assert
+        assertNull(installedWhilePublishing.get(), "Expected the catalog not to be installed until its snapshot was published");
+        assertSame(catalog, resolvedWhilePublishing.get(), "Expected requests seeing the new snapshot to resolve to the catalog being installed");
+        assertSame(catalog, catalogRegistry.getCurrent());
+        assertSame(catalog, catalogRegistry.resolve(catalog.getSource()));
+    }
+
+    @Test
+    void testPublish_onRejectedOrFailedPublish_expectCurrentCatalogKept() {
+        // Arrange
+        DealsCatalog current = compile("R1");
+        catalogRegistry.publish(current, data -> data);
+
+        // Act
+        Object rejected = catalogRegistry.publish(compile("R2"), data -> null);
+        assertThrows(IllegalArgumentException.class, () -> catalogRegistry.publish(compile("R3"), data -> {
+            throw new IllegalArgumentException("Invalid data");
+        }));
+
+        // Assert
+        assertNull(rejected);
+        assertSame(current, catalogRegistry.getCurrent(), "Expected a catalog whose snapshot wasn't published not to be installed");
+    }
+
+    @Test
+    void testResolve_onReplacedSnapshot_expectCurrentCatalogWithoutCompiling() {
+        // Arrange
+        DealsCatalog first = compile("R1");
+        DealsCatalog second = compile("R2");
+        DealsCatalog third = compile("R3");
+        catalogRegistry.publish(first, data -> data);
+        catalogRegistry.publish(second, data -> data);
+        catalogRegistry.publish(third, data -> data);
+
+        // Act
+        DealsCatalog resolvedSuperseded = catalogRegistry.resolve(second.getSource());
+        DealsCatalog resolvedReplaced = catalogRegistry.resolve(first.getSource());
+
+        // Assert
+        assertSame(second, resolvedSuperseded, "Expected the superseded catalog for requests still holding its snapshot");
+        assertSame(third, resolvedReplaced, "Expected an older snapshot to be answered from the current catalog");
+        assertSame(third, catalogRegistry.getCurrent(), "Expected an older snapshot never to be installed again");
+    }
+
+    private DealsCatalog compile(String restaurantObjectId) {
+        RestaurantResponseDto restaurant = RestaurantResponseDto.builder()
+                .objectId(restaurantObjectId)
+                .deals(new DealResponseDto[] { DealResponseDto.builder().objectId("D-" + restaurantObjectId).qtyLeft("1").build() })
+                .build();
+        return catalogRegistry.compile(Flux.just(restaurant)).block();
+    }
+
+    private static DealsCatalogRegistry newRegistry() {
+        DealsProperties dealsProperties = new DealsProperties();
+        dealsProperties.getShards().setCount(1);
+        return new DealsCatalogRegistry(new ResponseDtoToResponseMapper(), dealsProperties, new SimpleMeterRegistry());
+    }
+}
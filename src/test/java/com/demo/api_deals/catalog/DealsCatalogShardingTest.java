@@ -0,0 +1,115 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealFilter;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class DealsCatalogShardingTest {
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    @Test
+    void testFindActiveDeals_onShardedCatalog_expectSameResultsAsSingleShard() {
+        // Arrange
+        Scheduler scheduler = Schedulers.newParallel("test-shard", 4);
+        DealsCatalog.Builder single = new DealsCatalog.Builder(responseMapper);
+        DealsCatalog.Builder sharded = new DealsCatalog.Builder(responseMapper).shards(4, 0, scheduler);
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            RestaurantResponseDto restaurant = randomRestaurant(random, i);
+            single.add(restaurant);
+            sharded.add(restaurant);
+        }
+
+        // Act
+        DealsCatalog singleCatalog = single.build();
+        DealsCatalog shardedCatalog = sharded.build();
+
+        // Assert
+        assertEquals(4, shardedCatalog.shardCount());
+        assertEquals(singleCatalog.getPeakDeals(), shardedCatalog.getPeakDeals(), "Expected summed shard counts to give the same peak");
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute += 7) {
+            List<Deal> expected = singleCatalog.getActiveDeals(minute);
+            List<Deal> actual = shardedCatalog.findActiveDeals(minute).block();
+            assertEquals(expected, actual, "Expected merged shard results in source order at minute " + minute);
+        }
+        scheduler.dispose();
+    }
+
+    @Test
+    void testActiveQueries_onShardedCatalog_expectSameResultsAsSingleShard() {
+        // Arrange
+        DealsCatalog.Builder single = new DealsCatalog.Builder(responseMapper);
+        DealsCatalog.Builder sharded = new DealsCatalog.Builder(responseMapper).shards(4, Integer.MAX_VALUE, Schedulers.immediate());
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            RestaurantResponseDto restaurant = randomRestaurant(random, i);
+            single.add(restaurant);
+            sharded.add(restaurant);
+        }
+        DealsCatalog singleCatalog = single.build();
+        DealsCatalog shardedCatalog = sharded.build();
+        DealFilter filter = DealFilter.builder().dineIn(true).minDiscount(25).build();
+        int[] minutes = { 18 * 60, 7 * 60, 12 * 60 + 30, 7 * 60, 0, 23 * 60 + 59, 12 * 60 + 31 };
+
+        // Act
+        DealsCatalog.ActiveDealsBatch expectedBatch = singleCatalog.getActiveDealsBatch(minutes);
+        DealsCatalog.ActiveDealsBatch actualBatch = shardedCatalog.getActiveDealsBatch(minutes);
+
+        // Assert
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute += 11) {
+            assertEquals(singleCatalog.countActiveCandidates(minute), shardedCatalog.countActiveCandidates(minute));
+            assertEquals(singleCatalog.getActiveDeals(minute), shardedCatalog.getActiveDeals(minute), "Expected merged shard candidates at minute " + minute);
+            assertEquals(singleCatalog.getActiveDeals(minute, filter), shardedCatalog.getActiveDeals(minute, filter));
+            assertEquals(singleCatalog.streamActiveDeals(minute).collectList().block(), shardedCatalog.streamActiveDeals(minute).collectList().block());
+        }
+        assertEquals(expectedBatch.deals(), actualBatch.deals());
+        for (int slot = 0; slot < minutes.length; slot++) {
+            assertArrayEquals(expectedBatch.dealIndexes()[slot], actualBatch.dealIndexes()[slot], "Expected the same batch references for slot " + slot);
+        }
+        assertEquals(singleCatalog.answerActiveDeals(singleCatalog.buildAnswerTable(), 12 * 60), shardedCatalog.answerActiveDeals(shardedCatalog.buildAnswerTable(), 12 * 60));
+    }
+
+    private static RestaurantResponseDto randomRestaurant(Random random, int index) {
+        int open = random.nextInt(12) + 6;
+        DealResponseDto[] deals = new DealResponseDto[random.nextInt(4) + 1];
+        for (int i = 0; i < deals.length; i++) {
+            int start = open + random.nextInt(4);
+            deals[i] = DealResponseDto.builder()
+                    .objectId("D" + index + "-" + i)
+                    .discount(String.valueOf(10 + random.nextInt(40)))
+                    .dineIn(String.valueOf(random.nextBoolean()))
+                    .lightning(String.valueOf(random.nextBoolean()))
+                    .start(random.nextInt(5) == 0 ? null : toUpstreamTime(start))
+                    .end(random.nextInt(5) == 0 ? null : toUpstreamTime(start + 1 + random.nextInt(4)))
+                    .qtyLeft(String.valueOf(random.nextInt(4)))
+                    .build();
+        }
+        return RestaurantResponseDto.builder()
+                .objectId("R" + index)
+                .name("Restaurant " + index)
+                .open(toUpstreamTime(open))
+                .close(toUpstreamTime(open + 6))
+                .deals(deals)
+                .build();
+    }
+
+    private static String toUpstreamTime(int hour) {
+        int hourOfDay = hour % 24;
+        int twelveHour = hourOfDay % 12 == 0 ? 12 : hourOfDay % 12;
+        return twelveHour + ":00" + (hourOfDay < 12 ? "am" : "pm");
+    }
+}
@@ -0,0 +1,141 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+public class DealsCatalogTest {
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    @Test
+    void testGetActiveDeals_onDealHours_expectActiveWhileRestaurantOpenAndDealValid() {
+        // Arrange
+        DealsCatalog catalog = new DealsCatalog.Builder(responseMapper)
+                .add(restaurant("R1", "9:00am", "5:00pm", deal("D1", "3:00pm", "9:00pm", "5")))
+                .build();
+
+        // Act & Assert
+        assertEquals(List.of(), dealIds(catalog, 14 * 60 + 59));
+        assertEquals(List.of("D1"), dealIds(catalog, 15 * 60), "Expected the deal from its start");
+        assertEquals(List.of("D1"), dealIds(catalog, 16 * 60 + 59));
+        assertEquals(List.of(), dealIds(catalog, 17 * 60), "Expected the deal to end when the restaurant closes");
+    }
+
+    @Test
+    void testGetActiveDeals_onNullTimes_expectUnknownHoursNotToRestrict() {
+        // Arrange
+        DealsCatalog catalog = new DealsCatalog.Builder(responseMapper)
+                .add(restaurant("R1", "9:00am", "5:00pm", deal("D1", null, null, "5"), deal("D2", "3:00pm", null, "5")))
+                .add(restaurant("R2", null, null, deal("D3", "3:00pm", "9:00pm", "5"), deal("D4", null, null, "5")))
+                .build();
+
+        // Act & Assert
+        assertEquals(List.of("D1", "D2", "D4"), dealIds(catalog, 10 * 60), "Expected deals without (complete) times to follow the restaurant hours");
+        assertEquals(List.of("D1", "D2", "D3", "D4"), dealIds(catalog, 16 * 60));
+        assertEquals(List.of("D3", "D4"), dealIds(catalog, 20 * 60), "Expected restaurants without hours not to restrict their deals");
+        assertEquals(List.of("D4"), dealIds(catalog, 2 * 60));
+    }
+
+    @Test
+    void testGetActiveDeals_onOvernightHours_expectNeverActive() {
+        // Arrange
+        DealsCatalog catalog = new DealsCatalog.Builder(responseMapper)
+                .add(restaurant("R1", "6:00pm", "2:00am", deal("D1", null, null, "5")))
+                .add(restaurant("R2", "9:00am", "11:00pm", deal("D2", "10:00pm", "1:00am", "5")))
+                .build();
+
+        // Act & Assert
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute++) {
+            assertEquals(List.of(), dealIds(catalog, minute), "Expected overnight intervals to be inactive at minute " + minute);
+        }
+        assertEquals(0, catalog.countActiveCandidates(23 * 60));
+    }
+
+    @Test
+    void testGetActiveDeals_onQtyLeft_expectOnlyDealsWithQuantityLeft() {
+        // Arrange
+        DealsCatalog catalog = new DealsCatalog.Builder(responseMapper)
+                .add(restaurant("R1", null, null,
+                        deal("D1", null, null, "5"),
+                        deal("D2", null, null, "0"),
+                        deal("D3", null, null, null),
+                        deal("D4", null, null, "-1"),
+                        deal("D5", null, null, "2")))
+                .build();
+
+        // Act
+        List<String> before = dealIds(catalog, 12 * 60);
+        catalog.getInventory().claim("D5", 2);
+        List<String> after = dealIds(catalog, 12 * 60);
+
+        // Assert
+        assertEquals(List.of("D1", "D5"), before);
+        assertEquals(List.of("D1"), after, "Expected a deal claimed down to zero to stop being active");
+        assertEquals(5, catalog.countActiveCandidates(12 * 60), "Expected quantity to be checked after the time index");
+        assertTrue(catalog.getActiveDeals(12 * 60).stream().allMatch(deal -> deal.getQtyLeft() > 0));
+    }
+
+    @Test
+    void testGetActiveDealsBatch_onConcurrentClaims_expectNoSoldOutDealReferenced() throws Exception {
+        // Arrange
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper);
+        for (int i = 0; i < 50; i++) {
+            builder.add(restaurant("R" + i, null, null, deal("D" + i, i % 2 == 0 ? "9:00am" : null, null, "20")));
+        }
+        DealsCatalog catalog = builder.build();
+        int[] minutes = {8 * 60, 12 * 60, 10 * 60, 12 * 60, 23 * 60};
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Act
+        Future<?> claims = executor.submit(() -> {
+            for (int quantity = 0; quantity < 20; quantity++) {
+                for (int i = 0; i < 50; i++) {
+                    catalog.getInventory().claim("D" + i, 1);
+                }
+            }
+        });
+        List<DealsCatalog.ActiveDealsBatch> batches = new ArrayList<>();
+        while (!claims.isDone()) {
+            batches.add(catalog.getActiveDealsBatch(minutes));
+        }
+        claims.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert
+        for (DealsCatalog.ActiveDealsBatch batch : batches) {
+            for (int[] indexes : batch.dealIndexes()) {
+                for (int index : indexes) {
+                    assertTrue(batch.deals().get(index).getQtyLeft() > 0, "Expected every referenced deal to have the quantity it was kept for");
+                }
+            }
+        }
+        assertEquals(0, catalog.getActiveDealsBatch(minutes).deals().size(), "Expected sold out deals not to be returned");
+    }
+
+    private static List<String> dealIds(DealsCatalog catalog, int minute) {
+        return catalog.getActiveDeals(minute).stream().map(Deal::getDealObjectId).collect(Collectors.toList());
+    }
+
+    private static RestaurantResponseDto restaurant(String objectId, String open, String close, DealResponseDto... deals) {
+        return RestaurantResponseDto.builder().objectId(objectId).open(open).close(close).deals(deals).build();
+    }
+
+    private static DealResponseDto deal(String objectId, String start, String end, String qtyLeft) {
+        return DealResponseDto.builder().objectId(objectId).start(start).end(end).qtyLeft(qtyLeft).build();
+    }
+}
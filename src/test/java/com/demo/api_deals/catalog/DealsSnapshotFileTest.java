@@ -0,0 +1,170 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DealsSnapshotFileTest {
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRead_onWrittenCatalog_expectSameResultsAsCompiled() throws Exception {
+        // Arrange
+        DealsCatalog compiled = randomCatalog(new Random(17), 80);
+        Path path = directory.resolve("deals.snapshot");
+
+        // Act
+        DealsSnapshotFile.write(compiled, "v1", path);
+        DealsCatalog loaded = DealsSnapshotFile.read(path, "v1", new DealsCatalog.Builder(responseMapper));
+
+        // Assert
+        assertEquals(compiled.getSource(), loaded.getSource(), "Expected the source document to round trip");
+        assertEquals(compiled.size(), loaded.size());
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute++) {
+            assertEquals(compiled.getActiveDeals(minute), loaded.getActiveDeals(minute), "Expected the same active deals at minute " + minute);
+        }
+        assertArrayEquals(compiled.getPeakHistogram(), loaded.getPeakHistogram());
+        assertEquals(compiled.getPeakDeals(), loaded.getPeakDeals());
+        assertEquals(compiled.getNearbyDeals(720, -37.8, 144.9, 50_000, 20), loaded.getNearbyDeals(720, -37.8, 144.9, 50_000, 20));
+    }
+
+    @Test
+    void testRead_onCorruptedByte_expectIOException() throws Exception {
+        // Arrange
+        Path path = directory.resolve("deals.snapshot");
+        DealsSnapshotFile.write(randomCatalog(new Random(2), 10), "v1", path);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x40;
+        Files.write(path, bytes);
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> DealsSnapshotFile.read(path, "v1", new DealsCatalog.Builder(responseMapper)));
+    }
+
+    @Test
+    void testRead_onOtherDealMappingVersion_expectStaleSnapshotFileException() throws Exception {
+        // Arrange
+        Path path = directory.resolve("deals.snapshot");
+        DealsSnapshotFile.write(randomCatalog(new Random(3), 10), "v1", path);
+        byte[] bytes = Files.readAllBytes(path);
+        // The deal mapping version follows the magic and format version in the header
+        ByteBuffer.wrap(bytes).putInt(8, ResponseDtoToResponseMapper.DEAL_MAPPING_VERSION + 1);
+        Files.write(path, bytes);
+
+        // Act & Assert
+        assertThrows(DealsSnapshotFile.StaleSnapshotFileException.class, () -> DealsSnapshotFile.read(path, "v1", new DealsCatalog.Builder(responseMapper)));
+    }
+
+    @Test
+    void testLoadSnapshotFile_onStaleOrCorruptFile_expectNullAndJsonFallback() throws Exception {
+        // Arrange
+        Path path = directory.resolve("cache").resolve("deals.snapshot");
+        DealsProperties dealsProperties = new DealsProperties();
+        dealsProperties.getShards().setCount(1);
+        dealsProperties.getSnapshotFile().setPath(path.toString());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DealsCatalogRegistry catalogRegistry = new DealsCatalogRegistry(responseMapper, dealsProperties, meterRegistry);
+        DealsCatalog compiled = randomCatalog(new Random(4), 10);
+
+        // Act
+        DealsCatalog missing = catalogRegistry.loadSnapshotFile("v1");
+        catalogRegistry.saveSnapshotFile(compiled, "v1");
+        awaitFile(path);
+        DealsCatalog stale = catalogRegistry.loadSnapshotFile("v2");
+        DealsCatalog loaded = catalogRegistry.loadSnapshotFile("v1");
+        DealsCatalog installedOnLoad = catalogRegistry.getCurrent();
+        catalogRegistry.publish(loaded, data -> data);
+        Files.write(path, new byte[] { 1, 2, 3 });
+        DealsCatalog corrupt = catalogRegistry.loadSnapshotFile("v1");
+
+        // Assert
+        assertNull(missing);
+        assertNull(stale, "Expected a file written for other data to be ignored");
+        assertNotNull(loaded);
+        assertEquals(compiled.getSource(), loaded.getSource());
+        assertNull(installedOnLoad, "Expected the loaded catalog not to be installed before it is published");
+        assertSame(loaded, catalogRegistry.getCurrent(), "Expected the loaded catalog to be installed once published");
+        assertNull(corrupt, "Expected a corrupt file to be ignored");
+        for (String result : new String[] { "missing", "stale", "loaded", "corrupt" }) {
+            assertEquals(1.0, meterRegistry.get("deals.snapshot-file.loads").tag("result", result).counter().count(), result);
+        }
+        catalogRegistry.destroy();
+    }
+
+    private DealsCatalog randomCatalog(Random random, int restaurantCount) {
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper);
+        for (int i = 0; i < restaurantCount; i++) {
+            builder.add(randomRestaurant(random, i));
+        }
+        // A restaurant without deals, and one whose deal can't be mapped
+        builder.add(RestaurantResponseDto.builder().objectId("R-empty").name("Empty").open("9:00am").close("5:00pm").build());
+        builder.add(RestaurantResponseDto.builder().objectId("R-bad").name("Bad").open("9:00am").close("5:00pm")
+                .deals(new DealResponseDto[] { DealResponseDto.builder().objectId("D-bad").discount("lots").qtyLeft("1").build() })
+                .build());
+        return builder.build();
+    }
+
+    private static RestaurantResponseDto randomRestaurant(Random random, int index) {
+        DealResponseDto[] deals = new DealResponseDto[random.nextInt(3) + 1];
+        for (int i = 0; i < deals.length; i++) {
+            int start = random.nextInt(20);
+            deals[i] = DealResponseDto.builder()
+                    .objectId("D" + index + "-" + i)
+                    .discount(String.valueOf(5 + random.nextInt(50)))
+                    .dineIn(random.nextBoolean() ? String.valueOf(random.nextBoolean()) : null)
+                    .lightning(String.valueOf(random.nextBoolean()))
+                    .start(random.nextBoolean() ? toUpstreamTime(start) : null)
+                    .end(random.nextBoolean() ? toUpstreamTime(start + 1 + random.nextInt(4)) : null)
+                    .qtyLeft(random.nextInt(5) == 0 ? null : String.valueOf(random.nextInt(5)))
+                    .build();
+        }
+        int open = 6 + random.nextInt(8);
+        return RestaurantResponseDto.builder()
+                .objectId("R" + index)
+                .name("Restaurant " + index)
+                .suburb("Suburb " + random.nextInt(5))
+                .cuisines(random.nextBoolean() ? new String[] { "Thai", "Cuisine " + random.nextInt(3) } : null)
+                .latitude(random.nextInt(4) == 0 ? null : String.valueOf(-37.8 + random.nextDouble() / 10))
+                .longitude(String.valueOf(144.9 + random.nextDouble() / 10))
+                .open(toUpstreamTime(open))
+                .close(toUpstreamTime(open + 8))
+                .deals(deals)
+                .build();
+    }
+
+    private static String toUpstreamTime(int hour) {
+        int hourOfDay = hour % 24;
+        int twelveHour = hourOfDay % 12 == 0 ? 12 : hourOfDay % 12;
+        return twelveHour + ":00" + (hourOfDay < 12 ? "am" : "pm");
+    }
+
+    private static void awaitFile(Path path) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!Files.exists(path) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
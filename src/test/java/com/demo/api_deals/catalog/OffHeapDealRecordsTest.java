@@ -0,0 +1,159 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+import com.demo.contract_api_deals.models.Deal;
+
+public class OffHeapDealRecordsTest {
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+
+    @Test
+    void testCursor_onAddedDeals_expectStoredValues() {
+        // Arrange
+        Deal mapped = Deal.builder()
+                .restaurantObjectId("R1")
+                .restaurantName("Café Señor")
+                .restaurantAddress1(null)
+                .restaurantSuburb("Richmond")
+                .restaurantOpen("09:00")
+                .restaurantClose("17:00")
+                .dealObjectId("D1")
+                .discount(25)
+                .dineIn(false)
+                .lightning(null)
+                .qtyLeft(3)
+                .build();
+        OffHeapDealRecords.Builder builder = new OffHeapDealRecords.Builder();
+
+        // Act
+        builder.add(mapped);
+        builder.add(null);
+        builder.add(Deal.builder().restaurantObjectId("R1").dealObjectId("D2").dineIn(true).lightning(true).build());
+        OffHeapDealRecords records = (OffHeapDealRecords) builder.build();
+
+        // Assert
+        OffHeapDealRecords.Cursor cursor = records.reader();
+        assertEquals(mapped, cursor.deal(0));
+        assertNull(cursor.deal(1), "Expected an unmapped deal to read back as null");
+        assertFalse(cursor.moveTo(1).isMapped());
+        cursor.moveTo(2);
+        assertTrue(cursor.isMapped());
+        assertEquals("D2", cursor.dealObjectId());
+        assertEquals(DealColumns.MISSING, cursor.discount());
+        assertEquals(DealColumns.MISSING, cursor.qtyLeft());
+        assertEquals(Boolean.TRUE, cursor.dineIn());
+        assertEquals(Boolean.TRUE, cursor.lightning());
+        assertEquals(7, cursor.liveDeal(0, 7).getQtyLeft());
+        assertEquals(3 * OffHeapDealRecords.RECORD_BYTES, records.getOffHeapSizeBytes() - stringBytes("R1", "Café Señor", "Richmond", "09:00", "17:00", "D1", "D2"),
+                "Expected each distinct string to be stored once");
+    }
+
+    @Test
+    void testGetActiveDeals_onOffHeapCatalog_expectSameDealsAsHeapCatalog() {
+        // Arrange
+        Random random = new Random(23);
+        DealsCatalog.Builder heapBuilder = new DealsCatalog.Builder(responseMapper);
+        DealsCatalog.Builder offHeapBuilder = new DealsCatalog.Builder(responseMapper).offHeap(true);
+        for (int i = 0; i < 60; i++) {
+            RestaurantResponseDto restaurant = randomRestaurant(random, i);
+            heapBuilder.add(restaurant);
+            offHeapBuilder.add(restaurant);
+        }
+
+        // Act
+        DealsCatalog heap = heapBuilder.build();
+        DealsCatalog offHeap = offHeapBuilder.build();
+        heap.getInventory().claim("D3-0", 1);
+        offHeap.getInventory().claim("D3-0", 1);
+
+        // Assert
+        assertEquals(0, heap.getOffHeapSizeBytes());
+        assertTrue(offHeap.getOffHeapSizeBytes() > 0);
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute += 5) {
+            assertEquals(heap.getActiveDeals(minute), offHeap.getActiveDeals(minute), "Expected the same active deals at minute " + minute);
+        }
+        assertEquals(heap.getPeakDeals(), offHeap.getPeakDeals());
+    }
+
+    @Test
+    void testPatch_onPublishedOffHeapCatalog_expectCompactedCatalogReadingRestaurantsFromSource() {
+        // Arrange
+        Random random = new Random(29);
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper).offHeap(true).layering(1);
+        for (int i = 0; i < 20; i++) {
+            builder.add(randomRestaurant(random, i));
+        }
+        DealsCatalog offHeap = builder.build();
+        // Held here as the published snapshot would hold it
+        RestaurauntDealsResponseDto source = offHeap.getSource();
+        offHeap.releaseSource();
+        RestaurantResponseDto replacement = randomRestaurant(random, 3);
+
+        // Act
+        DealsCatalog patched = offHeap.patch(Map.of("R3", replacement),
+                new DealsCatalog.Builder(responseMapper).offHeap(true).layering(1)).catalog();
+
+        // Assert
+        assertSame(source, offHeap.getSource());
+        assertSame(source.getRestaurants()[5], offHeap.findRestaurant("R5"));
+        assertFalse(patched.isLayered(), "Expected a patch of an off-heap catalog to compact");
+        assertSame(replacement, patched.findRestaurant("R3"));
+        assertSame(source.getRestaurants()[5], patched.findRestaurant("R5"));
+        assertEquals(offHeap.size() - source.getRestaurants()[3].getDeals().length + replacement.getDeals().length, patched.size());
+    }
+
+    private static long stringBytes(String... values) {
+        long bytes = 0;
+        for (String value : values) {
+            bytes += Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    private static RestaurantResponseDto randomRestaurant(Random random, int index) {
+        DealResponseDto[] deals = new DealResponseDto[random.nextInt(3) + 1];
+        for (int i = 0; i < deals.length; i++) {
+            int start = random.nextInt(20);
+            deals[i] = DealResponseDto.builder()
+                    .objectId("D" + index + "-" + i)
+                    .discount(random.nextInt(10) == 0 ? "none" : String.valueOf(5 + random.nextInt(50)))
+                    .dineIn(random.nextBoolean() ? String.valueOf(random.nextBoolean()) : null)
+                    .lightning(String.valueOf(random.nextBoolean()))
+                    .start(random.nextBoolean() ? toUpstreamTime(start) : null)
+                    .end(random.nextBoolean() ? toUpstreamTime(start + 1 + random.nextInt(4)) : null)
+                    .qtyLeft(String.valueOf(2 + random.nextInt(3)))
+                    .build();
+        }
+        int open = 6 + random.nextInt(8);
+        return RestaurantResponseDto.builder()
+                .objectId("R" + index)
+                .name("Restaurant " + index + (random.nextBoolean() ? " – Crêperie" : ""))
+                .address1(random.nextBoolean() ? index + " Main St" : null)
+                .suburb("Suburb " + random.nextInt(5))
+                .open(toUpstreamTime(open))
+                .close(toUpstreamTime(open + 8))
+                .deals(deals)
+                .build();
+    }
+
+    private static String toUpstreamTime(int hour) {
+        int hourOfDay = hour % 24;
+        int twelveHour = hourOfDay % 12 == 0 ? 12 : hourOfDay % 12;
+        return twelveHour + ":00" + (hourOfDay < 12 ? "am" : "pm");
+    }
+}
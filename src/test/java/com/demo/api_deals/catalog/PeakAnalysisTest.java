@@ -0,0 +1,126 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class PeakAnalysisTest {
+
+    @Test
+    void testTopWindows_onTwoBusyPeriods_expectNonOverlappingBestFirst() {
+        // Arrange
+        int[] activeCounts = new int[TimeSegmentIndex.MINUTES_PER_DAY];
+        fill(activeCounts, 12 * 60, 13 * 60, 3);
+        fill(activeCounts, 18 * 60, 19 * 60, 5);
+        activeCounts[18 * 60 + 30] = 7;
+
+        // Act
+        List<PeakAnalysis.PeakWindow> windows = PeakAnalysis.topWindows(activeCounts, 60, 2);
+
+        // Assert
+        assertEquals(2, windows.size());
+        assertEquals(18 * 60, windows.get(0).startMinute(), "Expected the evening window first");
+        assertEquals(19 * 60, windows.get(0).endMinute());
+        assertEquals(59 * 5 + 7, windows.get(0).dealMinutes());
+        assertEquals(7, windows.get(0).maxActiveDeals(), "Expected the sliding maximum over the window");
+        assertEquals(12 * 60, windows.get(1).startMinute(), "Expected the lunch window second, without overlapping the first");
+        assertEquals(2, windows.get(1).rank());
+    }
+
+    @Test
+    void testTopWindows_onTiedWindows_expectTiesReturned() {
+        // Arrange
+        int[] activeCounts = new int[TimeSegmentIndex.MINUTES_PER_DAY];
+        fill(activeCounts, 8 * 60, 9 * 60, 4);
+        fill(activeCounts, 12 * 60, 13 * 60, 4);
+        fill(activeCounts, 20 * 60, 21 * 60, 4);
+
+        // Act
+        List<PeakAnalysis.PeakWindow> windows = PeakAnalysis.topWindows(activeCounts, 60, 1);
+
+        // Assert
+        assertEquals(3, windows.size(), "Expected every window tying with the best to be returned");
+        assertTrue(windows.stream().allMatch(window -> window.rank() == 1));
+        assertEquals(8 * 60, windows.get(0).startMinute(), "Expected ties earliest first");
+    }
+
+    @Test
+    void testTopWindows_onNoDeals_expectNoWindows() {
+        // Act & Assert
+        assertTrue(PeakAnalysis.topWindows(new int[TimeSegmentIndex.MINUTES_PER_DAY], 30, 3).isEmpty());
+    }
+
+    @Test
+    void testTopWindows_onRandomCounts_expectSameWindowsAsSortingEveryStart() {
+        // Arrange
+        Random random = new Random(5);
+        for (int iteration = 0; iteration < 100; iteration++) {
+            int[] activeCounts = new int[TimeSegmentIndex.MINUTES_PER_DAY];
+            for (int period = 0; period < 6; period++) {
+                int from = random.nextInt(TimeSegmentIndex.MINUTES_PER_DAY);
+                fill(activeCounts, from, Math.min(TimeSegmentIndex.MINUTES_PER_DAY, from + random.nextInt(180)), random.nextInt(4));
+            }
+            int windowMinutes = 1 + random.nextInt(120);
+            int top = 1 + random.nextInt(5);
+
+            // Act
+            List<PeakAnalysis.PeakWindow> windows = PeakAnalysis.topWindows(activeCounts, windowMinutes, top);
+
+            // Assert
+            assertEquals(sortedTopWindows(activeCounts, windowMinutes, top), windows, "Expected the same windows as sorting on iteration " + iteration);
+        }
+    }
+
+    /**
+     * Reference implementation: sorts every window start by score, then picks greedily as topWindows does.
+     */
+    private static List<PeakAnalysis.PeakWindow> sortedTopWindows(int[] activeCounts, int windowMinutes, int top) {
+        int windows = activeCounts.length - windowMinutes + 1;
+        long[] scores = new long[windows];
+        int[] maxima = new int[windows];
+        Integer[] starts = new Integer[windows];
+        for (int start = 0; start < windows; start++) {
+            starts[start] = start;
+            for (int minute = start; minute < start + windowMinutes; minute++) {
+                scores[start] += activeCounts[minute];
+                maxima[start] = Math.max(maxima[start], activeCounts[minute]);
+            }
+        }
+        Arrays.sort(starts, (a, b) -> scores[a] != scores[b] ? Long.compare(scores[b], scores[a]) : Integer.compare(a, b));
+
+        List<PeakAnalysis.PeakWindow> picked = new ArrayList<>();
+        BitSet covered = new BitSet(activeCounts.length);
+        long lastPickedScore = -1;
+        int rank = 0;
+        for (int start : starts) {
+            long score = scores[start];
+            if (score == 0 || (picked.size() >= top && score < lastPickedScore)) {
+                break;
+            }
+            int firstCovered = covered.nextSetBit(start);
+            if (firstCovered >= 0 && firstCovered < start + windowMinutes) {
+                continue;
+            }
+            if (score != lastPickedScore) {
+                rank = picked.size() + 1;
+                lastPickedScore = score;
+            }
+            covered.set(start, start + windowMinutes);
+            picked.add(new PeakAnalysis.PeakWindow(start, start + windowMinutes, score, maxima[start], rank));
+        }
+        return picked;
+    }
+
+    private static void fill(int[] counts, int from, int to, int value) {
+        for (int minute = from; minute < to; minute++) {
+            counts[minute] = value;
+        }
+    }
+}
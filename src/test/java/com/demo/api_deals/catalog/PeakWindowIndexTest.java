@@ -0,0 +1,76 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class PeakWindowIndexTest {
+
+    private static final int MINUTES = TimeSegmentIndex.MINUTES_PER_DAY;
+
+    @Test
+    void testPeakWindow_onOverlappingDeals_expectFirstMaximumToFirstEnd() {
+        // Arrange
+        int[] startsAt = new int[MINUTES];
+        int[] endsAt = new int[MINUTES];
+        addDeal(startsAt, endsAt, 12 * 60, 23 * 60);
+        addDeal(startsAt, endsAt, 15 * 60, 21 * 60);
+        addDeal(startsAt, endsAt, 17 * 60, 21 * 60);
+        addDeal(startsAt, endsAt, 8 * 60, 14 * 60);
+
+        // Act
+        PeakWindowIndex index = PeakWindowIndex.fromCounts(startsAt, endsAt);
+
+        // Assert
+        assertEquals(17 * 60, index.peakStartMinute(), "Expected peak to start at 5:00 PM");
+        assertEquals(21 * 60, index.peakEndMinute(), "Expected peak to end at 9:00 PM");
+    }
+
+    @Test
+    void testPeakWindow_onIncrementalUpdates_expectSameAsRebuild() {
+        // Arrange
+        int[] startsAt = new int[MINUTES];
+        int[] endsAt = new int[MINUTES];
+        addDeal(startsAt, endsAt, 12 * 60, 23 * 60);
+        addDeal(startsAt, endsAt, 15 * 60, 21 * 60);
+        PeakWindowIndex index = PeakWindowIndex.fromCounts(startsAt, endsAt);
+
+        // Act
+        index.add(8 * 60, 13 * 60);
+        index.add(8 * 60, 13 * 60);
+        index.change(15 * 60, 21 * 60, 9 * 60, 10 * 60);
+
+        // Assert
+        int[] expectedStartsAt = new int[MINUTES];
+        int[] expectedEndsAt = new int[MINUTES];
+        addDeal(expectedStartsAt, expectedEndsAt, 12 * 60, 23 * 60);
+        addDeal(expectedStartsAt, expectedEndsAt, 8 * 60, 13 * 60);
+        addDeal(expectedStartsAt, expectedEndsAt, 8 * 60, 13 * 60);
+        addDeal(expectedStartsAt, expectedEndsAt, 9 * 60, 10 * 60);
+        PeakWindowIndex rebuilt = PeakWindowIndex.fromCounts(expectedStartsAt, expectedEndsAt);
+
+        assertEquals(9 * 60, index.peakStartMinute(), "Expected peak to start at 9:00 AM");
+        assertEquals(10 * 60, index.peakEndMinute(), "Expected peak to end at 10:00 AM");
+        assertEquals(rebuilt.peakStartMinute(), index.peakStartMinute());
+        assertEquals(rebuilt.peakEndMinute(), index.peakEndMinute());
+    }
+
+    @Test
+    void testPeakWindow_onAllDealsRemoved_expectNoPeak() {
+        // Arrange
+        PeakWindowIndex index = PeakWindowIndex.fromCounts(new int[MINUTES], new int[MINUTES]);
+        index.add(9 * 60, 10 * 60);
+
+        // Act
+        index.remove(9 * 60, 10 * 60);
+
+        // Assert
+        assertEquals(-1, index.peakStartMinute());
+        assertEquals(-1, index.peakEndMinute());
+    }
+
+    private void addDeal(int[] startsAt, int[] endsAt, int start, int end) {
+        startsAt[start]++;
+        endsAt[end]++;
+    }
+}
@@ -0,0 +1,71 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class SortedRunsTest {
+
+    @Test
+    void testMerge_onRandomRuns_expectSameRowsAsSorting() {
+        // Arrange
+        Random random = new Random(11);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            int runCount = random.nextInt(6) + 2;
+            int[][] runs = new int[runCount][];
+            int[] sizes = new int[runCount];
+            int rowCount = random.nextInt(60);
+            int[] runOfRow = new int[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                runOfRow[row] = random.nextInt(runCount);
+                sizes[runOfRow[row]]++;
+            }
+            for (int run = 0; run < runCount; run++) {
+                runs[run] = new int[sizes[run]];
+                sizes[run] = 0;
+            }
+            for (int row = 0; row < rowCount; row++) {
+                runs[runOfRow[row]][sizes[runOfRow[row]]++] = row;
+            }
+
+            // Act
+            int[] merged = SortedRuns.merge(runs);
+
+            // Assert
+            int[] expected = new int[rowCount];
+            Arrays.setAll(expected, row -> row);
+            assertArrayEquals(expected, merged, "Expected every row once in ascending order on iteration " + iteration);
+        }
+    }
+
+    @Test
+    void testMerge_onLengths_expectOnlyPrefixesVisited() {
+        // Arrange
+        int[][] runs = { { 1, 4, 9, 99 }, { 0, 5, 98 }, { 2, 3 } };
+        int[] lengths = { 3, 2, 2 };
+        int[] visited = new int[7];
+        int[] count = new int[1];
+
+        // Act
+        SortedRuns.merge(runs, lengths, (run, index) -> visited[count[0]++] = runs[run][index]);
+
+        // Assert
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 9 }, visited);
+    }
+
+    @Test
+    void testMerge_onSingleRun_expectRunReturned() {
+        // Arrange
+        int[] run = { 3, 7 };
+
+        // Act
+        int[] merged = SortedRuns.merge(new int[][] { run });
+
+        // Assert
+        assertSame(run, merged);
+    }
+}
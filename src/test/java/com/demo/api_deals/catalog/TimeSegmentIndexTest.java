@@ -0,0 +1,87 @@
+package com.demo.api_deals.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class TimeSegmentIndexTest {
+
+    @Test
+    void testActiveAt_onRandomIntervals_expectSameEntriesAsScan() {
+        // Arrange
+        Random random = new Random(11);
+        int count = 500;
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = random.nextInt(TimeSegmentIndex.MINUTES_PER_DAY);
+            ends[i] = 1 + random.nextInt(TimeSegmentIndex.MINUTES_PER_DAY);
+        }
+
+        // Act
+        TimeSegmentIndex index = TimeSegmentIndex.build(starts, ends, count);
+
+        // Assert
+        for (int minute = 0; minute < TimeSegmentIndex.MINUTES_PER_DAY; minute++) {
+            int queryMinute = minute;
+            int[] expected = IntStream.range(0, count)
+                    .filter(i -> starts[i] <= queryMinute && queryMinute < ends[i])
+                    .toArray();
+            assertArrayEquals(expected, index.activeAt(minute), "Expected the entries active at minute " + minute);
+        }
+    }
+
+    @Test
+    void testActiveAt_onBoundaries_expectHalfOpenIntervals() {
+        // Arrange
+        int[] starts = { 0, 9 * 60, 12 * 60 };
+        int[] ends = { TimeSegmentIndex.MINUTES_PER_DAY, 12 * 60, 13 * 60 };
+
+        // Act
+        TimeSegmentIndex index = TimeSegmentIndex.build(starts, ends, 3);
+
+        // Assert
+        assertArrayEquals(new int[] { 0 }, index.activeAt(9 * 60 - 1));
+        assertArrayEquals(new int[] { 0, 1 }, index.activeAt(9 * 60), "Expected an entry to be active from its start minute");
+        assertArrayEquals(new int[] { 0, 2 }, index.activeAt(12 * 60), "Expected an entry to be inactive from its end minute");
+        assertArrayEquals(new int[] { 0 }, index.activeAt(TimeSegmentIndex.MINUTES_PER_DAY - 1), "Expected an entry ending at 1440 to be active in the last minute");
+    }
+
+    @Test
+    void testActiveAt_onOvernightAndEmptyIntervals_expectNotIndexed() {
+        // Arrange
+        int[] starts = { 22 * 60, 10 * 60, 8 * 60 };
+        int[] ends = { 2 * 60, 10 * 60, 9 * 60 };
+
+        // Act
+        TimeSegmentIndex index = TimeSegmentIndex.build(starts, ends, 3);
+
+        // Assert
+        assertArrayEquals(new int[0], index.activeAt(23 * 60), "Expected an overnight interval (start after end) never to be active");
+        assertArrayEquals(new int[0], index.activeAt(60));
+        assertArrayEquals(new int[0], index.activeAt(10 * 60), "Expected an empty interval never to be active");
+        assertArrayEquals(new int[] { 2 }, index.activeAt(8 * 60 + 30));
+    }
+
+    @Test
+    void testSegments_onIntervals_expectSegmentPerDistinctBoundary() {
+        // Arrange
+        int[] starts = { 60, 60, 120 };
+        int[] ends = { 120, 180, 180 };
+
+        // Act
+        TimeSegmentIndex index = TimeSegmentIndex.build(starts, ends, 3);
+
+        // Assert
+        assertEquals(4, index.segmentCount());
+        assertEquals(0, index.segmentStart(0));
+        assertEquals(60, index.segmentStart(1));
+        assertEquals(2, index.segmentOf(150));
+        assertArrayEquals(new int[] { 1, 2 }, index.segmentEntries(2));
+        assertArrayEquals(new int[0], index.segmentEntries(3));
+    }
+}
@@ -1,9 +1,15 @@
 package com.demo.api_deals.controller;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 
 import java.time.Duration;
 import java.time.LocalTime;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -11,15 +17,26 @@ import org.junit.jupiter.api.TestInstance;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webtestclient.autoconfigure.AutoConfigureWebTestClient;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import com.demo.api_deals.BaseTestClass;
 import com.demo.api_deals.helpers.FileLoader;
+import com.demo.api_deals.model.BatchActiveDealsResponse;
+import com.demo.api_deals.model.DealClaimResponse;
+import com.demo.api_deals.model.DealFilter;
+import com.demo.api_deals.model.DealsDeltaResponse;
+import com.demo.api_deals.model.DealsError;
+import com.demo.api_deals.model.NearbyDealsResponse;
 import com.demo.api_deals.service.DealsService;
 import com.demo.contract_api_deals.models.ActiveDealsResponse;
+import com.demo.contract_api_deals.models.Deal;
 import com.demo.contract_api_deals.models.PeakDealsResponse;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @AutoConfigureWebTestClient
@@ -215,6 +232,59 @@ public class DealsApiControllerTest extends BaseTestClass {
         Mockito.verify(dealsService, Mockito.times(1)).getActiveDeals(any(LocalTime.class));
     }
 
+    @Test
+    void testStreamActiveDeals_onValidInput_expectNdjsonDeals() {
+        // Arrange
+        ActiveDealsResponse mockResponse = (ActiveDealsResponse) fileLoader.readFileAsObject("responses/service-success-active-deals-response.json", ActiveDealsResponse.class);
+        String timeOfDay = "14:30";
+
+        Mockito.when(dealsService.streamActiveDeals(any(LocalTime.class)))
+                .thenReturn(Flux.fromIterable(mockResponse.getDeals()));
+
+        // Act
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active/stream")
+                        .queryParam("timeOfDay", timeOfDay)
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(200)
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Deal.class)
+                .isEqualTo(mockResponse.getDeals());
+
+        Mockito.verify(dealsService, Mockito.times(1)).streamActiveDeals(any(LocalTime.class));
+    }
+
+    @Test
+    void testStreamActiveDeals_onInvalidQueryParam_expect400BadRequest() {
+        // Arrange
+        String timeOfDay = "abcd";
+
+        // Act
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active/stream")
+                        .queryParam("timeOfDay", timeOfDay)
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .header("x-tracking-id", "myid123")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(400)
+                .expectBody()
+                .jsonPath("$.errorMessage").isEqualTo("Invalid format for queryParameter: timeOfDay. Expected HH:mm e.g. 14:30")
+                .jsonPath("$.errorCode").isEqualTo("BAD_REQUEST")
+                .jsonPath("$.trackingId").isEqualTo("myid123");
+
+        Mockito.verify(dealsService, Mockito.times(0)).streamActiveDeals(any(LocalTime.class));
+    }
+
     @Test
     void testGetPeakDeals_onSuccessfulLookup_expectSuccessResponse() {
         // Arrange
@@ -325,4 +395,357 @@ public class DealsApiControllerTest extends BaseTestClass {
         Mockito.verify(dealsService, Mockito.times(1)).getPeakDeals();
     }
 
+
+    @Test
+    void testClaimDeal_onValidInput_expectSuccessResponse() {
+        // Arrange
+        DealClaimResponse mockResponse = DealClaimResponse.builder()
+                .dealObjectId("D80263E8-0000-2C70-FF6B-D854ADB8DB02")
+                .quantityClaimed(2)
+                .qtyLeft(3)
+                .build();
+
+        Mockito.when(dealsService.claimDeal(eq("D80263E8-0000-2C70-FF6B-D854ADB8DB02"), eq(2)))
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        webTestClient.post()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/deals/D80263E8-0000-2C70-FF6B-D854ADB8DB02/claim")
+                        .queryParam("quantity", 2)
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(200)
+                .expectBody(DealClaimResponse.class)
+                .isEqualTo(mockResponse);
+
+        Mockito.verify(dealsService, Mockito.times(1)).claimDeal(anyString(), anyInt());
+    }
+
+    @Test
+    void testClaimDeal_onSoldOut_expect409Conflict() {
+        // Arrange
+        Mockito.when(dealsService.claimDeal(anyString(), anyInt()))
+                .thenReturn(Mono.error(DealsError.builder()
+                        .message("Not enough left")
+                        .errorCode("CONFLICT")
+                        .httpStatus(HttpStatus.CONFLICT)
+                        .build()));
+
+        // Act
+        webTestClient.post()
+                .uri("/v1/deals/D80263E8-0000-2C70-FF6B-D854ADB8DB02/claim")
+                .header("x-api-key", "DUMMY_VALUE")
+                .header("x-tracking-id", "myid123")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("CONFLICT")
+                .jsonPath("$.trackingId").isEqualTo("myid123");
+
+        Mockito.verify(dealsService, Mockito.times(1)).claimDeal(anyString(), eq(1));
+    }
+
+    @Test
+    void testClaimDeal_onInvalidQuantity_expect400BadRequest() {
+        // Act
+        webTestClient.post()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/deals/D80263E8-0000-2C70-FF6B-D854ADB8DB02/claim")
+                        .queryParam("quantity", 0)
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(400)
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("BAD_REQUEST");
+
+        Mockito.verify(dealsService, Mockito.times(0)).claimDeal(anyString(), anyInt());
+    }
+
+    @Test
+    void testApplyDeltas_onValidInput_expectSuccessResponse() {
+        // Arrange
+        DealsDeltaResponse mockResponse = DealsDeltaResponse.builder()
+                .applied(1)
+                .snapshotVersion(4L)
+                .unknownDealObjectIds(List.of())
+                .build();
+
+        Mockito.when(dealsService.applyDeltas(anyList()))
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        webTestClient.post()
+                .uri("/v1/deals/deltas")
+                .header("x-api-key", "DUMMY_VALUE")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"type\":\"SET_QUANTITY\",\"dealObjectId\":\"D80263E8-0000-2C70-FF6B-D854ADB8DB02\",\"qtyLeft\":3}]")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(200)
+                .expectBody(DealsDeltaResponse.class)
+                .isEqualTo(mockResponse);
+
+        Mockito.verify(dealsService, Mockito.times(1)).applyDeltas(anyList());
+    }
+
+    @Test
+    void testApplyDeltas_onEmptyBatch_expect400BadRequest() {
+        // Act
+        webTestClient.post()
+                .uri("/v1/deals/deltas")
+                .header("x-api-key", "DUMMY_VALUE")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[]")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(400)
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("BAD_REQUEST");
+
+        Mockito.verify(dealsService, Mockito.times(0)).applyDeltas(anyList());
+    }
+
+    @Test
+    void testGetPeakDeals_onMatchingIfNoneMatch_expect304WithoutCallingService() {
+        // Arrange
+        PeakDealsResponse mockResponse = new PeakDealsResponse("17:00", "21:00");
+
+        Mockito.when(dealsService.getPeakDeals())
+                .thenReturn(Mono.just(mockResponse));
+
+        String eTag = webTestClient.get()
+                .uri("/v1/peak")
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+                .expectStatus().isEqualTo(200)
+                .expectHeader().exists("ETag")
+                .expectHeader().cacheControl(CacheControl.noCache())
+                .returnResult(PeakDealsResponse.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // Act
+        webTestClient.get()
+                .uri("/v1/peak")
+                .header("x-api-key", "DUMMY_VALUE")
+                .header("If-None-Match", eTag)
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(304)
+                .expectHeader().valueEquals("ETag", eTag)
+                .expectBody().isEmpty();
+
+        Mockito.verify(dealsService, Mockito.times(1)).getPeakDeals();
+    }
+
+    @Test
+    void testGetActiveDeals_onMatchingIfNoneMatch_expect304WithoutCallingService() {
+        // Arrange
+        ActiveDealsResponse mockResponse = (ActiveDealsResponse) fileLoader.readFileAsObject("responses/service-success-active-deals-response.json", ActiveDealsResponse.class);
+
+        Mockito.when(dealsService.getActiveDeals(any(LocalTime.class)))
+                .thenReturn(Mono.just(mockResponse));
+
+        String eTag = webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active")
+                        .queryParam("timeOfDay", "14:30")
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+                .expectStatus().isEqualTo(200)
+                .expectHeader().exists("Cache-Control")
+                .returnResult(ActiveDealsResponse.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // Act
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active")
+                        .queryParam("timeOfDay", "14:30")
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .header("If-None-Match", eTag)
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(304);
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active")
+                        .queryParam("timeOfDay", "14:31")
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .header("If-None-Match", eTag)
+                .exchange()
+                .expectStatus().isEqualTo(200);
+
+        Mockito.verify(dealsService, Mockito.times(2)).getActiveDeals(any(LocalTime.class));
+    }
+
+    @Test
+    void testGetActiveDealsBatch_onRange_expectSlotPerStep() {
+        // Arrange
+        BatchActiveDealsResponse mockResponse = BatchActiveDealsResponse.builder()
+                .deals(List.of())
+                .slots(List.of())
+                .build();
+
+        Mockito.when(dealsService.getActiveDealsBatch(anyList()))
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active/batch")
+                        .queryParam("from", "08:00")
+                        .queryParam("to", "23:00")
+                        .queryParam("stepMinutes", 15)
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(200);
+
+        Mockito.verify(dealsService, Mockito.times(1)).getActiveDealsBatch(Mockito.argThat(times -> times.size() == 61
+                && times.get(0).equals(LocalTime.of(8, 0)) && times.get(60).equals(LocalTime.of(23, 0))));
+    }
+
+    @Test
+    void testGetActiveDealsBatch_onListAndRange_expect400BadRequest() {
+        // Act
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active/batch")
+                        .queryParam("timeOfDay", "08:00,09:00")
+                        .queryParam("from", "08:00")
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(400)
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("BAD_REQUEST");
+
+        Mockito.verify(dealsService, Mockito.times(0)).getActiveDealsBatch(anyList());
+    }
+
+    @Test
+    void testSearchActiveDeals_onFilters_expectFilterPassedToService() {
+        // Arrange
+        ActiveDealsResponse mockResponse = ActiveDealsResponse.builder()
+                .deals(List.of())
+                .build();
+
+        Mockito.when(dealsService.getActiveDeals(any(LocalTime.class), any(DealFilter.class)))
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active/search")
+                        .queryParam("timeOfDay", "15:00")
+                        .queryParam("suburb", "Melbourne")
+                        .queryParam("dineIn", "true")
+                        .queryParam("minDiscount", "20")
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(200);
+
+        Mockito.verify(dealsService, Mockito.times(1)).getActiveDeals(eq(LocalTime.of(15, 0)),
+                eq(DealFilter.builder().suburb("Melbourne").dineIn(true).minDiscount(20).build()));
+    }
+
+    @Test
+    void testSearchActiveDeals_onInvalidDineIn_expect400BadRequest() {
+        // Act
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active/search")
+                        .queryParam("timeOfDay", "15:00")
+                        .queryParam("dineIn", "sometimes")
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(400)
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("BAD_REQUEST");
+
+        Mockito.verify(dealsService, Mockito.times(0)).getActiveDeals(any(LocalTime.class), any(DealFilter.class));
+    }
+
+    @Test
+    void testGetNearbyDeals_onNoRadiusOrLimit_expect400BadRequest() {
+        // Act
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active/nearby")
+                        .queryParam("timeOfDay", "15:00")
+                        .queryParam("latitude", "-37.8136")
+                        .queryParam("longitude", "144.9631")
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(400)
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("BAD_REQUEST");
+
+        Mockito.verify(dealsService, Mockito.times(0)).getNearbyDeals(any(LocalTime.class), anyDouble(), anyDouble(), any(), any());
+    }
+
+    @Test
+    void testGetNearbyDeals_onLimit_expectNearestDealsFromService() {
+        // Arrange
+        NearbyDealsResponse mockResponse = NearbyDealsResponse.builder()
+                .deals(List.of(NearbyDealsResponse.NearbyDeal.builder()
+                        .deal(Deal.builder().dealObjectId("D80263E8-0000-2C70-FF6B-D854ADB8DB02").build())
+                        .distanceMeters(120L)
+                        .build()))
+                .build();
+
+        Mockito.when(dealsService.getNearbyDeals(any(LocalTime.class), anyDouble(), anyDouble(), any(), any()))
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/active/nearby")
+                        .queryParam("timeOfDay", "15:00")
+                        .queryParam("latitude", "-37.8136")
+                        .queryParam("longitude", "144.9631")
+                        .queryParam("limit", "5")
+                        .build())
+                .header("x-api-key", "DUMMY_VALUE")
+                .exchange()
+
+        // Assert
+                .expectStatus().isEqualTo(200)
+                .expectBody()
+                .jsonPath("$.deals[0].distanceMeters").isEqualTo(120);
+
+        Mockito.verify(dealsService, Mockito.times(1)).getNearbyDeals(eq(LocalTime.of(15, 0)), eq(-37.8136), eq(144.9631), Mockito.isNull(), eq(5));
+    }
 }
@@ -0,0 +1,48 @@
+package com.demo.api_deals.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+
+public class UpstreamTimeParserTest {
+
+    private final UpstreamTimeParser timeParser = new UpstreamTimeParser();
+
+    @Test
+    void testParseMinuteOfDay_onValidTimes_expectMinuteOfDay() {
+        // Act & Assert
+        assertEquals(15 * 60, timeParser.parseMinuteOfDay("3:00pm"), "Expected 3:00pm to be 15:00");
+        assertEquals(0, timeParser.parseMinuteOfDay("12:00am"), "Expected 12:00am to be midnight");
+        assertEquals(12 * 60 + 30, timeParser.parseMinuteOfDay("12:30pm"), "Expected 12:30pm to be 12:30");
+        assertEquals(23 * 60 + 45, timeParser.parseMinuteOfDay("11:45PM"), "Expected am/pm to be case insensitive");
+        assertEquals(0, timeParser.getMalformedCount(), "Expected no malformed values");
+    }
+
+    @Test
+    void testLookup_onValidTime_expectInternedResult() {
+        // Act
+        UpstreamTimeParser.ParsedTime first = timeParser.lookup("9:30am");
+        UpstreamTimeParser.ParsedTime second = timeParser.lookup("9:30am");
+
+        // Assert
+        assertSame(first, second, "Expected repeated lookups to return the interned result");
+        assertEquals(LocalTime.of(9, 30), first.localTime());
+        assertEquals("09:30", first.upstreamFormat());
+    }
+
+    @Test
+    void testParseMinuteOfDay_onMalformedTimes_expectInvalidAndCounted() {
+        // Act & Assert
+        assertEquals(UpstreamTimeParser.INVALID, timeParser.parseMinuteOfDay("13:00pm"));
+        assertEquals(UpstreamTimeParser.INVALID, timeParser.parseMinuteOfDay("3:60pm"));
+        assertEquals(UpstreamTimeParser.INVALID, timeParser.parseMinuteOfDay("15:00"));
+        assertEquals(UpstreamTimeParser.INVALID, timeParser.parseMinuteOfDay("15:00"));
+        assertEquals(UpstreamTimeParser.INVALID, timeParser.parseMinuteOfDay(null));
+        assertNull(timeParser.lookup(""));
+        assertEquals(4, timeParser.getMalformedCount(), "Expected every malformed lookup to be counted, but not null/empty values");
+    }
+}
@@ -0,0 +1,191 @@
+package com.demo.api_deals.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.demo.api_deals.catalog.DealsCatalog;
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.DealsDelta;
+import com.demo.api_deals.model.DealsDeltaResponse;
+import com.demo.api_deals.model.RestaurantResponseDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class DealsDeltaIngestorTest {
+
+    private final DealsSnapshotHolder snapshotHolder = new DealsSnapshotHolder();
+    private final DealsCatalogRegistry catalogRegistry = Mockito.spy(newRegistry());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DealsDeltaIngestor ingestor = new DealsDeltaIngestor(snapshotHolder, catalogRegistry, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        catalogRegistry.destroy();
+    }
+
+    @Test
+    void testApply_onBatchesQueuedTogether_expectOnePatch() {
+        // Arrange
+        publish(restaurant("R1", "D1-0"), restaurant("R2", "D2-0"));
+        Mono<DealsDeltaResponse> first = ingestor.apply(List.of(upsertRestaurant(restaurant("R3", "D3-0"))));
+        Mono<DealsDeltaResponse> second = ingestor.apply(List.of(deleteRestaurant("R1")));
+        Mono<DealsDeltaResponse> third = ingestor.apply(List.of(upsertRestaurant(restaurant("R2", "D2-1"))));
+
+        // Act
+        DealsDeltaResponse firstResponse = first.block();
+        DealsDeltaResponse secondResponse = second.block();
+        DealsDeltaResponse thirdResponse = third.block();
+
+        // Assert
+        assertEquals(1, meterRegistry.get("deals.deltas.patches").counter().count(), "Expected the queued batches to be applied as one patch");
+        assertEquals(firstResponse.getSnapshotVersion(), secondResponse.getSnapshotVersion());
+        assertEquals(firstResponse.getSnapshotVersion(), thirdResponse.getSnapshotVersion());
+        assertEquals(firstResponse.getSnapshotVersion(), snapshotHolder.getCurrent().getVersion());
+        DealsCatalog catalog = currentCatalog();
+        assertNull(catalog.findRestaurant("R1"));
+        assertEquals("D2-1", catalog.findRestaurant("R2").getDeals()[0].getObjectId());
+        assertNotNull(catalog.findRestaurant("R3"));
+    }
+
+    @Test
+    void testApply_onInvalidBatchQueuedWithOthers_expectOnlyInvalidBatchRejected() {
+        // Arrange
+        publish(restaurant("R1", "D1-0"));
+        Mono<DealsDeltaResponse> valid = ingestor.apply(List.of(upsertRestaurant(restaurant("R2", "D2-0"))));
+        Mono<DealsDeltaResponse> invalid = ingestor.apply(List.of(
+                upsertRestaurant(restaurant("R3", "D3-0")),
+                DealsDelta.builder().type(DealsDelta.Type.UPSERT_DEAL).restaurantObjectId("R404").deal(deal("D404-0")).build()));
+        Mono<DealsDeltaResponse> quantity = ingestor.apply(List.of(setQuantity("D1-0", 1)));
+
+        // Act
+        DealsDeltaResponse validResponse = valid.block();
+        assertThrows(IllegalArgumentException.class, invalid::block);
+        DealsDeltaResponse quantityResponse = quantity.block();
+
+        // Assert
+        assertEquals(1, validResponse.getApplied());
+        assertEquals(1, quantityResponse.getApplied());
+        DealsCatalog catalog = currentCatalog();
+        assertNotNull(catalog.findRestaurant("R2"));
+        assertNull(catalog.findRestaurant("R3"), "Expected none of the invalid batch to be applied");
+        assertEquals(1, catalog.getInventory().qtyLeftOf("D1-0"));
+    }
+
+    @Test
+    void testApply_onReloadWhilePatching_expectPatchRebuiltOnReloadedSnapshot() {
+        // Arrange
+        publish(restaurant("R1", "D1-0"));
+        boolean[] reloaded = new boolean[1];
+        Mockito.doAnswer(invocation -> {
+            if (!reloaded[0]) {
+                reloaded[0] = true;
+                publish(restaurant("R1", "D1-0"), restaurant("R9", "D9-0"));
+            }
+            return invocation.callRealMethod();
+        }).when(catalogRegistry).patch(any(), any());
+
+        // Act
+        DealsDeltaResponse response = ingestor.apply(List.of(upsertRestaurant(restaurant("R2", "D2-0")))).block();
+
+        // Assert
+        Mockito.verify(catalogRegistry, Mockito.times(2)).patch(any(), any());
+        assertEquals(snapshotHolder.getCurrent().getVersion(), response.getSnapshotVersion());
+        DealsCatalog catalog = currentCatalog();
+        assertNotNull(catalog.findRestaurant("R2"));
+        assertNotNull(catalog.findRestaurant("R9"), "Expected the patch to be applied on top of the reloaded snapshot");
+    }
+
+    @Test
+    void testApply_onSnapshotChangingOnEveryAttempt_expectErrorAfterMaxAttempts() {
+        // Arrange
+        publish(restaurant("R1", "D1-0"));
+        Mockito.doAnswer(invocation -> {
+            publish(restaurant("R1", "D1-0"));
+            return invocation.callRealMethod();
+        }).when(catalogRegistry).patch(any(), any());
+
+        // Act
+        Mono<DealsDeltaResponse> result = ingestor.apply(List.of(upsertRestaurant(restaurant("R2", "D2-0"))));
+
+        // Assert
+        assertThrows(IllegalStateException.class, result::block);
+        Mockito.verify(catalogRegistry, Mockito.times(3)).patch(any(), any());
+        assertNull(currentCatalog().findRestaurant("R2"));
+    }
+
+    @Test
+    void testApply_onQuantitiesForUnknownDeals_expectUnknownDealsReported() {
+        // Arrange
+        publish(restaurant("R1", "D1-0"));
+
+        // Act
+        DealsDeltaResponse response = ingestor.apply(List.of(
+                setQuantity("D1-0", 3),
+                setQuantity("D-missing", 2),
+                upsertRestaurant(restaurant("R2", "D2-0")),
+                setQuantity("D2-0", 1))).block();
+
+        // Assert
+        assertEquals(4, response.getApplied());
+        assertEquals(List.of("D-missing"), response.getUnknownDealObjectIds());
+        DealsCatalog catalog = currentCatalog();
+        assertEquals(3, catalog.getInventory().qtyLeftOf("D1-0"));
+        assertEquals(1, catalog.getInventory().qtyLeftOf("D2-0"), "Expected quantities to apply to deals added in the same batch");
+    }
+
+    /**
+     * Compiles and publishes a new snapshot of the given restaurants, as a full reload does.
+     */
+    private void publish(RestaurantResponseDto... restaurants) {
+        DealsCatalog catalog = catalogRegistry.compile(Flux.just(restaurants)).block();
+        catalogRegistry.publish(catalog, snapshotHolder::publish);
+    }
+
+    private DealsCatalog currentCatalog() {
+        return catalogRegistry.resolve(snapshotHolder.getCurrent().getData());
+    }
+
+    private static DealsDelta upsertRestaurant(RestaurantResponseDto restaurant) {
+        return DealsDelta.builder().type(DealsDelta.Type.UPSERT_RESTAURANT).restaurant(restaurant).build();
+    }
+
+    private static DealsDelta deleteRestaurant(String objectId) {
+        return DealsDelta.builder().type(DealsDelta.Type.DELETE_RESTAURANT).restaurantObjectId(objectId).build();
+    }
+
+    private static DealsDelta setQuantity(String dealObjectId, int qtyLeft) {
+        return DealsDelta.builder().type(DealsDelta.Type.SET_QUANTITY).dealObjectId(dealObjectId).qtyLeft(qtyLeft).build();
+    }
+
+    private static RestaurantResponseDto restaurant(String objectId, String dealObjectId) {
+        return RestaurantResponseDto.builder()
+                .objectId(objectId)
+                .deals(new DealResponseDto[] { deal(dealObjectId) })
+                .build();
+    }
+
+    private static DealResponseDto deal(String objectId) {
+        return DealResponseDto.builder().objectId(objectId).discount("10").qtyLeft("5").build();
+    }
+
+    private static DealsCatalogRegistry newRegistry() {
+        DealsProperties dealsProperties = new DealsProperties();
+        dealsProperties.getShards().setCount(1);
+        dealsProperties.getDeltas().setCompactionRatio(1);
+        return new DealsCatalogRegistry(new ResponseDtoToResponseMapper(), dealsProperties, new SimpleMeterRegistry());
+    }
+}
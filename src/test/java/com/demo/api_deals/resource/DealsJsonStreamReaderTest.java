@@ -0,0 +1,63 @@
+package com.demo.api_deals.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.model.RestaurantResponseDto;
+
+import tools.jackson.databind.ObjectMapper;
+
+public class DealsJsonStreamReaderTest {
+
+    private final DealsJsonStreamReader streamReader = new DealsJsonStreamReader(new ObjectMapper());
+
+    @Test
+    void testReadRestaurants_onDocument_expectRestaurantsInOrder() {
+        // Arrange
+        String json = """
+                {
+                  "meta": { "source": "upstream", "tags": [1, 2] },
+                  "restaurants": [
+                    { "objectId": "R1", "name": "First", "deals": [ { "objectId": "D1", "qtyLeft": "5" } ] },
+                    null,
+                    { "objectId": "R2", "name": "Second", "deals": [] }
+                  ]
+                }
+                """;
+
+        // Act
+        List<RestaurantResponseDto> restaurants = streamReader.readRestaurants(() -> toStream(json)).collectList().block();
+
+        // Assert
+        assertEquals(2, restaurants.size(), "Expected nulls and other fields to be skipped");
+        assertEquals("R1", restaurants.get(0).getObjectId());
+        assertEquals("D1", restaurants.get(0).getDeals()[0].getObjectId());
+        assertEquals("R2", restaurants.get(1).getObjectId());
+    }
+
+    @Test
+    void testReadRestaurants_onNoRestaurantsField_expectEmpty() {
+        // Act
+        List<RestaurantResponseDto> restaurants = streamReader.readRestaurants(() -> toStream("{ \"other\": [] }")).collectList().block();
+
+        // Assert
+        assertTrue(restaurants.isEmpty());
+    }
+
+    @Test
+    void testReadRestaurants_onNonObjectDocument_expectError() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> streamReader.readRestaurants(() -> toStream("[]")).blockLast());
+    }
+
+    private static ByteArrayInputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,106 @@
+package com.demo.api_deals.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealsSnapshot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DealsResourceFileImplTest {
+
+    private static final String ONE_RESTAURANT = """
+            { "restaurants": [ { "objectId": "R1", "deals": [ { "objectId": "D1", "qtyLeft": "5" } ] } ] }
+            """;
+    private static final String TWO_RESTAURANTS = """
+            { "restaurants": [
+                { "objectId": "R1", "deals": [ { "objectId": "D1", "qtyLeft": "5" } ] },
+                { "objectId": "R2", "deals": [ { "objectId": "D2", "qtyLeft": "3" } ] }
+            ] }
+            """;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DealsSnapshotHolder snapshotHolder = new DealsSnapshotHolder();
+
+    @Test
+    void testWatch_onFileReplaced_expectNewSnapshotPublished() throws Exception {
+        // Arrange
+        Path file = write("deals.json", ONE_RESTAURANT);
+        DealsResourceFileImpl resource = newResource(file);
+        resource.afterPropertiesSet();
+        DealsSnapshot initial = snapshotHolder.getCurrent();
+
+        try {
+            // Act
+            Path replacement = write("deals.json.tmp", TWO_RESTAURANTS);
+            Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Assert
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (snapshotHolder.getCurrent() == initial && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, snapshotHolder.getCurrent().getData().getRestaurants().length, "Expected the replaced file to be reloaded");
+            assertEquals(2, meterRegistry.get("deals.resource.reload").tag("result", "success").timer().count());
+        } finally {
+            resource.destroy();
+        }
+    }
+
+    @Test
+    void testReload_onInvalidFile_expectCurrentSnapshotKept() throws Exception {
+        // Arrange
+        Path file = write("deals.json", ONE_RESTAURANT);
+        DealsResourceFileImpl resource = newResource(file);
+        DealsSnapshot initial = snapshotHolder.getCurrent();
+        write("deals.json", "[ \"not a deals document\" ]");
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, resource::reload);
+        assertSame(initial, snapshotHolder.getCurrent(), "Expected the previous snapshot to stay published");
+        assertEquals(1.0, meterRegistry.get("deals.resource.reload.failures").counter().count());
+    }
+
+    @Test
+    void testReload_onUnchangedFile_expectSameSnapshot() throws Exception {
+        // Arrange
+        Path file = write("deals.json", ONE_RESTAURANT);
+        DealsResourceFileImpl resource = newResource(file);
+
+        // Act
+        DealsSnapshot reloaded = resource.reload();
+
+        // Assert
+        assertEquals(1L, reloaded.getVersion(), "Expected an unchanged file not to be published again");
+    }
+
+    private DealsResourceFileImpl newResource(Path file) {
+        DealsProperties dealsProperties = new DealsProperties();
+        dealsProperties.getShards().setCount(1);
+        dealsProperties.getResource().setType("file");
+        dealsProperties.getResource().setPath(file.toString());
+        dealsProperties.getResource().setReloadDebounce(Duration.ofMillis(50));
+        DealsCatalogRegistry catalogRegistry = new DealsCatalogRegistry(new ResponseDtoToResponseMapper(), dealsProperties, meterRegistry);
+        return new DealsResourceFileImpl(snapshotHolder, catalogRegistry, dealsProperties, meterRegistry);
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(directory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,211 @@
+package com.demo.api_deals.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealsError;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+
+public class DealsResourceHttpImplTest {
+
+    private static final String ONE_RESTAURANT = """
+            { "restaurants": [ { "objectId": "R1", "deals": [ { "objectId": "D1", "qtyLeft": "5" } ] } ] }
+            """;
+    private static final String TWO_RESTAURANTS = """
+            { "restaurants": [
+                { "objectId": "R1", "deals": [ { "objectId": "D1", "qtyLeft": "5" } ] },
+                { "objectId": "R2", "deals": [ { "objectId": "D2", "qtyLeft": "3" } ] }
+            ] }
+            """;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DealsSnapshotHolder snapshotHolder = new DealsSnapshotHolder();
+
+    // What the mock upstream responds with
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicReference<String> upstreamBody = new AtomicReference<>(ONE_RESTAURANT);
+    private final AtomicInteger upstreamStatus = new AtomicInteger(200);
+    private final AtomicReference<Duration> upstreamDelay = new AtomicReference<>(Duration.ZERO);
+
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/deals", this::respond);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void testGetAllDeals_onConcurrentRequestsWithoutSnapshot_expectOneUpstreamCall() {
+        // Arrange
+        upstreamDelay.set(Duration.ofMillis(300));
+        DealsResourceHttpImpl resource = newResource(Duration.ofSeconds(2), Duration.ofMinutes(1), 5);
+
+        // Act
+        List<RestaurauntDealsResponseDto> results = Flux.range(0, 20)
+                .flatMap(i -> resource.getAllDeals())
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        // Assert
+        assertEquals(20, results.size());
+        assertTrue(results.stream().allMatch(data -> data == results.get(0)), "Expected every request to share one snapshot");
+        assertEquals(1, upstreamCalls.get(), "Expected concurrent fetches to be coalesced into one upstream call");
+        assertEquals(19.0, meterRegistry.get("deals.upstream.coalesced").counter().count());
+    }
+
+    @Test
+    void testGetAllDeals_onStaleSnapshot_expectStaleServedWhileRevalidating() throws Exception {
+        // Arrange
+        DealsResourceHttpImpl resource = newResource(Duration.ofSeconds(2), Duration.ofMillis(50), 5);
+        resource.getAllDeals().block(Duration.ofSeconds(5));
+        upstreamBody.set(TWO_RESTAURANTS);
+        upstreamDelay.set(Duration.ofMillis(300));
+        Thread.sleep(100);
+
+        // Act
+        long startNanos = System.nanoTime();
+        RestaurauntDealsResponseDto stale = resource.getAllDeals().block(Duration.ofSeconds(5));
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+        // Assert
+        assertEquals(1, stale.getRestaurants().length, "Expected the stale snapshot to be served straight away");
+        assertTrue(elapsedMillis < 300, "Expected not to wait for the upstream, took " + elapsedMillis + "ms");
+        awaitRestaurants(2);
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void testGetAllDeals_onSlowUpstreamWithoutSnapshot_expect503AfterTimeout() {
+        // Arrange
+        upstreamDelay.set(Duration.ofSeconds(2));
+        DealsResourceHttpImpl resource = newResource(Duration.ofMillis(200), Duration.ofMinutes(1), 5);
+
+        // Act
+        DealsError error = assertThrows(DealsError.class, () -> resource.getAllDeals().block(Duration.ofSeconds(5)));
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, error.getHttpStatus());
+        assertEquals(1, meterRegistry.get("deals.upstream.fetch").tag("result", "failure").timer().count());
+    }
+
+    @Test
+    void testGetAllDeals_onFailingUpstream_expectCircuitOpensAndCachedSnapshotServed() throws Exception {
+        // Arrange
+        DealsResourceHttpImpl resource = newResource(Duration.ofSeconds(2), Duration.ZERO, 2);
+        resource.getAllDeals().block(Duration.ofSeconds(5));
+        upstreamStatus.set(500);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            RestaurauntDealsResponseDto data = resource.getAllDeals().block(Duration.ofSeconds(5));
+            assertEquals(1, data.getRestaurants().length, "Expected the last good snapshot to be served");
+            Thread.sleep(50);
+        }
+
+        // Assert
+        assertEquals(3, upstreamCalls.get(), "Expected the upstream not to be called once the circuit breaker opened");
+        assertEquals(1.0, meterRegistry.get("deals.upstream.circuit-breaker.state").gauge().value());
+        assertTrue(meterRegistry.get("deals.upstream.rejected").counter().count() > 0);
+    }
+
+    @Test
+    void testGetAllDeals_onBodyOverMaxSize_expect503() {
+        // Arrange
+        upstreamBody.set(TWO_RESTAURANTS);
+        DealsResourceHttpImpl resource = newResource(Duration.ofSeconds(2), Duration.ofMinutes(1), 5, DataSize.ofBytes(64));
+
+        // Act
+        DealsError error = assertThrows(DealsError.class, () -> resource.getAllDeals().block(Duration.ofSeconds(5)));
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, error.getHttpStatus());
+        assertTrue(error.getThrowable() instanceof DataBufferLimitException, "Expected the body to be cut off at the limit");
+    }
+
+    private DealsResourceHttpImpl newResource(Duration timeout, Duration maxAge, int failureThreshold) {
+        return newResource(timeout, maxAge, failureThreshold, DataSize.ofMegabytes(1));
+    }
+
+    private DealsResourceHttpImpl newResource(Duration timeout, Duration maxAge, int failureThreshold, DataSize maxBodySize) {
+        DealsProperties dealsProperties = new DealsProperties();
+        dealsProperties.getShards().setCount(1);
+        dealsProperties.getResource().setType("http");
+        DealsProperties.Upstream upstream = dealsProperties.getResource().getUpstream();
+        upstream.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/deals");
+        upstream.setTimeout(timeout);
+        upstream.setMaxAge(maxAge);
+        upstream.setFailureThreshold(failureThreshold);
+        upstream.setOpenDuration(Duration.ofMinutes(1));
+        upstream.setMaxBodySize(maxBodySize);
+        DealsCatalogRegistry catalogRegistry = new DealsCatalogRegistry(new ResponseDtoToResponseMapper(), dealsProperties, meterRegistry);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("webClientBuilder", WebClient.builder());
+        return new DealsResourceHttpImpl(snapshotHolder, catalogRegistry, beanFactory.getBeanProvider(WebClient.Builder.class),
+                dealsProperties, meterRegistry);
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        upstreamCalls.incrementAndGet();
+        try {
+            Thread.sleep(upstreamDelay.get().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = upstreamBody.get().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(upstreamStatus.get(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // The client gave up (timed out) before the response was written
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void awaitRestaurants(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (snapshotHolder.getCurrent().getData().getRestaurants().length != count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(count, snapshotHolder.getCurrent().getData().getRestaurants().length, "Expected the refreshed snapshot to be published");
+    }
+}
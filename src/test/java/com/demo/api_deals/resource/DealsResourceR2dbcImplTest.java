@@ -0,0 +1,110 @@
+package com.demo.api_deals.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.configuration.DealsProperties;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import reactor.core.publisher.Flux;
+import tools.jackson.databind.ObjectMapper;
+
+public class DealsResourceR2dbcImplTest {
+
+    private final ResponseDtoToResponseMapper responseMapper = new ResponseDtoToResponseMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DealsSnapshotHolder snapshotHolder = new DealsSnapshotHolder();
+
+    @Test
+    void testReload_onSeededDatabase_expectSnapshotMatchesSampleData() {
+        // Arrange
+        List<RestaurantResponseDto> expected = readSampleData();
+
+        // Act
+        newResource(3);
+
+        // Assert
+        RestaurantResponseDto[] actual = snapshotHolder.getCurrent().getData().getRestaurants();
+        assertEquals(expected.size(), actual.length, "Expected every restaurant to be read across the pages");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getObjectId(), actual[i].getObjectId());
+            assertEquals(dealObjectIds(expected.get(i).getDeals()), dealObjectIds(actual[i].getDeals()));
+            assertEquals(Arrays.asList(expected.get(i).getCuisines()), Arrays.asList(actual[i].getCuisines()));
+            assertEquals(expected.get(i).getOpen(), actual[i].getOpen());
+        }
+        assertEquals(1, meterRegistry.get("deals.resource.reload").tag("result", "success").timer().count());
+    }
+
+    @Test
+    void testReload_onUnchangedRevision_expectSameSnapshot() {
+        // Arrange
+        DealsResourceR2dbcImpl resource = newResource(500);
+        DealsSnapshot initial = snapshotHolder.getCurrent();
+
+        // Act
+        DealsSnapshot reloaded = resource.reload().block();
+
+        // Assert
+        assertSame(initial, reloaded, "Expected an unchanged database not to be read or published again");
+    }
+
+    @Test
+    void testReplaceAll_onRestaurantsFailingPartWay_expectPreviousDataAndRevisionKept() {
+        // Arrange
+        DealsR2dbcStore store = new DealsR2dbcStore(newDatabaseClient(), 500);
+        List<RestaurantResponseDto> sampleData = readSampleData();
+        store.createSchema().then(store.replaceAll(Flux.fromIterable(sampleData))).block();
+        long revision = store.readRevision().block();
+        Flux<RestaurantResponseDto> failing = Flux.fromIterable(sampleData).take(2)
+                .concatWith(Flux.error(new IllegalStateException("Failed to read restaurants")));
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> store.replaceAll(failing).block());
+
+        // Assert
+        assertEquals(revision, store.readRevision().block(), "Expected the revision not to change");
+        assertEquals(sampleData.size(), store.readRestaurants().count().block(), "Expected the previous restaurants to be kept");
+    }
+
+    private DealsResourceR2dbcImpl newResource(int pageSize) {
+        DealsProperties dealsProperties = new DealsProperties();
+        dealsProperties.getShards().setCount(1);
+        dealsProperties.getResource().setType("r2dbc");
+        dealsProperties.getResource().setPageSize(pageSize);
+        dealsProperties.getResource().setRefreshInterval(Duration.ZERO);
+        dealsProperties.getResource().setInitializeDatabase(true);
+        DealsCatalogRegistry catalogRegistry = new DealsCatalogRegistry(responseMapper, dealsProperties, meterRegistry);
+        return new DealsResourceR2dbcImpl(snapshotHolder, catalogRegistry, newDatabaseClient(), dealsProperties, meterRegistry);
+    }
+
+    private static DatabaseClient newDatabaseClient() {
+        return DatabaseClient.create(ConnectionFactories.get("r2dbc:h2:mem:///deals-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+    }
+
+    private static List<String> dealObjectIds(DealResponseDto[] deals) {
+        return Arrays.stream(deals).map(DealResponseDto::getObjectId).toList();
+    }
+
+    private static List<RestaurantResponseDto> readSampleData() {
+        return new DealsJsonStreamReader(new ObjectMapper())
+                .readRestaurants(() -> RestaurauntDealsResponseDto.class.getClassLoader().getResourceAsStream("demo/sample-data.json"))
+                .collectList()
+                .block();
+    }
+}
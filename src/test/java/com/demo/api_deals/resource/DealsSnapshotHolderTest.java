@@ -0,0 +1,154 @@
+package com.demo.api_deals.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.api_deals.model.DealResponseDto;
+import com.demo.api_deals.model.DealsSnapshot;
+import com.demo.api_deals.model.RestaurantResponseDto;
+import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+
+public class DealsSnapshotHolderTest {
+
+    private final DealsSnapshotHolder snapshotHolder = new DealsSnapshotHolder();
+
+    @Test
+    void testGetDeals_onNothingPublished_expectError() {
+        // Act & Assert
+        assertNull(snapshotHolder.getCurrent());
+        assertThrows(IllegalStateException.class, () -> snapshotHolder.getDeals().block());
+    }
+
+    @Test
+    void testPublish_onValidData_expectDataServedFromSnapshot() {
+        // Arrange
+        RestaurauntDealsResponseDto data = document(restaurant("R1", deal("D1")));
+
+        // Act
+        DealsSnapshot snapshot = snapshotHolder.publish(data);
+
+        // Assert
+        assertSame(snapshot, snapshotHolder.getCurrent());
+        assertSame(data, snapshot.getData());
+        assertNotNull(snapshot.getLoadedAt());
+        assertSame(data, snapshotHolder.getDeals().block());
+    }
+
+    @Test
+    void testPublish_onMissingArrays_expectEmptyArrays() {
+        // Arrange
+        RestaurantResponseDto withoutDeals = RestaurantResponseDto.builder().objectId("R1").build();
+        RestaurauntDealsResponseDto withoutRestaurants = new RestaurauntDealsResponseDto();
+
+        // Act
+        snapshotHolder.publish(document(withoutDeals));
+        snapshotHolder.publish(withoutRestaurants);
+
+        // Assert
+        assertEquals(0, withoutDeals.getDeals().length, "Expected missing deals to be normalised to an empty array");
+        assertEquals(0, withoutRestaurants.getRestaurants().length, "Expected missing restaurants to be normalised to an empty array");
+    }
+
+    @Test
+    void testPublish_onInvalidData_expectCurrentSnapshotKept() {
+        // Arrange
+        DealsSnapshot initial = snapshotHolder.publish(document(restaurant("R1", deal("D1"))));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> snapshotHolder.publish(null));
+        assertThrows(IllegalArgumentException.class, () -> snapshotHolder.publish(document(restaurant(null, deal("D1")))));
+        assertThrows(IllegalArgumentException.class, () -> snapshotHolder.publish(document(restaurant("R1", deal(null)))));
+        assertThrows(IllegalArgumentException.class, () -> snapshotHolder.publish(document(restaurant("R1", (DealResponseDto) null))));
+        assertThrows(IllegalArgumentException.class, () -> snapshotHolder.publish(document((RestaurantResponseDto) null)));
+        assertSame(initial, snapshotHolder.getCurrent(), "Expected invalid data to leave the current snapshot in place");
+    }
+
+    @Test
+    void testPublishIfCurrent_onExpectedData_expectPublished() {
+        // Arrange
+        RestaurauntDealsResponseDto initial = document(restaurant("R1", deal("D1")));
+        RestaurauntDealsResponseDto patched = document(restaurant("R1", deal("D1"), deal("D2")));
+        snapshotHolder.publish(initial);
+
+        // Act
+        DealsSnapshot snapshot = snapshotHolder.publishIfCurrent(initial, patched);
+
+        // Assert
+        assertNotNull(snapshot);
+        assertSame(snapshot, snapshotHolder.getCurrent());
+        assertSame(patched, snapshot.getData());
+    }
+
+    @Test
+    void testPublishIfCurrent_onReplacedData_expectNotPublished() {
+        // Arrange
+        RestaurauntDealsResponseDto initial = document(restaurant("R1", deal("D1")));
+        RestaurauntDealsResponseDto reloaded = document(restaurant("R2", deal("D2")));
+        snapshotHolder.publish(initial);
+        DealsSnapshot current = snapshotHolder.publish(reloaded);
+
+        // Act
+        DealsSnapshot snapshot = snapshotHolder.publishIfCurrent(initial, document(restaurant("R1", deal("D3"))));
+
+        // Assert
+        assertNull(snapshot, "Expected a patch of replaced data not to be published");
+        assertSame(current, snapshotHolder.getCurrent());
+    }
+
+    @Test
+    void testPublishIfCurrent_onInvalidData_expectException() {
+        // Arrange
+        RestaurauntDealsResponseDto initial = document(restaurant("R1", deal("D1")));
+        DealsSnapshot current = snapshotHolder.publish(initial);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> snapshotHolder.publishIfCurrent(initial, document(restaurant("R1", deal(null)))));
+        assertSame(current, snapshotHolder.getCurrent());
+    }
+
+    @Test
+    void testPublish_onSuccessiveSnapshots_expectDistinctVersions() {
+        // Act
+        DealsSnapshot first = snapshotHolder.publish(document(restaurant("R1", deal("D1"))));
+        DealsSnapshot second = snapshotHolder.publish(document(restaurant("R1", deal("D1"))));
+
+        // Assert
+        assertTrue(first.getVersion() != second.getVersion(), "Expected each published snapshot to have its own version");
+    }
+
+    @Test
+    void testPublish_onRestartedHolder_expectSameVersionWithDifferentBootId() {
+        // Arrange
+        DealsSnapshotHolder restarted = new DealsSnapshotHolder();
+
+        // Act
+        DealsSnapshot first = snapshotHolder.publish(document(restaurant("R1", deal("D1"))));
+        DealsSnapshot afterRestart = restarted.publish(document(restaurant("R2", deal("D2"))));
+
+        // Assert
+        assertEquals(first.getVersion(), afterRestart.getVersion());
+        assertNotNull(first.getBootId());
+        assertTrue(!first.getBootId().equals(afterRestart.getBootId()), "Expected the boot id to tell snapshots with the same version apart");
+        assertEquals(first.getBootId(), snapshotHolder.publish(document(restaurant("R3", deal("D3")))).getBootId());
+    }
+
+    private static RestaurauntDealsResponseDto document(RestaurantResponseDto... restaurants) {
+        RestaurauntDealsResponseDto data = new RestaurauntDealsResponseDto();
+        data.setRestaurants(restaurants);
+        return data;
+    }
+
+    private static RestaurantResponseDto restaurant(String objectId, DealResponseDto... deals) {
+        return RestaurantResponseDto.builder().objectId(objectId).deals(deals).build();
+    }
+
+    private static DealResponseDto deal(String objectId) {
+        return DealResponseDto.builder().objectId(objectId).build();
+    }
+}
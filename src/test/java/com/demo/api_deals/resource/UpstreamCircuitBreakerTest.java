@@ -0,0 +1,54 @@
+package com.demo.api_deals.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class UpstreamCircuitBreakerTest {
+
+    private final AtomicLong nanoClock = new AtomicLong();
+
+    @Test
+    void testTryAcquire_onConsecutiveFailures_expectOpenUntilTrialSucceeds() {
+        // Arrange
+        UpstreamCircuitBreaker circuitBreaker = new UpstreamCircuitBreaker(3, Duration.ofSeconds(10), nanoClock::get);
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onFailure();
+        }
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertFalse(circuitBreaker.tryAcquire(), "Expected calls to be rejected while open");
+
+        nanoClock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(circuitBreaker.tryAcquire(), "Expected a trial call once the open duration has passed");
+        assertFalse(circuitBreaker.tryAcquire(), "Expected only one trial call at a time");
+        circuitBreaker.onSuccess();
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, circuitBreaker.state());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void testOnFailure_onFailedTrial_expectReopened() {
+        // Arrange
+        UpstreamCircuitBreaker circuitBreaker = new UpstreamCircuitBreaker(1, Duration.ofSeconds(10), nanoClock::get);
+        circuitBreaker.tryAcquire();
+        circuitBreaker.onFailure();
+        nanoClock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        // Act
+        circuitBreaker.tryAcquire();
+        circuitBreaker.onFailure();
+
+        // Assert
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, circuitBreaker.state());
+        nanoClock.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertFalse(circuitBreaker.tryAcquire(), "Expected a failed trial to restart the open duration");
+    }
+}
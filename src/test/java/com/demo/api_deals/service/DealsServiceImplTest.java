@@ -6,6 +6,12 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Duration;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,11 +24,21 @@ import org.springframework.http.HttpStatus;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
 import com.demo.api_deals.BaseTestClass;
+import com.demo.api_deals.catalog.ActiveDealsAnswerTable;
+import com.demo.api_deals.catalog.DealsCatalog;
+import com.demo.api_deals.catalog.DealsCatalogRegistry;
+import com.demo.api_deals.catalog.PeakSweep;
 import com.demo.api_deals.helpers.FileLoader;
+import com.demo.api_deals.mapper.ResponseDtoToResponseMapper;
 import com.demo.api_deals.model.DealsError;
+import com.demo.api_deals.model.RestaurantResponseDto;
 import com.demo.api_deals.model.RestaurauntDealsResponseDto;
+import com.demo.api_deals.model.TimeEvent;
+import com.demo.api_deals.resource.DealsDeltaIngestor;
 import com.demo.api_deals.resource.DealsResource;
+import com.demo.contract_api_deals.models.PeakDealsResponse;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -36,6 +52,18 @@ public class DealsServiceImplTest extends BaseTestClass {
     @Autowired
     private DealsServiceImpl dealsService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ResponseDtoToResponseMapper responseMapper;
+
+    @Autowired
+    private DealsDeltaIngestor deltaIngestor;
+
+    @Autowired
+    private DealsMetrics dealsMetrics;
+
     private final FileLoader fileLoader = new FileLoader();
     private final RestaurauntDealsResponseDto mockResponse = (RestaurauntDealsResponseDto) fileLoader.readFileAsObject("responses/restaurant-deals-response.json", RestaurauntDealsResponseDto.class);
 
@@ -105,6 +133,38 @@ public class DealsServiceImplTest extends BaseTestClass {
     }
 
 
+    @Test
+    void testGetActiveDeals_onClaimBetweenAnswerTableCheckAndUse_expectResponseFromTable() {
+        // Arrange
+        LocalTime timeOfDay = LocalTime.of(15, 0); // 3:00 PM
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper);
+        for (RestaurantResponseDto restaurant : mockResponse.getRestaurants()) {
+            builder.add(restaurant);
+        }
+        DealsCatalog compiled = builder.build();
+        ActiveDealsAnswerTable answerTable = compiled.buildAnswerTable();
+        DealsCatalog catalog = Mockito.spy(compiled);
+        // A claim lands right after the table is read, after which the catalog no longer has a table to give
+        Mockito.when(catalog.getAnswerTable()).thenAnswer(invocation -> {
+            compiled.getInventory().claim("DEA567C5-0000-3C03-FF00-E3B24909BE00", 1);
+            return answerTable;
+        }).thenReturn(null);
+
+        DealsCatalogRegistry resolvingRegistry = Mockito.mock(DealsCatalogRegistry.class);
+        Mockito.when(resolvingRegistry.resolve(mockResponse)).thenReturn(catalog);
+        Mockito.when(dealsResource.getAllDeals()).thenReturn(Mono.just(mockResponse));
+        DealsServiceImpl service = new DealsServiceImpl(responseMapper, resolvingRegistry, dealsResource, deltaIngestor, dealsMetrics);
+
+        // Act
+        StepVerifier.create(service.getActiveDeals(timeOfDay))
+                // Assert
+                .assertNext(activeDealsResponse -> assertEquals(5, activeDealsResponse.getDeals().size(), "Expected the response from the table read before the claim"))
+                .verifyComplete();
+
+        Mockito.verify(catalog, Mockito.times(1)).getAnswerTable();
+    }
+
+
     @Test
     void testGetActiveDeals_onStandardSuccessResponse_with9pmTimeOfDay_expect4Results() {
         // Arrange
@@ -278,4 +338,312 @@ public class DealsServiceImplTest extends BaseTestClass {
 
         Mockito.verify(dealsResource, Mockito.times(1)).getAllDeals();
     }
+
+    @Test
+    void testClaimDeal_onLastOfDeal_expectClaimedAndNoLongerActive() {
+        // Arrange
+        // Use shared mock response already initiated
+        LocalTime timeOfDay = LocalTime.of(15, 0); // 3:00 PM
+        String dealObjectId = "D80263E8-0000-2C70-FF6B-D854ADB8DB02"; // qtyLeft: 1
+
+        Mockito.when(dealsResource.getAllDeals())
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        StepVerifier.create(dealsService.claimDeal(dealObjectId, 1))
+                // Assert
+                .assertNext(claimResponse -> {
+                    assertEquals(dealObjectId, claimResponse.getDealObjectId(), "Expected deal object ID to match");
+                    assertEquals(1, claimResponse.getQuantityClaimed(), "Expected quantity claimed to match");
+                    assertEquals(0, claimResponse.getQtyLeft(), "Expected nothing left after the claim");
+                })
+                .verifyComplete();
+
+        StepVerifier.create(dealsService.getActiveDeals(timeOfDay))
+                .assertNext(activeDealsResponse -> {
+                    assertEquals(4, activeDealsResponse.getDeals().size(), "Expected the sold out deal to no longer be active");
+                    assertTrue(activeDealsResponse.getDeals().stream().noneMatch(deal -> dealObjectId.equals(deal.getDealObjectId())));
+                })
+                .verifyComplete();
+
+        StepVerifier.create(dealsService.claimDeal(dealObjectId, 1))
+                .consumeErrorWith(throwable -> {
+                    assertTrue(throwable instanceof DealsError);
+                    assertEquals(HttpStatus.CONFLICT, ((DealsError) throwable).getHttpStatus());
+                })
+                .verify();
+    }
+
+    @Test
+    void testClaimDeal_onPartialClaim_expectLiveQtyLeftInActiveDeals() {
+        // Arrange
+        // Use shared mock response already initiated
+        LocalTime timeOfDay = LocalTime.of(15, 0); // 3:00 PM
+        String dealObjectId = "DEA567C5-0000-3C03-FF00-E3B24909BE00"; // qtyLeft: 5
+
+        Mockito.when(dealsResource.getAllDeals())
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        StepVerifier.create(dealsService.claimDeal(dealObjectId, 2))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Assert
+        StepVerifier.create(dealsService.getActiveDeals(timeOfDay))
+                .assertNext(activeDealsResponse -> {
+                    assertEquals(5, activeDealsResponse.getDeals().size(), "Expected 5 active deals");
+                    assertEquals(dealObjectId, activeDealsResponse.getDeals().get(0).getDealObjectId(), "Expected deal object ID to match");
+                    assertEquals(3, activeDealsResponse.getDeals().get(0).getQtyLeft(), "Expected the live quantity left");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testClaimDeal_onUnknownDeal_expect404DealsError() {
+        // Arrange
+        Mockito.when(dealsResource.getAllDeals())
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        StepVerifier.create(dealsService.claimDeal("UNKNOWN", 1))
+                // Assert
+                .consumeErrorWith(throwable -> {
+                    assertTrue(throwable instanceof DealsError);
+                    assertEquals(HttpStatus.NOT_FOUND, ((DealsError) throwable).getHttpStatus());
+                })
+                .verify();
+    }
+
+    @Test
+    void testGetActiveDealsBatch_onStandardSuccessResponse_expectDeduplicatedSlots() {
+        // Arrange
+        // Use shared mock response already initiated
+        List<LocalTime> timesOfDay = List.of(LocalTime.of(18, 0), LocalTime.of(15, 0), LocalTime.of(1, 0), LocalTime.of(15, 30));
+
+        Mockito.when(dealsResource.getAllDeals())
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        StepVerifier.create(dealsService.getActiveDealsBatch(timesOfDay))
+                // Assert
+                .assertNext(batchResponse -> {
+                    assertEquals(4, batchResponse.getSlots().size(), "Expected one slot per requested time");
+                    assertEquals("18:00", batchResponse.getSlots().get(0).getTimeOfDay(), "Expected slots in request order");
+                    assertEquals(9, batchResponse.getSlots().get(0).getDealIndexes().size(), "Expected 9 active deals at 6pm");
+                    assertEquals(5, batchResponse.getSlots().get(1).getDealIndexes().size(), "Expected 5 active deals at 3pm");
+                    assertEquals(0, batchResponse.getSlots().get(2).getDealIndexes().size(), "Expected 0 active deals at 1am");
+                    assertEquals(batchResponse.getSlots().get(1).getDealIndexes(), batchResponse.getSlots().get(3).getDealIndexes());
+
+                    Set<String> dealObjectIds = new HashSet<>();
+                    batchResponse.getDeals().forEach(deal -> dealObjectIds.add(deal.getDealObjectId()));
+                    assertEquals(batchResponse.getDeals().size(), dealObjectIds.size(), "Expected every deal to be returned once");
+                    assertEquals("DEA567C5-0000-3C03-FF00-E3B24909BE00",
+                            batchResponse.getDeals().get(batchResponse.getSlots().get(1).getDealIndexes().get(0)).getDealObjectId(),
+                            "Expected slot references to resolve to the active deals");
+                })
+                .verifyComplete();
+
+        Mockito.verify(dealsResource, Mockito.times(1)).getAllDeals();
+    }
+
+    @Test
+    void testGetPeakHistogram_onStandardSuccessResponse_expectHistogramAndBestWindow() {
+        // Arrange
+        // Use shared mock response already initiated
+
+        Mockito.when(dealsResource.getAllDeals())
+                .thenReturn(Mono.just(mockResponse));
+
+        // Act
+        StepVerifier.create(dealsService.getPeakHistogram(60, 1))
+                // Assert
+                .assertNext(histogramResponse -> {
+                    assertEquals(24 * 60, histogramResponse.getActiveDealsPerMinute().size(), "Expected one count per minute of the day");
+                    assertEquals(0, histogramResponse.getActiveDealsPerMinute().get(60), "Expected no deals at 1am");
+                    int maxActive = histogramResponse.getActiveDealsPerMinute().stream().mapToInt(Integer::intValue).max().getAsInt();
+
+                    assertTrue(histogramResponse.getWindows().size() >= 1);
+                    assertEquals(1, histogramResponse.getWindows().get(0).getRank());
+                    assertEquals(maxActive, histogramResponse.getWindows().get(0).getMaxActiveDeals(), "Expected the best window to contain the peak");
+                    assertEquals("17:00", histogramResponse.getWindows().get(0).getStart(), "Expected the best window to start with the peak");
+                })
+                .verifyComplete();
+
+        Mockito.verify(dealsResource, Mockito.times(1)).getAllDeals();
+    }
+
+    @Test
+    void testGetActiveDeals_onStandardSuccessResponse_expectLatencyAndScannedVsReturnedRecorded() {
+        // Arrange
+        LocalTime timeOfDay = LocalTime.of(15, 0); // 3:00 PM
+        Mockito.when(dealsResource.getAllDeals())
+                .thenReturn(Mono.just(mockResponse));
+        long requestsBefore = meterRegistry.get("deals.service.requests").tag("operation", "active").tag("result", "success").timer().count();
+        long getAllDealsBefore = meterRegistry.get("deals.resource.get-all-deals").tag("result", "success").timer().count();
+        double scannedBefore = meterRegistry.get("deals.active.scanned").counter().count();
+        double returnedBefore = meterRegistry.get("deals.active.returned").counter().count();
+
+        // Act
+        StepVerifier.create(dealsService.getActiveDeals(timeOfDay))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Assert
+        assertEquals(requestsBefore + 1, meterRegistry.get("deals.service.requests").tag("operation", "active").tag("result", "success").timer().count());
+        assertEquals(getAllDealsBefore + 1, meterRegistry.get("deals.resource.get-all-deals").tag("result", "success").timer().count());
+        assertEquals(returnedBefore + 5, meterRegistry.get("deals.active.returned").counter().count(), "Expected the 5 returned deals to be counted");
+        // At 3pm the time index has 5 candidates: both deals of DEA567C5 (opens at 3pm), both of D80263E8, and the 2pm-9pm deal of B5713CD0.
+        // CDB2B42A and 21076F54 open later, and 178CC02C closes at 3pm
+        assertEquals(scannedBefore + 5, meterRegistry.get("deals.active.scanned").counter().count(), "Expected the 5 candidates at 3pm to be counted as scanned");
+        assertNotNull(meterRegistry.find("deals.mapper.time-parse.failures").functionCounter());
+        assertNotNull(meterRegistry.find("deals.snapshot.age").gauge());
+    }
+
+    @Test
+    void testGetActiveDeals_onAnswerTable_expectHitAndScannedVsReturnedRecorded() {
+        // Arrange
+        LocalTime timeOfDay = LocalTime.of(15, 0); // 3:00 PM
+        DealsCatalog.Builder builder = new DealsCatalog.Builder(responseMapper);
+        for (RestaurantResponseDto restaurant : mockResponse.getRestaurants()) {
+            builder.add(restaurant);
+        }
+        DealsCatalog catalog = Mockito.spy(builder.build());
+        Mockito.when(catalog.getAnswerTable()).thenReturn(catalog.buildAnswerTable());
+
+        DealsCatalogRegistry resolvingRegistry = Mockito.mock(DealsCatalogRegistry.class);
+        Mockito.when(resolvingRegistry.resolve(mockResponse)).thenReturn(catalog);
+        Mockito.when(dealsResource.getAllDeals()).thenReturn(Mono.just(mockResponse));
+        DealsServiceImpl service = new DealsServiceImpl(responseMapper, resolvingRegistry, dealsResource, deltaIngestor, dealsMetrics);
+        double hitsBefore = meterRegistry.get("deals.answer-table.hits").counter().count();
+        double scannedBefore = meterRegistry.get("deals.active.scanned").counter().count();
+        double returnedBefore = meterRegistry.get("deals.active.returned").counter().count();
+
+        // Act
+        StepVerifier.create(service.getActiveDeals(timeOfDay))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Assert
+        assertEquals(hitsBefore + 1, meterRegistry.get("deals.answer-table.hits").counter().count());
+        assertEquals(returnedBefore + 5, meterRegistry.get("deals.active.returned").counter().count(), "Expected the 5 deals returned from the table to be counted");
+        assertEquals(scannedBefore + 5, meterRegistry.get("deals.active.scanned").counter().count(), "Expected the 5 candidates at 3pm to be counted as scanned");
+    }
+
+    @Test
+    void testFindPeakDealsWindow_onRandomEvents_expectSameWindowAsPreviousSweep() {
+        // Arrange
+        Random random = new Random(5);
+        for (int round = 0; round < 500; round++) {
+            List<TimeEvent> events = new ArrayList<>();
+            int deals = random.nextInt(30);
+            for (int i = 0; i < deals; i++) {
+                // Few distinct minutes so ties are common; start and end are independent, so some intervals are inverted (overnight)
+                LocalTime start = random.nextInt(10) == 0 ? null : LocalTime.of(random.nextInt(24), 15 * random.nextInt(4));
+                LocalTime end = random.nextInt(10) == 0 ? null : LocalTime.of(random.nextInt(24), 15 * random.nextInt(4));
+                events.add(new TimeEvent(start, TimeEvent.EventType.START));
+                events.add(new TimeEvent(end, TimeEvent.EventType.END));
+            }
+            Collections.shuffle(events, random);
+            PeakDealsResponse expected = previousSweep(events);
+
+            // Act
+            PeakDealsResponse actual = dealsService.findPeakDealsWindow(new ArrayList<>(events));
+            PeakDealsResponse actualEncoded = dealsService.findPeakDealsWindow(encode(events), (int) events.stream().filter(event -> event.getTime() != null).count());
+
+            // Assert
+            assertEquals(expected, actual, "Expected the same peak window as the previous sweep for " + events);
+            assertEquals(expected, actualEncoded, "Expected the primitive sweep to match the previous sweep for " + events);
+        }
+    }
+
+    @Test
+    void testFindPeakDealsWindow_onStartAndEndAtSameMinute_expectStartCountedFirst() {
+        // Arrange
+        // The first deal ends as the second starts; with START before END both are active at 12:00
+        List<TimeEvent> events = new ArrayList<>(List.of(
+                new TimeEvent(LocalTime.of(12, 0), TimeEvent.EventType.END),
+                new TimeEvent(LocalTime.of(14, 0), TimeEvent.EventType.END),
+                new TimeEvent(LocalTime.of(12, 0), TimeEvent.EventType.START),
+                new TimeEvent(LocalTime.of(10, 0), TimeEvent.EventType.START)));
+
+        // Act
+        PeakDealsResponse actual = dealsService.findPeakDealsWindow(events);
+
+        // Assert
+        assertEquals("12:00", actual.getPeakTimeStart());
+        assertEquals("12:00", actual.getPeakTimeEnd());
+        assertEquals(previousSweep(events), actual);
+    }
+
+    @Test
+    void testFindPeakDealsWindow_onOnlyNullTimes_expectNullPeakResponse() {
+        // Arrange
+        List<TimeEvent> events = new ArrayList<>(List.of(
+                new TimeEvent(null, TimeEvent.EventType.START),
+                new TimeEvent(null, TimeEvent.EventType.END)));
+
+        // Act
+        PeakDealsResponse actual = dealsService.findPeakDealsWindow(events);
+
+        // Assert
+        assertEquals(null, actual.getPeakTimeStart());
+        assertEquals(null, actual.getPeakTimeEnd());
+    }
+
+    /**
+     * The list-based sweep findPeakDealsWindow used before the events were encoded as ints, kept as the reference.
+     * It failed on events without a time, which the encoded sweep ignores, so those are dropped first. Its comparator
+     * returned -1 for two STARTs at the same time, which TimSort may reject, so ties between events of the same type compare equal here.
+     */
+    private PeakDealsResponse previousSweep(List<TimeEvent> timedAndUntimedEvents) {
+        List<TimeEvent> events = new ArrayList<>(timedAndUntimedEvents);
+        events.removeIf(event -> event.getTime() == null);
+        if (events.isEmpty()) {
+            return responseMapper.mapPeakDealsResponse(null, null);
+        }
+
+        events.sort((e1, e2) -> {
+            int timeComparison = e1.getTime().compareTo(e2.getTime());
+            if (timeComparison != 0) return timeComparison;
+            return e1.getEventType().compareTo(e2.getEventType()); // START events come before END events if times are equal
+        });
+
+        int maxActiveDeals = 0;
+        int currentActiveDeals = 0;
+        LocalTime peakWindowStart = events.get(0).getTime();
+        LocalTime peakWindowEnd = null;
+        for (TimeEvent event : events) {
+            if (event.getEventType() == TimeEvent.EventType.START) {
+                currentActiveDeals++;
+                if (currentActiveDeals > maxActiveDeals) {
+                    maxActiveDeals = currentActiveDeals;
+                    peakWindowStart = event.getTime();
+                    peakWindowEnd = null;
+                }
+            } else {
+                if (currentActiveDeals == maxActiveDeals && peakWindowEnd == null) {
+                    peakWindowEnd = event.getTime();
+                }
+                currentActiveDeals--;
+            }
+        }
+        if (peakWindowEnd == null) {
+            peakWindowEnd = events.get(events.size() - 1).getTime();
+        }
+        return responseMapper.mapPeakDealsResponse(peakWindowStart, peakWindowEnd);
+    }
+
+    private static int[] encode(List<TimeEvent> events) {
+        // Spare capacity after the events, which the sweep must ignore
+        int[] encoded = new int[events.size() + 3];
+        int count = 0;
+        for (TimeEvent event : events) {
+            if (event.getTime() != null) {
+                encoded[count++] = PeakSweep.encode(DealsCatalog.minuteOfDay(event.getTime()),
+                        event.getEventType() == TimeEvent.EventType.START ? PeakSweep.START : PeakSweep.END);
+            }
+        }
+        return encoded;
+    }
 }